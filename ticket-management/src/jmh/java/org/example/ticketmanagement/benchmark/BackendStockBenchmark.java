@@ -0,0 +1,111 @@
+package org.example.ticketmanagement.benchmark;
+
+import org.example.ticketmanagement.mapper.TicketTierMapper;
+import org.example.ticketmanagement.pojo.TicketTier;
+import org.example.ticketmanagement.util.RedisStockUtil;
+import org.example.ticketmanagement.util.StockDeductionCombiner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 带I/O的库存扣减开销：数据库条件UPDATE、Redis Lua预扣、合并窗口内的组提交
+ * 每次操作随机选择一个票档扣减1张，每轮迭代前把库存恢复为初始值
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BackendStockBenchmark {
+
+    private static final int STOCK = 1_000_000_000;
+
+    @Param({"1", "8", "64"})
+    private int tiers;
+
+    private AnnotationConfigApplicationContext context;
+    private TicketTierMapper ticketTierMapper;
+    private RedisStockUtil redisStockUtil;
+    private StockDeductionCombiner stockDeductionCombiner;
+    private Long[] tierIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext(BenchmarkBackend.class);
+        ticketTierMapper = context.getBean(TicketTierMapper.class);
+        redisStockUtil = context.getBean(RedisStockUtil.class);
+        stockDeductionCombiner = context.getBean(StockDeductionCombiner.class);
+
+        LocalDateTime now = LocalDateTime.now();
+        tierIds = new Long[tiers];
+        for (int i = 0; i < tiers; i++) {
+            TicketTier tier = new TicketTier(null, 0L, 0L, "jmh-" + i, BigDecimal.ONE, BigDecimal.ONE,
+                    STOCK, STOCK, 1, null, now, now);
+            ticketTierMapper.insert(tier);
+            tierIds[i] = tier.getId();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetStock() {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        for (Long tierId : tierIds) {
+            jdbcTemplate.update("UPDATE ticket_tier SET available_stock = total_stock WHERE id = ?", tierId);
+            redisStockUtil.drainPending(tierId);
+            redisStockUtil.overwrite(tierId, STOCK);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        for (Long tierId : tierIds) {
+            redisStockUtil.drainPending(tierId);
+            redisStockUtil.remove(tierId);
+            jdbcTemplate.update("DELETE FROM ticket_tier WHERE id = ?", tierId);
+        }
+        context.close();
+    }
+
+    /**
+     * 数据库引擎：TicketTierMapper.updateStock 条件UPDATE，热点行上的并发扣减串行等待行锁
+     */
+    @Benchmark
+    public boolean sqlUpdateStock() {
+        return ticketTierMapper.updateStock(pickTier(), 1) == 1;
+    }
+
+    /**
+     * Redis引擎：RedisStockUtil.reserve 的Lua脚本原子预扣并记录待回写增量
+     */
+    @Benchmark
+    public boolean luaReserve() {
+        return redisStockUtil.reserve(pickTier(), 1) >= 0;
+    }
+
+    /**
+     * 数据库引擎 + 组提交：StockDeductionCombiner 把合并窗口内同一票档的扣减合并为一条UPDATE
+     * 单个请求需等待合并窗口，线程数少时吞吐低于直接UPDATE，线程数多时行锁次数大幅减少
+     */
+    @Benchmark
+    public boolean groupCommit() {
+        return stockDeductionCombiner.deduct(pickTier(), 1);
+    }
+
+    private Long pickTier() {
+        return tierIds[ThreadLocalRandom.current().nextInt(tiers)];
+    }
+}
@@ -0,0 +1,119 @@
+package org.example.ticketmanagement.benchmark;
+
+import com.github.fppt.jedismock.RedisServer;
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.example.ticketmanagement.config.StockConfig;
+import org.example.ticketmanagement.mapper.TicketTierMapper;
+import org.example.ticketmanagement.util.RedisStockUtil;
+import org.example.ticketmanagement.util.StockDeductionCombiner;
+import org.mybatis.spring.SqlSessionFactoryBean;
+import org.mybatis.spring.mapper.MapperFactoryBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+
+/**
+ * 基准测试使用的最小Spring上下文：只装配库存扣减链路上的真实组件
+ * （TicketTierMapper 的SQL、RedisStockUtil 的Lua脚本、StockDeductionCombiner 的组提交），不启动Web与定时任务
+ */
+@Configuration
+public class BenchmarkBackend {
+
+    public static final String JDBC_URL = "jmh.jdbc.url";
+    public static final String JDBC_USER = "jmh.jdbc.user";
+    public static final String JDBC_PASSWORD = "jmh.jdbc.password";
+    // embedded-进程内Redis替身，否则为 host:port
+    public static final String REDIS = "jmh.redis";
+
+    private static final String DEFAULT_JDBC_URL =
+            "jdbc:h2:mem:jmh;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000";
+
+    // 只在内嵌H2上建表，外部MySQL库应已有 ticket_tier 表
+    private static final String H2_SCHEMA = "CREATE TABLE IF NOT EXISTS ticket_tier (" +
+            "id BIGINT PRIMARY KEY AUTO_INCREMENT, event_id BIGINT NOT NULL, session_id BIGINT NOT NULL, " +
+            "tier_name VARCHAR(100) NOT NULL, original_price DECIMAL(12, 2) NULL, current_price DECIMAL(12, 2) NULL, " +
+            "total_stock INT NOT NULL, available_stock INT NOT NULL, status TINYINT NOT NULL DEFAULT 1, " +
+            "purchase_limit INT NULL, create_time DATETIME NULL, update_time DATETIME NULL)";
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource dataSource() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getProperty(JDBC_URL, DEFAULT_JDBC_URL));
+        dataSource.setUsername(System.getProperty(JDBC_USER, "sa"));
+        dataSource.setPassword(System.getProperty(JDBC_PASSWORD, ""));
+        // 与应用的连接池大小一致，线程数超过连接数时的排队也计入结果
+        dataSource.setMaximumPoolSize(20);
+        dataSource.setMinimumIdle(20);
+        if (dataSource.getJdbcUrl().startsWith("jdbc:h2:")) {
+            new JdbcTemplate(dataSource).execute(H2_SCHEMA);
+        }
+        return dataSource;
+    }
+
+    @Bean
+    public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
+    }
+
+    @Bean
+    public SqlSessionFactoryBean sqlSessionFactory(DataSource dataSource) {
+        SqlSessionFactoryBean factoryBean = new SqlSessionFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        org.apache.ibatis.session.Configuration configuration = new org.apache.ibatis.session.Configuration();
+        configuration.setMapUnderscoreToCamelCase(true);
+        factoryBean.setConfiguration(configuration);
+        return factoryBean;
+    }
+
+    @Bean
+    public MapperFactoryBean<TicketTierMapper> ticketTierMapper(SqlSessionFactory sqlSessionFactory) {
+        MapperFactoryBean<TicketTierMapper> factoryBean = new MapperFactoryBean<>(TicketTierMapper.class);
+        factoryBean.setSqlSessionFactory(sqlSessionFactory);
+        return factoryBean;
+    }
+
+    // 进程内Redis替身始终启动（随机端口），指定外部Redis时不使用
+    @Bean(destroyMethod = "stop")
+    public RedisServer redisServer() throws IOException {
+        RedisServer server = RedisServer.newRedisServer();
+        server.start();
+        return server;
+    }
+
+    @Bean
+    public LettuceConnectionFactory redisConnectionFactory(RedisServer redisServer) {
+        String redis = System.getProperty(REDIS, "embedded");
+        RedisStandaloneConfiguration configuration = "embedded".equals(redis)
+                ? new RedisStandaloneConfiguration(redisServer.getHost(), redisServer.getBindPort())
+                : new RedisStandaloneConfiguration(redis.substring(0, redis.lastIndexOf(':')),
+                Integer.parseInt(redis.substring(redis.lastIndexOf(':') + 1)));
+        return new LettuceConnectionFactory(configuration);
+    }
+
+    @Bean
+    public StringRedisTemplate stringRedisTemplate(LettuceConnectionFactory redisConnectionFactory) {
+        return new StringRedisTemplate(redisConnectionFactory);
+    }
+
+    @Bean
+    public StockConfig stockConfig() {
+        return new StockConfig();
+    }
+
+    @Bean
+    public RedisStockUtil redisStockUtil() {
+        return new RedisStockUtil();
+    }
+
+    @Bean
+    public StockDeductionCombiner stockDeductionCombiner() {
+        return new StockDeductionCombiner();
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.ticketmanagement.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 内存库存计数的扣减开销（对照组，不含任何I/O）
+ * 每次操作随机选择一个票档扣减1张，票档数越少竞争越集中
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class InMemoryStockBenchmark {
+
+    // 每轮迭代开始时的库存，足够大保证迭代内不会售罄
+    private static final int STOCK = Integer.MAX_VALUE / 2;
+
+    @Param({"1", "8", "64"})
+    private int tiers;
+
+    private AtomicInteger[] atomicStocks;
+    private LongAdder[] soldCounters;
+    private StripedStockCounter[] stripedStocks;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        atomicStocks = new AtomicInteger[tiers];
+        soldCounters = new LongAdder[tiers];
+        stripedStocks = new StripedStockCounter[tiers];
+        int stripes = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < tiers; i++) {
+            atomicStocks[i] = new AtomicInteger(STOCK);
+            soldCounters[i] = new LongAdder();
+            stripedStocks[i] = new StripedStockCounter(stripes, STOCK);
+        }
+    }
+
+    /**
+     * CAS 循环扣减，库存不足时失败（本地库存日志引擎的内存计数同理）
+     */
+    @Benchmark
+    public boolean atomicInteger() {
+        AtomicInteger stock = atomicStocks[ThreadLocalRandom.current().nextInt(tiers)];
+        int current;
+        while ((current = stock.get()) >= 1) {
+            if (stock.compareAndSet(current, current - 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 先读后加的已售计数：写入无竞争，但检查与累加不是原子操作，并发时可能超出库存，只作为吞吐上限参考
+     */
+    @Benchmark
+    public boolean longAdder() {
+        LongAdder sold = soldCounters[ThreadLocalRandom.current().nextInt(tiers)];
+        if (sold.sum() >= STOCK) {
+            return false;
+        }
+        sold.increment();
+        return true;
+    }
+
+    /**
+     * 分段计数：按CPU核数分段，分段内CAS扣减，不足时尝试其他分段
+     */
+    @Benchmark
+    public boolean stripedCounter() {
+        return stripedStocks[ThreadLocalRandom.current().nextInt(tiers)].deduct(1);
+    }
+}
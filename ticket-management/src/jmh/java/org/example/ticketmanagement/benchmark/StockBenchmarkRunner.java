@@ -0,0 +1,60 @@
+package org.example.ticketmanagement.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 库存扣减基准测试入口
+ * 按线程数逐轮运行（JMH 每轮只能指定一个线程数），每轮对所有票档数参数运行，开启GC与分配速率采样，
+ * 结果以JSON写入 target/jmh/stock-t{线程数}.json
+ *
+ * 运行方式：mvn -Pjmh compile exec:exec [-Djmh.threads=1,4,16,64] [-Djmh.tiers=1,8,64] [-Djmh.include=正则]
+ * 默认数据库为内嵌H2（MySQL模式）、Redis为进程内替身，只适合比较相对开销；
+ * 需要绝对数值时通过 -Djmh.jdbc.url/-Djmh.jdbc.user/-Djmh.jdbc.password 指向压测用MySQL库，
+ * -Djmh.redis=host:port 指向压测用Redis（基准会写入 ticket_tier 表和 stock:* 键，不要指向生产环境）
+ */
+public class StockBenchmarkRunner {
+
+    // 需要透传给派生JVM的参数
+    private static final String[] FORWARDED_PROPERTIES = {
+            BenchmarkBackend.JDBC_URL, BenchmarkBackend.JDBC_USER, BenchmarkBackend.JDBC_PASSWORD, BenchmarkBackend.REDIS
+    };
+
+    public static void main(String[] args) throws RunnerException {
+        String include = System.getProperty("jmh.include", StockBenchmarkRunner.class.getPackageName() + ".*");
+        String[] tiers = System.getProperty("jmh.tiers", "1,8,64").split(",");
+        List<String> jvmArgs = new ArrayList<>(List.of("-Xms2g", "-Xmx2g"));
+        for (String property : FORWARDED_PROPERTIES) {
+            String value = System.getProperty(property);
+            if (value != null) {
+                jvmArgs.add("-D" + property + "=" + value);
+            }
+        }
+
+        File resultDir = new File("target/jmh");
+        resultDir.mkdirs();
+        for (String threads : System.getProperty("jmh.threads", "1,2,4,8,16,32,64").split(",")) {
+            int threadCount = Integer.parseInt(threads.trim());
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threadCount)
+                    .param("tiers", tiers)
+                    .forks(1)
+                    .warmupIterations(3)
+                    .measurementIterations(5)
+                    .addProfiler(GCProfiler.class)
+                    .jvmArgsAppend(jvmArgs.toArray(String[]::new))
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(resultDir, "stock-t" + threadCount + ".json").getPath());
+            new Runner(options.build()).run();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.example.ticketmanagement.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 分段库存计数（对照组）：库存平均拆到多个分段，线程按随机起点选择分段扣减，
+ * 当前分段不足时依次尝试其他分段，所有分段都不足才算库存不足
+ * 分段之间间隔一个缓存行，避免伪共享
+ */
+public class StripedStockCounter {
+
+    // 每个分段占用的 long 槽位数（64字节缓存行 / 8字节）
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray cells;
+    private final int stripes;
+
+    public StripedStockCounter(int stripes, long stock) {
+        this.stripes = stripes;
+        this.cells = new AtomicLongArray(stripes * PADDING);
+        reset(stock);
+    }
+
+    public void reset(long stock) {
+        for (int i = 0; i < stripes; i++) {
+            cells.set(i * PADDING, stock / stripes + (i < stock % stripes ? 1 : 0));
+        }
+    }
+
+    public boolean deduct(int quantity) {
+        int start = ThreadLocalRandom.current().nextInt(stripes);
+        for (int i = 0; i < stripes; i++) {
+            int index = ((start + i) % stripes) * PADDING;
+            long current;
+            while ((current = cells.get(index)) >= quantity) {
+                if (cells.compareAndSet(index, current, current - quantity)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < stripes; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+}
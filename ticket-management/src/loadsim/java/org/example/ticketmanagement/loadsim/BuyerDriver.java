@@ -0,0 +1,174 @@
+package org.example.ticketmanagement.loadsim;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.util.JwtUtils;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 抢票用户：每个用户一个虚拟线程，所有用户就绪后同时开抢
+ * 每个用户先查询场次库存，随机选择一个有票的票档下单，库存不足时换票档重试，直到成功、售罄或用完下单次数
+ */
+@Slf4j
+public class BuyerDriver {
+
+    private static final long USER_ID_BASE = 1_000_000L;
+    private static final String SOLD_OUT_MESSAGE = "库存不足";
+
+    private final String baseUrl;
+    private final Long sessionId;
+    private final LoadSimOptions options;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient;
+
+    private final LatencyRecorder stockLatency;
+    private final LatencyRecorder purchaseLatency;
+    private final LongAdder successOrders = new LongAdder();
+    private final LongAdder soldOutResponses = new LongAdder();
+    private final LongAdder failedResponses = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    // 票档ID -> 客户端确认下单成功的数量
+    private final Map<Long, LongAdder> purchased = new ConcurrentHashMap<>();
+
+    public BuyerDriver(String baseUrl, Long sessionId, LoadSimOptions options) {
+        this.baseUrl = baseUrl;
+        this.sessionId = sessionId;
+        this.options = options;
+        this.stockLatency = new LatencyRecorder(options.getBuyers() * options.getAttempts());
+        this.purchaseLatency = new LatencyRecorder(options.getBuyers() * options.getAttempts());
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofMillis(options.getRequestTimeout()))
+                .build();
+    }
+
+    /**
+     * 启动所有用户并等待结束
+     * @return 从同时开抢到最后一个用户结束的耗时（毫秒）
+     */
+    public long run() throws InterruptedException {
+        // 令牌在开抢前生成，签名耗时不计入请求耗时
+        List<String> tokens = new ArrayList<>(options.getBuyers());
+        for (int i = 0; i < options.getBuyers(); i++) {
+            tokens.add(JwtUtils.createUserClaims(USER_ID_BASE + i, "loadsim-" + i, "USER"));
+        }
+
+        CountDownLatch ready = new CountDownLatch(options.getBuyers());
+        CountDownLatch start = new CountDownLatch(1);
+        long startNanos;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String token : tokens) {
+                executor.submit(() -> {
+                    ready.countDown();
+                    start.await();
+                    buy(token);
+                    return null;
+                });
+            }
+            ready.await();
+            startNanos = System.nanoTime();
+            start.countDown();
+        }
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private void buy(String token) {
+        for (int attempt = 0; attempt < options.getAttempts(); attempt++) {
+            try {
+                // 1. 查询场次库存，选择一个有票的票档
+                JsonNode stock = send(HttpRequest.newBuilder(URI.create(
+                        baseUrl + "/api/user/ticket-tiers/stock?sessionId=" + sessionId)).GET(), token, stockLatency);
+                if (stock == null || stock.path("code").asInt() != 1) {
+                    failedResponses.increment();
+                    continue;
+                }
+                List<Long> available = new ArrayList<>();
+                for (JsonNode tier : stock.path("data").path("tierStockList")) {
+                    if (tier.path("has_stock").asBoolean()) {
+                        available.add(tier.path("id").asLong());
+                    }
+                }
+                if (available.isEmpty()) {
+                    soldOutResponses.increment();
+                    return;
+                }
+
+                // 2. 下单
+                Long tierId = available.get(ThreadLocalRandom.current().nextInt(available.size()));
+                int quantity = ThreadLocalRandom.current().nextInt(1, options.getMaxQuantity() + 1);
+                String body = objectMapper.writeValueAsString(Map.of("tierId", tierId, "quantity", quantity));
+                JsonNode result = send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/user/orders"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body)), token, purchaseLatency);
+                if (result != null && result.path("code").asInt() == 1) {
+                    successOrders.increment();
+                    purchased.computeIfAbsent(tierId, id -> new LongAdder()).add(quantity);
+                    return;
+                }
+                if (result != null && SOLD_OUT_MESSAGE.equals(result.path("msg").asText())) {
+                    soldOutResponses.increment();
+                } else {
+                    failedResponses.increment();
+                    log.debug("下单失败: {}", result);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                errors.increment();
+                log.debug("请求异常: {}", e.getMessage());
+            }
+        }
+    }
+
+    private JsonNode send(HttpRequest.Builder builder, String token, LatencyRecorder recorder) throws Exception {
+        HttpRequest request = builder
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofMillis(options.getRequestTimeout()))
+                .build();
+        long startNanos = System.nanoTime();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        recorder.record(System.nanoTime() - startNanos);
+        if (response.statusCode() != 200) {
+            log.debug("请求返回状态码: {}, uri={}", response.statusCode(), request.uri());
+            return null;
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    /**
+     * 写入压测报告
+     */
+    public void fill(LoadSimReport report) {
+        report.setStockRequests(stockLatency.getCount());
+        report.setPurchaseRequests(purchaseLatency.getCount());
+        report.setSuccessOrders(successOrders.sum());
+        report.setSoldTickets(purchased.values().stream().mapToLong(LongAdder::sum).sum());
+        report.setSoldOutResponses(soldOutResponses.sum());
+        report.setFailedResponses(failedResponses.sum());
+        report.setErrors(errors.sum());
+        report.setStockLatency(stockLatency.percentilesMillis(0.5, 0.99, 0.999));
+        report.setPurchaseLatency(purchaseLatency.percentilesMillis(0.5, 0.99, 0.999));
+    }
+
+    public long getPurchased(Long tierId) {
+        LongAdder adder = purchased.get(tierId);
+        return adder != null ? adder.sum() : 0;
+    }
+}
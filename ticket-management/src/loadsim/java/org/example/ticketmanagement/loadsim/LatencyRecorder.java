@@ -0,0 +1,47 @@
+package org.example.ticketmanagement.loadsim;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 请求耗时记录：预分配数组按下标写入，压测结束后排序计算分位数
+ */
+public class LatencyRecorder {
+
+    private final long[] samples;
+    private final AtomicInteger count = new AtomicInteger();
+
+    public LatencyRecorder(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public void record(long nanos) {
+        int index = count.getAndIncrement();
+        if (index < samples.length) {
+            samples[index] = nanos;
+        }
+    }
+
+    public int getCount() {
+        return Math.min(count.get(), samples.length);
+    }
+
+    /**
+     * 计算分位数耗时（毫秒）
+     * @param percentiles 分位数，如 0.5、0.99、0.999
+     */
+    public double[] percentilesMillis(double... percentiles) {
+        int size = getCount();
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        double[] result = new double[percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            if (size == 0) {
+                continue;
+            }
+            int index = (int) Math.min(size - 1, Math.ceil(percentiles[i] * size) - 1);
+            result[i] = sorted[Math.max(0, index)] / 1_000_000.0;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.ticketmanagement.loadsim;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 压测参数（application-loadsim.yml 中的 loadsim 配置，命令行 --loadsim.xxx=yyy 优先）
+ */
+@Data
+public class LoadSimOptions {
+    // 依次对比的库存引擎
+    private List<String> engines = List.of("redis", "db", "shard", "journal");
+    // 并发抢票用户数
+    private int buyers = 5000;
+    // 场次票档数
+    private int tiers = 4;
+    // 每个票档的库存
+    private int stockPerTier = 500;
+    // 每笔订单购买张数上限
+    private int maxQuantity = 2;
+    // 每个用户最多下单次数
+    private int attempts = 3;
+    // 锁等待采样间隔（毫秒）
+    private long lockSampleInterval = 5;
+    // 单个请求超时（毫秒）
+    private long requestTimeout = 30000;
+
+    /**
+     * 在启动应用之前读取压测参数（决定要启动几轮、每轮用哪个库存引擎）
+     */
+    public static LoadSimOptions load(String[] args) throws IOException {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new SimpleCommandLinePropertySource(args));
+        new YamlPropertySourceLoader()
+                .load("loadsim", new ClassPathResource("application-loadsim.yml"))
+                .forEach(environment.getPropertySources()::addLast);
+        return Binder.get(environment).bind("loadsim", LoadSimOptions.class).orElseGet(LoadSimOptions::new);
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.ticketmanagement.loadsim;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单个库存引擎的压测结果
+ */
+@Slf4j
+@Data
+public class LoadSimReport {
+    private String engine;
+    private int buyers;
+    private long totalStock;
+    private long durationMillis;
+
+    // 请求结果
+    private long stockRequests;
+    private long purchaseRequests;
+    private long successOrders;
+    private long soldTickets;
+    private long soldOutResponses;
+    private long failedResponses;
+    private long errors;
+
+    // 耗时分位数（毫秒）：p50、p99、p999
+    private double[] stockLatency = new double[3];
+    private double[] purchaseLatency = new double[3];
+
+    // 锁等待与连接池排队
+    private long lockSamples;
+    private double lockWaitRatio;
+    private double avgBlockedSessions;
+    private int maxBlockedSessions;
+    private double poolWaitRatio;
+    private double avgPoolWaiters;
+    private int maxPoolWaiters;
+
+    // 超卖检查
+    private int oversoldTiers;          // 订单占用数量超过总库存的票档数
+    private int mismatchTiers;          // 订单占用数量与客户端确认成功的数量不一致的票档数
+    private int driftTiers;             // 回写后可用库存与 总库存 - 订单占用 不一致的票档数
+    private List<String> violations = new ArrayList<>();
+
+    public boolean isOversold() {
+        return oversoldTiers > 0 || mismatchTiers > 0;
+    }
+
+    public double getThroughput() {
+        return durationMillis > 0 ? (stockRequests + purchaseRequests) * 1000.0 / durationMillis : 0;
+    }
+
+    public double getOrderThroughput() {
+        return durationMillis > 0 ? successOrders * 1000.0 / durationMillis : 0;
+    }
+
+    /**
+     * 输出各库存引擎的对比结果
+     */
+    public static void print(List<LoadSimReport> reports) {
+        StringBuilder table = new StringBuilder("\n开售压测结果\n");
+        table.append(String.format("%-8s %8s %10s %10s %9s %9s %8s %22s %22s %8s %8s %8s %6s%n",
+                "engine", "buyers", "req/s", "orders/s", "sold", "soldOut", "errors",
+                "stock p50/p99/p999", "buy p50/p99/p999", "lockWait", "maxLock", "poolWait", "check"));
+        for (LoadSimReport report : reports) {
+            table.append(String.format("%-8s %8d %10.1f %10.1f %9d %9d %8d %22s %22s %7.1f%% %8d %7.1f%% %6s%n",
+                    report.getEngine(), report.getBuyers(), report.getThroughput(), report.getOrderThroughput(),
+                    report.getSoldTickets(), report.getSoldOutResponses(), report.getFailedResponses() + report.getErrors(),
+                    formatLatency(report.getStockLatency()), formatLatency(report.getPurchaseLatency()),
+                    report.getLockWaitRatio() * 100, report.getMaxBlockedSessions(), report.getPoolWaitRatio() * 100,
+                    report.isOversold() ? "FAIL" : report.getDriftTiers() > 0 ? "DRIFT" : "OK"));
+        }
+        log.info(table.toString());
+        for (LoadSimReport report : reports) {
+            for (String violation : report.getViolations()) {
+                log.error("[{}] {}", report.getEngine(), violation);
+            }
+        }
+    }
+
+    private static String formatLatency(double[] latency) {
+        return String.format("%.1f/%.1f/%.1f", latency[0], latency[1], latency[2]);
+    }
+}
@@ -0,0 +1,179 @@
+package org.example.ticketmanagement.loadsim;
+
+import com.github.fppt.jedismock.RedisServer;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.TicketManagementApplication;
+import org.example.ticketmanagement.mapper.EventMapper;
+import org.example.ticketmanagement.mapper.EventSessionMapper;
+import org.example.ticketmanagement.mapper.TicketTierMapper;
+import org.example.ticketmanagement.pojo.Event;
+import org.example.ticketmanagement.pojo.EventSession;
+import org.example.ticketmanagement.pojo.TicketTier;
+import org.example.ticketmanagement.service.TicketTierService;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 开售压测入口：对每个库存引擎启动一次完整应用（内嵌H2 + 进程内Redis替身），
+ * 造一个在售场次后让大量虚拟线程用户同时抢票，输出吞吐量、耗时分位数、锁等待，并检查是否超卖
+ * mvn -Ploadsim spring-boot:run -Dspring-boot.run.arguments="--loadsim.engines=redis,db --loadsim.buyers=10000"
+ * 存在超卖时进程以退出码1结束，可以接入开售前的流水线
+ */
+@Slf4j
+public class LoadSimulation {
+
+    // 每轮启动时注入的配置，命令行中的同名参数被忽略
+    private static final List<String> MANAGED_ARGS = List.of("--stock.engine=", "--server.port=",
+            "--spring.datasource.url=", "--spring.data.redis.host=", "--spring.data.redis.port=", "--journal.dir=");
+
+    private static final String SOLD_SQL = "SELECT t.total_stock, t.available_stock, " +
+            "(SELECT COALESCE(SUM(o.quantity), 0) FROM ticket_order o " +
+            "WHERE o.tier_id = t.id AND o.status IN (0, 1)) AS sold_quantity " +
+            "FROM ticket_tier t WHERE t.id = ?";
+
+    public static void main(String[] args) throws Exception {
+        LoadSimOptions options = LoadSimOptions.load(args);
+        List<LoadSimReport> reports = new ArrayList<>();
+        for (String engine : options.getEngines()) {
+            reports.add(run(engine.trim(), options, args));
+        }
+        LoadSimReport.print(reports);
+        System.exit(reports.stream().anyMatch(LoadSimReport::isOversold) ? 1 : 0);
+    }
+
+    /**
+     * 以指定库存引擎启动应用并压测一轮，每轮使用全新的数据库和Redis
+     */
+    private static LoadSimReport run(String engine, LoadSimOptions options, String[] args) throws Exception {
+        log.info("开始压测，库存引擎: {}, 用户数: {}, 票档数: {}, 每档库存: {}",
+                engine, options.getBuyers(), options.getTiers(), options.getStockPerTier());
+        RedisServer redis = RedisServer.newRedisServer();
+        redis.start();
+        String jdbcUrl = "jdbc:h2:mem:loadsim_" + engine
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000";
+        List<String> appArgs = new ArrayList<>(List.of(
+                "--stock.engine=" + engine,
+                "--server.port=0",
+                "--spring.datasource.url=" + jdbcUrl,
+                "--spring.data.redis.host=" + redis.getHost(),
+                "--spring.data.redis.port=" + redis.getBindPort(),
+                "--journal.dir=./target/loadsim/journal-" + engine + "-" + System.currentTimeMillis()));
+        Arrays.stream(args)
+                .filter(arg -> MANAGED_ARGS.stream().noneMatch(arg::startsWith))
+                .forEach(appArgs::add);
+
+        SpringApplication application = new SpringApplication(TicketManagementApplication.class);
+        application.setAdditionalProfiles("loadsim");
+        try (ConfigurableApplicationContext context = application.run(appArgs.toArray(String[]::new))) {
+            // 1. 造数：一个在售演出、一个场次、若干票档，并预热库存
+            List<Long> tierIds = new ArrayList<>();
+            Long sessionId = seed(context, options, tierIds);
+
+            // 2. 所有用户同时开抢，期间采样锁等待
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            BuyerDriver driver = new BuyerDriver("http://127.0.0.1:" + port, sessionId, options);
+            LockWaitSampler sampler = new LockWaitSampler(jdbcUrl,
+                    context.getBean(HikariDataSource.class), options.getLockSampleInterval());
+            sampler.start();
+            long duration = driver.run();
+            sampler.stop();
+
+            LoadSimReport report = new LoadSimReport();
+            report.setEngine(engine);
+            report.setBuyers(options.getBuyers());
+            report.setTotalStock((long) options.getTiers() * options.getStockPerTier());
+            report.setDurationMillis(duration);
+            driver.fill(report);
+            sampler.fill(report);
+
+            // 3. 回写库存引擎后检查是否超卖
+            check(context, tierIds, driver, report);
+            log.info("压测完成，库存引擎: {}, 耗时: {}ms, 售出: {}/{}, 检查结果: {}",
+                    engine, duration, report.getSoldTickets(), report.getTotalStock(),
+                    report.isOversold() ? "超卖" : report.getDriftTiers() > 0 ? "库存偏差" : "正常");
+            return report;
+        } finally {
+            redis.stop();
+        }
+    }
+
+    /**
+     * 造一个正在售卖的演出场次
+     * @return 场次ID
+     */
+    private static Long seed(ConfigurableApplicationContext context, LoadSimOptions options, List<Long> tierIds) {
+        LocalDateTime now = LocalDateTime.now();
+        Event event = new Event();
+        event.setName("开售压测");
+        event.setArtistName("压测");
+        event.setVenue("压测场馆");
+        event.setStatus(1);
+        event.setSaleStartTime(now.minusMinutes(1));
+        event.setSaleEndTime(now.plusDays(1));
+        event.setEventStartTime(now.plusDays(7));
+        event.setEventEndTime(now.plusDays(7).plusHours(3));
+        event.setCreateTime(now);
+        event.setUpdateTime(now);
+        context.getBean(EventMapper.class).insert(event);
+
+        EventSession session = new EventSession(null, event.getId(), "压测场", now.plusDays(7), 1, now);
+        context.getBean(EventSessionMapper.class).insert(session);
+
+        TicketTierMapper ticketTierMapper = context.getBean(TicketTierMapper.class);
+        for (int i = 0; i < options.getTiers(); i++) {
+            BigDecimal price = BigDecimal.valueOf(180L + i * 100L);
+            TicketTier tier = new TicketTier(null, event.getId(), session.getId(), "票档" + (i + 1), price, price,
+                    options.getStockPerTier(), options.getStockPerTier(), 1, null, now, now);
+            ticketTierMapper.insert(tier);
+            tierIds.add(tier.getId());
+        }
+        context.getBean(TicketTierService.class).preloadStockBySessionId(session.getId());
+        return session.getId();
+    }
+
+    /**
+     * 超卖检查：回写库存引擎后逐个票档核对
+     * 1. 待支付、已支付订单的数量不能超过总库存
+     * 2. 订单数量必须等于客户端确认下单成功的数量（多出的订单说明失败响应背后扣了库存）
+     * 3. 数据库可用库存、库存引擎计数都应等于 总库存 - 订单数量
+     */
+    private static void check(ConfigurableApplicationContext context, List<Long> tierIds,
+                              BuyerDriver driver, LoadSimReport report) {
+        TicketTierService ticketTierService = context.getBean(TicketTierService.class);
+        ticketTierService.syncStockToDatabase();
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        for (Long tierId : tierIds) {
+            Map<String, Object> row = jdbcTemplate.queryForMap(SOLD_SQL, tierId);
+            long total = ((Number) row.get("total_stock")).longValue();
+            long available = ((Number) row.get("available_stock")).longValue();
+            long sold = ((Number) row.get("sold_quantity")).longValue();
+            long confirmed = driver.getPurchased(tierId);
+            Integer engineStock = ticketTierService.getAvailableStock(tierId);
+
+            if (sold > total) {
+                report.setOversoldTiers(report.getOversoldTiers() + 1);
+                report.getViolations().add(String.format("超卖: tierId=%d, 总库存=%d, 订单数量=%d", tierId, total, sold));
+            }
+            if (sold != confirmed) {
+                report.setMismatchTiers(report.getMismatchTiers() + 1);
+                report.getViolations().add(String.format("订单数量与成功响应不一致: tierId=%d, 订单数量=%d, 成功响应=%d",
+                        tierId, sold, confirmed));
+            }
+            if (available != total - sold || (engineStock != null && engineStock != total - sold)) {
+                report.setDriftTiers(report.getDriftTiers() + 1);
+                report.getViolations().add(String.format("库存偏差: tierId=%d, 总库存=%d, 订单数量=%d, 数据库可用=%d, 引擎计数=%s",
+                        tierId, total, sold, available, engineStock));
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.example.ticketmanagement.loadsim;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 锁等待采样：压测期间按固定间隔采样
+ * 1. 数据库中被其他会话阻塞的会话数（H2 INFORMATION_SCHEMA.SESSIONS.BLOCKER_ID，相当于MySQL的行锁等待）
+ * 2. 等待数据库连接的线程数（连接池排队）
+ * 采样使用单独的JDBC连接，不占用应用连接池
+ */
+@Slf4j
+public class LockWaitSampler implements Runnable {
+
+    private static final String BLOCKED_SQL =
+            "SELECT COUNT(*) FROM INFORMATION_SCHEMA.SESSIONS WHERE BLOCKER_ID IS NOT NULL";
+
+    private final String jdbcUrl;
+    private final HikariDataSource dataSource;
+    private final long interval;
+    private volatile boolean running = true;
+    private Thread thread;
+
+    private long samples;
+    private long lockWaitSamples;
+    private long blockedSessionSum;
+    private int maxBlockedSessions;
+    private long poolWaitSamples;
+    private long poolWaiterSum;
+    private int maxPoolWaiters;
+
+    public LockWaitSampler(String jdbcUrl, HikariDataSource dataSource, long interval) {
+        this.jdbcUrl = jdbcUrl;
+        this.dataSource = dataSource;
+        this.interval = Math.max(1, interval);
+    }
+
+    public void start() {
+        thread = Thread.ofPlatform().daemon().name("loadsim-lock-sampler").start(this);
+    }
+
+    public void stop() throws InterruptedException {
+        running = false;
+        thread.join();
+    }
+
+    @Override
+    public void run() {
+        try (Connection connection = DriverManager.getConnection(jdbcUrl, "sa", "");
+             Statement statement = connection.createStatement()) {
+            while (running) {
+                int blocked;
+                try (ResultSet resultSet = statement.executeQuery(BLOCKED_SQL)) {
+                    resultSet.next();
+                    blocked = resultSet.getInt(1);
+                }
+                int poolWaiters = dataSource.getHikariPoolMXBean().getThreadsAwaitingConnection();
+                synchronized (this) {
+                    samples++;
+                    if (blocked > 0) {
+                        lockWaitSamples++;
+                    }
+                    blockedSessionSum += blocked;
+                    maxBlockedSessions = Math.max(maxBlockedSessions, blocked);
+                    if (poolWaiters > 0) {
+                        poolWaitSamples++;
+                    }
+                    poolWaiterSum += poolWaiters;
+                    maxPoolWaiters = Math.max(maxPoolWaiters, poolWaiters);
+                }
+                Thread.sleep(interval);
+            }
+        } catch (SQLException e) {
+            log.error("锁等待采样失败", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 写入压测报告
+     */
+    public synchronized void fill(LoadSimReport report) {
+        report.setLockSamples(samples);
+        report.setLockWaitRatio(samples > 0 ? (double) lockWaitSamples / samples : 0);
+        report.setAvgBlockedSessions(samples > 0 ? (double) blockedSessionSum / samples : 0);
+        report.setMaxBlockedSessions(maxBlockedSessions);
+        report.setPoolWaitRatio(samples > 0 ? (double) poolWaitSamples / samples : 0);
+        report.setAvgPoolWaiters(samples > 0 ? (double) poolWaiterSum / samples : 0);
+        report.setMaxPoolWaiters(maxPoolWaiters);
+    }
+}
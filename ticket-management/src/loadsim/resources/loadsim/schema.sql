@@ -0,0 +1,142 @@
+-- 压测用H2建表脚本（MySQL兼容模式）
+-- 生产库的基础表不在仓库中，这里只建下单链路与后台任务会访问的表；
+-- 增量表与 src/main/resources/sql 下的脚本保持一致（去掉H2不支持的表选项，索引单独创建）
+
+CREATE TABLE IF NOT EXISTS city (
+    id          BIGINT PRIMARY KEY AUTO_INCREMENT,
+    name        VARCHAR(50)  NOT NULL,
+    code        VARCHAR(20)  NULL,
+    province    VARCHAR(50)  NULL,
+    hot_level   INT          NULL,
+    status      TINYINT      NOT NULL DEFAULT 1,
+    create_time DATETIME     NULL,
+    update_time DATETIME     NULL
+);
+
+CREATE TABLE IF NOT EXISTS event_category (
+    id          BIGINT PRIMARY KEY AUTO_INCREMENT,
+    name        VARCHAR(50)  NOT NULL,
+    sort_order  INT          NULL,
+    status      TINYINT      NOT NULL DEFAULT 1,
+    create_time DATETIME     NULL
+);
+
+CREATE TABLE IF NOT EXISTS event (
+    id               BIGINT PRIMARY KEY AUTO_INCREMENT,
+    name             VARCHAR(200)  NOT NULL,
+    artist_name      VARCHAR(100)  NULL,
+    category_id      BIGINT        NULL,
+    city_id          BIGINT        NULL,
+    venue            VARCHAR(200)  NULL,
+    cover_image      VARCHAR(500)  NULL,
+    description      TEXT          NULL,
+    status           TINYINT       NOT NULL DEFAULT 0,
+    sale_start_time  DATETIME      NULL,
+    sale_end_time    DATETIME      NULL,
+    event_start_time DATETIME      NULL,
+    event_end_time   DATETIME      NULL,
+    purchase_limit   INT           NULL,
+    create_time      DATETIME      NULL,
+    update_time      DATETIME      NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_city_status_category_start ON event (city_id, status, category_id, event_start_time);
+
+CREATE TABLE IF NOT EXISTS event_session (
+    id           BIGINT PRIMARY KEY AUTO_INCREMENT,
+    event_id     BIGINT        NOT NULL,
+    session_name VARCHAR(100)  NULL,
+    session_time DATETIME      NULL,
+    status       TINYINT       NOT NULL DEFAULT 1,
+    create_time  DATETIME      NULL
+);
+CREATE INDEX IF NOT EXISTS idx_session_event_id ON event_session (event_id);
+
+CREATE TABLE IF NOT EXISTS ticket_tier (
+    id              BIGINT PRIMARY KEY AUTO_INCREMENT,
+    event_id        BIGINT         NOT NULL,
+    session_id      BIGINT         NOT NULL,
+    tier_name       VARCHAR(100)   NOT NULL,
+    original_price  DECIMAL(12, 2) NULL,
+    current_price   DECIMAL(12, 2) NULL,
+    total_stock     INT            NOT NULL,
+    available_stock INT            NOT NULL,
+    status          TINYINT        NOT NULL DEFAULT 1,
+    purchase_limit  INT            NULL,
+    create_time     DATETIME       NULL,
+    update_time     DATETIME       NULL
+);
+CREATE INDEX IF NOT EXISTS idx_tier_session_id ON ticket_tier (session_id);
+CREATE INDEX IF NOT EXISTS idx_tier_update_time ON ticket_tier (update_time);
+
+CREATE TABLE IF NOT EXISTS ticket_order (
+    id           BIGINT PRIMARY KEY AUTO_INCREMENT,
+    order_no     VARCHAR(32)    NOT NULL,
+    user_id      BIGINT         NOT NULL,
+    event_id     BIGINT         NOT NULL,
+    session_id   BIGINT         NOT NULL,
+    tier_id      BIGINT         NOT NULL,
+    quantity     INT            NOT NULL,
+    unit_price   DECIMAL(12, 2) NOT NULL,
+    total_amount DECIMAL(12, 2) NOT NULL,
+    status       TINYINT        NOT NULL DEFAULT 0,
+    expire_time  DATETIME       NOT NULL,
+    pay_time     DATETIME       NULL,
+    cancel_time  DATETIME       NULL,
+    seat_section_id BIGINT      NULL,
+    seat_row_no  INT            NULL,
+    seat_nos     VARCHAR(64)    NULL,
+    create_time  DATETIME       NOT NULL,
+    update_time  DATETIME       NOT NULL,
+    CONSTRAINT uk_order_no UNIQUE (order_no)
+);
+CREATE INDEX IF NOT EXISTS idx_order_user_id ON ticket_order (user_id);
+CREATE INDEX IF NOT EXISTS idx_order_status_expire ON ticket_order (status, expire_time);
+CREATE INDEX IF NOT EXISTS idx_order_tier_status ON ticket_order (tier_id, status, quantity);
+
+CREATE TABLE IF NOT EXISTS ticket_tier_stock_shard (
+    id              BIGINT PRIMARY KEY AUTO_INCREMENT,
+    tier_id         BIGINT   NOT NULL,
+    shard_no        INT      NOT NULL,
+    total_stock     INT      NOT NULL,
+    available_stock INT      NOT NULL,
+    update_time     DATETIME NOT NULL,
+    CONSTRAINT uk_tier_shard UNIQUE (tier_id, shard_no)
+);
+
+CREATE TABLE IF NOT EXISTS session_owner (
+    session_id  BIGINT      NOT NULL PRIMARY KEY,
+    owner_node  VARCHAR(64) NULL,
+    epoch       BIGINT      NOT NULL DEFAULT 0,
+    update_time DATETIME    NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS stock_journal_checkpoint (
+    journal_id  VARCHAR(64) NOT NULL,
+    tier_id     BIGINT      NOT NULL,
+    applied_seq BIGINT      NOT NULL,
+    update_time DATETIME    NOT NULL,
+    PRIMARY KEY (journal_id, tier_id)
+);
+
+CREATE TABLE IF NOT EXISTS seat_section (
+    id           BIGINT PRIMARY KEY AUTO_INCREMENT,
+    session_id   BIGINT       NOT NULL,
+    tier_id      BIGINT       NOT NULL,
+    section_name VARCHAR(100) NOT NULL,
+    sort_order   INT          NOT NULL DEFAULT 0,
+    create_time  DATETIME     NOT NULL,
+    update_time  DATETIME     NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS seat_row (
+    id          BIGINT PRIMARY KEY AUTO_INCREMENT,
+    section_id  BIGINT    NOT NULL,
+    session_id  BIGINT    NOT NULL,
+    row_no      INT       NOT NULL,
+    seat_count  INT       NOT NULL,
+    seat_bits   BLOB      NULL,
+    version     BIGINT    NOT NULL DEFAULT 0,
+    update_time DATETIME  NOT NULL,
+    CONSTRAINT uk_section_row UNIQUE (section_id, row_no)
+);
@@ -0,0 +1,38 @@
+package org.example.ticketmanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 排队入场（虚拟等候室）配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "admission")
+public class AdmissionConfig {
+    // 是否开启排队入场，开启后下单前必须先排队并被放行
+    private boolean enabled = true;
+    // 队列存储：redis-Redis有序集合（多节点共享），local-本地内存（单节点/测试使用）
+    private String store = "redis";
+    // 放行任务的执行间隔（毫秒）
+    private long tickInterval = 200;
+    // 放行速率（人/秒）的初始值、下限、上限，所有排队场次共享
+    private int initialRate = 200;
+    private int minRate = 20;
+    private int maxRate = 2000;
+    // 下单耗时P99目标（毫秒），超过时降低放行速率
+    private long targetP99 = 500;
+    // 速率调整周期（毫秒），每个周期根据这段时间的下单耗时调整一次
+    private long adjustInterval = 2000;
+    // P99达标时每周期增加的速率（人/秒）
+    private int increaseStep = 20;
+    // P99超标时速率乘以的系数
+    private double decreaseFactor = 0.7;
+    // 放行后的购买资格有效期（秒）
+    private long admitTtl = 300;
+
+    public boolean isRedisStore() {
+        return "redis".equalsIgnoreCase(store);
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.ticketmanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 详情缓存配置（演出、场次、票档详情的本地 + Redis 两级缓存）
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "detail-cache")
+public class DetailCacheConfig {
+    // 是否开启详情缓存，关闭后每次都查询数据库
+    private boolean enabled = true;
+    // 本地缓存的最大条目数（所有类型共享）
+    private long localMaxSize = 10000;
+    // 本地缓存的存活时间（秒），失效广播丢失时的最长不一致时间
+    private long localTtl = 60;
+    // Redis缓存的存活时间（秒）
+    private long redisTtl = 600;
+}
@@ -0,0 +1,16 @@
+package org.example.ticketmanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 字典快照配置（城市、演出分类的内存快照）
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "dictionary")
+public class DictionaryConfig {
+    // 兜底比对Redis中字典版本号的间隔（毫秒），版本变更广播丢失时的最长不一致时间
+    private long refreshInterval = 30000;
+}
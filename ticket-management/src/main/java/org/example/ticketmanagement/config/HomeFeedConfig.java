@@ -0,0 +1,20 @@
+package org.example.ticketmanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 首页推荐物化配置（按城市、分类、条数保存推荐演出列表）
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "home-feed")
+public class HomeFeedConfig {
+    // 是否开启首页推荐物化，关闭后每次请求都查询数据库
+    private boolean enabled = true;
+    // 物化的最大条数，请求条数超过时直接查询数据库（防止任意条数撑大内存）
+    private int maxCachedLimit = 20;
+    // 分段最长存活时间（秒），兜底不经过演出管理接口的数据变更和丢失的失效广播
+    private long maxTtl = 300;
+}
@@ -0,0 +1,20 @@
+package org.example.ticketmanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 幂等键配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "idempotency")
+public class IdempotencyConfig {
+    // 请求结果的保留时间（秒），期间相同幂等键的重试直接返回第一次的结果
+    private long ttl = 600;
+    // 处理中标记的保留时间（秒），请求异常中断时到期后允许重试
+    private long processingTtl = 30;
+    // 本地缓存的最大条目数
+    private long localMaxSize = 100000;
+}
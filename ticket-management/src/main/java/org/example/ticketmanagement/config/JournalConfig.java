@@ -0,0 +1,26 @@
+package org.example.ticketmanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 本地库存日志配置（stock.engine=journal 时生效）
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "journal")
+public class JournalConfig {
+    // 日志与快照文件所在目录
+    private String dir = "./data/stock-journal";
+    // 日志标识，同一份日志重启后必须保持不变，数据库回写位点按该标识记录
+    private String journalId = "default";
+    // 单个日志段文件大小（字节）
+    private int segmentSize = 64 * 1024 * 1024;
+    // 刷盘间隔（毫秒），进程崩溃不丢数据，机器掉电最多丢失该间隔内的日志
+    private long fsyncInterval = 10;
+    // 生成快照并清理旧日志段的间隔（毫秒）
+    private long snapshotInterval = 60000;
+    // 每个回写事务最多包含的票档数
+    private int drainBatchSize = 200;
+}
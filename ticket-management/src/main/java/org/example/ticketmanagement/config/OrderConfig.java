@@ -0,0 +1,32 @@
+package org.example.ticketmanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 订单配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "order")
+public class OrderConfig {
+    // 支付窗口（分钟），超时未支付的订单关闭并释放库存
+    private int payTimeout = 15;
+    // 单笔订单最多购买数量
+    private int maxQuantity = 6;
+    // 超时时间轮每个槽位的时长（毫秒）
+    private long wheelTick = 100;
+    // 超时时间轮槽位数量
+    private int wheelSize = 512;
+    // 执行超时关单的线程数
+    private int timeoutThreads = 4;
+    // 场次开始前多少分钟停止退款
+    private int refundCutoff = 120;
+    // 兜底关闭超时订单的间隔（毫秒），关闭创建节点已宕机、时间轮中的任务已丢失的订单
+    private long expireSweepInterval = 60000;
+    // 超过支付截止时间多久（毫秒）后由兜底任务关闭，正常情况下由创建节点的时间轮先关闭
+    private long expireSweepGrace = 30000;
+    // 兜底关单每批查询的订单数
+    private int expireSweepBatch = 500;
+}
@@ -0,0 +1,39 @@
+package org.example.ticketmanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 场次库存属主配置（stock.engine=journal 时生效）
+ * 开启后每个场次按一致性哈希归属到一个节点，只有属主节点在内存中持有该场次的库存计数，
+ * 其他节点收到的预扣/释放请求转发给属主执行
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "ownership")
+public class OwnershipConfig {
+    // 是否开启场次属主路由，关闭时每个节点各自售卖（同一票档只能由一个节点售卖）
+    private boolean enabled = false;
+    // 当前节点ID，必须是 members 中的一项，重启后保持不变
+    private String nodeId = "node-1";
+    // 静态成员列表，格式：节点ID=内部访问地址，如 node-1=http://10.0.0.1:8080
+    private List<String> members = new ArrayList<>();
+    // 每个节点在哈希环上的虚拟节点数
+    private int virtualNodes = 128;
+    // 节点间转发请求携带的内部令牌
+    private String internalToken = "";
+    // 检查属主变化并移交库存的间隔（毫秒）
+    private long checkInterval = 5000;
+    // 转发请求的连接/读取超时（毫秒）
+    private int forwardTimeout = 2000;
+    // 转发结果不确定（超时、连接中断）时立即重试的次数，重试携带同一个请求ID
+    private int forwardRetries = 2;
+    // 重试后仍不确定的请求排队重发的间隔（毫秒）
+    private long forwardRetryInterval = 1000;
+    // 属主节点记住已执行请求ID的时间（毫秒），排队重发超过该时间后放弃
+    private long forwardDedupTtl = 600000;
+}
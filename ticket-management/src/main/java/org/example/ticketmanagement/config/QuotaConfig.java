@@ -0,0 +1,22 @@
+package org.example.ticketmanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 用户限购额度配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "quota")
+public class QuotaConfig {
+    // 额度计数存储：redis-多节点共享，local-本地内存（单节点/测试）
+    private String store = "redis";
+    // 额度计数的保留时间（秒），每次占用额度时刷新
+    private long counterTtl = 2592000;
+
+    public boolean isRedisStore() {
+        return "redis".equalsIgnoreCase(store);
+    }
+}
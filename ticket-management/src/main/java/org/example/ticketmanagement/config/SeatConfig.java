@@ -0,0 +1,16 @@
+package org.example.ticketmanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 座位图配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "seat")
+public class SeatConfig {
+    // 一次最多分配的连续座位数
+    private int maxContiguous = 10;
+}
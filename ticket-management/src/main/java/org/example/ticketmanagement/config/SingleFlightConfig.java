@@ -0,0 +1,18 @@
+package org.example.ticketmanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 热点读取合并配置（同一个键的并发未命中只查询一次数据库，缓存到期前按概率提前刷新）
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "single-flight")
+public class SingleFlightConfig {
+    // 是否合并同一个键的并发加载，关闭后每个请求各自查询数据库
+    private boolean enabled = true;
+    // 提前刷新系数，越大越早刷新，0 表示不提前刷新（只在过期后加载）
+    private double earlyRefreshBeta = 1.0;
+}
@@ -0,0 +1,30 @@
+package org.example.ticketmanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 库存对账配置：核对 总库存 - 可用库存 是否等于订单实际占用的数量，以及库存引擎计数是否与订单一致
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "stock-audit")
+public class StockAuditConfig {
+    // 是否开启定时对账
+    private boolean enabled = true;
+    // 增量对账间隔（毫秒），每次只核对上次对账之后变更过的票档和尚未确认的偏差票档
+    private long interval = 5000;
+    // 全量对账间隔（毫秒），兜底没有变更票档、只有订单变化的情况
+    private long fullSweepInterval = 600000;
+    // 增量对账时向前多看的时间（毫秒），覆盖事务提交延迟
+    private long overlap = 2000;
+    // 每批核对的票档数（库存引擎计数按批读取）
+    private int batchSize = 500;
+    // 同一偏差连续出现多少次才确认（排除预扣成功、订单尚未写入的瞬时偏差）
+    private int confirmRuns = 2;
+    // 是否自动修正已确认的偏差（以订单为准）
+    private boolean autoCorrect = false;
+    // 报告中最多列出的偏差票档数
+    private int maxReportedDrifts = 100;
+}
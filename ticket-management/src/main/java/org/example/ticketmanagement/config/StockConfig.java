@@ -0,0 +1,57 @@
+package org.example.ticketmanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 库存引擎配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "stock")
+public class StockConfig {
+    // 库存扣减引擎：redis-Redis Lua原子预扣后异步回写，db-直接扣减数据库，shard-扣减数据库中的库存分片，
+    // journal-本节点内存计数 + 内存映射日志，异步回写数据库（同一票档只能由一个节点售卖，多节点时开启 ownership 场次属主路由）
+    private String engine = "redis";
+    // Redis扣减增量回写数据库的间隔（毫秒）
+    private long syncInterval = 1000;
+    // Redis计数与数据库对账的间隔（毫秒）
+    private long reconcileInterval = 60000;
+    // 数据库扣减合并窗口（毫秒），窗口内同一票档的扣减合并为一条UPDATE
+    private long combineWindow = 2;
+    // 等待合并扣减结果的超时时间（毫秒）
+    private long combineTimeout = 3000;
+    // 执行合并扣减的线程数
+    private int combineThreads = 4;
+    // 本地售罄标记的兜底刷新间隔（毫秒），防止补货广播丢失后长期误判售罄
+    private long soldOutRefreshInterval = 30000;
+    // 分片库存模式下每个票档拆分的分片数
+    private int shardCount = 8;
+    // 分片选择策略：random-随机，thread-按线程固定分片（同一线程的请求落在同一行上）
+    private String shardPick = "random";
+    // Redis不可用时是否切换到本地降级库存（仅 redis 引擎有效）
+    private boolean degradedEnabled = true;
+    // 降级期间每个节点每次从数据库领取的库存分片大小
+    private int degradedSliceSize = 20;
+    // 降级期间每个票档保留不领取的库存比例，用于吸收Redis中尚未回写数据库的扣减
+    private double degradedHoldBackRatio = 0.05;
+    // 降级期间探测Redis是否恢复的间隔（毫秒）
+    private long degradedProbeInterval = 1000;
+
+    public boolean isRedisEngine() {
+        return "redis".equalsIgnoreCase(engine);
+    }
+
+    public boolean isShardEngine() {
+        return "shard".equalsIgnoreCase(engine);
+    }
+
+    public boolean isJournalEngine() {
+        return "journal".equalsIgnoreCase(engine);
+    }
+
+    public boolean isDbEngine() {
+        return !isRedisEngine() && !isShardEngine() && !isJournalEngine();
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.ticketmanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 实时库存推送（SSE）配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "stock-stream")
+public class StockStreamConfig {
+    // 推送间隔（毫秒），每个场次每个间隔最多读取一次库存、推送一次
+    private long pushInterval = 500;
+    // 库存状态无变化时发送心跳的间隔（毫秒）
+    private long heartbeatInterval = 15000;
+    // 单个连接的超时时间（毫秒），超时后由客户端重连
+    private long emitterTimeout = 1800000;
+    // 本节点最大连接数
+    private int maxWatchers = 50000;
+    // 每个发送任务负责的连接数
+    private int sendBatchSize = 500;
+    // 剩余库存不高于总库存的该比例时视为库存紧张
+    private double lowStockRatio = 0.1;
+}
@@ -0,0 +1,31 @@
+package org.example.ticketmanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 售罄票档候补名单配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "waitlist")
+public class WaitlistConfig {
+    // 候补名单存储：redis-Redis有序集合（多节点共享），local-本地内存（单节点/测试使用）
+    private String store = "redis";
+    // 放票任务的执行间隔（毫秒），本节点有库存归还的票档在下一次执行时放票
+    private long tickInterval = 100;
+    // 全量检查所有候补票档的间隔（毫秒），兜底其他节点归还的库存和过期未使用的购买机会
+    private long sweepInterval = 1000;
+    // 每批最多向多少位候补用户放票
+    private int batchSize = 200;
+    // 放票后的购买时限（秒），过期未下单的名额重新放给后面的用户
+    private long claimWindow = 60;
+    // 建议客户端查询候补状态的最短、最长间隔（秒）
+    private long minPollInterval = 2;
+    private long maxPollInterval = 60;
+
+    public boolean isRedisStore() {
+        return "redis".equalsIgnoreCase(store);
+    }
+}
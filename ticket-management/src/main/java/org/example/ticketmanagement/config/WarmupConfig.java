@@ -0,0 +1,24 @@
+package org.example.ticketmanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 开售预热配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "warmup")
+public class WarmupConfig {
+    // 是否开启开售预热
+    private boolean enabled = true;
+    // 扫描即将开售演出的间隔（毫秒）
+    private long scanInterval = 60000;
+    // 提前预热的时间（秒）：开售时间在 [当前-提前量, 当前+提前量] 内的演出会被预热
+    private long leadTime = 300;
+    // 每个演出热点路径的模拟调用总次数（分摊到各线程），0表示按JVM的C2编译阈值自动计算
+    private int jitIterations = 0;
+    // 并发执行模拟调用的线程数（同时把数据库、Redis连接池建满）
+    private int parallelism = 8;
+}
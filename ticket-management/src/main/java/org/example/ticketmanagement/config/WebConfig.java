@@ -40,6 +40,7 @@ public class WebConfig implements WebMvcConfigurer {
                         "/api/ticket-tiers",              // 票档列表（公共）
                         "/api/ticket-tiers/price-range",  // 价格范围查询（公共）
                         "/api/captcha/**",                // 图形验证码接口
+                        "/api/internal/**",               // 节点间内部接口（校验内部令牌）
                         "/error"                          // 错误页面
                 );
     }
@@ -10,6 +10,7 @@ import org.example.ticketmanagement.vo.EventVO;
 import org.example.ticketmanagement.pojo.PageResult;
 import org.example.ticketmanagement.pojo.Result;
 import org.example.ticketmanagement.service.EventService;
+import org.example.ticketmanagement.service.SaleWarmupService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
@@ -24,6 +25,9 @@ public class AdminEventController {
     @Autowired
     private EventService eventService;
 
+    @Autowired
+    private SaleWarmupService saleWarmupService;
+
     /**
      * 1. 新增演出
      * POST /api/admin/events
@@ -110,4 +114,22 @@ public class AdminEventController {
             return Result.error("查询失败，请检查参数");
         }
     }
+
+    /**
+     * 立即预热演出（开售前手动触发，定时任务也会在开售前自动预热）
+     * POST /api/admin/events/{id}/warmup
+     */
+    @Operation(summary = "开售预热", tags = {"管理端/演出管理"})
+    @PostMapping("/{id}/warmup")
+    public Result<Integer> warmUpEvent(@PathVariable Long id) {
+        log.info("收到开售预热请求，演出ID: {}", id);
+
+        try {
+            int sessions = saleWarmupService.warmUpEvent(id);
+            return Result.success("预热完成", sessions);
+        } catch (Exception e) {
+            log.error("开售预热失败", e);
+            return Result.error("预热失败");
+        }
+    }
 }
@@ -0,0 +1,107 @@
+package org.example.ticketmanagement.controller.admin;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.dto.SeatAllocateDTO;
+import org.example.ticketmanagement.dto.SeatReleaseDTO;
+import org.example.ticketmanagement.dto.SeatSectionDTO;
+import org.example.ticketmanagement.pojo.Result;
+import org.example.ticketmanagement.service.SeatMapService;
+import org.example.ticketmanagement.vo.SeatAllocationVO;
+import org.example.ticketmanagement.vo.SeatMapVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/admin/seat-maps")
+@Validated
+@Tag(name = "管理端/座位图管理", description = "场次座位区域、座位分配相关接口")
+public class AdminSeatMapController {
+
+    @Autowired
+    private SeatMapService seatMapService;
+
+    /**
+     * 1. 为场次新增座位区域
+     * POST /api/admin/seat-maps/sessions/{sessionId}/sections
+     */
+    @Operation(summary = "新增座位区域", tags = {"管理端/座位图管理"})
+    @PostMapping("/sessions/{sessionId}/sections")
+    public Result<Void> addSection(@PathVariable Long sessionId,
+                                   @Valid @RequestBody SeatSectionDTO seatSectionDTO) {
+        log.info("收到新增座位区域请求，场次ID: {}, 区域: {}", sessionId, seatSectionDTO.getSectionName());
+
+        boolean success = seatMapService.addSection(sessionId, seatSectionDTO);
+        if (success) {
+            return Result.success("座位区域添加成功");
+        } else {
+            return Result.error("座位区域添加失败，请检查场次、票档是否存在，或区域名称是否重复");
+        }
+    }
+
+    /**
+     * 2. 获取场次座位图
+     * GET /api/admin/seat-maps/sessions/{sessionId}
+     */
+    @Operation(summary = "获取场次座位图", tags = {"管理端/座位图管理"})
+    @GetMapping("/sessions/{sessionId}")
+    public Result<SeatMapVO> getSeatMap(@PathVariable Long sessionId) {
+        log.info("收到获取座位图请求，场次ID: {}", sessionId);
+
+        SeatMapVO seatMap = seatMapService.getSeatMap(sessionId);
+        if (seatMap != null) {
+            return Result.success(seatMap);
+        } else {
+            return Result.error("场次不存在");
+        }
+    }
+
+    /**
+     * 3. 保留连续座位（预扣票档库存，保留的座位不再随订单售出）
+     * POST /api/admin/seat-maps/sessions/{sessionId}/allocate
+     */
+    @Operation(summary = "保留连续座位", tags = {"管理端/座位图管理"})
+    @PostMapping("/sessions/{sessionId}/allocate")
+    public Result<SeatAllocationVO> allocateSeats(@PathVariable Long sessionId,
+                                                  @Valid @RequestBody SeatAllocateDTO seatAllocateDTO) {
+        log.info("收到保留座位请求，场次ID: {}, 票档ID: {}, 数量: {}",
+                sessionId, seatAllocateDTO.getTierId(), seatAllocateDTO.getCount());
+
+        try {
+            SeatAllocationVO allocation = seatMapService.holdSeats(sessionId, seatAllocateDTO);
+            if (allocation == null) {
+                return Result.error("库存不足或没有足够的连续座位");
+            }
+            return Result.success("座位保留成功", allocation);
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        } catch (Exception e) {
+            log.error("保留座位失败: {}", e.getMessage(), e);
+            return Result.error("保留座位失败");
+        }
+    }
+
+    /**
+     * 4. 释放保留的座位（按实际释放的座位数归还票档库存）
+     * POST /api/admin/seat-maps/sessions/{sessionId}/release
+     */
+    @Operation(summary = "释放保留的座位", tags = {"管理端/座位图管理"})
+    @PostMapping("/sessions/{sessionId}/release")
+    public Result<Integer> releaseSeats(@PathVariable Long sessionId,
+                                        @Valid @RequestBody SeatReleaseDTO seatReleaseDTO) {
+        log.info("收到释放座位请求，场次ID: {}, 区域ID: {}, 排号: {}",
+                sessionId, seatReleaseDTO.getSectionId(), seatReleaseDTO.getRowNo());
+
+        try {
+            int released = seatMapService.releaseHeldSeats(sessionId, seatReleaseDTO);
+            return Result.success("座位释放成功", released);
+        } catch (Exception e) {
+            log.error("释放座位失败: {}", e.getMessage(), e);
+            return Result.error("释放座位失败");
+        }
+    }
+}
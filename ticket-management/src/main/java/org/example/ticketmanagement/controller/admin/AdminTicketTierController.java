@@ -5,9 +5,11 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.example.ticketmanagement.dto.TicketTierDTO;
+import org.example.ticketmanagement.vo.StockAuditReportVO;
 import org.example.ticketmanagement.vo.StockStatisticsVO;
 import org.example.ticketmanagement.vo.TicketTierVO;
 import org.example.ticketmanagement.pojo.Result;
+import org.example.ticketmanagement.service.StockAuditService;
 import org.example.ticketmanagement.service.TicketTierService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.validation.annotation.Validated;
@@ -26,6 +28,9 @@ public class AdminTicketTierController {
     @Autowired
     private TicketTierService ticketTierService;
 
+    @Autowired
+    private StockAuditService stockAuditService;
+
     /**
      * 1. 新增票档
      * POST /api/admin/ticket-tiers
@@ -196,4 +201,57 @@ public class AdminTicketTierController {
 
         return Result.success("查询成功", soldOutTiers);
     }
+
+    /**
+     * 预热场次库存到库存引擎（开售前调用）
+     * POST /api/admin/ticket-tiers/stock/preload?sessionId=1
+     */
+    @Operation(summary = "预热场次库存", tags = {"管理端/票档管理"})
+    @PostMapping("/stock/preload")
+    public Result<Integer> preloadStock(@RequestParam Long sessionId) {
+        log.info("收到预热场次库存请求，sessionId: {}", sessionId);
+
+        int loaded = ticketTierService.preloadStockBySessionId(sessionId);
+        return Result.success("库存预热完成", loaded);
+    }
+
+    /**
+     * 立即把库存引擎中的扣减增量回写数据库
+     * POST /api/admin/ticket-tiers/stock/sync
+     */
+    @Operation(summary = "立即回写库存", tags = {"管理端/票档管理"})
+    @PostMapping("/stock/sync")
+    public Result<Integer> syncStock() {
+        log.info("收到立即回写库存请求");
+
+        int synced = ticketTierService.syncStockToDatabase();
+        return Result.success("库存回写完成", synced);
+    }
+
+    /**
+     * 立即执行一次库存对账
+     * POST /api/admin/ticket-tiers/stock/audit?full=true
+     */
+    @Operation(summary = "立即库存对账", tags = {"管理端/票档管理"})
+    @PostMapping("/stock/audit")
+    public Result<StockAuditReportVO> auditStock(@RequestParam(defaultValue = "true") boolean full) {
+        log.info("收到库存对账请求，全量: {}", full);
+
+        StockAuditReportVO report = stockAuditService.audit(full);
+        return Result.success("库存对账完成", report);
+    }
+
+    /**
+     * 查询最近一次库存对账报告
+     * GET /api/admin/ticket-tiers/stock/audit
+     */
+    @Operation(summary = "查询库存对账报告", tags = {"管理端/票档管理"})
+    @GetMapping("/stock/audit")
+    public Result<StockAuditReportVO> getStockAuditReport() {
+        StockAuditReportVO report = stockAuditService.getLastReport();
+        if (report == null) {
+            return Result.error("尚未执行库存对账");
+        }
+        return Result.success("查询成功", report);
+    }
 }
@@ -0,0 +1,132 @@
+package org.example.ticketmanagement.controller.internal;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.config.OwnershipConfig;
+import org.example.ticketmanagement.dto.StockForwardDTO;
+import org.example.ticketmanagement.pojo.Result;
+import org.example.ticketmanagement.service.TicketTierService;
+import org.example.ticketmanagement.util.StockForwardClient;
+import org.example.ticketmanagement.vo.StockForwardVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * 节点间内部接口：其他节点把属于本节点场次的库存请求转发到这里执行
+ * 不经过用户令牌拦截器，以 X-Internal-Token 请求头校验调用方
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/internal/stock")
+@Validated
+@Tag(name = "内部接口/库存转发", description = "场次属主节点执行其他节点转发的库存请求")
+public class InternalStockController {
+
+    @Autowired
+    private TicketTierService ticketTierService;
+
+    @Autowired
+    private OwnershipConfig ownershipConfig;
+
+    /**
+     * 1. 预扣库存
+     * POST /api/internal/stock/reserve
+     */
+    @Operation(summary = "预扣属主场次的库存", tags = {"内部接口/库存转发"})
+    @PostMapping("/reserve")
+    public Result<StockForwardVO> reserve(@RequestHeader(value = StockForwardClient.TOKEN_HEADER, required = false) String token,
+                                          @Valid @RequestBody StockForwardDTO stockForwardDTO) {
+        if (!checkToken(token)) {
+            return Result.error(403, "内部令牌无效");
+        }
+        try {
+            return Result.success(ticketTierService.reserveOwnedStock(
+                    stockForwardDTO.getRequestId(), stockForwardDTO.getQuantities()));
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        } catch (RuntimeException e) {
+            log.warn("执行转发的预扣请求失败: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        } catch (Exception e) {
+            log.error("执行转发的预扣请求异常", e);
+            return Result.error("预扣库存失败，请稍后重试");
+        }
+    }
+
+    /**
+     * 2. 释放库存
+     * POST /api/internal/stock/release
+     */
+    @Operation(summary = "释放属主场次的库存", tags = {"内部接口/库存转发"})
+    @PostMapping("/release")
+    public Result<StockForwardVO> release(@RequestHeader(value = StockForwardClient.TOKEN_HEADER, required = false) String token,
+                                          @Valid @RequestBody StockForwardDTO stockForwardDTO) {
+        if (!checkToken(token)) {
+            return Result.error(403, "内部令牌无效");
+        }
+        if (stockForwardDTO.getQuantities().size() != 1) {
+            return Result.error(400, "每次只能释放一个票档");
+        }
+        Map.Entry<Long, Integer> entry = stockForwardDTO.getQuantities().entrySet().iterator().next();
+        try {
+            return Result.success(ticketTierService.releaseOwnedStock(
+                    stockForwardDTO.getRequestId(), entry.getKey(), entry.getValue()));
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        } catch (RuntimeException e) {
+            log.warn("执行转发的释放请求失败: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        } catch (Exception e) {
+            log.error("执行转发的释放请求异常", e);
+            return Result.error("释放库存失败，请稍后重试");
+        }
+    }
+
+    /**
+     * 3. 撤销一次预扣（转发方无法确定预扣结果时调用）
+     * POST /api/internal/stock/abort/{requestId}
+     */
+    @Operation(summary = "撤销转发的预扣", tags = {"内部接口/库存转发"})
+    @PostMapping("/abort/{requestId}")
+    public Result<StockForwardVO> abort(@RequestHeader(value = StockForwardClient.TOKEN_HEADER, required = false) String token,
+                                        @PathVariable String requestId) {
+        if (!checkToken(token)) {
+            return Result.error(403, "内部令牌无效");
+        }
+        try {
+            return Result.success(new StockForwardVO(ticketTierService.abortOwnedReserve(requestId), null));
+        } catch (Exception e) {
+            log.error("撤销转发的预扣异常，请求ID: {}", requestId, e);
+            return Result.error("撤销预扣失败，请稍后重试");
+        }
+    }
+
+    /**
+     * 4. 回写并移除票档的库存计数
+     * POST /api/internal/stock/hand-off/{tierId}
+     */
+    @Operation(summary = "移交票档库存", tags = {"内部接口/库存转发"})
+    @PostMapping("/hand-off/{tierId}")
+    public Result<StockForwardVO> handOff(@RequestHeader(value = StockForwardClient.TOKEN_HEADER, required = false) String token,
+                                          @PathVariable Long tierId) {
+        if (!checkToken(token)) {
+            return Result.error(403, "内部令牌无效");
+        }
+        try {
+            return Result.success(new StockForwardVO(ticketTierService.handOffTierStock(tierId), null));
+        } catch (Exception e) {
+            log.error("移交票档库存异常，票档ID: {}", tierId, e);
+            return Result.error("移交票档库存失败，请稍后重试");
+        }
+    }
+
+    private boolean checkToken(String token) {
+        String expected = ownershipConfig.getInternalToken();
+        return expected != null && !expected.isEmpty() && expected.equals(token);
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.ticketmanagement.controller.user;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.pojo.Result;
+import org.example.ticketmanagement.service.AdmissionService;
+import org.example.ticketmanagement.vo.AdmissionVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@Slf4j
+@RequestMapping("/api/user/admission")
+@Tag(name = "客户端/排队入场", description = "开售场次的排队、排位查询相关接口")
+public class UserAdmissionController {
+
+    @Autowired
+    private AdmissionService admissionService;
+
+    /**
+     * 加入场次的等候队列
+     */
+    @Operation(summary = "排队", tags = {"客户端/排队入场"})
+    @PostMapping("/sessions/{sessionId}")
+    public Result<AdmissionVO> enqueue(@PathVariable Long sessionId, HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute("userId");
+        log.info("加入等候队列，场次ID: {}, 用户ID: {}", sessionId, userId);
+
+        try {
+            AdmissionVO admission = admissionService.enqueue(sessionId, userId);
+            return Result.success(admission);
+        } catch (RuntimeException e) {
+            log.warn("加入等候队列失败: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        } catch (Exception e) {
+            log.error("加入等候队列失败: {}", e.getMessage(), e);
+            return Result.error("排队失败");
+        }
+    }
+
+    /**
+     * 查询排队状态与排位（客户端轮询）
+     */
+    @Operation(summary = "查询排队状态", tags = {"客户端/排队入场"})
+    @GetMapping("/sessions/{sessionId}")
+    public Result<AdmissionVO> getAdmissionStatus(@PathVariable Long sessionId, HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute("userId");
+        log.debug("查询排队状态，场次ID: {}, 用户ID: {}", sessionId, userId);
+
+        try {
+            AdmissionVO admission = admissionService.getAdmissionStatus(sessionId, userId);
+            return Result.success(admission);
+        } catch (Exception e) {
+            log.error("查询排队状态失败: {}", e.getMessage(), e);
+            return Result.error("查询排队状态失败");
+        }
+    }
+}
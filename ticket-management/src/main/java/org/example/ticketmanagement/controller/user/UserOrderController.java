@@ -0,0 +1,188 @@
+package org.example.ticketmanagement.controller.user;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.dto.CartOrderDTO;
+import org.example.ticketmanagement.dto.OrderCreateDTO;
+import org.example.ticketmanagement.pojo.Result;
+import org.example.ticketmanagement.service.OrderService;
+import org.example.ticketmanagement.vo.OrderVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@Slf4j
+@RequestMapping("/api/user/orders")
+@Tag(name = "客户端/订单", description = "用户下单、支付、取消订单相关接口")
+public class UserOrderController {
+
+    @Autowired
+    private OrderService orderService;
+
+    /**
+     * 创建订单（预扣库存，支付窗口内未支付自动关闭）
+     * 客户端重试时携带相同的 Idempotency-Key 请求头，重复请求直接返回第一次创建的订单
+     */
+    @Operation(summary = "创建订单", tags = {"客户端/订单"})
+    @PostMapping
+    public Result<OrderVO> createOrder(@Valid @RequestBody OrderCreateDTO orderCreateDTO,
+                                       @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                       HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute("userId");
+        log.info("创建订单，用户ID: {}, 票档ID: {}", userId, orderCreateDTO.getTierId());
+
+        try {
+            OrderVO order = orderService.createOrder(userId, orderCreateDTO, idempotencyKey);
+            return Result.success("下单成功，请在支付时限内完成支付", order);
+        } catch (IllegalArgumentException e) {
+            log.warn("参数错误: {}", e.getMessage());
+            return Result.error(400, e.getMessage());
+        } catch (RuntimeException e) {
+            log.warn("创建订单失败: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        } catch (Exception e) {
+            log.error("创建订单失败: {}", e.getMessage(), e);
+            return Result.error("下单失败");
+        }
+    }
+
+    /**
+     * 购物车下单：同一场次的多个票档一起预扣库存，全部成功才创建订单（每个票档一个订单）
+     * 客户端重试时携带相同的 Idempotency-Key 请求头，重复请求直接返回第一次创建的全部订单
+     */
+    @Operation(summary = "购物车下单", tags = {"客户端/订单"})
+    @PostMapping("/cart")
+    public Result<List<OrderVO>> createCartOrders(@Valid @RequestBody CartOrderDTO cartOrderDTO,
+                                                  @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                  HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute("userId");
+        log.info("购物车下单，用户ID: {}, 票档数: {}", userId, cartOrderDTO.getItems().size());
+
+        try {
+            List<OrderVO> orders = orderService.createCartOrders(userId, cartOrderDTO, idempotencyKey);
+            return Result.success("下单成功，请在支付时限内完成支付", orders);
+        } catch (IllegalArgumentException e) {
+            log.warn("参数错误: {}", e.getMessage());
+            return Result.error(400, e.getMessage());
+        } catch (RuntimeException e) {
+            log.warn("购物车下单失败: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        } catch (Exception e) {
+            log.error("购物车下单失败: {}", e.getMessage(), e);
+            return Result.error("下单失败");
+        }
+    }
+
+    /**
+     * 获取当前用户的订单列表
+     */
+    @Operation(summary = "获取订单列表", tags = {"客户端/订单"})
+    @GetMapping
+    public Result<List<OrderVO>> getOrders(HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute("userId");
+        log.info("获取订单列表，用户ID: {}", userId);
+
+        try {
+            List<OrderVO> orders = orderService.getOrdersByUserId(userId);
+            return Result.success(orders);
+        } catch (Exception e) {
+            log.error("获取订单列表失败: {}", e.getMessage(), e);
+            return Result.error("获取订单列表失败");
+        }
+    }
+
+    /**
+     * 根据ID获取订单详情
+     */
+    @Operation(summary = "根据ID获取订单", tags = {"客户端/订单"})
+    @GetMapping("/{id}")
+    public Result<OrderVO> getOrderById(@PathVariable Long id, HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute("userId");
+        log.info("获取订单详情，订单ID: {}, 用户ID: {}", id, userId);
+
+        try {
+            OrderVO order = orderService.getOrderById(userId, id);
+            if (order == null) {
+                return Result.error("订单不存在或无权访问");
+            }
+            return Result.success(order);
+        } catch (Exception e) {
+            log.error("获取订单详情失败: {}", e.getMessage(), e);
+            return Result.error("获取订单详情失败");
+        }
+    }
+
+    /**
+     * 支付订单
+     */
+    @Operation(summary = "支付订单", tags = {"客户端/订单"})
+    @PostMapping("/{id}/pay")
+    public Result<Void> payOrder(@PathVariable Long id, HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute("userId");
+        log.info("支付订单，订单ID: {}, 用户ID: {}", id, userId);
+
+        try {
+            boolean success = orderService.payOrder(userId, id);
+            if (success) {
+                return Result.success("支付成功");
+            } else {
+                return Result.error("订单不可支付，可能已超时或已取消");
+            }
+        } catch (Exception e) {
+            log.error("支付订单失败: {}", e.getMessage(), e);
+            return Result.error("支付失败");
+        }
+    }
+
+    /**
+     * 取消订单（释放预扣库存）
+     */
+    @Operation(summary = "取消订单", tags = {"客户端/订单"})
+    @PostMapping("/{id}/cancel")
+    public Result<Void> cancelOrder(@PathVariable Long id, HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute("userId");
+        log.info("取消订单，订单ID: {}, 用户ID: {}", id, userId);
+
+        try {
+            boolean success = orderService.cancelOrder(userId, id);
+            if (success) {
+                return Result.success("订单已取消");
+            } else {
+                return Result.error("订单不可取消，可能已支付或已关闭");
+            }
+        } catch (Exception e) {
+            log.error("取消订单失败: {}", e.getMessage(), e);
+            return Result.error("取消订单失败");
+        }
+    }
+
+    /**
+     * 已支付订单退款（归还库存）
+     */
+    @Operation(summary = "订单退款", tags = {"客户端/订单"})
+    @PostMapping("/{id}/refund")
+    public Result<Void> refundOrder(@PathVariable Long id, HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute("userId");
+        log.info("订单退款，订单ID: {}, 用户ID: {}", id, userId);
+
+        try {
+            boolean success = orderService.refundOrder(userId, id);
+            if (success) {
+                return Result.success("退款成功");
+            } else {
+                return Result.error("订单不可退款，可能未支付或已退款");
+            }
+        } catch (RuntimeException e) {
+            log.warn("订单退款失败: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        } catch (Exception e) {
+            log.error("订单退款失败: {}", e.getMessage(), e);
+            return Result.error("退款失败");
+        }
+    }
+}
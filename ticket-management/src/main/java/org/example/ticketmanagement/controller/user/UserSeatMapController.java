@@ -0,0 +1,36 @@
+package org.example.ticketmanagement.controller.user;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.pojo.Result;
+import org.example.ticketmanagement.service.SeatMapService;
+import org.example.ticketmanagement.vo.SeatMapVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@Slf4j
+@RequestMapping("/api/user/seat-maps")
+@Tag(name = "客户端/座位图", description = "场次座位图查询相关接口")
+public class UserSeatMapController {
+
+    @Autowired
+    private SeatMapService seatMapService;
+
+    /**
+     * 获取场次座位图（各区域、各排的可售座位）
+     */
+    @Operation(summary = "获取场次座位图", tags = {"客户端/座位图"})
+    @GetMapping("/sessions/{sessionId}")
+    public Result<SeatMapVO> getSeatMap(@PathVariable Long sessionId) {
+        log.debug("获取场次座位图，场次ID: {}", sessionId);
+
+        SeatMapVO seatMap = seatMapService.getSeatMap(sessionId);
+        if (seatMap != null) {
+            return Result.success(seatMap);
+        } else {
+            return Result.error("场次不存在");
+        }
+    }
+}
@@ -6,10 +6,14 @@ import lombok.extern.slf4j.Slf4j;
 import org.example.ticketmanagement.vo.TicketStockVO;
 import org.example.ticketmanagement.vo.TicketTierVO;
 import org.example.ticketmanagement.pojo.Result;
+import org.example.ticketmanagement.service.StockStreamService;
 import org.example.ticketmanagement.service.TicketTierService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.List;
 
@@ -22,6 +26,9 @@ public class UserTicketTierController {
     @Autowired
     private TicketTierService ticketTierService;
 
+    @Autowired
+    private StockStreamService stockStreamService;
+
     /**
      * 根据ID查询票档详情（用户端）
      * GET /api/user/ticket-tiers/{id}
@@ -112,6 +119,30 @@ public class UserTicketTierController {
         }
     }
 
+    /**
+     * 订阅场次实时库存状态（客户端，SSE）
+     * GET /api/user/ticket-tiers/stock/stream?sessionId=
+     * 建立连接后推送一次当前状态，之后只在票档状态（有票/紧张/售罄）变化时推送 stock 事件，
+     * 替代客户端轮询 /stock 接口；订阅失败时推送一条 error 事件后关闭连接
+     */
+    @Operation(summary = "订阅场次实时库存状态", tags = {"客户端/票档"})
+    @GetMapping(value = "/stock/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTicketStock(@RequestParam Long sessionId) {
+        try {
+            return stockStreamService.subscribe(sessionId);
+        } catch (RuntimeException e) {
+            log.warn("订阅实时库存失败: sessionId={}, {}", sessionId, e.getMessage());
+            SseEmitter emitter = new SseEmitter(0L);
+            try {
+                emitter.send(SseEmitter.event().name("error").data(e.getMessage()));
+            } catch (IOException ignored) {
+                // 客户端已断开
+            }
+            emitter.complete();
+            return emitter;
+        }
+    }
+
     /**
      * 检查是否已开票（客户端）
      * GET /api/user/ticket-tiers/on-sale
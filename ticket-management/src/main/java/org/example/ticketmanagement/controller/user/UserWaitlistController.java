@@ -0,0 +1,81 @@
+package org.example.ticketmanagement.controller.user;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.pojo.Result;
+import org.example.ticketmanagement.service.WaitlistService;
+import org.example.ticketmanagement.vo.WaitlistVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@Slf4j
+@RequestMapping("/api/user/waitlist")
+@Tag(name = "客户端/候补", description = "售罄票档的候补、候补状态查询相关接口")
+public class UserWaitlistController {
+
+    @Autowired
+    private WaitlistService waitlistService;
+
+    /**
+     * 加入售罄票档的候补名单
+     */
+    @Operation(summary = "加入候补", tags = {"客户端/候补"})
+    @PostMapping("/tiers/{tierId}")
+    public Result<WaitlistVO> join(@PathVariable Long tierId, HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute("userId");
+        log.info("加入候补名单，票档ID: {}, 用户ID: {}", tierId, userId);
+
+        try {
+            WaitlistVO waitlist = waitlistService.join(tierId, userId);
+            return Result.success(waitlist);
+        } catch (RuntimeException e) {
+            log.warn("加入候补名单失败: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        } catch (Exception e) {
+            log.error("加入候补名单失败: {}", e.getMessage(), e);
+            return Result.error("加入候补失败");
+        }
+    }
+
+    /**
+     * 查询候补状态与排位（客户端按返回的建议间隔查询）
+     */
+    @Operation(summary = "查询候补状态", tags = {"客户端/候补"})
+    @GetMapping("/tiers/{tierId}")
+    public Result<WaitlistVO> getWaitlistStatus(@PathVariable Long tierId, HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute("userId");
+        log.debug("查询候补状态，票档ID: {}, 用户ID: {}", tierId, userId);
+
+        try {
+            WaitlistVO waitlist = waitlistService.getWaitlistStatus(tierId, userId);
+            return Result.success(waitlist);
+        } catch (Exception e) {
+            log.error("查询候补状态失败: {}", e.getMessage(), e);
+            return Result.error("查询候补状态失败");
+        }
+    }
+
+    /**
+     * 退出候补名单
+     */
+    @Operation(summary = "退出候补", tags = {"客户端/候补"})
+    @DeleteMapping("/tiers/{tierId}")
+    public Result<Void> leave(@PathVariable Long tierId, HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute("userId");
+        log.info("退出候补名单，票档ID: {}, 用户ID: {}", tierId, userId);
+
+        try {
+            if (waitlistService.leave(tierId, userId)) {
+                return Result.success("已退出候补");
+            } else {
+                return Result.error("不在候补名单中");
+            }
+        } catch (Exception e) {
+            log.error("退出候补名单失败: {}", e.getMessage(), e);
+            return Result.error("退出候补失败");
+        }
+    }
+}
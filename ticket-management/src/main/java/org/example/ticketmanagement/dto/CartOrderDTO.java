@@ -0,0 +1,20 @@
+package org.example.ticketmanagement.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CartOrderDTO {
+    @NotEmpty(message = "购物车不能为空")
+    @Size(max = 10, message = "购物车最多包含10个票档")
+    @Valid
+    private List<OrderCreateDTO> items;   // 各票档及购买数量（同一场次）
+}
@@ -1,6 +1,7 @@
 // org/example/ticketmanagement/dto/EventDTO.java
 package org.example.ticketmanagement.dto;
 
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
@@ -50,4 +51,7 @@ public class EventDTO {
 
     @NotNull(message = "演出结束时间不能为空")
     private LocalDateTime eventEndTime;
+
+    @Min(value = 0, message = "限购数量必须大于等于0")
+    private Integer purchaseLimit;
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package org.example.ticketmanagement.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderCreateDTO {
+    @NotNull(message = "票档ID不能为空")
+    private Long tierId;
+
+    @NotNull(message = "购买数量不能为空")
+    @Min(value = 1, message = "购买数量至少为1")
+    @Max(value = 10, message = "单笔订单最多购买10张")
+    private Integer quantity;
+}
@@ -0,0 +1,19 @@
+package org.example.ticketmanagement.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SeatAllocateDTO {
+    @NotNull(message = "票档ID不能为空")
+    private Long tierId;
+
+    @NotNull(message = "座位数量不能为空")
+    @Min(value = 1, message = "座位数量必须大于0")
+    private Integer count;
+}
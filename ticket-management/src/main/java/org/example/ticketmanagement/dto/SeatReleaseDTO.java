@@ -0,0 +1,25 @@
+package org.example.ticketmanagement.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SeatReleaseDTO {
+    @NotNull(message = "区域ID不能为空")
+    private Long sectionId;
+
+    @NotNull(message = "排号不能为空")
+    @Min(value = 1, message = "排号必须大于0")
+    private Integer rowNo;
+
+    @NotEmpty(message = "座位号不能为空")
+    private List<@NotNull @Min(value = 1, message = "座位号必须大于0") Integer> seatNos;
+}
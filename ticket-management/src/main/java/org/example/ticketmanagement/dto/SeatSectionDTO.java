@@ -0,0 +1,29 @@
+package org.example.ticketmanagement.dto;
+
+import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SeatSectionDTO {
+    @NotNull(message = "票档ID不能为空")
+    private Long tierId;
+
+    @NotBlank(message = "区域名称不能为空")
+    @Size(max = 100, message = "区域名称不能超过100个字符")
+    private String sectionName;
+
+    @Min(value = 0, message = "优选顺序必须大于等于0")
+    private Integer sortOrder;
+
+    // 从第1排开始每排的座位数
+    @NotEmpty(message = "排不能为空")
+    @Size(max = 500, message = "单个区域不能超过500排")
+    private List<@NotNull @Min(value = 1, message = "每排至少1个座位")
+            @Max(value = 4096, message = "每排不能超过4096个座位") Integer> rowSeatCounts;
+}
@@ -0,0 +1,25 @@
+package org.example.ticketmanagement.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * 节点间转发的库存预扣/释放请求
+ * 同一次预扣/释放的重试携带同一个请求ID，属主节点按请求ID去重，最多执行一次
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockForwardDTO {
+
+    @NotBlank(message = "请求ID不能为空")
+    private String requestId;               // 转发方生成的请求ID
+
+    @NotEmpty(message = "票档数量不能为空")
+    private Map<Long, Integer> quantities;  // 票档ID -> 数量
+}
@@ -45,4 +45,7 @@ public class TicketTierDTO {
     @Min(value = 0, message = "状态必须为0或1")
     @Max(value = 1, message = "状态必须为0或1")
     private Integer status;
+
+    @Min(value = 0, message = "限购数量必须大于等于0")
+    private Integer purchaseLimit;
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package org.example.ticketmanagement.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 票档有库存重新可售（订单取消、超时、退款归还库存，或管理端补货）时在本节点发布的事件
+ */
+@Data
+@AllArgsConstructor
+public class StockReleasedEvent {
+    private Long tierId;       // 票档ID
+    private Integer quantity;  // 归还数量（管理端更新时为更新后的可用库存）
+}
@@ -4,6 +4,7 @@ package org.example.ticketmanagement.mapper;
 import org.apache.ibatis.annotations.*;
 import org.example.ticketmanagement.pojo.Event;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Mapper
@@ -14,10 +15,10 @@ public interface EventMapper {
      */
     @Insert("INSERT INTO event(name, artist_name, category_id, city_id, venue, " +
             "cover_image, description, status, sale_start_time, sale_end_time, " +
-            "event_start_time, event_end_time, create_time, update_time) " +
+            "event_start_time, event_end_time, purchase_limit, create_time, update_time) " +
             "VALUES(#{name}, #{artistName}, #{categoryId}, #{cityId}, #{venue}, " +
             "#{coverImage}, #{description}, #{status}, #{saleStartTime}, #{saleEndTime}, " +
-            "#{eventStartTime}, #{eventEndTime}, #{createTime}, #{updateTime})")
+            "#{eventStartTime}, #{eventEndTime}, #{purchaseLimit}, #{createTime}, #{updateTime})")
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(Event event);
 
@@ -43,6 +44,7 @@ public interface EventMapper {
             "sale_end_time = #{saleEndTime}, " +
             "event_start_time = #{eventStartTime}, " +
             "event_end_time = #{eventEndTime}, " +
+            "purchase_limit = #{purchaseLimit}, " +
             "update_time = #{updateTime} " +
             "WHERE id = #{id}")
     int update(Event event);
@@ -52,7 +54,7 @@ public interface EventMapper {
      */
     @Select("SELECT id, name, artist_name, category_id, city_id, venue, " +
             "cover_image, description, status, sale_start_time, sale_end_time, " +
-            "event_start_time, event_end_time, create_time, update_time " +
+            "event_start_time, event_end_time, purchase_limit, create_time, update_time " +
             "FROM event WHERE id = #{id}")
     Event selectById(@Param("id") Long id);
 
@@ -61,7 +63,7 @@ public interface EventMapper {
      */
     @Select("SELECT id, name, artist_name, category_id, city_id, venue, " +
             "cover_image, description, status, sale_start_time, sale_end_time, " +
-            "event_start_time, event_end_time, create_time, update_time " +
+            "event_start_time, event_end_time, purchase_limit, create_time, update_time " +
             "FROM event ORDER BY event_start_time DESC, create_time DESC")
     List<Event> selectAll();
 
@@ -70,7 +72,7 @@ public interface EventMapper {
      */
     @Select("SELECT id, name, artist_name, category_id, city_id, venue, " +
             "cover_image, description, status, sale_start_time, sale_end_time, " +
-            "event_start_time, event_end_time, create_time, update_time " +
+            "event_start_time, event_end_time, purchase_limit, create_time, update_time " +
             "FROM event WHERE status = #{status} " +
             "ORDER BY event_start_time DESC, create_time DESC")
     List<Event> selectByStatus(@Param("status") Integer status);
@@ -80,7 +82,7 @@ public interface EventMapper {
      */
     @Select("SELECT id, name, artist_name, category_id, city_id, venue, " +
             "cover_image, description, status, sale_start_time, sale_end_time, " +
-            "event_start_time, event_end_time, create_time, update_time " +
+            "event_start_time, event_end_time, purchase_limit, create_time, update_time " +
             "FROM event WHERE category_id = #{categoryId} " +
             "ORDER BY event_start_time DESC, create_time DESC")
     List<Event> selectByCategoryId(@Param("categoryId") Long categoryId);
@@ -90,7 +92,7 @@ public interface EventMapper {
      */
     @Select("SELECT id, name, artist_name, category_id, city_id, venue, " +
             "cover_image, description, status, sale_start_time, sale_end_time, " +
-            "event_start_time, event_end_time, create_time, update_time " +
+            "event_start_time, event_end_time, purchase_limit, create_time, update_time " +
             "FROM event WHERE city_id = #{cityId} " +
             "ORDER BY event_start_time DESC, create_time DESC")
     List<Event> selectByCityId(@Param("cityId") Long cityId);
@@ -100,7 +102,7 @@ public interface EventMapper {
      */
     @Select("SELECT id, name, artist_name, category_id, city_id, venue, " +
             "cover_image, description, status, sale_start_time, sale_end_time, " +
-            "event_start_time, event_end_time, create_time, update_time " +
+            "event_start_time, event_end_time, purchase_limit, create_time, update_time " +
             "FROM event WHERE category_id = #{categoryId} AND city_id = #{cityId} " +
             "ORDER BY event_start_time DESC, create_time DESC")
     List<Event> selectByCategoryAndCity(@Param("categoryId") Long categoryId,
@@ -111,7 +113,7 @@ public interface EventMapper {
      */
     @Select("SELECT id, name, artist_name, category_id, city_id, venue, " +
             "cover_image, description, status, sale_start_time, sale_end_time, " +
-            "event_start_time, event_end_time, create_time, update_time " +
+            "event_start_time, event_end_time, purchase_limit, create_time, update_time " +
             "FROM event WHERE artist_name LIKE CONCAT('%', #{artistName}, '%') " +
             "ORDER BY event_start_time DESC, create_time DESC")
     List<Event> selectByArtistName(@Param("artistName") String artistName);
@@ -121,7 +123,7 @@ public interface EventMapper {
      */
     @Select("SELECT id, name, artist_name, category_id, city_id, venue, " +
             "cover_image, description, status, sale_start_time, sale_end_time, " +
-            "event_start_time, event_end_time, create_time, update_time " +
+            "event_start_time, event_end_time, purchase_limit, create_time, update_time " +
             "FROM event WHERE name LIKE CONCAT('%', #{name}, '%') " +
             "ORDER BY event_start_time DESC, create_time DESC")
     List<Event> selectByName(@Param("name") String name);
@@ -131,7 +133,7 @@ public interface EventMapper {
      */
     @Select("SELECT id, name, artist_name, category_id, city_id, venue, " +
             "cover_image, description, status, sale_start_time, sale_end_time, " +
-            "event_start_time, event_end_time, create_time, update_time " +
+            "event_start_time, event_end_time, purchase_limit, create_time, update_time " +
             "FROM `event` WHERE status = 1 AND event_start_time > NOW() " +
             "ORDER BY event_start_time LIMIT #{limit}")
     List<Event> selectHotEvents(@Param("limit") Integer limit);
@@ -141,11 +143,31 @@ public interface EventMapper {
      */
     @Select("SELECT id, name, artist_name, category_id, city_id, venue, " +
             "cover_image, description, status, sale_start_time, sale_end_time, " +
-            "event_start_time, event_end_time, create_time, update_time " +
+            "event_start_time, event_end_time, purchase_limit, create_time, update_time " +
             "FROM `event` WHERE status = 1 AND sale_start_time > NOW() " +
             "ORDER BY sale_start_time LIMIT #{limit}")
     List<Event> selectUpcomingEvents(@Param("limit") Integer limit);
 
+    /**
+     * 获取开售时间落在指定区间内的已发布演出（开售预热使用）
+     */
+    @Select("SELECT id, name, artist_name, category_id, city_id, venue, " +
+            "cover_image, description, status, sale_start_time, sale_end_time, " +
+            "event_start_time, event_end_time, purchase_limit, create_time, update_time " +
+            "FROM `event` WHERE status = 1 AND sale_start_time BETWEEN #{from} AND #{to} " +
+            "ORDER BY sale_start_time")
+    List<Event> selectBySaleStartTimeBetween(@Param("from") LocalDateTime from,
+                                             @Param("to") LocalDateTime to);
+
+    /**
+     * 首页推荐：一次查询城市下多个分类各自最先开始的前 limit 场已发布、未结束的演出（不含 description）
+     */
+    @SelectProvider(type = org.example.ticketmanagement.mapper.provider.EventSqlProvider.class, method = "selectHomeTopN")
+    List<Event> selectHomeTopN(@Param("cityId") Long cityId,
+                               @Param("categoryIds") List<Long> categoryIds,
+                               @Param("limit") int limit,
+                               @Param("now") LocalDateTime now);
+
     /**
      * 分页查询演出列表
      */
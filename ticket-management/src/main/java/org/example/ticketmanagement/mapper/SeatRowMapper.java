@@ -0,0 +1,54 @@
+package org.example.ticketmanagement.mapper;
+
+import org.apache.ibatis.annotations.*;
+import org.example.ticketmanagement.pojo.SeatRow;
+
+import java.util.List;
+
+@Mapper
+public interface SeatRowMapper {
+
+    /**
+     * 1. 新增一排座位
+     * @param row 要插入的排对象
+     * @return 受影响的行数
+     */
+    @Insert("INSERT INTO seat_row(section_id, session_id, row_no, seat_count, seat_bits, version, update_time) " +
+            "VALUES(#{sectionId}, #{sessionId}, #{rowNo}, #{seatCount}, #{seatBits}, #{version}, #{updateTime})")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    int insert(SeatRow row);
+
+    /**
+     * 2. 根据场次ID查询所有排（加载整个场次的座位图）
+     * @param sessionId 场次ID
+     * @return 排列表，按区域、排号升序排列
+     */
+    @Select("SELECT id, section_id, session_id, row_no, seat_count, seat_bits, version, update_time " +
+            "FROM seat_row WHERE session_id = #{sessionId} ORDER BY section_id ASC, row_no ASC")
+    List<SeatRow> selectBySessionId(@Param("sessionId") Long sessionId);
+
+    /**
+     * 3. 写回一排的座位位图
+     * 注意：通过 version = #{expectedVersion} 条件保证只在读取之后没有被其他节点修改时写入
+     * @param id 排ID
+     * @param seatBits 座位位图
+     * @param version 新的位图版本号
+     * @param expectedVersion 读取时的位图版本号
+     * @return 受影响的行数，版本已被修改时为0
+     */
+    @Update("UPDATE seat_row SET seat_bits = #{seatBits}, version = #{version}, update_time = NOW() " +
+            "WHERE id = #{id} AND version = #{expectedVersion}")
+    int updateSeatBits(@Param("id") Long id,
+                       @Param("seatBits") byte[] seatBits,
+                       @Param("version") Long version,
+                       @Param("expectedVersion") Long expectedVersion);
+
+    /**
+     * 4. 根据ID查询一排（写回版本冲突后重新加载使用）
+     * @param id 排ID
+     * @return 查询到的排对象，未找到则返回null
+     */
+    @Select("SELECT id, section_id, session_id, row_no, seat_count, seat_bits, version, update_time " +
+            "FROM seat_row WHERE id = #{id}")
+    SeatRow selectById(@Param("id") Long id);
+}
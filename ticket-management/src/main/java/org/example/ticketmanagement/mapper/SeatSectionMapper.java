@@ -0,0 +1,38 @@
+package org.example.ticketmanagement.mapper;
+
+import org.apache.ibatis.annotations.*;
+import org.example.ticketmanagement.pojo.SeatSection;
+
+import java.util.List;
+
+@Mapper
+public interface SeatSectionMapper {
+
+    /**
+     * 1. 新增一个座位区域
+     * @param section 要插入的区域对象
+     * @return 受影响的行数
+     */
+    @Insert("INSERT INTO seat_section(session_id, tier_id, section_name, sort_order, create_time, update_time) " +
+            "VALUES(#{sessionId}, #{tierId}, #{sectionName}, #{sortOrder}, #{createTime}, #{updateTime})")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    int insert(SeatSection section);
+
+    /**
+     * 2. 根据场次ID查询所有区域
+     * @param sessionId 场次ID
+     * @return 区域列表，按优选顺序升序排列
+     */
+    @Select("SELECT id, session_id, tier_id, section_name, sort_order, create_time, update_time " +
+            "FROM seat_section WHERE session_id = #{sessionId} ORDER BY sort_order ASC, id ASC")
+    List<SeatSection> selectBySessionId(@Param("sessionId") Long sessionId);
+
+    /**
+     * 3. 检查同一场次是否存在相同名称的区域
+     * @param sessionId 场次ID
+     * @param sectionName 区域名称
+     * @return 存在相同名称的区域数量
+     */
+    @Select("SELECT COUNT(*) FROM seat_section WHERE session_id = #{sessionId} AND section_name = #{sectionName}")
+    int countByName(@Param("sessionId") Long sessionId, @Param("sectionName") String sectionName);
+}
@@ -0,0 +1,51 @@
+package org.example.ticketmanagement.mapper;
+
+import org.apache.ibatis.annotations.*;
+import org.example.ticketmanagement.pojo.SessionOwner;
+
+import java.util.List;
+
+@Mapper
+public interface SessionOwnerMapper {
+
+    /**
+     * 1. 查询场次的租约
+     * @param sessionId 场次ID
+     * @return 租约，没有记录返回null
+     */
+    @Select("SELECT session_id, owner_node, epoch, update_time FROM session_owner WHERE session_id = #{sessionId}")
+    SessionOwner selectBySessionId(@Param("sessionId") Long sessionId);
+
+    /**
+     * 2. 取得场次租约：租约空闲时改为本节点持有并递增版本，由其他节点持有时不变
+     * （ON DUPLICATE KEY UPDATE 中先计算 epoch、update_time，再修改 owner_node）
+     * @param sessionId 场次ID
+     * @param nodeId 当前节点ID
+     * @return 受影响的行数（是否取得租约以随后查询的 owner_node 为准）
+     */
+    @Insert("INSERT INTO session_owner(session_id, owner_node, epoch, update_time) " +
+            "VALUES(#{sessionId}, #{nodeId}, 1, NOW()) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "epoch = CASE WHEN owner_node IS NULL THEN epoch + 1 ELSE epoch END, " +
+            "update_time = CASE WHEN owner_node IS NULL OR owner_node = VALUES(owner_node) THEN NOW() ELSE update_time END, " +
+            "owner_node = CASE WHEN owner_node IS NULL THEN VALUES(owner_node) ELSE owner_node END")
+    int claim(@Param("sessionId") Long sessionId, @Param("nodeId") String nodeId);
+
+    /**
+     * 3. 释放场次租约（只释放本节点持有的租约）
+     * @param sessionId 场次ID
+     * @param nodeId 当前节点ID
+     * @return 受影响的行数
+     */
+    @Update("UPDATE session_owner SET owner_node = NULL, update_time = NOW() " +
+            "WHERE session_id = #{sessionId} AND owner_node = #{nodeId}")
+    int release(@Param("sessionId") Long sessionId, @Param("nodeId") String nodeId);
+
+    /**
+     * 4. 查询节点持有租约的场次ID（节点启动时恢复本节点持有的租约）
+     * @param nodeId 节点ID
+     * @return 场次ID列表
+     */
+    @Select("SELECT session_id FROM session_owner WHERE owner_node = #{nodeId}")
+    List<Long> selectSessionIdsByOwner(@Param("nodeId") String nodeId);
+}
@@ -0,0 +1,41 @@
+package org.example.ticketmanagement.mapper;
+
+import org.apache.ibatis.annotations.*;
+import org.example.ticketmanagement.pojo.StockJournalCheckpoint;
+
+import java.util.List;
+
+@Mapper
+public interface StockJournalCheckpointMapper {
+
+    /**
+     * 1. 查询某个日志的所有回写位点（节点启动重放日志时使用）
+     * @param journalId 日志标识
+     * @return 回写位点列表
+     */
+    @Select("SELECT journal_id, tier_id, applied_seq, update_time " +
+            "FROM stock_journal_checkpoint WHERE journal_id = #{journalId}")
+    List<StockJournalCheckpoint> selectByJournalId(@Param("journalId") String journalId);
+
+    /**
+     * 2. 记录票档的回写位点，位点只会前进不会后退（需与库存回写在同一事务中调用）
+     * @param journalId 日志标识
+     * @param tierId 票档ID
+     * @param appliedSeq 已回写到的日志序号
+     * @return 受影响的行数
+     */
+    @Insert("INSERT INTO stock_journal_checkpoint(journal_id, tier_id, applied_seq, update_time) " +
+            "VALUES(#{journalId}, #{tierId}, #{appliedSeq}, NOW()) " +
+            "ON DUPLICATE KEY UPDATE applied_seq = GREATEST(applied_seq, VALUES(applied_seq)), update_time = NOW()")
+    int upsert(@Param("journalId") String journalId,
+               @Param("tierId") Long tierId,
+               @Param("appliedSeq") Long appliedSeq);
+
+    /**
+     * 3. 查询某个日志的最大回写位点（日志文件丢失时，新日志的序号从该位点之后开始）
+     * @param journalId 日志标识
+     * @return 最大回写位点，没有记录返回null
+     */
+    @Select("SELECT MAX(applied_seq) FROM stock_journal_checkpoint WHERE journal_id = #{journalId}")
+    Long selectMaxAppliedSeq(@Param("journalId") String journalId);
+}
@@ -0,0 +1,107 @@
+package org.example.ticketmanagement.mapper;
+
+import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.cursor.Cursor;
+import org.example.ticketmanagement.pojo.TicketOrder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface TicketOrderMapper {
+
+    /**
+     * 1. 新增一个订单
+     * @param order 要插入的订单对象
+     * @return 受影响的行数
+     */
+    @Insert("INSERT INTO ticket_order(order_no, user_id, event_id, session_id, tier_id, quantity, " +
+            "unit_price, total_amount, status, expire_time, seat_section_id, seat_row_no, seat_nos, " +
+            "create_time, update_time) " +
+            "VALUES(#{orderNo}, #{userId}, #{eventId}, #{sessionId}, #{tierId}, #{quantity}, " +
+            "#{unitPrice}, #{totalAmount}, #{status}, #{expireTime}, #{seatSectionId}, #{seatRowNo}, #{seatNos}, " +
+            "#{createTime}, #{updateTime})")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    int insert(TicketOrder order);
+
+    /**
+     * 2. 根据ID查询一个订单
+     * @param id 订单ID
+     * @return 查询到的订单对象，未找到则返回null
+     */
+    @Select("SELECT id, order_no, user_id, event_id, session_id, tier_id, quantity, unit_price, " +
+            "total_amount, status, expire_time, pay_time, cancel_time, seat_section_id, seat_row_no, seat_nos, " +
+            "create_time, update_time " +
+            "FROM ticket_order WHERE id = #{id}")
+    TicketOrder selectById(@Param("id") Long id);
+
+    /**
+     * 3. 根据用户ID查询订单
+     * @param userId 用户ID
+     * @return 该用户的订单列表，按创建时间倒序排列
+     */
+    @Select("SELECT id, order_no, user_id, event_id, session_id, tier_id, quantity, unit_price, " +
+            "total_amount, status, expire_time, pay_time, cancel_time, seat_section_id, seat_row_no, seat_nos, " +
+            "create_time, update_time " +
+            "FROM ticket_order WHERE user_id = #{userId} ORDER BY create_time DESC")
+    List<TicketOrder> selectByUserId(@Param("userId") Long userId);
+
+    /**
+     * 4. 支付订单（仅待支付且未超过支付截止时间的订单可以支付）
+     * @param id 订单ID
+     * @return 受影响的行数
+     */
+    @Update("UPDATE ticket_order SET status = 1, pay_time = NOW(), update_time = NOW() " +
+            "WHERE id = #{id} AND status = 0 AND expire_time > NOW()")
+    int markPaid(@Param("id") Long id);
+
+    /**
+     * 5. 取消或关闭待支付订单
+     * 条件更新保证同一订单只会被取消/关闭一次，库存也只会释放一次
+     * @param id 订单ID
+     * @param status 目标状态（2-已取消，3-超时关闭）
+     * @return 受影响的行数
+     */
+    @Update("UPDATE ticket_order SET status = #{status}, cancel_time = NOW(), update_time = NOW() " +
+            "WHERE id = #{id} AND status = 0")
+    int closeUnpaid(@Param("id") Long id, @Param("status") Integer status);
+
+    /**
+     * 6. 流式查询所有待支付订单（应用启动时恢复超时任务使用）
+     * 使用游标分批读取（MySQL连接开启 useCursorFetch 时按 fetchSize 从服务端取数），避免待支付订单过多时一次性加载到内存
+     */
+    @Select("SELECT id, expire_time FROM ticket_order WHERE status = 0")
+    @Options(fetchSize = 1000)
+    Cursor<TicketOrder> selectPendingOrders();
+
+    /**
+     * 7. 已支付订单退款
+     * 条件更新保证同一订单只会退款一次，库存也只会归还一次
+     * @param id 订单ID
+     * @return 受影响的行数
+     */
+    @Update("UPDATE ticket_order SET status = 4, cancel_time = NOW(), update_time = NOW() " +
+            "WHERE id = #{id} AND status = 1")
+    int markRefunded(@Param("id") Long id);
+
+    /**
+     * 8. 查询已超过支付截止时间仍未关闭的订单（定时兜底关单使用，按 (截止时间, ID) 顺序分页）
+     * 从上一批最后一行之后继续读取，某批订单关闭失败仍为待支付时不会被反复读到
+     * @param before 截止时间早于该时间的订单
+     * @param afterTime 上一批最后一个订单的截止时间，第一批传 null
+     * @param afterId 上一批最后一个订单的ID
+     * @param limit 每批数量
+     * @return 订单列表（只含 id、expire_time）
+     */
+    @Select("<script>" +
+            "SELECT id, expire_time FROM ticket_order WHERE status = 0 AND expire_time &lt; #{before} " +
+            "<if test='afterTime != null'>" +
+            "AND (expire_time &gt; #{afterTime} OR (expire_time = #{afterTime} AND id &gt; #{afterId})) " +
+            "</if>" +
+            "ORDER BY expire_time, id LIMIT #{limit}" +
+            "</script>")
+    List<TicketOrder> selectExpiredPending(@Param("before") LocalDateTime before,
+                                           @Param("afterTime") LocalDateTime afterTime,
+                                           @Param("afterId") Long afterId,
+                                           @Param("limit") int limit);
+}
@@ -2,10 +2,13 @@
 package org.example.ticketmanagement.mapper;
 
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
 import org.example.ticketmanagement.mapper.provider.TicketTierSqlProvider;
 import org.example.ticketmanagement.pojo.TicketTier;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -19,9 +22,9 @@ public interface TicketTierMapper {
      * @Options 注解用于获取数据库自动生成的主键id，并回填到传入的tier对象的id属性中
      */
     @Insert("INSERT INTO ticket_tier(event_id, session_id, tier_name, original_price, current_price, " +
-            "total_stock, available_stock, status, create_time, update_time) " +
+            "total_stock, available_stock, status, purchase_limit, create_time, update_time) " +
             "VALUES(#{eventId}, #{sessionId}, #{tierName}, #{originalPrice}, #{currentPrice}, " +
-            "#{totalStock}, #{availableStock}, #{status}, #{createTime}, #{updateTime})")
+            "#{totalStock}, #{availableStock}, #{status}, #{purchaseLimit}, #{createTime}, #{updateTime})")
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(TicketTier tier);
 
@@ -34,7 +37,7 @@ public interface TicketTierMapper {
     int deleteById(@Param("id") Long id);
 
     /**
-     * 3. 更新一个票档的信息
+     * 3. 更新一个票档的信息（不含可用库存，可用库存只按增量调整，避免覆盖期间的扣减）
      * @param tier 包含更新信息的票档对象，必须包含id
      * @return 受影响的行数
      */
@@ -45,8 +48,8 @@ public interface TicketTierMapper {
             "original_price = #{originalPrice}, " +
             "current_price = #{currentPrice}, " +
             "total_stock = #{totalStock}, " +
-            "available_stock = #{availableStock}, " +
             "status = #{status}, " +
+            "purchase_limit = #{purchaseLimit}, " +
             "update_time = #{updateTime} " +
             "WHERE id = #{id}")
     int update(TicketTier tier);
@@ -57,7 +60,7 @@ public interface TicketTierMapper {
      * @return 查询到的票档对象，未找到则返回null
      */
     @Select("SELECT id, event_id, session_id, tier_name, original_price, current_price, " +
-            "total_stock, available_stock, status, create_time, update_time " +
+            "total_stock, available_stock, status, purchase_limit, create_time, update_time " +
             "FROM ticket_tier WHERE id = #{id}")
     TicketTier selectById(@Param("id") Long id);
 
@@ -67,7 +70,7 @@ public interface TicketTierMapper {
      * @return 该演出的所有票档列表，按价格升序排列
      */
     @Select("SELECT id, event_id, session_id, tier_name, original_price, current_price, " +
-            "total_stock, available_stock, status, create_time, update_time " +
+            "total_stock, available_stock, status, purchase_limit, create_time, update_time " +
             "FROM ticket_tier WHERE event_id = #{eventId} " +
             "ORDER BY current_price ASC, create_time DESC")
     List<TicketTier> selectByEventId(@Param("eventId") Long eventId);
@@ -78,7 +81,7 @@ public interface TicketTierMapper {
      * @return 该场次的所有票档列表，按价格升序排列
      */
     @Select("SELECT id, event_id, session_id, tier_name, original_price, current_price, " +
-            "total_stock, available_stock, status, create_time, update_time " +
+            "total_stock, available_stock, status, purchase_limit, create_time, update_time " +
             "FROM ticket_tier WHERE session_id = #{sessionId} " +
             "ORDER BY current_price ASC, create_time DESC")
     List<TicketTier> selectBySessionId(@Param("sessionId") Long sessionId);
@@ -90,7 +93,7 @@ public interface TicketTierMapper {
      * @return 符合条件的票档列表，按价格升序排列
      */
     @Select("SELECT id, event_id, session_id, tier_name, original_price, current_price, " +
-            "total_stock, available_stock, status, create_time, update_time " +
+            "total_stock, available_stock, status, purchase_limit, create_time, update_time " +
             "FROM ticket_tier WHERE event_id = #{eventId} AND status = #{status} " +
             "ORDER BY current_price ASC")
     List<TicketTier> selectByEventIdAndStatus(@Param("eventId") Long eventId,
@@ -103,7 +106,7 @@ public interface TicketTierMapper {
      * @return 符合条件的票档列表，按价格升序排列
      */
     @Select("SELECT id, event_id, session_id, tier_name, original_price, current_price, " +
-            "total_stock, available_stock, status, create_time, update_time " +
+            "total_stock, available_stock, status, purchase_limit, create_time, update_time " +
             "FROM ticket_tier WHERE session_id = #{sessionId} AND status = #{status} " +
             "ORDER BY current_price ASC")
     List<TicketTier> selectBySessionIdAndStatus(@Param("sessionId") Long sessionId,
@@ -114,7 +117,7 @@ public interface TicketTierMapper {
      * @return 票档列表，按创建时间倒序排列
      */
     @Select("SELECT id, event_id, session_id, tier_name, original_price, current_price, " +
-            "total_stock, available_stock, status, create_time, update_time " +
+            "total_stock, available_stock, status, purchase_limit, create_time, update_time " +
             "FROM ticket_tier ORDER BY create_time DESC")
     List<TicketTier> selectAll();
 
@@ -124,7 +127,7 @@ public interface TicketTierMapper {
      * @return 符合条件的票档列表，按创建时间倒序排列
      */
     @Select("SELECT id, event_id, session_id, tier_name, original_price, current_price, " +
-            "total_stock, available_stock, status, create_time, update_time " +
+            "total_stock, available_stock, status, purchase_limit, create_time, update_time " +
             "FROM ticket_tier WHERE status = #{status} " +
             "ORDER BY create_time DESC")
     List<TicketTier> selectByStatus(@Param("status") Integer status);
@@ -145,8 +148,8 @@ public interface TicketTierMapper {
                             @Param("excludeId") Long excludeId);
 
     /**
-     * 12. 更新票档的可用库存（后续抢票功能使用）
-     * 注意：这里使用了乐观锁的思路，但现阶段我们只做数据管理，不处理并发
+     * 12. 更新票档的可用库存（下单预扣、扣减合并器使用）
+     * 注意：通过 available_stock >= quantity 条件保证不会超卖
      * @param id 票档ID
      * @param quantity 扣减数量（正数表示扣减，负数表示增加）
      * @return 受影响的行数
@@ -163,7 +166,7 @@ public interface TicketTierMapper {
      * @return 符合条件的票档列表，按价格升序排列
      */
     @Select("SELECT id, event_id, session_id, tier_name, original_price, current_price, " +
-            "total_stock, available_stock, status, create_time, update_time " +
+            "total_stock, available_stock, status, purchase_limit, create_time, update_time " +
             "FROM ticket_tier WHERE status = #{status} " +
             "AND current_price BETWEEN #{minPrice} AND #{maxPrice} " +
             "ORDER BY current_price ASC")
@@ -235,6 +238,106 @@ public interface TicketTierMapper {
                                                  @Param("maxPrice") BigDecimal maxPrice,
                                                  @Param("status") Integer status);
 
+    /**
+     * 20. 回写库存扣减增量（Redis预扣后异步回写使用）
+     * 增量为正表示扣减，为负表示归还，回写后的库存必须落在 [0, total_stock] 区间内
+     * @param id 票档ID
+     * @param delta 累计扣减数量
+     * @return 受影响的行数
+     */
+    @Update("UPDATE ticket_tier SET available_stock = available_stock - #{delta}, " +
+            "update_time = NOW() WHERE id = #{id} " +
+            "AND available_stock - #{delta} >= 0 AND available_stock - #{delta} <= total_stock")
+    int applyStockDelta(@Param("id") Long id, @Param("delta") Long delta);
+
+    /**
+     * 21. 归还票档的可用库存
+     * 归还后的可用库存不能超过总库存
+     * @param id 票档ID
+     * @param quantity 归还数量
+     * @return 受影响的行数
+     */
+    @Update("UPDATE ticket_tier SET available_stock = available_stock + #{quantity}, " +
+            "update_time = NOW() WHERE id = #{id} AND available_stock + #{quantity} <= total_stock")
+    int releaseStock(@Param("id") Long id, @Param("quantity") Integer quantity);
+
+    /**
+     * 22. 根据ID查询并锁定一个票档（拆分库存分片时使用，需在事务中调用）
+     * @param id 票档ID
+     * @return 查询到的票档对象，未找到则返回null
+     */
+    @Select("SELECT id, event_id, session_id, tier_name, original_price, current_price, " +
+            "total_stock, available_stock, status, purchase_limit, create_time, update_time " +
+            "FROM ticket_tier WHERE id = #{id} FOR UPDATE")
+    TicketTier selectByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * 23. 根据场次ID查询在售票档的库存数量（实时库存推送使用）
+     */
+    @Select("SELECT id, tier_name, total_stock, available_stock " +
+            "FROM ticket_tier WHERE session_id = #{sessionId} AND status = 1 ORDER BY id")
+    List<Map<String, Object>> selectStockLevelBySessionId(@Param("sessionId") Long sessionId);
+
+    /**
+     * 24. 一条语句同时扣减多个票档的可用库存（购物车预扣使用，需在事务中调用）
+     * 按主键顺序加锁，多个购物车并发扣减同一批票档不会死锁；受影响行数小于票档数时调用方应回滚事务
+     * @param tierIds 票档ID列表（升序），不能为空
+     * @param quantities 与票档ID一一对应的扣减数量
+     * @return 受影响的行数
+     */
+    @UpdateProvider(type = TicketTierSqlProvider.class, method = "deductStockBatch")
+    int deductStockBatch(@Param("tierIds") List<Long> tierIds, @Param("quantities") List<Integer> quantities);
+
+    /**
+     * 25. 从票档可用库存中领取一段库存（Redis不可用时本地降级售卖使用）
+     * 领取后剩余的库存不能低于 总库存 × 保留比例 与 最低保留量 中的较大值，保留部分用于吸收Redis中尚未回写的扣减
+     * @param id 票档ID
+     * @param quantity 领取数量
+     * @param holdBackRatio 保留比例
+     * @param holdBackMin 最低保留量
+     * @return 受影响的行数
+     */
+    @Update("UPDATE ticket_tier SET available_stock = available_stock - #{quantity}, update_time = NOW() " +
+            "WHERE id = #{id} AND status = 1 " +
+            "AND available_stock - #{quantity} >= GREATEST(CEIL(total_stock * CAST(#{holdBackRatio} AS DECIMAL(10, 4))), #{holdBackMin})")
+    int takeStockSlice(@Param("id") Long id,
+                       @Param("quantity") Integer quantity,
+                       @Param("holdBackRatio") Double holdBackRatio,
+                       @Param("holdBackMin") Long holdBackMin);
 
+    /**
+     * 26. 流式查询票档库存计数与订单占用数量（库存对账使用，需在事务中遍历游标）
+     * 结果按 fetchSize 分批从数据库读取（MySQL连接需开启 useCursorFetch），全量扫描大量票档时也不会一次载入内存
+     * @param since 只查询该时间之后变更过的票档，为null时不限
+     * @param tierIds 只查询这些票档，为null或空时不限
+     * @return 游标，每行包含 id、session_id、total_stock、available_stock、sold_quantity
+     */
+    @SelectProvider(type = TicketTierSqlProvider.class, method = "scanStockAudit")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = 1000)
+    Cursor<Map<String, Object>> scanStockAudit(@Param("since") LocalDateTime since,
+                                               @Param("tierIds") List<Long> tierIds);
 
-}
\ No newline at end of file
+    /**
+     * 27. 以订单为准修正票档的可用库存（库存对账自动修正使用）
+     * 只有可用库存仍等于对账时读到的值才修正，期间有新的扣减或归还时放弃，留到下次对账
+     * @param id 票档ID
+     * @param expected 修正后的可用库存
+     * @param observed 对账时读到的可用库存
+     * @return 受影响的行数
+     */
+    @Update("UPDATE ticket_tier SET available_stock = #{expected}, update_time = NOW() " +
+            "WHERE id = #{id} AND available_stock = #{observed} AND #{expected} BETWEEN 0 AND total_stock")
+    int correctAvailableStock(@Param("id") Long id,
+                              @Param("expected") Integer expected,
+                              @Param("observed") Integer observed);
+
+    /**
+     * 28. 重设票档的可用库存（分片库存在同一事务中锁住全部分片后汇总，合并回票档表时使用）
+     * @param id 票档ID
+     * @param stock 可用库存，需在 0 ~ 总库存 之间
+     * @return 受影响的行数
+     */
+    @Update("UPDATE ticket_tier SET available_stock = #{stock}, update_time = NOW() " +
+            "WHERE id = #{id} AND #{stock} BETWEEN 0 AND total_stock")
+    int resetAvailableStock(@Param("id") Long id, @Param("stock") Integer stock);
+}
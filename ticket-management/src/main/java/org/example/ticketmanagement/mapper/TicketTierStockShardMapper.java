@@ -0,0 +1,103 @@
+package org.example.ticketmanagement.mapper;
+
+import org.apache.ibatis.annotations.*;
+import org.example.ticketmanagement.mapper.provider.TicketTierStockShardSqlProvider;
+import org.example.ticketmanagement.pojo.TicketTierStockShard;
+
+import java.util.List;
+import java.util.Map;
+
+@Mapper
+public interface TicketTierStockShardMapper {
+
+    /**
+     * 1. 新增一个库存分片
+     * @param shard 要插入的分片对象
+     * @return 受影响的行数
+     */
+    @Insert("INSERT INTO ticket_tier_stock_shard(tier_id, shard_no, total_stock, available_stock, update_time) " +
+            "VALUES(#{tierId}, #{shardNo}, #{totalStock}, #{availableStock}, #{updateTime})")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    int insert(TicketTierStockShard shard);
+
+    /**
+     * 2. 查询票档的分片数量
+     * @param tierId 票档ID
+     * @return 分片数量，未拆分返回0
+     */
+    @Select("SELECT COUNT(*) FROM ticket_tier_stock_shard WHERE tier_id = #{tierId}")
+    int countByTierId(@Param("tierId") Long tierId);
+
+    /**
+     * 3. 锁定并查询票档的所有分片（跨分片扣减使用，按分片序号加锁避免死锁）
+     * @param tierId 票档ID
+     * @return 分片列表，按分片序号升序排列
+     */
+    @Select("SELECT id, tier_id, shard_no, total_stock, available_stock, update_time " +
+            "FROM ticket_tier_stock_shard WHERE tier_id = #{tierId} ORDER BY shard_no ASC FOR UPDATE")
+    List<TicketTierStockShard> selectByTierIdForUpdate(@Param("tierId") Long tierId);
+
+    /**
+     * 4. 删除票档的所有分片（管理端重设库存或删除票档时使用）
+     * @param tierId 票档ID
+     * @return 受影响的行数
+     */
+    @Delete("DELETE FROM ticket_tier_stock_shard WHERE tier_id = #{tierId}")
+    int deleteByTierId(@Param("tierId") Long tierId);
+
+    /**
+     * 5. 扣减单个分片的可用库存
+     * 通过 available_stock >= quantity 条件保证不会超卖
+     * @param tierId 票档ID
+     * @param shardNo 分片序号
+     * @param quantity 扣减数量
+     * @return 受影响的行数，分片库存不足时为0
+     */
+    @Update("UPDATE ticket_tier_stock_shard SET available_stock = available_stock - #{quantity}, " +
+            "update_time = NOW() WHERE tier_id = #{tierId} AND shard_no = #{shardNo} " +
+            "AND available_stock >= #{quantity}")
+    int deductStock(@Param("tierId") Long tierId, @Param("shardNo") Integer shardNo,
+                    @Param("quantity") Integer quantity);
+
+    /**
+     * 6. 归还单个分片的可用库存
+     * 归还后的可用库存不能超过分片总库存
+     * @param tierId 票档ID
+     * @param shardNo 分片序号
+     * @param quantity 归还数量
+     * @return 受影响的行数
+     */
+    @Update("UPDATE ticket_tier_stock_shard SET available_stock = available_stock + #{quantity}, " +
+            "update_time = NOW() WHERE tier_id = #{tierId} AND shard_no = #{shardNo} " +
+            "AND available_stock + #{quantity} <= total_stock")
+    int releaseStock(@Param("tierId") Long tierId, @Param("shardNo") Integer shardNo,
+                     @Param("quantity") Integer quantity);
+
+    /**
+     * 7. 按票档ID列表汇总分片可用库存（动态SQL）
+     * @param tierIds 票档ID列表，不能为空
+     * @return 每个已拆分票档一行：tier_id, available_stock
+     */
+    @SelectProvider(type = TicketTierStockShardSqlProvider.class, method = "selectAvailableByTierIds")
+    List<Map<String, Object>> selectAvailableByTierIds(@Param("tierIds") List<Long> tierIds);
+
+    /**
+     * 8. 查询所有已拆分库存的票档ID
+     * @return 票档ID列表
+     */
+    @Select("SELECT DISTINCT tier_id FROM ticket_tier_stock_shard")
+    List<Long> selectShardedTierIds();
+
+    /**
+     * 9. 把分片可用库存之和汇总回写到票档表（供不感知分片的查询使用）
+     * 未拆分或数值没有变化时不更新
+     * @param tierId 票档ID
+     * @return 受影响的行数
+     */
+    @Update("UPDATE ticket_tier SET available_stock = " +
+            "(SELECT SUM(s.available_stock) FROM ticket_tier_stock_shard s WHERE s.tier_id = #{tierId}), " +
+            "update_time = NOW() WHERE id = #{tierId} " +
+            "AND available_stock <> COALESCE((SELECT SUM(s.available_stock) " +
+            "FROM ticket_tier_stock_shard s WHERE s.tier_id = #{tierId}), available_stock)")
+    int syncTierAvailableStock(@Param("tierId") Long tierId);
+}
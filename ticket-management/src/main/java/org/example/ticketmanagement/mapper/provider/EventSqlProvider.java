@@ -0,0 +1,124 @@
+package org.example.ticketmanagement.mapper.provider;
+
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.jdbc.SQL;
+import org.example.ticketmanagement.dto.EventQueryDTO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 演出动态SQL提供者
+ */
+public class EventSqlProvider {
+
+    /**
+     * 构建动态查询SQL
+     */
+    public String selectByCondition(@Param("queryDTO") EventQueryDTO queryDTO) {
+        return new SQL() {{
+            SELECT("id, name, artist_name, category_id, city_id, venue, " +
+                    "cover_image, description, status, sale_start_time, sale_end_time, " +
+                    "event_start_time, event_end_time, purchase_limit, create_time, update_time");
+            FROM("event");
+
+            // 动态添加WHERE条件
+            buildWhereClause(this, queryDTO);
+
+            // 排序
+            if (queryDTO.getSortBy() != null && queryDTO.getSortOrder() != null) {
+                ORDER_BY(queryDTO.getOrderByClause());
+            } else {
+                ORDER_BY("event_start_time DESC, create_time DESC");
+            }
+
+            // 分页
+            LIMIT("#{queryDTO.size}");
+            OFFSET("#{queryDTO.offset}");
+        }}.toString();
+    }
+
+    /**
+     * 构建计数SQL
+     */
+    public String countByCondition(@Param("queryDTO") EventQueryDTO queryDTO) {
+        return new SQL() {{
+            SELECT("COUNT(*)");
+            FROM("event");
+
+            // 动态添加WHERE条件
+            buildWhereClause(this, queryDTO);
+        }}.toString();
+    }
+
+    /**
+     * 首页推荐：一次查询城市下多个分类各自最先开始的N场演出
+     * 状态、结束时间在内层过滤，按分类分组编号后外层只取前N条；不查询 description 等首页不需要的大字段
+     */
+    public String selectHomeTopN(@Param("cityId") Long cityId,
+                                 @Param("categoryIds") List<Long> categoryIds,
+                                 @Param("limit") int limit,
+                                 @Param("now") LocalDateTime now) {
+        String columns = "id, name, artist_name, category_id, city_id, venue, cover_image, status, " +
+                "sale_start_time, sale_end_time, event_start_time, event_end_time, purchase_limit, " +
+                "create_time, update_time";
+
+        // 内层：按分类分组、按开始时间编号
+        String ranked = new SQL() {{
+            SELECT(columns);
+            SELECT("ROW_NUMBER() OVER (PARTITION BY category_id ORDER BY event_start_time ASC, id ASC) AS rn");
+            FROM("event");
+            WHERE("city_id = #{cityId}");
+            WHERE("status = 1");
+            WHERE("event_end_time > #{now}");
+            WHERE("category_id IN (" + buildInClause("categoryIds", categoryIds.size()) + ")");
+        }}.toString();
+
+        // 外层：每个分类只取前N条
+        return new SQL() {{
+            SELECT(columns);
+            FROM("(" + ranked + ") ranked");
+            WHERE("rn <= #{limit}");
+            ORDER_BY("category_id, rn");
+        }}.toString();
+    }
+
+    /**
+     * 构建WHERE条件（公共逻辑）
+     */
+    private void buildWhereClause(SQL sql, EventQueryDTO queryDTO) {
+        if (queryDTO.getStatus() != null) {
+            sql.WHERE("status = #{queryDTO.status}");
+        }
+
+        if (queryDTO.getCategoryId() != null) {
+            sql.WHERE("category_id = #{queryDTO.categoryId}");
+        }
+
+        if (queryDTO.getCityId() != null) {
+            sql.WHERE("city_id = #{queryDTO.cityId}");
+        }
+
+        if (queryDTO.getName() != null && !queryDTO.getName().isBlank()) {
+            sql.WHERE("name LIKE CONCAT('%', #{queryDTO.name}, '%')");
+        }
+
+        if (queryDTO.getArtistName() != null && !queryDTO.getArtistName().isBlank()) {
+            sql.WHERE("artist_name LIKE CONCAT('%', #{queryDTO.artistName}, '%')");
+        }
+    }
+
+    /**
+     * 构建IN列表的占位符：#{name[0]}, #{name[1]}, ...
+     */
+    private String buildInClause(String name, int size) {
+        StringBuilder in = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                in.append(", ");
+            }
+            in.append("#{").append(name).append("[").append(i).append("]}");
+        }
+        return in.toString();
+    }
+}
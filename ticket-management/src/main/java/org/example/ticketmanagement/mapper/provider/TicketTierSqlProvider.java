@@ -5,6 +5,8 @@ import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.jdbc.SQL;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
 
 public class TicketTierSqlProvider {
 
@@ -16,7 +18,7 @@ public class TicketTierSqlProvider {
                                     @Param("tierId") Long tierId) {
         return new SQL() {{
             SELECT("id, event_id, session_id, tier_name, original_price, current_price, " +
-                    "total_stock, available_stock, status, create_time, update_time");
+                    "total_stock, available_stock, status, purchase_limit, create_time, update_time");
             FROM("ticket_tier");
 
             if (tierId != null) {
@@ -41,7 +43,7 @@ public class TicketTierSqlProvider {
                                               @Param("status") Integer status) {
         return new SQL() {{
             SELECT("id, event_id, session_id, tier_name, original_price, current_price, " +
-                    "total_stock, available_stock, status, create_time, update_time");
+                    "total_stock, available_stock, status, purchase_limit, create_time, update_time");
             FROM("ticket_tier");
             WHERE("status = #{status}");
 
@@ -56,4 +58,60 @@ public class TicketTierSqlProvider {
             ORDER_BY("current_price ASC");
         }}.toString();
     }
-}
\ No newline at end of file
+
+    /**
+     * 一条语句同时扣减多个票档库存的动态SQL
+     * 每个票档只有库存足够时才会被更新，调用方按受影响行数判断是否全部扣减成功
+     */
+    public String deductStockBatch(@Param("tierIds") List<Long> tierIds,
+                                   @Param("quantities") List<Integer> quantities) {
+        StringBuilder quantityCase = new StringBuilder("CASE id");
+        StringBuilder in = new StringBuilder("id IN (");
+        for (int i = 0; i < tierIds.size(); i++) {
+            quantityCase.append(" WHEN #{tierIds[").append(i).append("]} THEN #{quantities[").append(i).append("]}");
+            if (i > 0) {
+                in.append(", ");
+            }
+            in.append("#{tierIds[").append(i).append("]}");
+        }
+        quantityCase.append(" END");
+        in.append(")");
+
+        return new SQL() {{
+            UPDATE("ticket_tier");
+            SET("available_stock = available_stock - " + quantityCase);
+            SET("update_time = NOW()");
+            WHERE(in.toString());
+            WHERE("available_stock >= " + quantityCase);
+        }}.toString();
+    }
+
+    /**
+     * 库存对账扫描的动态SQL：票档计数与订单占用数量（待支付、已支付订单的数量之和）
+     * 指定票档ID时只查询这些票档，否则指定时间时只查询该时间之后变更过的票档，都不指定时全量扫描
+     */
+    public String scanStockAudit(@Param("since") LocalDateTime since,
+                                 @Param("tierIds") List<Long> tierIds) {
+        return new SQL() {{
+            SELECT("t.id, t.session_id, t.total_stock, t.available_stock, " +
+                    "(SELECT COALESCE(SUM(o.quantity), 0) FROM ticket_order o " +
+                    "WHERE o.tier_id = t.id AND o.status IN (0, 1)) AS sold_quantity");
+            FROM("ticket_tier t");
+
+            if (tierIds != null && !tierIds.isEmpty()) {
+                StringBuilder in = new StringBuilder("t.id IN (");
+                for (int i = 0; i < tierIds.size(); i++) {
+                    if (i > 0) {
+                        in.append(", ");
+                    }
+                    in.append("#{tierIds[").append(i).append("]}");
+                }
+                WHERE(in.append(")").toString());
+            } else if (since != null) {
+                WHERE("t.update_time >= #{since}");
+            }
+
+            ORDER_BY("t.id");
+        }}.toString();
+    }
+}
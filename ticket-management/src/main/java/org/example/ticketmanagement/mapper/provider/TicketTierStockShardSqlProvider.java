@@ -0,0 +1,31 @@
+package org.example.ticketmanagement.mapper.provider;
+
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.jdbc.SQL;
+
+import java.util.List;
+
+public class TicketTierStockShardSqlProvider {
+
+    /**
+     * 按票档ID列表汇总分片可用库存的动态SQL
+     */
+    public String selectAvailableByTierIds(@Param("tierIds") List<Long> tierIds) {
+        return new SQL() {{
+            SELECT("tier_id, SUM(available_stock) AS available_stock");
+            FROM("ticket_tier_stock_shard");
+
+            StringBuilder in = new StringBuilder("tier_id IN (");
+            for (int i = 0; i < tierIds.size(); i++) {
+                if (i > 0) {
+                    in.append(", ");
+                }
+                in.append("#{tierIds[").append(i).append("]}");
+            }
+            in.append(")");
+            WHERE(in.toString());
+
+            GROUP_BY("tier_id");
+        }}.toString();
+    }
+}
@@ -25,6 +25,7 @@ public class Event {
     private LocalDateTime saleEndTime;   // 停售时间
     private LocalDateTime eventStartTime; // 演出开始时间
     private LocalDateTime eventEndTime;  // 演出结束时间
+    private Integer purchaseLimit;       // 每个用户在该演出的限购数量（为空或0表示不限购）
     private LocalDateTime createTime;    // 创建时间
     private LocalDateTime updateTime;    // 更新时间
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package org.example.ticketmanagement.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SeatRow {
+    private Long id;                    // 排ID
+    private Long sectionId;             // 区域ID
+    private Long sessionId;             // 场次ID（冗余）
+    private Integer rowNo;              // 排号（从1开始）
+    private Integer seatCount;          // 座位数
+    private byte[] seatBits;            // 座位占用位图（第i位为1表示第i+1号座位已售出）
+    private Long version;               // 位图版本号
+    private LocalDateTime updateTime;   // 更新时间
+}
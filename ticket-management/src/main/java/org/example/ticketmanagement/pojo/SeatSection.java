@@ -0,0 +1,20 @@
+package org.example.ticketmanagement.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SeatSection {
+    private Long id;                    // 区域ID
+    private Long sessionId;             // 场次ID
+    private Long tierId;                // 票档ID
+    private String sectionName;         // 区域名称（如：内场A区、看台101区）
+    private Integer sortOrder;          // 优选顺序，越小越优先分配
+    private LocalDateTime createTime;   // 创建时间
+    private LocalDateTime updateTime;   // 更新时间
+}
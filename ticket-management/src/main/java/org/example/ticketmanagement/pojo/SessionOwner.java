@@ -0,0 +1,17 @@
+package org.example.ticketmanagement.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SessionOwner {
+    private Long sessionId;             // 场次ID
+    private String ownerNode;           // 持有租约的节点ID，null表示空闲
+    private Long epoch;                 // 租约版本
+    private LocalDateTime updateTime;   // 更新时间
+}
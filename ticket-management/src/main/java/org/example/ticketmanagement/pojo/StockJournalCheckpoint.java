@@ -0,0 +1,17 @@
+package org.example.ticketmanagement.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockJournalCheckpoint {
+    private String journalId;           // 日志标识
+    private Long tierId;                // 票档ID
+    private Long appliedSeq;            // 已回写到的日志序号
+    private LocalDateTime updateTime;   // 更新时间
+}
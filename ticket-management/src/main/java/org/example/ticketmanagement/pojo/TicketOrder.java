@@ -0,0 +1,32 @@
+package org.example.ticketmanagement.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TicketOrder {
+    private Long id;                    // 订单ID
+    private String orderNo;             // 订单编号
+    private Long userId;                // 用户ID
+    private Long eventId;               // 演出ID
+    private Long sessionId;             // 场次ID
+    private Long tierId;                // 票档ID
+    private Integer quantity;           // 购买数量
+    private BigDecimal unitPrice;       // 下单时的票档单价
+    private BigDecimal totalAmount;     // 订单总金额
+    private Integer status;             // 状态：0-待支付，1-已支付，2-已取消，3-超时关闭，4-已退款
+    private LocalDateTime expireTime;   // 支付截止时间（库存保留到该时间）
+    private LocalDateTime payTime;      // 支付时间
+    private LocalDateTime cancelTime;   // 取消/关闭/退款时间
+    private Long seatSectionId;         // 座位区域ID（票档未配置座位图时为空）
+    private Integer seatRowNo;          // 座位排号
+    private String seatNos;             // 座位号（同一排连续，逗号分隔）
+    private LocalDateTime createTime;   // 创建时间
+    private LocalDateTime updateTime;   // 更新时间
+}
@@ -21,6 +21,7 @@ public class TicketTier {
     private Integer totalStock;         // 总库存
     private Integer availableStock;     // 可用库存
     private Integer status;             // 状态：0-禁用，1-启用
+    private Integer purchaseLimit;      // 每个用户在该票档的限购数量（为空或0表示不限购）
     private LocalDateTime createTime;   // 创建时间
     private LocalDateTime updateTime;   // 更新时间
 }
\ No newline at end of file
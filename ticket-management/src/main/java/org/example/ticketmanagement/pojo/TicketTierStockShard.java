@@ -0,0 +1,19 @@
+package org.example.ticketmanagement.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TicketTierStockShard {
+    private Long id;                    // 分片ID
+    private Long tierId;                // 票档ID
+    private Integer shardNo;            // 分片序号（从0开始）
+    private Integer totalStock;         // 分片总库存（归还库存时的上限）
+    private Integer availableStock;     // 分片可用库存
+    private LocalDateTime updateTime;   // 更新时间
+}
@@ -0,0 +1,47 @@
+package org.example.ticketmanagement.service;
+
+import org.example.ticketmanagement.vo.AdmissionVO;
+
+public interface AdmissionService {
+
+    /**
+     * 加入场次的等候队列，已排队或已放行时返回当前状态
+     * @param sessionId 场次ID
+     * @param userId 用户ID
+     * @return 排队状态
+     */
+    AdmissionVO enqueue(Long sessionId, Long userId);
+
+    /**
+     * 查询排队状态与排位
+     * @param sessionId 场次ID
+     * @param userId 用户ID
+     * @return 排队状态
+     */
+    AdmissionVO getAdmissionStatus(Long sessionId, Long userId);
+
+    /**
+     * 用户是否持有该场次的购买资格（未开启排队时始终为 true）
+     * @param sessionId 场次ID
+     * @param userId 用户ID
+     * @return 可以进入下单流程返回 true
+     */
+    boolean isAdmitted(Long sessionId, Long userId);
+
+    /**
+     * 按当前放行速率从各场次队首放行用户（定时任务调用）
+     * @return 本次放行人数
+     */
+    int admitWaitingUsers();
+
+    /**
+     * 根据最近的下单耗时调整放行速率（定时任务调用）
+     */
+    void adjustAdmissionRate();
+
+    /**
+     * 记录一次下单耗时，作为速率调整的依据
+     * @param millis 耗时（毫秒）
+     */
+    void recordPurchaseLatency(long millis);
+}
@@ -7,6 +7,7 @@ import org.example.ticketmanagement.pojo.PageResult;
 import org.example.ticketmanagement.vo.EventVO;
 
 import java.util.List;
+import java.util.Map;
 
 public interface EventService {
 
@@ -74,6 +75,15 @@ public interface EventService {
      */
     List<EventVO> getEventsByCategoryAndCity(Long categoryId, Long cityId);
 
+    /**
+     * 首页推荐：一次查询城市下多个分类的演出（已发布、未结束，按开始时间升序，每个分类最多 limit 场）
+     * @param cityId 城市ID
+     * @param categoryIds 分类ID列表
+     * @param limit 每个分类的最大演出数
+     * @return 分类ID -> 演出列表，没有演出的分类对应空列表
+     */
+    Map<Long, List<EventVO>> getHomeEvents(Long cityId, List<Long> categoryIds, int limit);
+
     /**
      * 根据艺人名称模糊查询演出
      * @param artistName 艺人名称（模糊匹配）
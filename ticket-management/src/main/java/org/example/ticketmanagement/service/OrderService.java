@@ -0,0 +1,105 @@
+package org.example.ticketmanagement.service;
+
+import org.example.ticketmanagement.dto.CartOrderDTO;
+import org.example.ticketmanagement.dto.OrderCreateDTO;
+import org.example.ticketmanagement.vo.OrderVO;
+
+import java.util.List;
+
+public interface OrderService {
+
+    /**
+     * 创建订单：预扣库存并在支付窗口内保留
+     * @param userId 用户ID
+     * @param orderCreateDTO 下单数据
+     * @return 创建成功的订单
+     */
+    OrderVO createOrder(Long userId, OrderCreateDTO orderCreateDTO);
+
+    /**
+     * 创建订单（带幂等键），相同幂等键的重试直接返回第一次创建的订单，不会重复扣减库存
+     * @param userId 用户ID
+     * @param orderCreateDTO 下单参数
+     * @param idempotencyKey 幂等键，为空时等同于不带幂等键下单
+     * @return 订单信息
+     */
+    OrderVO createOrder(Long userId, OrderCreateDTO orderCreateDTO, String idempotencyKey);
+
+    /**
+     * 购物车下单：同一场次的多个票档一起预扣库存，全部预扣成功才创建订单（每个票档一个订单），
+     * 任一票档库存不足时一张都不扣
+     * @param userId 用户ID
+     * @param cartOrderDTO 购物车数据
+     * @return 创建成功的订单列表
+     */
+    List<OrderVO> createCartOrders(Long userId, CartOrderDTO cartOrderDTO);
+
+    /**
+     * 购物车下单（带幂等键），相同幂等键的重试直接返回第一次创建的全部订单，不会重复扣减库存
+     * @param userId 用户ID
+     * @param cartOrderDTO 购物车数据
+     * @param idempotencyKey 幂等键，为空时等同于不带幂等键下单
+     * @return 创建成功的订单列表
+     */
+    List<OrderVO> createCartOrders(Long userId, CartOrderDTO cartOrderDTO, String idempotencyKey);
+
+    /**
+     * 支付订单
+     * @param userId 用户ID
+     * @param orderId 订单ID
+     * @return 支付成功返回 true，订单不存在、不属于该用户或已超时返回 false
+     */
+    boolean payOrder(Long userId, Long orderId);
+
+    /**
+     * 取消待支付订单并释放库存
+     * @param userId 用户ID
+     * @param orderId 订单ID
+     * @return 取消成功返回 true
+     */
+    boolean cancelOrder(Long userId, Long orderId);
+
+    /**
+     * 已支付订单退款：订单标记为已退款，库存经由当前库存引擎归还并归还用户的限购额度
+     * @param userId 用户ID
+     * @param orderId 订单ID
+     * @return 退款成功返回 true，订单不存在、不属于该用户或不是已支付状态返回 false
+     * @throws RuntimeException 场次即将开始，已停止退款
+     */
+    boolean refundOrder(Long userId, Long orderId);
+
+    /**
+     * 关闭超时未支付的订单并释放库存（超时时间轮回调）
+     * @param orderId 订单ID
+     * @return 本次关闭成功返回 true，订单已支付或已取消返回 false
+     */
+    boolean closeExpiredOrder(Long orderId);
+
+    /**
+     * 根据ID查询用户的订单
+     * @param userId 用户ID
+     * @param orderId 订单ID
+     * @return 订单视图对象，不存在或不属于该用户返回 null
+     */
+    OrderVO getOrderById(Long userId, Long orderId);
+
+    /**
+     * 查询用户的所有订单
+     * @param userId 用户ID
+     * @return 订单列表
+     */
+    List<OrderVO> getOrdersByUserId(Long userId);
+
+    /**
+     * 恢复所有待支付订单的超时任务（应用启动时调用）
+     * @return 恢复的订单数量
+     */
+    int recoverPendingOrders();
+
+    /**
+     * 关闭已超过支付截止时间仍未关闭的订单（定时兜底，所有节点都可执行）
+     * 超时任务只在创建订单的节点的时间轮中，该节点宕机且不重启时由此释放库存
+     * @return 本次关闭的订单数量
+     */
+    int closeExpiredOrders();
+}
@@ -0,0 +1,17 @@
+package org.example.ticketmanagement.service;
+
+public interface SaleWarmupService {
+
+    /**
+     * 预热即将开售的演出（定时任务调用），已预热且开售时间未变的演出不会重复预热
+     * @return 本次预热的演出数量
+     */
+    int warmUpUpcomingSales();
+
+    /**
+     * 立即预热指定演出：加载场次、票档、库存计数与售罄状态，并模拟调用抢票热点路径
+     * @param eventId 演出ID
+     * @return 预热的场次数量，演出不存在返回0
+     */
+    int warmUpEvent(Long eventId);
+}
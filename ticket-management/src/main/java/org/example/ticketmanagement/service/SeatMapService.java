@@ -0,0 +1,67 @@
+package org.example.ticketmanagement.service;
+
+import org.example.ticketmanagement.dto.SeatAllocateDTO;
+import org.example.ticketmanagement.dto.SeatReleaseDTO;
+import org.example.ticketmanagement.dto.SeatSectionDTO;
+import org.example.ticketmanagement.vo.SeatAllocationVO;
+import org.example.ticketmanagement.vo.SeatMapVO;
+
+public interface SeatMapService {
+
+    /**
+     * 为场次新增一个座位区域（同时按每排座位数生成各排）
+     * @param sessionId 场次ID
+     * @param seatSectionDTO 区域信息
+     * @return 新增成功返回 true，场次、票档不存在或区域名称重复返回 false
+     */
+    boolean addSection(Long sessionId, SeatSectionDTO seatSectionDTO);
+
+    /**
+     * 获取场次的座位图
+     * @param sessionId 场次ID
+     * @return 座位图，场次不存在返回null
+     */
+    SeatMapVO getSeatMap(Long sessionId);
+
+    /**
+     * 场次的指定票档是否配置了座位区域（配置了座位的票档下单时分配座位）
+     * @param sessionId 场次ID
+     * @param tierId 票档ID
+     * @return 配置了座位区域返回 true
+     */
+    boolean hasSeatMap(Long sessionId, Long tierId);
+
+    /**
+     * 在指定票档的区域中分配同一排的连续座位（优先前排、排中间），返回前已写入数据库
+     * 只分配座位，不预扣库存（下单时由订单服务预扣库存后调用）
+     * @param sessionId 场次ID
+     * @param seatAllocateDTO 票档与座位数量
+     * @return 分配结果，没有放得下的连续座位返回null
+     */
+    SeatAllocationVO allocateSeats(Long sessionId, SeatAllocateDTO seatAllocateDTO);
+
+    /**
+     * 释放已分配的座位，返回前已写入数据库
+     * 只释放座位，不归还库存（订单取消、超时、退款时由订单服务归还库存后调用）
+     * @param sessionId 场次ID
+     * @param seatReleaseDTO 区域、排号与座位号
+     * @return 实际释放的座位数
+     */
+    int releaseSeats(Long sessionId, SeatReleaseDTO seatReleaseDTO);
+
+    /**
+     * 管理端保留连续座位：预扣票档库存后分配座位，保留的座位不会再随订单售出
+     * @param sessionId 场次ID
+     * @param seatAllocateDTO 票档与座位数量
+     * @return 分配结果，库存不足或没有放得下的连续座位返回null
+     */
+    SeatAllocationVO holdSeats(Long sessionId, SeatAllocateDTO seatAllocateDTO);
+
+    /**
+     * 管理端释放保留的座位，按实际释放的座位数归还票档库存
+     * @param sessionId 场次ID
+     * @param seatReleaseDTO 区域、排号与座位号
+     * @return 实际释放的座位数
+     */
+    int releaseHeldSeats(Long sessionId, SeatReleaseDTO seatReleaseDTO);
+}
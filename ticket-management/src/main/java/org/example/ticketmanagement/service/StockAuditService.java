@@ -0,0 +1,19 @@
+package org.example.ticketmanagement.service;
+
+import org.example.ticketmanagement.vo.StockAuditReportVO;
+
+public interface StockAuditService {
+
+    /**
+     * 执行一次库存对账：核对票档计数、库存引擎计数与订单占用数量
+     * @param fullSweep 是否强制全量对账（否则按配置间隔决定全量或增量）
+     * @return 对账报告
+     */
+    StockAuditReportVO audit(boolean fullSweep);
+
+    /**
+     * 获取最近一次对账报告
+     * @return 对账报告，尚未对账时返回null
+     */
+    StockAuditReportVO getLastReport();
+}
@@ -0,0 +1,24 @@
+package org.example.ticketmanagement.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface StockStreamService {
+
+    /**
+     * 订阅场次的实时库存状态
+     * @param sessionId 场次ID
+     * @return SSE连接，建立后立即推送当前状态，之后只在状态变化时推送
+     */
+    SseEmitter subscribe(Long sessionId);
+
+    /**
+     * 为所有有订阅者的场次读取一次库存并推送变化（定时任务调用）
+     * @return 本次推送了状态变化的场次数
+     */
+    int pushStockStates();
+
+    /**
+     * 本节点当前的连接数
+     */
+    int getWatcherCount();
+}
@@ -2,12 +2,14 @@
 package org.example.ticketmanagement.service;
 
 import org.example.ticketmanagement.dto.TicketTierDTO;
+import org.example.ticketmanagement.vo.StockForwardVO;
 import org.example.ticketmanagement.vo.StockStatisticsVO;
 import org.example.ticketmanagement.vo.TicketStockVO;
 import org.example.ticketmanagement.vo.TicketTierVO;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 public interface TicketTierService {
 
@@ -98,6 +100,20 @@ public interface TicketTierService {
      */
     TicketStockVO getStockInfoBySessionId(Long sessionId);
 
+    /**
+     * 获取票档的实时可用库存（以当前库存引擎的计数为准，未载入时读取数据库）
+     * @param tierId 票档ID
+     * @return 可用库存，票档不存在返回null
+     */
+    Integer getAvailableStock(Long tierId);
+
+    /**
+     * 获取场次各在售票档的实时库存数量（以当前库存引擎的计数为准）
+     * @param sessionId 场次ID
+     * @return 各票档的 id、tier_name、total_stock、available_stock，场次不存在返回null
+     */
+    List<Map<String, Object>> getStockLevelsBySessionId(Long sessionId);
+
     /**
      * 获取票档库存信息（用户端）- 根据演出ID
      * @param eventId 演出ID
@@ -127,4 +143,152 @@ public interface TicketTierService {
      * @return 库存统计视图对象
      */
     StockStatisticsVO getStockStatistics(Long eventId, Long sessionId, Long tierId);
-}
\ No newline at end of file
+
+    /**
+     * 预热场次下所有启用票档的库存到库存引擎
+     * @param sessionId 场次ID
+     * @return 成功预热的票档数量
+     */
+    int preloadStockBySessionId(Long sessionId);
+
+    /**
+     * 预热单个票档的库存到库存引擎（已预热时不覆盖）
+     * @param tierId 票档ID
+     * @return 预热成功或已预热返回 true，票档不存在或已禁用返回 false
+     */
+    boolean preloadTierStock(Long tierId);
+
+    /**
+     * 预扣库存（抢票下单使用）
+     * @param tierId 票档ID
+     * @param quantity 预扣数量
+     * @return 预扣成功返回 true，库存不足或票档不可售返回 false
+     */
+    boolean reserveStock(Long tierId, Integer quantity);
+
+    /**
+     * 释放已预扣的库存（订单取消、超时使用）
+     * @param tierId 票档ID
+     * @param quantity 释放数量
+     * @return 释放成功返回 true
+     */
+    boolean releaseStock(Long tierId, Integer quantity);
+
+    /**
+     * 预扣库存并占用用户的限购额度（抢票下单使用）
+     * Redis引擎下额度与库存在同一个Lua脚本中原子校验，不查询订单表
+     * @param tierId 票档ID
+     * @param quantity 预扣数量
+     * @param userId 用户ID
+     * @param eventId 演出ID
+     * @param eventLimit 演出维度的限购数量（为空或0表示不限购）
+     * @param tierLimit 票档维度的限购数量（为空或0表示不限购）
+     * @return 预扣成功返回 true，库存不足或票档不可售返回 false
+     * @throws RuntimeException 超出限购数量
+     */
+    boolean reserveStock(Long tierId, Integer quantity, Long userId, Long eventId,
+                         Integer eventLimit, Integer tierLimit);
+
+    /**
+     * 同时预扣同一演出下多个票档的库存并占用限购额度（购物车下单使用）
+     * 全部票档都有足够库存且未超出限购时才扣减，否则一张都不扣
+     * @param quantities 票档ID -> 预扣数量
+     * @param userId 用户ID
+     * @param eventId 演出ID
+     * @param eventLimit 演出维度的限购数量（为空或0表示不限购），按所有票档的数量之和校验
+     * @param tierLimits 票档ID -> 票档维度的限购数量（为空或0表示不限购）
+     * @return 预扣成功返回 true，任一票档库存不足或不可售返回 false
+     * @throws RuntimeException 超出限购数量
+     */
+    boolean reserveStockBatch(Map<Long, Integer> quantities, Long userId, Long eventId,
+                              Integer eventLimit, Map<Long, Integer> tierLimits);
+
+    /**
+     * 释放已预扣的库存并归还用户的限购额度（订单取消、超时使用）
+     * @param tierId 票档ID
+     * @param quantity 释放数量
+     * @param userId 用户ID
+     * @param eventId 演出ID
+     * @return 库存释放成功返回 true
+     */
+    boolean releaseStock(Long tierId, Integer quantity, Long userId, Long eventId);
+
+    /**
+     * 把库存引擎中的扣减增量回写到数据库（分片库存模式下把各分片之和汇总到票档表）
+     * @return 本次回写的票档数量
+     */
+    int syncStockToDatabase();
+
+    /**
+     * 以数据库库存为准对账库存引擎中的计数
+     * @return 本次修正的票档数量
+     */
+    int reconcileStockCache();
+
+    /**
+     * 为本地库存日志生成快照并清理已被快照覆盖的日志段（仅 journal 引擎有效）
+     * @return 生成了快照返回 true
+     */
+    boolean snapshotStockJournal();
+
+    /**
+     * Redis降级期间探测Redis是否恢复，恢复后归还本节点的降级库存分片并同步Redis计数（仅 redis 引擎有效）
+     * @return 本次归还的票档数量
+     */
+    int recoverDegradedStock();
+
+    /**
+     * 在本节点预扣属主场次的库存（其他节点转发调用，多个票档时全部成功或全部失败）
+     * @param requestId 转发方生成的请求ID，同一请求ID只执行一次，重复调用返回第一次的结果
+     * @param quantities 票档ID -> 预扣数量
+     * @return 预扣结果与执行后的库存计数，本节点不是场次属主时抛出 IllegalStateException
+     */
+    StockForwardVO reserveOwnedStock(String requestId, Map<Long, Integer> quantities);
+
+    /**
+     * 撤销一次转发的预扣（转发方无法确定预扣结果时调用）：已预扣成功的归还库存，尚未执行的以后不再执行
+     * @param requestId 预扣请求的请求ID
+     * @return 本次归还了库存返回 true
+     */
+    boolean abortOwnedReserve(String requestId);
+
+    /**
+     * 在本节点释放属主场次的库存（其他节点转发调用）
+     * @param requestId 转发方生成的请求ID，同一请求ID只执行一次，重复调用返回第一次的结果
+     * @param tierId 票档ID
+     * @param quantity 释放数量
+     * @return 释放结果与释放后的库存计数，本节点不是场次属主时抛出 IllegalStateException
+     */
+    StockForwardVO releaseOwnedStock(String requestId, Long tierId, Integer quantity);
+
+    /**
+     * 重发结果不确定的库存转发请求
+     * @return 本次得到属主答复的请求数量
+     */
+    int retryForwardedStock();
+
+    /**
+     * 回写并移除本节点持有的票档库存计数，下次预扣时从数据库重新载入（其他节点修改、删除票档时转发调用）
+     * @param tierId 票档ID
+     * @return 已移除或本来就未载入返回 true，增量回写失败返回 false
+     */
+    boolean handOffTierStock(Long tierId);
+
+    /**
+     * 移交不再属于本节点的场次库存并释放租约（仅开启场次属主路由时有效）
+     * @return 本次移交的场次数量
+     */
+    int rebalanceStockOwnership();
+
+    /**
+     * 票档是否已售罄（只查本节点的售罄标记，不产生I/O）
+     * @param tierId 票档ID
+     * @return 已售罄返回 true
+     */
+    boolean isTierSoldOut(Long tierId);
+
+    /**
+     * 清空本节点的售罄标记，下次请求重新从库存引擎确认
+     */
+    void resetSoldOutCache();
+}
@@ -0,0 +1,56 @@
+package org.example.ticketmanagement.service;
+
+import org.example.ticketmanagement.vo.WaitlistVO;
+
+public interface WaitlistService {
+
+    /**
+     * 加入售罄票档的候补名单，已候补或已获得购买机会时返回当前状态
+     * @param tierId 票档ID
+     * @param userId 用户ID
+     * @return 候补状态
+     * @throws RuntimeException 票档不存在或仍有余票
+     */
+    WaitlistVO join(Long tierId, Long userId);
+
+    /**
+     * 查询候补状态与排位
+     * @param tierId 票档ID
+     * @param userId 用户ID
+     * @return 候补状态
+     */
+    WaitlistVO getWaitlistStatus(Long tierId, Long userId);
+
+    /**
+     * 退出候补名单
+     * @param tierId 票档ID
+     * @param userId 用户ID
+     * @return 原本在候补名单中返回 true
+     */
+    boolean leave(Long tierId, Long userId);
+
+    /**
+     * 下单预扣库存前取走购买机会：票档正在向候补用户放票时，只有获得购买机会的用户可以购买，
+     * 每个购买机会只能购买1张（放票按张数计算购买机会）
+     * @param tierId 票档ID
+     * @param userId 用户ID
+     * @param quantity 购买数量
+     * @return 取走的购买机会的过期时间，下单失败时交给 restoreClaim 归还；不在优先放票期间返回null
+     * @throws RuntimeException 正在向候补用户放票且该用户没有购买机会，或购买数量超过购买机会
+     */
+    Long takeClaim(Long tierId, Long userId, int quantity);
+
+    /**
+     * 下单失败时归还取走的购买机会（claimExpireAt 为null时不做任何事）
+     * @param tierId 票档ID
+     * @param userId 用户ID
+     * @param claimExpireAt takeClaim 返回的过期时间
+     */
+    void restoreClaim(Long tierId, Long userId, Long claimExpireAt);
+
+    /**
+     * 向有库存归还的票档及所有候补票档的队首用户分批放票（定时任务调用）
+     * @return 本次放票人数
+     */
+    int dispatchOffers();
+}
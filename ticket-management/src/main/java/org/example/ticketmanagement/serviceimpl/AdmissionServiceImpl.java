@@ -0,0 +1,200 @@
+package org.example.ticketmanagement.serviceimpl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.config.AdmissionConfig;
+import org.example.ticketmanagement.mapper.EventSessionMapper;
+import org.example.ticketmanagement.pojo.EventSession;
+import org.example.ticketmanagement.service.AdmissionService;
+import org.example.ticketmanagement.store.AdmissionQueueStore;
+import org.example.ticketmanagement.util.AdmissionRateController;
+import org.example.ticketmanagement.util.DegradedStockManager;
+import org.example.ticketmanagement.vo.AdmissionVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Service
+public class AdmissionServiceImpl implements AdmissionService {
+
+    // 排队状态
+    private static final int STATUS_NOT_QUEUED = 0;
+    private static final int STATUS_WAITING = 1;
+    private static final int STATUS_ADMITTED = 2;
+
+    @Autowired
+    private AdmissionQueueStore admissionQueueStore;
+
+    @Autowired
+    private AdmissionRateController admissionRateController;
+
+    @Autowired
+    private AdmissionConfig admissionConfig;
+
+    @Autowired
+    private EventSessionMapper eventSessionMapper;
+
+    @Autowired
+    private DegradedStockManager degradedStockManager;
+
+    // 放行额度的小数部分，跨周期累积，保证低速率时也能按比例放行
+    private double admitCredit;
+    // 轮转起点，额度少于场次数时轮流放行
+    private int roundRobinOffset;
+    // 上一次放行时有人等候的场次数，用于估算等待时间
+    private volatile int waitingSessionCount = 1;
+
+    @Override
+    public AdmissionVO enqueue(Long sessionId, Long userId) {
+        log.info("加入等候队列，场次ID: {}, 用户ID: {}", sessionId, userId);
+
+        // 1. 校验场次是否存在且启用
+        EventSession session = eventSessionMapper.selectById(sessionId);
+        if (session == null || session.getStatus() != 1) {
+            throw new RuntimeException("场次不存在或已停用");
+        }
+
+        // 2. 未开启排队或已持有购买资格，直接返回
+        if (!admissionConfig.isEnabled()) {
+            return new AdmissionVO(sessionId, STATUS_ADMITTED, null, 0L, null, null);
+        }
+        Long expireAt = admissionQueueStore.getAdmissionExpireAt(sessionId, userId);
+        if (expireAt != null) {
+            return buildAdmittedVO(sessionId, expireAt);
+        }
+
+        // 3. 加入等候队列（重复排队保持原位置）
+        long position = admissionQueueStore.enqueue(sessionId, userId);
+        return buildWaitingVO(sessionId, position);
+    }
+
+    @Override
+    public AdmissionVO getAdmissionStatus(Long sessionId, Long userId) {
+        log.debug("查询排队状态，场次ID: {}, 用户ID: {}", sessionId, userId);
+
+        if (!admissionConfig.isEnabled()) {
+            return new AdmissionVO(sessionId, STATUS_ADMITTED, null, 0L, null, null);
+        }
+        Long expireAt = admissionQueueStore.getAdmissionExpireAt(sessionId, userId);
+        if (expireAt != null) {
+            return buildAdmittedVO(sessionId, expireAt);
+        }
+        Long position = admissionQueueStore.getPosition(sessionId, userId);
+        if (position == null) {
+            return new AdmissionVO(sessionId, STATUS_NOT_QUEUED, null,
+                    admissionQueueStore.size(sessionId), null, null);
+        }
+        return buildWaitingVO(sessionId, position);
+    }
+
+    @Override
+    public boolean isAdmitted(Long sessionId, Long userId) {
+        if (!admissionConfig.isEnabled()) {
+            return true;
+        }
+        // Redis降级期间无法校验排队资格，直接放行，售出数量由降级库存分片限制
+        if (admissionConfig.isRedisStore() && degradedStockManager.isDegraded()) {
+            return true;
+        }
+        try {
+            return admissionQueueStore.getAdmissionExpireAt(sessionId, userId) != null;
+        } catch (DataAccessException e) {
+            if (!admissionConfig.isRedisStore() || !degradedStockManager.failOpen(e)) {
+                throw e;
+            }
+            log.warn("排队资格查询失败，Redis降级期间放行: sessionId={}, userId={}", sessionId, userId);
+            return true;
+        }
+    }
+
+    @Override
+    public synchronized int admitWaitingUsers() {
+        if (!admissionConfig.isEnabled()) {
+            return 0;
+        }
+
+        // 1. 清理过期资格，找出有人等候的场次
+        long now = System.currentTimeMillis();
+        List<Long> waitingSessions = new ArrayList<>();
+        for (Long sessionId : admissionQueueStore.getActiveSessionIds()) {
+            admissionQueueStore.cleanup(sessionId, now);
+            if (admissionQueueStore.size(sessionId) > 0) {
+                waitingSessions.add(sessionId);
+            }
+        }
+        if (waitingSessions.isEmpty()) {
+            // 没人等候时不累积额度，避免开售瞬间一次性放行过多
+            admitCredit = 0;
+            waitingSessionCount = 1;
+            return 0;
+        }
+        waitingSessionCount = waitingSessions.size();
+
+        // 2. 按当前速率计算本周期的放行额度
+        admitCredit += admissionRateController.getCurrentRate() * admissionConfig.getTickInterval() / 1000.0;
+        int budget = (int) admitCredit;
+        admitCredit -= budget;
+        if (budget == 0) {
+            return 0;
+        }
+
+        // 3. 额度在场次间平均分配，余数从轮转起点开始依次分配
+        long expireAt = now + admissionConfig.getAdmitTtl() * 1000;
+        int sessionCount = waitingSessions.size();
+        int base = budget / sessionCount;
+        int extra = budget % sessionCount;
+        int admitted = 0;
+        for (int i = 0; i < sessionCount; i++) {
+            int index = (roundRobinOffset + i) % sessionCount;
+            int count = base + (i < extra ? 1 : 0);
+            if (count > 0) {
+                admitted += admissionQueueStore.admit(waitingSessions.get(index), count, expireAt).size();
+            }
+        }
+        roundRobinOffset = (roundRobinOffset + extra) % sessionCount;
+
+        if (admitted > 0) {
+            log.debug("本周期放行 {} 人，等候场次数: {}，当前速率: {} 人/秒",
+                    admitted, sessionCount, admissionRateController.getCurrentRate());
+        }
+        return admitted;
+    }
+
+    @Override
+    public void adjustAdmissionRate() {
+        if (admissionConfig.isEnabled()) {
+            admissionRateController.adjust();
+        }
+    }
+
+    @Override
+    public void recordPurchaseLatency(long millis) {
+        admissionRateController.recordLatency(millis);
+    }
+
+    /**
+     * 内部辅助方法：构建等候中的状态，按当前速率估算等待时间
+     */
+    private AdmissionVO buildWaitingVO(Long sessionId, long position) {
+        double sessionRate = Math.max(1.0,
+                (double) admissionRateController.getCurrentRate() / Math.max(1, waitingSessionCount));
+        long estimatedWaitSeconds = (long) Math.ceil((position + 1) / sessionRate);
+        return new AdmissionVO(sessionId, STATUS_WAITING, position,
+                admissionQueueStore.size(sessionId), estimatedWaitSeconds, null);
+    }
+
+    /**
+     * 内部辅助方法：构建已放行的状态
+     */
+    private AdmissionVO buildAdmittedVO(Long sessionId, long expireAt) {
+        LocalDateTime expireTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(expireAt), ZoneId.systemDefault());
+        return new AdmissionVO(sessionId, STATUS_ADMITTED, null,
+                admissionQueueStore.size(sessionId), null, expireTime);
+    }
+}
@@ -9,6 +9,7 @@ import org.example.ticketmanagement.mapper.CityMapper;
 import org.example.ticketmanagement.pojo.City;
 import org.example.ticketmanagement.pojo.PageResult;
 import org.example.ticketmanagement.service.CityService;
+import org.example.ticketmanagement.util.DictionarySnapshot;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -16,6 +17,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -25,6 +27,9 @@ public class CityServiceImpl implements CityService {
     @Autowired
     private CityMapper cityMapper;
 
+    @Autowired
+    private DictionarySnapshot dictionarySnapshot;
+
     @Override
     @Transactional
     public boolean addCity(CityDTO cityDTO) {
@@ -57,6 +62,7 @@ public class CityServiceImpl implements CityService {
         boolean success = (affectedRows == 1);
         if (success) {
             log.info("新增城市成功，ID: {}", city.getId());
+            dictionarySnapshot.onChange();
         } else {
             log.error("新增城市失败，受影响行数: {}", affectedRows);
         }
@@ -79,6 +85,7 @@ public class CityServiceImpl implements CityService {
         boolean success = (affectedRows == 1);
         if (success) {
             log.info("删除城市成功，ID: {}", id);
+            dictionarySnapshot.onChange();
         } else {
             log.warn("删除城市未生效，ID: {}", id);
         }
@@ -122,6 +129,7 @@ public class CityServiceImpl implements CityService {
         boolean success = (affectedRows == 1);
         if (success) {
             log.info("更新城市成功，ID: {}", id);
+            dictionarySnapshot.onChange();
         } else {
             log.warn("更新城市未生效，ID: {}", id);
         }
@@ -131,22 +139,30 @@ public class CityServiceImpl implements CityService {
     @Override
     public CityVO getCityById(Long id) {
         log.debug("根据ID查询城市，ID: {}", id);
-        City city = cityMapper.selectById(id);
+        City city = dictionarySnapshot.getCity(id);
         if (city == null) {
             return null;
         }
         // Entity 转 VO
         return convertToVO(city);
     }
+
     @Override
     public City getCityByName(String cityName) {
-        return cityMapper.selectByName(cityName);
+        City city = dictionarySnapshot.getCityByName(cityName);
+        if (city == null) {
+            return null;
+        }
+        // 快照中的对象共享，返回副本
+        City copy = new City();
+        BeanUtils.copyProperties(city, copy);
+        return copy;
     }
 
     @Override
     public List<CityVO> getAllCities() {
         log.debug("查询所有城市列表");
-        List<City> cities = cityMapper.selectAll();
+        List<City> cities = dictionarySnapshot.getCities();
         // 使用Stream API将Entity列表转换为VO列表
         return cities.stream()
                 .map(this::convertToVO)
@@ -156,8 +172,9 @@ public class CityServiceImpl implements CityService {
     @Override
     public List<CityVO> getCitiesByStatus(Integer status) {
         log.debug("根据状态查询城市，status: {}", status);
-        List<City> cities = cityMapper.selectByStatus(status);
-        return cities.stream()
+        // 快照已按热门等级、创建时间排序，过滤后顺序与数据库查询一致
+        return dictionarySnapshot.getCities().stream()
+                .filter(city -> Objects.equals(city.getStatus(), status))
                 .map(this::convertToVO)
                 .collect(Collectors.toList());
     }
@@ -165,8 +182,8 @@ public class CityServiceImpl implements CityService {
     @Override
     public List<CityVO> getCitiesByHotLevel(Integer hotLevel) {
         log.debug("根据热门等级查询城市，hotLevel: {}", hotLevel);
-        List<City> cities = cityMapper.selectByHotLevel(hotLevel);
-        return cities.stream()
+        return dictionarySnapshot.getCities().stream()
+                .filter(city -> Objects.equals(city.getHotLevel(), hotLevel) && Objects.equals(city.getStatus(), 1))
                 .map(this::convertToVO)
                 .collect(Collectors.toList());
     }
@@ -8,6 +8,7 @@ import org.example.ticketmanagement.mapper.EventCategoryMapper;
 import org.example.ticketmanagement.pojo.EventCategory;
 import org.example.ticketmanagement.pojo.PageResult;
 import org.example.ticketmanagement.service.EventCategoryService;
+import org.example.ticketmanagement.util.DictionarySnapshot;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -15,6 +16,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -24,6 +26,9 @@ public class EventCategoryServiceImpl implements EventCategoryService {
     @Autowired
     private EventCategoryMapper eventCategoryMapper;
 
+    @Autowired
+    private DictionarySnapshot dictionarySnapshot;
+
     @Override
     @Transactional // 声明此方法需要事务管理（可选，但对于写操作建议加上）
     public boolean addCategory(EventCategoryDTO eventCategoryDTO) {
@@ -41,6 +46,7 @@ public class EventCategoryServiceImpl implements EventCategoryService {
         boolean success = (affectedRows == 1);
         if (success) {
             log.info("新增演出分类成功，ID: {}", category.getId());
+            dictionarySnapshot.onChange();
         } else {
             log.error("新增演出分类失败，受影响行数: {}", affectedRows);
         }
@@ -63,6 +69,7 @@ public class EventCategoryServiceImpl implements EventCategoryService {
         boolean success = (affectedRows == 1);
         if (success) {
             log.info("删除演出分类成功，ID: {}", id);
+            dictionarySnapshot.onChange();
         } else {
             log.warn("删除演出分类未生效，ID: {}", id); // 理论上不会走到这里，因为前面检查了存在性
         }
@@ -91,6 +98,7 @@ public class EventCategoryServiceImpl implements EventCategoryService {
         boolean success = (affectedRows == 1);
         if (success) {
             log.info("更新演出分类成功，ID: {}", id);
+            dictionarySnapshot.onChange();
         } else {
             log.warn("更新演出分类未生效，ID: {}", id);
         }
@@ -100,7 +108,7 @@ public class EventCategoryServiceImpl implements EventCategoryService {
     @Override
     public EventCategoryVO getCategoryById(Long id) {
         log.debug("根据ID查询演出分类，ID: {}", id);
-        EventCategory category = eventCategoryMapper.selectById(id);
+        EventCategory category = dictionarySnapshot.getCategory(id);
         if (category == null) {
             return null;
         }
@@ -111,7 +119,7 @@ public class EventCategoryServiceImpl implements EventCategoryService {
     @Override
     public List<EventCategoryVO> getAllCategories() {
         log.debug("查询所有演出分类列表");
-        List<EventCategory> categories = eventCategoryMapper.selectAll();
+        List<EventCategory> categories = dictionarySnapshot.getCategories();
         // 使用Stream API将Entity列表转换为VO列表
         return categories.stream()
                 .map(this::convertToVO)
@@ -121,8 +129,8 @@ public class EventCategoryServiceImpl implements EventCategoryService {
     @Override
     public List<EventCategoryVO> getCategoriesByStatus(Integer status) {
         log.debug("根据状态查询演出分类，status: {}", status);
-        List<EventCategory> categories = eventCategoryMapper.selectByStatus(status);
-        return categories.stream()
+        return dictionarySnapshot.getCategories().stream()
+                .filter(category -> Objects.equals(category.getStatus(), status))
                 .map(this::convertToVO)
                 .collect(Collectors.toList());
     }
@@ -5,21 +5,25 @@ import lombok.extern.slf4j.Slf4j;
 import org.example.ticketmanagement.dto.EventDTO;
 import org.example.ticketmanagement.dto.EventQueryDTO;
 import org.example.ticketmanagement.vo.EventVO;
-import org.example.ticketmanagement.mapper.CityMapper;
-import org.example.ticketmanagement.mapper.EventCategoryMapper;
 import org.example.ticketmanagement.mapper.EventMapper;
 import org.example.ticketmanagement.pojo.City;
 import org.example.ticketmanagement.pojo.Event;
 import org.example.ticketmanagement.pojo.EventCategory;
 import org.example.ticketmanagement.pojo.PageResult;
 import org.example.ticketmanagement.service.EventService;
+import org.example.ticketmanagement.util.DetailCache;
+import org.example.ticketmanagement.util.DictionarySnapshot;
+import org.example.ticketmanagement.util.HomeFeedStore;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -30,10 +34,13 @@ public class EventServiceImpl implements EventService {
     private EventMapper eventMapper;
 
     @Autowired
-    private EventCategoryMapper eventCategoryMapper;
+    private DictionarySnapshot dictionarySnapshot;
 
     @Autowired
-    private CityMapper cityMapper;
+    private DetailCache detailCache;
+
+    @Autowired
+    private HomeFeedStore homeFeedStore;
 
     @Override
     @Transactional
@@ -41,7 +48,7 @@ public class EventServiceImpl implements EventService {
         log.info("新增演出: {}", eventDTO.getName());
 
         // 1. 校验分类是否存在且启用
-        EventCategory category = eventCategoryMapper.selectById(eventDTO.getCategoryId());
+        EventCategory category = dictionarySnapshot.getCategory(eventDTO.getCategoryId());
         if (category == null) {
             log.warn("分类不存在: {}", eventDTO.getCategoryId());
             return false;
@@ -52,7 +59,7 @@ public class EventServiceImpl implements EventService {
         }
 
         // 2. 校验城市是否存在且启用
-        City city = cityMapper.selectById(eventDTO.getCityId());
+        City city = dictionarySnapshot.getCity(eventDTO.getCityId());
         if (city == null) {
             log.warn("城市不存在: {}", eventDTO.getCityId());
             return false;
@@ -80,6 +87,7 @@ public class EventServiceImpl implements EventService {
         // 6. 根据受影响行数判断操作结果
         boolean success = (affectedRows == 1);
         if (success) {
+            homeFeedStore.invalidate(event.getCityId(), event.getCategoryId());
             log.info("新增演出成功，ID: {}", event.getId());
         } else {
             log.error("新增演出失败，受影响行数: {}", affectedRows);
@@ -102,6 +110,8 @@ public class EventServiceImpl implements EventService {
         int affectedRows = eventMapper.deleteById(id);
         boolean success = (affectedRows == 1);
         if (success) {
+            detailCache.evict(DetailCache.EVENT, id);
+            homeFeedStore.invalidate(existingEvent.getCityId(), existingEvent.getCategoryId());
             log.info("删除演出成功，ID: {}", id);
         } else {
             log.warn("删除演出未生效，ID: {}", id);
@@ -124,7 +134,7 @@ public class EventServiceImpl implements EventService {
         // 2. 校验分类是否存在且启用（如果分类ID有变化）
         if (eventDTO.getCategoryId() != null &&
                 !eventDTO.getCategoryId().equals(existingEvent.getCategoryId())) {
-            EventCategory category = eventCategoryMapper.selectById(eventDTO.getCategoryId());
+            EventCategory category = dictionarySnapshot.getCategory(eventDTO.getCategoryId());
             if (category == null || category.getStatus() == 0) {
                 log.warn("分类不存在或已禁用: {}", eventDTO.getCategoryId());
                 return false;
@@ -134,7 +144,7 @@ public class EventServiceImpl implements EventService {
         // 3. 校验城市是否存在且启用（如果城市ID有变化）
         if (eventDTO.getCityId() != null &&
                 !eventDTO.getCityId().equals(existingEvent.getCityId())) {
-            City city = cityMapper.selectById(eventDTO.getCityId());
+            City city = dictionarySnapshot.getCity(eventDTO.getCityId());
             if (city == null || city.getStatus() == 0) {
                 log.warn("城市不存在或已禁用: {}", eventDTO.getCityId());
                 return false;
@@ -157,6 +167,10 @@ public class EventServiceImpl implements EventService {
         int affectedRows = eventMapper.update(event);
         boolean success = (affectedRows == 1);
         if (success) {
+            detailCache.evict(DetailCache.EVENT, id);
+            // 修改前后所在的城市、分类都要失效
+            homeFeedStore.invalidate(existingEvent.getCityId(), existingEvent.getCategoryId());
+            homeFeedStore.invalidate(event.getCityId(), event.getCategoryId());
             log.info("更新演出成功，ID: {}", id);
         } else {
             log.warn("更新演出未生效，ID: {}", id);
@@ -167,12 +181,12 @@ public class EventServiceImpl implements EventService {
     @Override
     public EventVO getEventById(Long id) {
         log.debug("根据ID查询演出，ID: {}", id);
-        Event event = eventMapper.selectById(id);
-        if (event == null) {
-            return null;
-        }
-        // Entity 转 VO（基础信息）
-        return convertToVO(event);
+        // 演出详情很少变化，走两级缓存
+        return detailCache.get(DetailCache.EVENT, id, EventVO.class, eventId -> {
+            Event event = eventMapper.selectById(eventId);
+            // Entity 转 VO（基础信息）
+            return event != null ? convertToVO(event) : null;
+        });
     }
 
     @Override
@@ -220,6 +234,22 @@ public class EventServiceImpl implements EventService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public Map<Long, List<EventVO>> getHomeEvents(Long cityId, List<Long> categoryIds, int limit) {
+        log.debug("查询首页推荐演出，cityId: {}, categoryIds: {}, limit: {}", cityId, categoryIds, limit);
+        Map<Long, List<EventVO>> result = new LinkedHashMap<>();
+        if (categoryIds.isEmpty()) {
+            return result;
+        }
+        categoryIds.forEach(categoryId -> result.put(categoryId, new ArrayList<>()));
+        // 结果已按分类、开始时间排序，按分类归组即可
+        List<Event> events = eventMapper.selectHomeTopN(cityId, categoryIds, limit, LocalDateTime.now());
+        for (Event event : events) {
+            result.computeIfAbsent(event.getCategoryId(), id -> new ArrayList<>()).add(convertToVO(event));
+        }
+        return result;
+    }
+
     @Override
     public List<EventVO> searchEventsByArtistName(String artistName) {
         log.debug("根据艺人名称模糊查询演出，artistName: {}", artistName);
@@ -9,6 +9,8 @@ import org.example.ticketmanagement.mapper.EventSessionMapper;
 import org.example.ticketmanagement.pojo.Event;
 import org.example.ticketmanagement.pojo.EventSession;
 import org.example.ticketmanagement.service.EventSessionService;
+import org.example.ticketmanagement.util.DetailCache;
+import org.example.ticketmanagement.util.SoldOutRegistry;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -28,6 +30,12 @@ public class EventSessionServiceImpl implements EventSessionService {
     @Autowired
     private EventMapper eventMapper;
 
+    @Autowired
+    private SoldOutRegistry soldOutRegistry;
+
+    @Autowired
+    private DetailCache detailCache;
+
     @Override
     @Transactional
     public boolean addSession(EventSessionDTO eventSessionDTO) {
@@ -94,6 +102,8 @@ public class EventSessionServiceImpl implements EventSessionService {
         int affectedRows = eventSessionMapper.deleteById(id);
         boolean success = (affectedRows == 1);
         if (success) {
+            soldOutRegistry.invalidateSession(id);
+            detailCache.evict(DetailCache.SESSION, id);
             log.info("删除场次成功，ID: {}", id);
         } else {
             log.warn("删除场次未生效，ID: {}", id);
@@ -169,6 +179,9 @@ public class EventSessionServiceImpl implements EventSessionService {
         int affectedRows = eventSessionMapper.update(session);
         boolean success = (affectedRows == 1);
         if (success) {
+            // 场次状态可能变化，清除售罄快照
+            soldOutRegistry.invalidateSession(id);
+            detailCache.evict(DetailCache.SESSION, id);
             log.info("更新场次成功，ID: {}", id);
         } else {
             log.warn("更新场次未生效，ID: {}", id);
@@ -179,12 +192,12 @@ public class EventSessionServiceImpl implements EventSessionService {
     @Override
     public EventSessionVO getSessionById(Long id) {
         log.debug("根据ID查询场次，ID: {}", id);
-        EventSession session = eventSessionMapper.selectById(id);
-        if (session == null) {
-            return null;
-        }
-        // Entity 转 VO（基础信息）
-        return convertToVO(session);
+        // 场次详情很少变化，走两级缓存
+        return detailCache.get(DetailCache.SESSION, id, EventSessionVO.class, sessionId -> {
+            EventSession session = eventSessionMapper.selectById(sessionId);
+            // Entity 转 VO（基础信息）
+            return session != null ? convertToVO(session) : null;
+        });
     }
 
     @Override
@@ -3,6 +3,7 @@ package org.example.ticketmanagement.serviceimpl;
 
 import lombok.extern.slf4j.Slf4j;
 import org.example.ticketmanagement.service.*;
+import org.example.ticketmanagement.util.HomeFeedStore;
 import org.example.ticketmanagement.util.IpLocationUtil;
 import org.example.ticketmanagement.vo.*;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,8 +11,9 @@ import org.springframework.stereotype.Service;
 
 import jakarta.servlet.http.HttpServletRequest;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Slf4j
 @Service
@@ -29,6 +31,9 @@ public class HomeServiceImpl implements HomeService {
     @Autowired
     private IpLocationUtil ipLocationUtil;
 
+    @Autowired
+    private HomeFeedStore homeFeedStore;
+
     // 每个分类默认显示4场演出
     private static final Integer DEFAULT_LIMIT_PER_CATEGORY = 4;
 
@@ -57,6 +62,7 @@ public class HomeServiceImpl implements HomeService {
         Long[] categoryIds = ipLocationUtil.getHomeCategoryIds();
 
         // 6. 获取每个分类的演出
+        Map<Long, List<EventVO>> eventsByCategory = getEventsForCategoriesAndCity(categoryIds, targetCityId, limit);
         List<CategoryWithEventsVO> categoriesWithEvents = new ArrayList<>();
         int totalEvents = 0;
 
@@ -70,7 +76,7 @@ public class HomeServiceImpl implements HomeService {
                 }
 
                 // 获取该分类在该城市下的演出
-                List<EventVO> events = getEventsForCategoryAndCity(categoryId, targetCityId, limit);
+                List<EventVO> events = eventsByCategory.getOrDefault(categoryId, List.of());
 
                 if (!events.isEmpty()) {
                     CategoryWithEventsVO categoryWithEvents = new CategoryWithEventsVO(category, events);
@@ -117,6 +123,7 @@ public class HomeServiceImpl implements HomeService {
         Long[] categoryIds = ipLocationUtil.getHomeCategoryIds();
 
         // 获取每个分类的演出
+        Map<Long, List<EventVO>> eventsByCategory = getEventsForCategoriesAndCity(categoryIds, cityId, limit);
         List<CategoryWithEventsVO> categoriesWithEvents = new ArrayList<>();
         int totalEvents = 0;
 
@@ -127,7 +134,7 @@ public class HomeServiceImpl implements HomeService {
                     continue;
                 }
 
-                List<EventVO> events = getEventsForCategoryAndCity(categoryId, cityId, limit);
+                List<EventVO> events = eventsByCategory.getOrDefault(categoryId, List.of());
 
                 if (!events.isEmpty()) {
                     CategoryWithEventsVO categoryWithEvents = new CategoryWithEventsVO(category, events);
@@ -218,34 +225,13 @@ public class HomeServiceImpl implements HomeService {
     }
 
     /**
-     * 获取指定分类和城市下的演出列表
+     * 获取城市下各分类的演出列表（读取物化分段，缺失或过期的分段一次查询数据库重建）
      */
-    private List<EventVO> getEventsForCategoryAndCity(Long categoryId, Long cityId, Integer limit) {
-        // 1. 获取符合条件的演出列表
-        List<EventVO> events = eventService.getEventsByCategoryAndCity(categoryId, cityId);
-
-        // 2. 过滤：只显示已发布且未结束的演出
-        events = events.stream()
-                .filter(event -> event != null)
-                .filter(event -> event.getStatus() == 1) // 已发布
-                .filter(event -> event.getEventEndTime() != null)
-                .filter(event -> event.getEventEndTime().isAfter(java.time.LocalDateTime.now())) // 未结束
-                .sorted((e1, e2) -> {
-                    // 排序：即将开始的在前，然后按开始时间升序
-                    if (e1.getEventStartTime() != null && e2.getEventStartTime() != null) {
-                        return e1.getEventStartTime().compareTo(e2.getEventStartTime());
-                    }
-                    return 0;
-                })
-                .collect(Collectors.toList());
-
-        // 3. 限制数量
+    private Map<Long, List<EventVO>> getEventsForCategoriesAndCity(Long[] categoryIds, Long cityId, Integer limit) {
         int actualLimit = (limit != null && limit > 0) ? limit : DEFAULT_LIMIT_PER_CATEGORY;
-        if (events.size() > actualLimit) {
-            events = events.subList(0, actualLimit);
-        }
-
-        return events;
+        // 状态、结束时间、排序和条数都在SQL中完成，所有分类一次查询
+        return homeFeedStore.get(cityId, Arrays.asList(categoryIds), actualLimit,
+                missing -> eventService.getHomeEvents(cityId, missing, actualLimit));
     }
 
     /**
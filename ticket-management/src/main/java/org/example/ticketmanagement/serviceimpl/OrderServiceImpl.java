@@ -0,0 +1,669 @@
+package org.example.ticketmanagement.serviceimpl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.example.ticketmanagement.config.OrderConfig;
+import org.example.ticketmanagement.dto.CartOrderDTO;
+import org.example.ticketmanagement.dto.OrderCreateDTO;
+import org.example.ticketmanagement.dto.SeatAllocateDTO;
+import org.example.ticketmanagement.dto.SeatReleaseDTO;
+import org.example.ticketmanagement.mapper.EventMapper;
+import org.example.ticketmanagement.mapper.EventSessionMapper;
+import org.example.ticketmanagement.mapper.TicketOrderMapper;
+import org.example.ticketmanagement.mapper.TicketTierMapper;
+import org.example.ticketmanagement.pojo.Event;
+import org.example.ticketmanagement.pojo.EventSession;
+import org.example.ticketmanagement.pojo.TicketOrder;
+import org.example.ticketmanagement.pojo.TicketTier;
+import org.example.ticketmanagement.service.AdmissionService;
+import org.example.ticketmanagement.service.OrderService;
+import org.example.ticketmanagement.service.SeatMapService;
+import org.example.ticketmanagement.service.TicketTierService;
+import org.example.ticketmanagement.service.WaitlistService;
+import org.example.ticketmanagement.util.HashedTimingWheel;
+import org.example.ticketmanagement.util.IdempotencyCache;
+import org.example.ticketmanagement.vo.OrderVO;
+import org.example.ticketmanagement.vo.SeatAllocationVO;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class OrderServiceImpl implements OrderService {
+
+    // 订单状态
+    private static final int STATUS_UNPAID = 0;
+    private static final int STATUS_PAID = 1;
+    private static final int STATUS_CANCELLED = 2;
+    private static final int STATUS_EXPIRED = 3;
+    // 幂等键最大长度
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 64;
+
+    @Autowired
+    private TicketOrderMapper ticketOrderMapper;
+
+    @Autowired
+    private TicketTierMapper ticketTierMapper;
+
+    @Autowired
+    private EventMapper eventMapper;
+
+    @Autowired
+    private EventSessionMapper eventSessionMapper;
+
+    @Autowired
+    private TicketTierService ticketTierService;
+
+    @Autowired
+    private AdmissionService admissionService;
+
+    @Autowired
+    private WaitlistService waitlistService;
+
+    @Autowired
+    private SeatMapService seatMapService;
+
+    @Autowired
+    private IdempotencyCache idempotencyCache;
+
+    @Autowired
+    private OrderConfig orderConfig;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // 待支付订单的超时任务句柄，支付或取消时用于撤销超时任务
+    private final ConcurrentHashMap<Long, HashedTimingWheel.Timeout> holdTimeouts = new ConcurrentHashMap<>();
+    private ExecutorService timeoutExecutor;
+    private HashedTimingWheel holdTimingWheel;
+
+    @PostConstruct
+    public void init() {
+        timeoutExecutor = Executors.newFixedThreadPool(orderConfig.getTimeoutThreads());
+        holdTimingWheel = new HashedTimingWheel("order-hold-timer", orderConfig.getWheelTick(),
+                TimeUnit.MILLISECONDS, orderConfig.getWheelSize(), timeoutExecutor);
+        log.info("订单超时时间轮初始化完成，支付窗口: {}分钟", orderConfig.getPayTimeout());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        holdTimingWheel.stop();
+        timeoutExecutor.shutdown();
+    }
+
+    @Override
+    public OrderVO createOrder(Long userId, OrderCreateDTO orderCreateDTO) {
+        long startNanos = System.nanoTime();
+        try {
+            return doCreateOrder(userId, orderCreateDTO);
+        } finally {
+            // 下单耗时作为排队放行速率的调整依据
+            admissionService.recordPurchaseLatency((System.nanoTime() - startNanos) / 1_000_000);
+        }
+    }
+
+    @Override
+    public OrderVO createOrder(Long userId, OrderCreateDTO orderCreateDTO, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return createOrder(userId, orderCreateDTO);
+        }
+        if (idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new IllegalArgumentException("幂等键长度不能超过" + MAX_IDEMPOTENCY_KEY_LENGTH);
+        }
+
+        // 1. 抢占幂等键（幂等键按用户隔离）
+        String key = "order:" + userId + ":" + idempotencyKey;
+        String existing = idempotencyCache.begin(key);
+        if (IdempotencyCache.PROCESSING.equals(existing)) {
+            throw new RuntimeException("相同的下单请求正在处理中，请勿重复提交");
+        }
+
+        // 2. 重复请求：返回第一次创建的订单，不再扣减库存
+        if (existing != null) {
+            log.info("重复的下单请求，返回已创建的订单: userId={}, orderId={}", userId, existing);
+            OrderVO order = getOrderById(userId, Long.valueOf(existing));
+            if (order == null) {
+                throw new RuntimeException("订单不存在");
+            }
+            return order;
+        }
+
+        // 3. 首次请求：下单失败时没有产生任何写入，释放幂等键允许重试
+        OrderVO order;
+        try {
+            order = createOrder(userId, orderCreateDTO);
+        } catch (RuntimeException e) {
+            idempotencyCache.abort(key);
+            throw e;
+        }
+        // 订单已创建，保存结果失败不影响返回（complete 内部只记录日志）
+        idempotencyCache.complete(key, String.valueOf(order.getId()));
+        return order;
+    }
+
+    private OrderVO doCreateOrder(Long userId, OrderCreateDTO orderCreateDTO) {
+        log.info("创建订单，用户ID: {}, 票档ID: {}, 数量: {}",
+                userId, orderCreateDTO.getTierId(), orderCreateDTO.getQuantity());
+
+        // 1. 校验购买数量
+        if (orderCreateDTO.getQuantity() > orderConfig.getMaxQuantity()) {
+            throw new IllegalArgumentException("单笔订单最多购买" + orderConfig.getMaxQuantity() + "张");
+        }
+
+        // 2. 已售罄的票档直接失败，不访问数据库
+        if (ticketTierService.isTierSoldOut(orderCreateDTO.getTierId())) {
+            throw new RuntimeException("库存不足");
+        }
+
+        // 3. 校验票档是否存在且启用
+        TicketTier tier = ticketTierMapper.selectById(orderCreateDTO.getTierId());
+        if (tier == null || tier.getStatus() != 1) {
+            throw new RuntimeException("票档不存在或已停售");
+        }
+
+        // 4. 校验是否已通过排队获得购买资格；正在向候补用户放票时取走购买机会，下单失败时归还
+        if (!admissionService.isAdmitted(tier.getSessionId(), userId)) {
+            throw new RuntimeException("请先排队，轮到您后再下单");
+        }
+        Long claimExpireAt = waitlistService.takeClaim(tier.getId(), userId, orderCreateDTO.getQuantity());
+
+        TicketOrder order;
+        try {
+            // 5. 校验演出是否在售卖时间内
+            LocalDateTime now = LocalDateTime.now();
+            Event event = checkEventOnSale(tier.getEventId(), now);
+
+            // 6. 预扣库存并占用限购额度（超出限购时抛出异常）
+            if (!ticketTierService.reserveStock(tier.getId(), orderCreateDTO.getQuantity(), userId,
+                    tier.getEventId(), event.getPurchaseLimit(), tier.getPurchaseLimit())) {
+                throw new RuntimeException("库存不足");
+            }
+
+            // 7. 票档配置了座位图时分配同一排的连续座位，分配失败时归还已预扣的库存
+            order = buildOrder(userId, tier, orderCreateDTO.getQuantity(), now);
+            try {
+                assignSeats(order);
+            } catch (RuntimeException e) {
+                ticketTierService.releaseStock(tier.getId(), order.getQuantity(), userId, tier.getEventId());
+                throw e;
+            }
+
+            // 8. 写入订单，失败时归还已分配的座位和已预扣的库存
+            try {
+                ticketOrderMapper.insert(order);
+            } catch (Exception e) {
+                log.error("写入订单失败，归还库存: tierId={}, quantity={}", tier.getId(), order.getQuantity(), e);
+                releaseOrderHold(order);
+                throw new RuntimeException("下单失败，请稍后重试");
+            }
+        } catch (RuntimeException e) {
+            waitlistService.restoreClaim(tier.getId(), userId, claimExpireAt);
+            throw e;
+        }
+
+        // 9. 加入超时时间轮，支付窗口结束后自动关闭
+        scheduleHoldExpiry(order.getId(), order.getExpireTime());
+
+        log.info("创建订单成功，订单号: {}", order.getOrderNo());
+        OrderVO vo = convertToVO(order);
+        vo.setTierName(tier.getTierName());
+        return vo;
+    }
+
+    @Override
+    public List<OrderVO> createCartOrders(Long userId, CartOrderDTO cartOrderDTO) {
+        long startNanos = System.nanoTime();
+        try {
+            return doCreateCartOrders(userId, cartOrderDTO);
+        } finally {
+            admissionService.recordPurchaseLatency((System.nanoTime() - startNanos) / 1_000_000);
+        }
+    }
+
+    @Override
+    public List<OrderVO> createCartOrders(Long userId, CartOrderDTO cartOrderDTO, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return createCartOrders(userId, cartOrderDTO);
+        }
+        if (idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new IllegalArgumentException("幂等键长度不能超过" + MAX_IDEMPOTENCY_KEY_LENGTH);
+        }
+
+        // 1. 抢占幂等键（与单票档下单分开命名，按用户隔离）
+        String key = "cart:" + userId + ":" + idempotencyKey;
+        String existing = idempotencyCache.begin(key);
+        if (IdempotencyCache.PROCESSING.equals(existing)) {
+            throw new RuntimeException("相同的下单请求正在处理中，请勿重复提交");
+        }
+
+        // 2. 重复请求：返回第一次创建的全部订单（结果为逗号分隔的订单ID），不再扣减库存
+        if (existing != null) {
+            log.info("重复的购物车下单请求，返回已创建的订单: userId={}, orderIds={}", userId, existing);
+            List<OrderVO> orders = new ArrayList<>();
+            for (String orderId : existing.split(",")) {
+                OrderVO order = getOrderById(userId, Long.valueOf(orderId));
+                if (order == null) {
+                    throw new RuntimeException("订单不存在");
+                }
+                orders.add(order);
+            }
+            return orders;
+        }
+
+        // 3. 首次请求：下单失败时没有产生任何写入，释放幂等键允许重试
+        List<OrderVO> orders;
+        try {
+            orders = createCartOrders(userId, cartOrderDTO);
+        } catch (RuntimeException e) {
+            idempotencyCache.abort(key);
+            throw e;
+        }
+        idempotencyCache.complete(key, orders.stream()
+                .map(order -> String.valueOf(order.getId()))
+                .collect(Collectors.joining(",")));
+        return orders;
+    }
+
+    private List<OrderVO> doCreateCartOrders(Long userId, CartOrderDTO cartOrderDTO) {
+        // 1. 合并同一票档的数量并校验总数量
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (OrderCreateDTO item : cartOrderDTO.getItems()) {
+            quantities.merge(item.getTierId(), item.getQuantity(), Integer::sum);
+        }
+        int totalQuantity = quantities.values().stream().mapToInt(Integer::intValue).sum();
+        log.info("购物车下单，用户ID: {}, 票档数: {}, 总数量: {}", userId, quantities.size(), totalQuantity);
+        if (totalQuantity > orderConfig.getMaxQuantity()) {
+            throw new IllegalArgumentException("单笔订单最多购买" + orderConfig.getMaxQuantity() + "张");
+        }
+
+        // 2. 任一票档已售罄直接失败，不访问数据库
+        for (Long tierId : quantities.keySet()) {
+            if (ticketTierService.isTierSoldOut(tierId)) {
+                throw new RuntimeException("库存不足");
+            }
+        }
+
+        // 3. 校验票档存在、启用且属于同一场次
+        List<TicketTier> tiers = new ArrayList<>(quantities.size());
+        Map<Long, Integer> tierLimits = new HashMap<>();
+        for (Long tierId : quantities.keySet()) {
+            TicketTier tier = ticketTierMapper.selectById(tierId);
+            if (tier == null || tier.getStatus() != 1) {
+                throw new RuntimeException("票档不存在或已停售");
+            }
+            if (!tiers.isEmpty() && !tiers.get(0).getSessionId().equals(tier.getSessionId())) {
+                throw new IllegalArgumentException("购物车中的票档必须属于同一场次");
+            }
+            tiers.add(tier);
+            if (tier.getPurchaseLimit() != null) {
+                tierLimits.put(tierId, tier.getPurchaseLimit());
+            }
+        }
+        TicketTier first = tiers.get(0);
+
+        // 4. 校验是否已通过排队获得购买资格；正在向候补用户放票的票档取走购买机会，下单失败时全部归还
+        if (!admissionService.isAdmitted(first.getSessionId(), userId)) {
+            throw new RuntimeException("请先排队，轮到您后再下单");
+        }
+        Map<Long, Long> claims = new HashMap<>();
+        List<TicketOrder> orders = new ArrayList<>(tiers.size());
+        try {
+            for (TicketTier tier : tiers) {
+                claims.put(tier.getId(), waitlistService.takeClaim(tier.getId(), userId, quantities.get(tier.getId())));
+            }
+
+            // 5. 校验演出是否在售卖时间内
+            LocalDateTime now = LocalDateTime.now();
+            Event event = checkEventOnSale(first.getEventId(), now);
+
+            // 6. 一次性预扣全部票档的库存并占用限购额度（任一票档不足时一张都不扣）
+            if (!ticketTierService.reserveStockBatch(quantities, userId, first.getEventId(),
+                    event.getPurchaseLimit(), tierLimits)) {
+                throw new RuntimeException("库存不足");
+            }
+
+            // 7. 配置了座位图的票档分配连续座位，任一票档分配失败时归还全部座位和库存
+            for (TicketTier tier : tiers) {
+                orders.add(buildOrder(userId, tier, quantities.get(tier.getId()), now));
+            }
+            try {
+                for (TicketOrder order : orders) {
+                    assignSeats(order);
+                }
+            } catch (RuntimeException e) {
+                orders.forEach(this::releaseOrderHold);
+                throw e;
+            }
+
+            // 8. 在一个事务中写入全部订单，失败时归还全部座位和已预扣的库存
+            try {
+                transactionTemplate.executeWithoutResult(status -> orders.forEach(ticketOrderMapper::insert));
+            } catch (Exception e) {
+                log.error("写入购物车订单失败，归还库存: userId={}, tiers={}", userId, quantities, e);
+                orders.forEach(this::releaseOrderHold);
+                throw new RuntimeException("下单失败，请稍后重试");
+            }
+        } catch (RuntimeException e) {
+            // 归还已取走的候补购买机会
+            claims.forEach((tierId, claimExpireAt) -> waitlistService.restoreClaim(tierId, userId, claimExpireAt));
+            throw e;
+        }
+
+        // 9. 加入超时时间轮，支付窗口结束后自动关闭
+        List<OrderVO> result = new ArrayList<>(orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            TicketOrder order = orders.get(i);
+            scheduleHoldExpiry(order.getId(), order.getExpireTime());
+            OrderVO vo = convertToVO(order);
+            vo.setTierName(tiers.get(i).getTierName());
+            result.add(vo);
+        }
+        log.info("购物车下单成功，订单号: {}", orders.stream().map(TicketOrder::getOrderNo).collect(Collectors.toList()));
+        return result;
+    }
+
+    @Override
+    public boolean payOrder(Long userId, Long orderId) {
+        log.info("支付订单，用户ID: {}, 订单ID: {}", userId, orderId);
+
+        TicketOrder order = ticketOrderMapper.selectById(orderId);
+        if (order == null || !order.getUserId().equals(userId)) {
+            log.warn("订单不存在或不属于该用户: orderId={}, userId={}", orderId, userId);
+            return false;
+        }
+
+        int affectedRows = ticketOrderMapper.markPaid(orderId);
+        if (affectedRows != 1) {
+            log.warn("订单支付失败，订单不是待支付状态或已超时: {}", orderId);
+            return false;
+        }
+
+        cancelHoldExpiry(orderId);
+        log.info("订单支付成功: {}", orderId);
+        return true;
+    }
+
+    @Override
+    public boolean cancelOrder(Long userId, Long orderId) {
+        log.info("取消订单，用户ID: {}, 订单ID: {}", userId, orderId);
+
+        TicketOrder order = ticketOrderMapper.selectById(orderId);
+        if (order == null || !order.getUserId().equals(userId)) {
+            log.warn("订单不存在或不属于该用户: orderId={}, userId={}", orderId, userId);
+            return false;
+        }
+
+        int affectedRows = ticketOrderMapper.closeUnpaid(orderId, STATUS_CANCELLED);
+        if (affectedRows != 1) {
+            log.warn("订单取消失败，订单不是待支付状态: {}", orderId);
+            return false;
+        }
+
+        cancelHoldExpiry(orderId);
+        releaseOrderHold(order);
+        log.info("订单取消成功，已释放库存: {}", orderId);
+        return true;
+    }
+
+    @Override
+    public boolean refundOrder(Long userId, Long orderId) {
+        log.info("订单退款，用户ID: {}, 订单ID: {}", userId, orderId);
+
+        // 1. 校验订单归属与状态
+        TicketOrder order = ticketOrderMapper.selectById(orderId);
+        if (order == null || !order.getUserId().equals(userId)) {
+            log.warn("订单不存在或不属于该用户: orderId={}, userId={}", orderId, userId);
+            return false;
+        }
+        if (order.getStatus() != STATUS_PAID) {
+            log.warn("订单退款失败，订单不是已支付状态: {}", orderId);
+            return false;
+        }
+
+        // 2. 场次开始前的截止时间之后不再退款
+        EventSession session = eventSessionMapper.selectById(order.getSessionId());
+        if (session != null && session.getSessionTime() != null
+                && LocalDateTime.now().plusMinutes(orderConfig.getRefundCutoff()).isAfter(session.getSessionTime())) {
+            throw new RuntimeException("场次开始前" + orderConfig.getRefundCutoff() + "分钟内不支持退款");
+        }
+
+        // 3. 条件更新：并发退款时只有一次成功
+        if (ticketOrderMapper.markRefunded(orderId) != 1) {
+            log.warn("订单退款失败，订单已退款: {}", orderId);
+            return false;
+        }
+
+        // 4. 库存经由库存引擎归还，与抢票走同一条路径，立即可被其他用户购买；座位同时释放
+        releaseOrderHold(order);
+        log.info("订单退款成功，已归还库存: orderId={}, tierId={}, quantity={}",
+                orderId, order.getTierId(), order.getQuantity());
+        return true;
+    }
+
+    @Override
+    public boolean closeExpiredOrder(Long orderId) {
+        TicketOrder order = ticketOrderMapper.selectById(orderId);
+        if (order == null || order.getStatus() != STATUS_UNPAID) {
+            return false;
+        }
+
+        // 条件更新：与支付、取消并发时只有一方会成功
+        int affectedRows = ticketOrderMapper.closeUnpaid(orderId, STATUS_EXPIRED);
+        if (affectedRows != 1) {
+            return false;
+        }
+
+        releaseOrderHold(order);
+        log.info("订单超时关闭，已释放库存: orderId={}, tierId={}, quantity={}",
+                orderId, order.getTierId(), order.getQuantity());
+        return true;
+    }
+
+    @Override
+    public OrderVO getOrderById(Long userId, Long orderId) {
+        log.debug("查询订单，用户ID: {}, 订单ID: {}", userId, orderId);
+        TicketOrder order = ticketOrderMapper.selectById(orderId);
+        if (order == null || !order.getUserId().equals(userId)) {
+            return null;
+        }
+        return convertToVO(order);
+    }
+
+    @Override
+    public List<OrderVO> getOrdersByUserId(Long userId) {
+        log.debug("查询用户订单列表，用户ID: {}", userId);
+        List<TicketOrder> orders = ticketOrderMapper.selectByUserId(userId);
+        return orders.stream()
+                .map(this::convertToVO)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public int recoverPendingOrders() {
+        int recovered = 0;
+        try (Cursor<TicketOrder> cursor = ticketOrderMapper.selectPendingOrders()) {
+            for (TicketOrder order : cursor) {
+                scheduleHoldExpiry(order.getId(), order.getExpireTime());
+                recovered++;
+            }
+        } catch (Exception e) {
+            log.error("恢复待支付订单超时任务失败，已恢复: {}", recovered, e);
+        }
+        log.info("恢复待支付订单超时任务完成，数量: {}", recovered);
+        return recovered;
+    }
+
+    @Override
+    public int closeExpiredOrders() {
+        LocalDateTime before = LocalDateTime.now().minus(Duration.ofMillis(orderConfig.getExpireSweepGrace()));
+        int closed = 0;
+        // 按 (截止时间, ID) 翻页：关闭失败的订单仍是待支付，从上一批最后一行之后读取，不会反复读到同一批
+        LocalDateTime afterTime = null;
+        Long afterId = null;
+        while (true) {
+            List<TicketOrder> orders = ticketOrderMapper.selectExpiredPending(
+                    before, afterTime, afterId, orderConfig.getExpireSweepBatch());
+            for (TicketOrder order : orders) {
+                Long orderId = order.getId();
+                // 条件更新关单，多个节点同时扫描或与时间轮并发时库存只释放一次
+                cancelHoldExpiry(orderId);
+                try {
+                    if (closeExpiredOrder(orderId)) {
+                        closed++;
+                    }
+                } catch (Exception e) {
+                    log.error("兜底关闭超时订单失败: {}", orderId, e);
+                }
+            }
+            if (orders.size() < orderConfig.getExpireSweepBatch()) {
+                break;
+            }
+            TicketOrder last = orders.get(orders.size() - 1);
+            afterTime = last.getExpireTime();
+            afterId = last.getId();
+        }
+        if (closed > 0) {
+            log.warn("兜底关闭超时订单: {} 个（创建节点未能按时关闭）", closed);
+        }
+        return closed;
+    }
+
+    /**
+     * 把订单加入超时时间轮（已过期的订单会在下一个槽位立即关闭）
+     */
+    private void scheduleHoldExpiry(Long orderId, LocalDateTime expireTime) {
+        long delayMillis = Math.max(0, Duration.between(LocalDateTime.now(), expireTime).toMillis());
+        HashedTimingWheel.Timeout timeout = holdTimingWheel.newTimeout(
+                () -> onHoldExpired(orderId), delayMillis, TimeUnit.MILLISECONDS);
+        holdTimeouts.put(orderId, timeout);
+    }
+
+    private void cancelHoldExpiry(Long orderId) {
+        HashedTimingWheel.Timeout timeout = holdTimeouts.remove(orderId);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    private void onHoldExpired(Long orderId) {
+        holdTimeouts.remove(orderId);
+        try {
+            closeExpiredOrder(orderId);
+        } catch (Exception e) {
+            log.error("关闭超时订单失败: {}", orderId, e);
+        }
+    }
+
+    /**
+     * 内部辅助方法：票档配置了座位图时为订单分配同一排的连续座位（座位在返回前已写入数据库）
+     */
+    private void assignSeats(TicketOrder order) {
+        if (!seatMapService.hasSeatMap(order.getSessionId(), order.getTierId())) {
+            return;
+        }
+        SeatAllocationVO allocation = seatMapService.allocateSeats(order.getSessionId(),
+                new SeatAllocateDTO(order.getTierId(), order.getQuantity()));
+        if (allocation == null) {
+            throw new RuntimeException("没有足够的连续座位");
+        }
+        order.setSeatSectionId(allocation.getSectionId());
+        order.setSeatRowNo(allocation.getRowNo());
+        order.setSeatNos(allocation.getSeatNos().stream().map(String::valueOf).collect(Collectors.joining(",")));
+    }
+
+    /**
+     * 内部辅助方法：归还订单占用的库存、限购额度和座位
+     * 座位释放失败只记录日志：座位多占不会超卖，库存已经归还
+     */
+    private void releaseOrderHold(TicketOrder order) {
+        ticketTierService.releaseStock(order.getTierId(), order.getQuantity(), order.getUserId(), order.getEventId());
+        if (order.getSeatNos() == null) {
+            return;
+        }
+        List<Integer> seatNos = Arrays.stream(order.getSeatNos().split(","))
+                .map(Integer::valueOf)
+                .collect(Collectors.toList());
+        try {
+            seatMapService.releaseSeats(order.getSessionId(),
+                    new SeatReleaseDTO(order.getSeatSectionId(), order.getSeatRowNo(), seatNos));
+        } catch (Exception e) {
+            log.error("释放订单座位失败，需人工释放: orderId={}, sectionId={}, rowNo={}, seatNos={}",
+                    order.getId(), order.getSeatSectionId(), order.getSeatRowNo(), order.getSeatNos(), e);
+        }
+    }
+
+    /**
+     * 内部辅助方法：校验演出已发布且在售卖时间内
+     */
+    private Event checkEventOnSale(Long eventId, LocalDateTime now) {
+        Event event = eventMapper.selectById(eventId);
+        if (event == null || event.getStatus() != 1) {
+            throw new RuntimeException("演出不存在或未发布");
+        }
+        if (event.getSaleStartTime() != null && now.isBefore(event.getSaleStartTime())) {
+            throw new RuntimeException("演出尚未开售");
+        }
+        if (event.getSaleEndTime() != null && now.isAfter(event.getSaleEndTime())) {
+            throw new RuntimeException("演出已停售");
+        }
+        return event;
+    }
+
+    /**
+     * 内部辅助方法：构建待支付订单
+     */
+    private TicketOrder buildOrder(Long userId, TicketTier tier, Integer quantity, LocalDateTime now) {
+        TicketOrder order = new TicketOrder();
+        order.setOrderNo(generateOrderNo());
+        order.setUserId(userId);
+        order.setEventId(tier.getEventId());
+        order.setSessionId(tier.getSessionId());
+        order.setTierId(tier.getId());
+        order.setQuantity(quantity);
+        order.setUnitPrice(tier.getCurrentPrice());
+        order.setTotalAmount(tier.getCurrentPrice().multiply(BigDecimal.valueOf(quantity)));
+        order.setStatus(STATUS_UNPAID);
+        order.setExpireTime(now.plusMinutes(orderConfig.getPayTimeout()));
+        order.setCreateTime(now);
+        order.setUpdateTime(now);
+        return order;
+    }
+
+    /**
+     * 生成订单编号：毫秒时间戳 + 6位随机数
+     */
+    private String generateOrderNo() {
+        return System.currentTimeMillis() + String.format("%06d", ThreadLocalRandom.current().nextInt(1000000));
+    }
+
+    /**
+     * 内部辅助方法：将 Entity 对象转换为 VO 对象
+     */
+    private OrderVO convertToVO(TicketOrder order) {
+        OrderVO vo = new OrderVO();
+        BeanUtils.copyProperties(order, vo);
+        return vo;
+    }
+}
@@ -0,0 +1,242 @@
+package org.example.ticketmanagement.serviceimpl;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.config.StockConfig;
+import org.example.ticketmanagement.config.WarmupConfig;
+import org.example.ticketmanagement.mapper.EventMapper;
+import org.example.ticketmanagement.mapper.EventSessionMapper;
+import org.example.ticketmanagement.pojo.Event;
+import org.example.ticketmanagement.pojo.EventSession;
+import org.example.ticketmanagement.service.AdmissionService;
+import org.example.ticketmanagement.service.EventService;
+import org.example.ticketmanagement.service.EventSessionService;
+import org.example.ticketmanagement.service.SaleWarmupService;
+import org.example.ticketmanagement.service.TicketTierService;
+import org.example.ticketmanagement.store.RedisPurchaseQuotaStore;
+import org.example.ticketmanagement.util.RedisStockUtil;
+import org.example.ticketmanagement.vo.EventVO;
+import org.example.ticketmanagement.vo.TicketTierVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class SaleWarmupServiceImpl implements SaleWarmupService {
+
+    // 模拟调用使用的用户ID（不存在的用户，只走只读路径，不产生业务数据）
+    private static final Long SYNTHETIC_USER_ID = -1L;
+    // 等待模拟调用完成的最长时间（秒）
+    private static final long SYNTHETIC_TIMEOUT_SECONDS = 60;
+    // 读取不到JVM编译阈值时（非HotSpot虚拟机）使用的模拟调用次数
+    private static final int DEFAULT_SYNTHETIC_CALLS = 20000;
+
+    @Autowired
+    private EventMapper eventMapper;
+
+    @Autowired
+    private EventSessionMapper eventSessionMapper;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private EventSessionService eventSessionService;
+
+    @Autowired
+    private TicketTierService ticketTierService;
+
+    @Autowired
+    private AdmissionService admissionService;
+
+    @Autowired
+    private RedisStockUtil redisStockUtil;
+
+    @Autowired
+    private StockConfig stockConfig;
+
+    @Autowired
+    private WarmupConfig warmupConfig;
+
+    // 已预热的演出 -> 预热时的开售时间，开售时间被修改后会重新预热
+    private final ConcurrentHashMap<Long, LocalDateTime> warmedEvents = new ConcurrentHashMap<>();
+    private ExecutorService warmupExecutor;
+    // 每个演出的模拟调用总次数
+    private int syntheticCalls;
+
+    @PostConstruct
+    public void init() {
+        warmupExecutor = Executors.newFixedThreadPool(warmupConfig.getParallelism());
+        syntheticCalls = warmupConfig.getJitIterations() > 0
+                ? warmupConfig.getJitIterations() : compileThresholdCalls();
+        log.info("开售预热每个演出模拟调用次数: {}", syntheticCalls);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        warmupExecutor.shutdownNow();
+    }
+
+    @Override
+    public int warmUpUpcomingSales() {
+        if (!warmupConfig.isEnabled()) {
+            return 0;
+        }
+
+        // 1. 查询开售时间临近的演出（包含刚开售不久的，覆盖节点在开售后重启的情况）
+        LocalDateTime now = LocalDateTime.now();
+        List<Event> events = eventMapper.selectBySaleStartTimeBetween(
+                now.minusSeconds(warmupConfig.getLeadTime()), now.plusSeconds(warmupConfig.getLeadTime()));
+
+        // 2. 逐个预热尚未预热的演出
+        int warmed = 0;
+        for (Event event : events) {
+            if (event.getSaleStartTime().equals(warmedEvents.get(event.getId()))) {
+                continue;
+            }
+            try {
+                warmUpEvent(event.getId());
+                warmedEvents.put(event.getId(), event.getSaleStartTime());
+                warmed++;
+            } catch (Exception e) {
+                log.error("演出开售预热失败，下次扫描重试: eventId={}", event.getId(), e);
+            }
+        }
+
+        // 3. 清理早已开售的记录（它们不会再被扫描到）
+        LocalDateTime expired = now.minusSeconds(warmupConfig.getLeadTime() * 2);
+        warmedEvents.values().removeIf(saleStartTime -> saleStartTime.isBefore(expired));
+        return warmed;
+    }
+
+    @Override
+    public int warmUpEvent(Long eventId) {
+        long start = System.currentTimeMillis();
+
+        // 1. 加载演出与场次
+        EventVO event = eventService.getEventById(eventId);
+        if (event == null) {
+            log.warn("演出不存在，无法预热: {}", eventId);
+            return 0;
+        }
+        List<EventSession> sessions = eventSessionMapper.selectByEventId(eventId).stream()
+                .filter(session -> session.getStatus() == 1)
+                .collect(Collectors.toList());
+
+        // 2. 逐个场次预热：库存计数进入库存引擎，票档与库存信息进入缓存，售罄场次建立快照
+        List<Long> sessionIds = new ArrayList<>();
+        List<Long> tierIds = new ArrayList<>();
+        for (EventSession session : sessions) {
+            eventSessionService.getSessionById(session.getId());
+            ticketTierService.preloadStockBySessionId(session.getId());
+            List<TicketTierVO> tiers = ticketTierService.getTicketTiersBySessionIdAndStatus(session.getId(), 1);
+            ticketTierService.getStockInfoBySessionId(session.getId());
+            sessionIds.add(session.getId());
+            for (TicketTierVO tier : tiers) {
+                tierIds.add(tier.getId());
+            }
+        }
+
+        // 3. Redis引擎：以0数量执行一次预扣与释放，提前把Lua脚本加载到Redis脚本缓存
+        if (stockConfig.isRedisEngine()) {
+            for (Long tierId : tierIds) {
+                redisStockUtil.reserve(tierId, 0);
+                // 限购为0时脚本不会读写额度计数键
+                redisStockUtil.reserveWithQuota(tierId, 0, RedisPurchaseQuotaStore.getEventKey(0L, eventId), 0,
+                        RedisPurchaseQuotaStore.getTierKey(0L, tierId), 0, 0);
+                redisStockUtil.release(tierId, 0);
+            }
+        }
+
+        // 4. 并发模拟调用热点只读路径，把调用次数推过JIT编译阈值并建满连接池
+        if (!sessionIds.isEmpty() && !tierIds.isEmpty()) {
+            runSyntheticCalls(sessionIds, tierIds);
+        }
+
+        log.info("演出开售预热完成: eventId={}, 场次数: {}, 票档数: {}, 耗时: {}ms",
+                eventId, sessionIds.size(), tierIds.size(), System.currentTimeMillis() - start);
+        return sessionIds.size();
+    }
+
+    /**
+     * 在多个线程上反复调用抢票热点路径中的只读方法
+     * 方法的调用计数由所有线程共享，各线程调用次数之和即为每个方法的调用次数
+     */
+    void runSyntheticCalls(List<Long> sessionIds, List<Long> tierIds) {
+        int threads = warmupConfig.getParallelism();
+        int perThread = Math.max(1, (syntheticCalls + threads - 1) / threads);
+        boolean redisEngine = stockConfig.isRedisEngine();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(warmupExecutor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    Long sessionId = sessionIds.get(i % sessionIds.size());
+                    Long tierId = tierIds.get(i % tierIds.size());
+                    ticketTierService.isTierSoldOut(tierId);
+                    admissionService.isAdmitted(sessionId, SYNTHETIC_USER_ID);
+                    ticketTierService.getTicketTierById(tierId);
+                    ticketTierService.getStockInfoBySessionId(sessionId);
+                    if (redisEngine) {
+                        redisStockUtil.getStock(tierId);
+                    }
+                }
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get(SYNTHETIC_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("模拟调用未正常完成: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 按当前JVM的编译阈值计算模拟调用次数
+     * 分层编译时方法先在解释执行中调用 Tier3InvocationThreshold 次进入C1带统计信息的编译，
+     * 之后再调用 Tier4InvocationThreshold 次才提交C2编译；编译在后台排队，排队期间的调用不推进编译，
+     * 因此取两者之和的2倍。只启用C1（TieredStopAtLevel < 4）时只需达到C1阈值，关闭分层编译时以 CompileThreshold 为准。
+     * 编译是异步完成的，预热结束时不保证热点方法已经编译完成
+     */
+    int compileThresholdCalls() {
+        try {
+            HotSpotDiagnosticMXBean hotSpot = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            double scaling = Double.parseDouble(vmOption(hotSpot, "CompileThresholdScaling"));
+            long threshold;
+            if (!Boolean.parseBoolean(vmOption(hotSpot, "TieredCompilation"))) {
+                threshold = Long.parseLong(vmOption(hotSpot, "CompileThreshold"));
+            } else if (Long.parseLong(vmOption(hotSpot, "TieredStopAtLevel")) < 4) {
+                threshold = Long.parseLong(vmOption(hotSpot, "Tier3InvocationThreshold"));
+            } else {
+                threshold = Long.parseLong(vmOption(hotSpot, "Tier3InvocationThreshold"))
+                        + Long.parseLong(vmOption(hotSpot, "Tier4InvocationThreshold"));
+            }
+            return (int) Math.max(1, Math.min(Integer.MAX_VALUE, Math.ceil(threshold * scaling * 2)));
+        } catch (Exception e) {
+            log.warn("读取JVM编译阈值失败，使用默认模拟调用次数: {}", e.getMessage());
+            return DEFAULT_SYNTHETIC_CALLS;
+        }
+    }
+
+    private String vmOption(HotSpotDiagnosticMXBean hotSpot, String name) {
+        return hotSpot.getVMOption(name).getValue();
+    }
+}
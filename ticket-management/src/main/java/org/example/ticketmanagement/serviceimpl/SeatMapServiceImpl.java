@@ -0,0 +1,192 @@
+package org.example.ticketmanagement.serviceimpl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.config.SeatConfig;
+import org.example.ticketmanagement.dto.SeatAllocateDTO;
+import org.example.ticketmanagement.dto.SeatReleaseDTO;
+import org.example.ticketmanagement.dto.SeatSectionDTO;
+import org.example.ticketmanagement.mapper.EventSessionMapper;
+import org.example.ticketmanagement.mapper.SeatRowMapper;
+import org.example.ticketmanagement.mapper.SeatSectionMapper;
+import org.example.ticketmanagement.mapper.TicketTierMapper;
+import org.example.ticketmanagement.pojo.EventSession;
+import org.example.ticketmanagement.pojo.SeatRow;
+import org.example.ticketmanagement.pojo.SeatSection;
+import org.example.ticketmanagement.pojo.TicketTier;
+import org.example.ticketmanagement.service.SeatMapService;
+import org.example.ticketmanagement.service.TicketTierService;
+import org.example.ticketmanagement.util.SeatMapEngine;
+import org.example.ticketmanagement.vo.SeatAllocationVO;
+import org.example.ticketmanagement.vo.SeatMapVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Service
+public class SeatMapServiceImpl implements SeatMapService {
+
+    @Autowired
+    private SeatSectionMapper seatSectionMapper;
+
+    @Autowired
+    private SeatRowMapper seatRowMapper;
+
+    @Autowired
+    private EventSessionMapper eventSessionMapper;
+
+    @Autowired
+    private TicketTierMapper ticketTierMapper;
+
+    @Autowired
+    private TicketTierService ticketTierService;
+
+    @Autowired
+    private SeatMapEngine seatMapEngine;
+
+    @Autowired
+    private SeatConfig seatConfig;
+
+    @Override
+    @Transactional
+    public boolean addSection(Long sessionId, SeatSectionDTO seatSectionDTO) {
+        log.info("新增座位区域，场次ID: {}, 区域: {}", sessionId, seatSectionDTO.getSectionName());
+
+        // 1. 校验场次是否存在
+        EventSession session = eventSessionMapper.selectById(sessionId);
+        if (session == null) {
+            log.warn("场次不存在: {}", sessionId);
+            return false;
+        }
+
+        // 2. 校验票档是否存在且属于该场次
+        TicketTier tier = ticketTierMapper.selectById(seatSectionDTO.getTierId());
+        if (tier == null || !tier.getSessionId().equals(sessionId)) {
+            log.warn("票档不存在或不属于该场次: tierId={}, sessionId={}", seatSectionDTO.getTierId(), sessionId);
+            return false;
+        }
+
+        // 3. 校验同一场次是否存在相同名称的区域
+        if (seatSectionMapper.countByName(sessionId, seatSectionDTO.getSectionName()) > 0) {
+            log.warn("同一场次存在相同名称的区域: {}", seatSectionDTO.getSectionName());
+            return false;
+        }
+
+        // 4. 写入区域和各排（新排的位图为空，表示全部可售）
+        LocalDateTime now = LocalDateTime.now();
+        SeatSection section = new SeatSection();
+        section.setSessionId(sessionId);
+        section.setTierId(seatSectionDTO.getTierId());
+        section.setSectionName(seatSectionDTO.getSectionName());
+        section.setSortOrder(seatSectionDTO.getSortOrder() != null ? seatSectionDTO.getSortOrder() : 0);
+        section.setCreateTime(now);
+        section.setUpdateTime(now);
+        seatSectionMapper.insert(section);
+
+        List<SeatRow> rows = new ArrayList<>();
+        List<Integer> rowSeatCounts = seatSectionDTO.getRowSeatCounts();
+        for (int i = 0; i < rowSeatCounts.size(); i++) {
+            SeatRow row = new SeatRow();
+            row.setSectionId(section.getId());
+            row.setSessionId(sessionId);
+            row.setRowNo(i + 1);
+            row.setSeatCount(rowSeatCounts.get(i));
+            row.setSeatBits(new byte[0]);
+            row.setVersion(0L);
+            row.setUpdateTime(now);
+            seatRowMapper.insert(row);
+            rows.add(row);
+        }
+
+        // 5. 同步到已加载的座位图
+        seatMapEngine.addSection(section, rows);
+        log.info("新增座位区域成功，区域ID: {}, 排数: {}", section.getId(), rows.size());
+        return true;
+    }
+
+    @Override
+    public SeatMapVO getSeatMap(Long sessionId) {
+        log.debug("获取场次座位图，sessionId: {}", sessionId);
+        if (eventSessionMapper.selectById(sessionId) == null) {
+            return null;
+        }
+        return seatMapEngine.describe(sessionId);
+    }
+
+    @Override
+    public boolean hasSeatMap(Long sessionId, Long tierId) {
+        return seatMapEngine.hasSections(sessionId, tierId);
+    }
+
+    @Override
+    public SeatAllocationVO allocateSeats(Long sessionId, SeatAllocateDTO seatAllocateDTO) {
+        if (seatAllocateDTO.getCount() > seatConfig.getMaxContiguous()) {
+            throw new IllegalArgumentException("一次最多分配" + seatConfig.getMaxContiguous() + "个连续座位");
+        }
+        SeatAllocationVO allocation = seatMapEngine.allocate(sessionId, seatAllocateDTO.getTierId(),
+                seatAllocateDTO.getCount());
+        if (allocation == null) {
+            log.info("没有足够的连续座位: sessionId={}, tierId={}, count={}",
+                    sessionId, seatAllocateDTO.getTierId(), seatAllocateDTO.getCount());
+            return null;
+        }
+        log.debug("分配座位成功: sessionId={}, 区域: {}, 排: {}, 座位: {}", sessionId,
+                allocation.getSectionName(), allocation.getRowNo(), allocation.getSeatNos());
+        return allocation;
+    }
+
+    @Override
+    public int releaseSeats(Long sessionId, SeatReleaseDTO seatReleaseDTO) {
+        int released = seatMapEngine.release(sessionId, seatReleaseDTO.getSectionId(),
+                seatReleaseDTO.getRowNo(), seatReleaseDTO.getSeatNos());
+        log.info("释放座位: sessionId={}, sectionId={}, rowNo={}, 释放数量: {}", sessionId,
+                seatReleaseDTO.getSectionId(), seatReleaseDTO.getRowNo(), released);
+        return released;
+    }
+
+    @Override
+    public SeatAllocationVO holdSeats(Long sessionId, SeatAllocateDTO seatAllocateDTO) {
+        // 1. 校验票档属于该场次
+        TicketTier tier = ticketTierMapper.selectById(seatAllocateDTO.getTierId());
+        if (tier == null || !tier.getSessionId().equals(sessionId)) {
+            throw new IllegalArgumentException("票档不存在或不属于该场次");
+        }
+
+        // 2. 保留的座位同样占用票档库存，否则按票档下单的用户会买到比座位更多的票
+        if (!ticketTierService.reserveStock(tier.getId(), seatAllocateDTO.getCount())) {
+            log.info("保留座位失败，库存不足: sessionId={}, tierId={}, count={}",
+                    sessionId, tier.getId(), seatAllocateDTO.getCount());
+            return null;
+        }
+
+        // 3. 分配座位，失败时归还库存
+        SeatAllocationVO allocation;
+        try {
+            allocation = allocateSeats(sessionId, seatAllocateDTO);
+        } catch (RuntimeException e) {
+            ticketTierService.releaseStock(tier.getId(), seatAllocateDTO.getCount());
+            throw e;
+        }
+        if (allocation == null) {
+            ticketTierService.releaseStock(tier.getId(), seatAllocateDTO.getCount());
+        }
+        return allocation;
+    }
+
+    @Override
+    public int releaseHeldSeats(Long sessionId, SeatReleaseDTO seatReleaseDTO) {
+        Long tierId = seatMapEngine.getSectionTierId(sessionId, seatReleaseDTO.getSectionId());
+        if (tierId == null) {
+            return 0;
+        }
+        int released = releaseSeats(sessionId, seatReleaseDTO);
+        if (released > 0) {
+            ticketTierService.releaseStock(tierId, released);
+        }
+        return released;
+    }
+}
@@ -0,0 +1,299 @@
+package org.example.ticketmanagement.serviceimpl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.example.ticketmanagement.config.StockAuditConfig;
+import org.example.ticketmanagement.config.StockConfig;
+import org.example.ticketmanagement.mapper.TicketTierMapper;
+import org.example.ticketmanagement.mapper.TicketTierStockShardMapper;
+import org.example.ticketmanagement.service.StockAuditService;
+import org.example.ticketmanagement.util.DegradedStockManager;
+import org.example.ticketmanagement.util.JournalStockEngine;
+import org.example.ticketmanagement.util.RedisStockUtil;
+import org.example.ticketmanagement.util.SessionOwnershipManager;
+import org.example.ticketmanagement.util.SoldOutRegistry;
+import org.example.ticketmanagement.vo.StockAuditReportVO;
+import org.example.ticketmanagement.vo.StockAuditReportVO.TierDrift;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 库存对账：以订单为准核对票档库存
+ * 不变式：数据库可用库存 = 总库存 - 待支付和已支付订单的数量 + 库存引擎中尚未回写的扣减；
+ * 库存引擎计数 = 总库存 - 待支付和已支付订单的数量。
+ * 预扣成功到订单写入之间、回写取出增量到写入数据库之间会出现瞬时偏差，因此同一偏差连续出现 confirmRuns 次才确认
+ */
+@Slf4j
+@Service
+public class StockAuditServiceImpl implements StockAuditService {
+
+    @Autowired
+    private StockAuditConfig stockAuditConfig;
+
+    @Autowired
+    private StockConfig stockConfig;
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Autowired
+    private TicketTierMapper ticketTierMapper;
+
+    @Autowired
+    private TicketTierStockShardMapper ticketTierStockShardMapper;
+
+    @Autowired
+    private RedisStockUtil redisStockUtil;
+
+    @Autowired
+    private JournalStockEngine journalStockEngine;
+
+    @Autowired
+    private DegradedStockManager degradedStockManager;
+
+    @Autowired
+    private SessionOwnershipManager ownershipManager;
+
+    @Autowired
+    private SoldOutRegistry soldOutRegistry;
+
+    // 票档ID -> 尚未确认的偏差，只在对账锁内访问
+    private final Map<Long, Suspect> suspects = new HashMap<>();
+    private volatile StockAuditReportVO lastReport;
+    private long lastRunStart;
+    private long lastFullSweep;
+
+    @Override
+    public synchronized StockAuditReportVO audit(boolean fullSweep) {
+        long start = System.currentTimeMillis();
+        StockAuditReportVO report = new StockAuditReportVO();
+        report.setStartTime(LocalDateTime.now());
+
+        // 1. Redis降级期间数据库库存包含各节点领取的分片，跳过对账
+        if (stockConfig.isRedisEngine() && degradedStockManager.isDegraded()) {
+            report.setSkippedReason("Redis降级中");
+            report.setDurationMillis(0L);
+            lastReport = report;
+            log.debug("Redis降级中，跳过库存对账");
+            return report;
+        }
+
+        // 2. 首次、强制或到达全量间隔时全量对账，否则只核对上次对账之后变更过的票档
+        boolean full = fullSweep || lastFullSweep == 0
+                || start - lastFullSweep >= stockAuditConfig.getFullSweepInterval();
+        report.setFullSweep(full);
+        Set<Long> seen = new HashSet<>();
+        LocalDateTime since = full ? null : LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(lastRunStart - stockAuditConfig.getOverlap()), ZoneId.systemDefault());
+        scan(since, null, report, seen);
+
+        // 3. 增量对账时补查本次未变更的待确认票档；全量对账时清除已删除票档的待确认偏差
+        if (full) {
+            suspects.keySet().retainAll(seen);
+        } else {
+            List<Long> unseen = suspects.keySet().stream()
+                    .filter(tierId -> !seen.contains(tierId))
+                    .toList();
+            if (!unseen.isEmpty()) {
+                scan(null, unseen, report, seen);
+            }
+        }
+
+        lastRunStart = start;
+        if (full) {
+            lastFullSweep = start;
+        }
+        report.setDurationMillis(System.currentTimeMillis() - start);
+        lastReport = report;
+
+        if (report.getDriftTiers() > 0) {
+            log.warn("库存对账发现偏差: 核对票档数: {}, 确认偏差: {}, 待确认: {}, 可能超卖: {}, 库存丢失: {}, 已修正: {}",
+                    report.getCheckedTiers(), report.getDriftTiers(), report.getSuspectTiers(),
+                    report.getOversellRiskUnits(), report.getUndersellUnits(), report.getCorrectedTiers());
+        } else {
+            log.debug("库存对账完成: 全量: {}, 核对票档数: {}, 待确认: {}, 耗时: {}ms",
+                    full, report.getCheckedTiers(), report.getSuspectTiers(), report.getDurationMillis());
+        }
+        return report;
+    }
+
+    @Override
+    public StockAuditReportVO getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * 流式遍历票档并按批核对
+     * 游标使用单独的会话：MySQL流式结果集读完之前同一连接不能执行其他语句，
+     * 按批读取库存引擎计数、修正库存都走其他连接
+     */
+    private void scan(LocalDateTime since, List<Long> tierIds, StockAuditReportVO report, Set<Long> seen) {
+        int batchSize = Math.max(1, stockAuditConfig.getBatchSize());
+        List<Map<String, Object>> batch = new ArrayList<>(batchSize);
+        try (SqlSession session = sqlSessionFactory.openSession()) {
+            Cursor<Map<String, Object>> cursor = session.getMapper(TicketTierMapper.class)
+                    .scanStockAudit(since, tierIds);
+            for (Map<String, Object> row : cursor) {
+                batch.add(row);
+                if (batch.size() >= batchSize) {
+                    checkBatch(batch, report, seen);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            checkBatch(batch, report, seen);
+        }
+    }
+
+    /**
+     * 核对一批票档：一次读取这批票档的库存引擎计数，逐个计算偏差
+     */
+    private void checkBatch(List<Map<String, Object>> rows, StockAuditReportVO report, Set<Long> seen) {
+        // 1. 读取库存引擎计数和尚未回写的扣减
+        List<Long> tierIds = rows.stream()
+                .map(row -> ((Number) row.get("id")).longValue())
+                .toList();
+        Map<Long, Integer> engineStocks = new HashMap<>();
+        Map<Long, Long> pendings = new HashMap<>();
+        // 读取计数之前的同步版本，自动修正时计数在此之后回写或覆盖过就放弃
+        long journalVersion = stockConfig.isJournalEngine() ? journalStockEngine.getSyncVersion() : 0L;
+        if (stockConfig.isRedisEngine()) {
+            engineStocks = redisStockUtil.getStocks(tierIds);
+            pendings = redisStockUtil.getPendings(tierIds);
+        } else if (stockConfig.isJournalEngine()) {
+            for (Long tierId : tierIds) {
+                Integer stock = journalStockEngine.getStock(tierId);
+                Long pending = journalStockEngine.getPending(tierId);
+                if (stock != null) {
+                    engineStocks.put(tierId, stock);
+                }
+                if (pending != null) {
+                    pendings.put(tierId, pending);
+                }
+            }
+        } else if (stockConfig.isShardEngine()) {
+            for (Map<String, Object> shard : ticketTierStockShardMapper.selectAvailableByTierIds(tierIds)) {
+                engineStocks.put(((Number) shard.get("tier_id")).longValue(),
+                        ((Number) shard.get("available_stock")).intValue());
+            }
+        }
+
+        // 2. 逐个票档计算偏差
+        for (Map<String, Object> row : rows) {
+            Long tierId = ((Number) row.get("id")).longValue();
+            Long sessionId = ((Number) row.get("session_id")).longValue();
+            // 其他节点持有的场次，计数和未回写的扣减都在属主节点上，由属主节点对账
+            if (ownershipManager.isEnabled() && !ownershipManager.isLocal(sessionId)) {
+                continue;
+            }
+            seen.add(tierId);
+            report.setCheckedTiers(report.getCheckedTiers() + 1);
+
+            int totalStock = ((Number) row.get("total_stock")).intValue();
+            int availableStock = ((Number) row.get("available_stock")).intValue();
+            long soldQuantity = ((Number) row.get("sold_quantity")).longValue();
+            long expectedRemaining = totalStock - soldQuantity;
+            long pending = pendings.getOrDefault(tierId, 0L);
+            Integer engineStock = engineStocks.get(tierId);
+            if (expectedRemaining < 0) {
+                log.error("票档已超卖: tierId={}, 总库存: {}, 订单占用: {}", tierId, totalStock, soldQuantity);
+            }
+
+            // 分片引擎下票档表的可用库存是定期汇总的，只核对分片之和
+            long dbDrift = stockConfig.isShardEngine() ? 0 : availableStock - (expectedRemaining + pending);
+            long cacheDrift = engineStock != null ? engineStock - expectedRemaining : 0;
+            if (dbDrift == 0 && cacheDrift == 0) {
+                suspects.remove(tierId);
+                continue;
+            }
+
+            // 3. 与上次偏差相同时累计次数，达到确认次数后记入报告
+            Suspect previous = suspects.get(tierId);
+            int runs = previous != null && previous.dbDrift == dbDrift && previous.cacheDrift == cacheDrift
+                    ? previous.runs + 1 : 1;
+            suspects.put(tierId, new Suspect(dbDrift, cacheDrift, runs));
+            if (runs < stockAuditConfig.getConfirmRuns()) {
+                report.setSuspectTiers(report.getSuspectTiers() + 1);
+                continue;
+            }
+
+            TierDrift drift = new TierDrift(tierId, sessionId, totalStock, availableStock, soldQuantity,
+                    engineStock, pending, dbDrift, cacheDrift, false);
+            report.setDriftTiers(report.getDriftTiers() + 1);
+            report.setOversellRiskUnits(report.getOversellRiskUnits() + Math.max(0, Math.max(dbDrift, cacheDrift)));
+            report.setUndersellUnits(report.getUndersellUnits() + Math.max(0, -Math.min(dbDrift, cacheDrift)));
+            log.warn("库存偏差已确认: tierId={}, 总库存: {}, 可用库存: {}, 订单占用: {}, 引擎计数: {}, 未回写: {}, " +
+                            "数据库偏差: {}, 引擎偏差: {}",
+                    tierId, totalStock, availableStock, soldQuantity, engineStock, pending, dbDrift, cacheDrift);
+
+            // 4. 开启自动修正时以订单为准修正（已超卖的票档只报告）
+            if (stockAuditConfig.isAutoCorrect() && expectedRemaining >= 0 && correct(drift, expectedRemaining, journalVersion)) {
+                drift.setCorrected(true);
+                suspects.remove(tierId);
+                report.setCorrectedTiers(report.getCorrectedTiers() + 1);
+            }
+            if (report.getDrifts().size() < stockAuditConfig.getMaxReportedDrifts()) {
+                report.getDrifts().add(drift);
+            }
+        }
+    }
+
+    /**
+     * 修正已确认的偏差，计数在对账之后发生变化时放弃，留到下次对账
+     * @return 是否全部修正
+     */
+    private boolean correct(TierDrift drift, long expectedRemaining, long journalVersion) {
+        Long tierId = drift.getTierId();
+        boolean corrected = true;
+        if (drift.getDbDrift() != 0) {
+            int expected = (int) (expectedRemaining + drift.getPending());
+            corrected = ticketTierMapper.correctAvailableStock(tierId, expected, drift.getAvailableStock()) == 1;
+        }
+        if (drift.getCacheDrift() != 0) {
+            if (stockConfig.isRedisEngine()) {
+                corrected &= redisStockUtil.compareAndSet(tierId, drift.getEngineStock(), (int) expectedRemaining) == 1;
+            } else if (stockConfig.isJournalEngine()) {
+                corrected &= journalStockEngine.reconcile(tierId, (int) expectedRemaining, journalVersion) == 1;
+            } else {
+                // 分片库存的偏差无法判断落在哪个分片上，只报告
+                corrected = false;
+            }
+        }
+        soldOutRegistry.invalidateTier(tierId);
+        if (corrected) {
+            log.warn("库存偏差已修正: tierId={}, 剩余库存: {}", tierId, expectedRemaining);
+        } else {
+            log.warn("库存偏差未能修正，计数已变化或需人工处理: tierId={}", tierId);
+        }
+        return corrected;
+    }
+
+    /**
+     * 尚未确认的偏差
+     */
+    private static final class Suspect {
+        private final long dbDrift;
+        private final long cacheDrift;
+        // 连续出现的次数
+        private final int runs;
+
+        private Suspect(long dbDrift, long cacheDrift, int runs) {
+            this.dbDrift = dbDrift;
+            this.cacheDrift = cacheDrift;
+            this.runs = runs;
+        }
+    }
+}
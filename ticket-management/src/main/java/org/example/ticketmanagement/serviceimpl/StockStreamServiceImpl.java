@@ -0,0 +1,321 @@
+package org.example.ticketmanagement.serviceimpl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.config.StockStreamConfig;
+import org.example.ticketmanagement.mapper.EventSessionMapper;
+import org.example.ticketmanagement.service.StockStreamService;
+import org.example.ticketmanagement.service.TicketTierService;
+import org.example.ticketmanagement.vo.StockStreamVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 实时库存推送
+ * 每个场次一个共享的推送通道：定时任务每个间隔为每个有订阅者的场次只读取一次库存，
+ * 换算成粗粒度的库存状态（有票/紧张/售罄）后与上次推送的内容比较，只有变化时才推送，
+ * 事件内容只序列化一次，由发送线程分批写给所有连接，连接数再多也只产生一次库存读取；
+ * 每个状态带通道内递增的版本号，每个连接只按版本号递增的顺序接收状态，
+ * 新连接的首次推送与正在进行的分批推送并发时不会收到旧状态或重复状态
+ */
+@Slf4j
+@Service
+public class StockStreamServiceImpl implements StockStreamService {
+
+    private static final String EVENT_STOCK = "stock";
+    private static final String STATE_AVAILABLE = "AVAILABLE";
+    private static final String STATE_LOW_STOCK = "LOW_STOCK";
+    private static final String STATE_SOLD_OUT = "SOLD_OUT";
+    private static final Set<ResponseBodyEmitter.DataWithMediaType> HEARTBEAT =
+            SseEmitter.event().comment("heartbeat").build();
+
+    @Autowired
+    private TicketTierService ticketTierService;
+
+    @Autowired
+    private EventSessionMapper eventSessionMapper;
+
+    @Autowired
+    private StockStreamConfig stockStreamConfig;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final ConcurrentHashMap<Long, SessionChannel> channels = new ConcurrentHashMap<>();
+    private final AtomicInteger watcherCount = new AtomicInteger();
+    private ExecutorService senderExecutor;
+
+    @PostConstruct
+    public void init() {
+        // 写连接是阻塞IO，使用虚拟线程避免慢连接占满平台线程
+        senderExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        for (SessionChannel channel : channels.values()) {
+            for (Watcher watcher : channel.watchers) {
+                watcher.emitter.complete();
+            }
+        }
+        channels.clear();
+        senderExecutor.shutdownNow();
+    }
+
+    @Override
+    public SseEmitter subscribe(Long sessionId) {
+        // 1. 检查本节点连接数
+        if (watcherCount.incrementAndGet() > stockStreamConfig.getMaxWatchers()) {
+            watcherCount.decrementAndGet();
+            throw new RuntimeException("实时库存连接数已满，请稍后重试");
+        }
+
+        // 2. 场次还没有推送通道时检查场次是否存在
+        if (!channels.containsKey(sessionId) && eventSessionMapper.selectById(sessionId) == null) {
+            watcherCount.decrementAndGet();
+            throw new IllegalArgumentException("场次不存在");
+        }
+
+        // 3. 加入场次的推送通道（与清理空通道互斥，避免加入已被移除的通道）
+        SseEmitter emitter = newEmitter(stockStreamConfig.getEmitterTimeout());
+        Watcher watcher = new Watcher(emitter);
+        SessionChannel channel = channels.compute(sessionId, (id, existing) -> {
+            SessionChannel target = existing != null ? existing : new SessionChannel(id);
+            target.watchers.add(watcher);
+            return target;
+        });
+        emitter.onCompletion(() -> removeWatcher(channel, watcher));
+        emitter.onTimeout(() -> removeWatcher(channel, watcher));
+        emitter.onError(e -> removeWatcher(channel, watcher));
+
+        // 4. 已有最新状态时立即推送，否则等下一次定时推送
+        // 在连接的锁内读取最新状态：正在进行的分批推送随后发到这个连接时按版本号跳过，不会用旧状态覆盖
+        synchronized (watcher) {
+            sendState(channel, watcher, channel.lastState);
+        }
+        log.debug("订阅实时库存: sessionId={}, 本节点连接数: {}", sessionId, watcherCount.get());
+        return emitter;
+    }
+
+    @Override
+    public int pushStockStates() {
+        long now = System.currentTimeMillis();
+        int pushed = 0;
+        for (SessionChannel channel : channels.values()) {
+            // 1. 没有订阅者的通道直接移除
+            if (channel.watchers.isEmpty()) {
+                channels.computeIfPresent(channel.sessionId,
+                        (id, existing) -> existing.watchers.isEmpty() ? null : existing);
+                continue;
+            }
+
+            // 2. 上一轮还没发送完时跳过本轮，下一轮直接推送最新状态
+            if (!channel.sending.compareAndSet(false, true)) {
+                continue;
+            }
+
+            // 3. 读取一次库存并换算成状态
+            String payload;
+            try {
+                payload = buildPayload(channel.sessionId);
+            } catch (Exception e) {
+                channel.sending.set(false);
+                log.error("读取场次实时库存失败: sessionId={}", channel.sessionId, e);
+                continue;
+            }
+            if (payload == null) {
+                // 场次已被删除，关闭所有连接
+                channel.sending.set(false);
+                channels.remove(channel.sessionId);
+                for (Watcher watcher : channel.watchers) {
+                    watcher.emitter.complete();
+                }
+                continue;
+            }
+
+            // 4. 状态有变化时推送，无变化时按心跳间隔发送注释行保持连接
+            StockState last = channel.lastState;
+            if (last == null || !payload.equals(last.payload)) {
+                StockState state = new StockState(last != null ? last.version + 1 : 1, payload);
+                channel.lastState = state;
+                fanOut(channel, state, now);
+                pushed++;
+            } else if (now - channel.lastSentTime >= stockStreamConfig.getHeartbeatInterval()) {
+                fanOut(channel, null, now);
+            } else {
+                channel.sending.set(false);
+            }
+        }
+        return pushed;
+    }
+
+    @Override
+    public int getWatcherCount() {
+        return watcherCount.get();
+    }
+
+    /**
+     * 读取场次库存并序列化为推送内容
+     * @return 推送内容，场次不存在返回null
+     */
+    private String buildPayload(Long sessionId) throws JsonProcessingException {
+        List<Map<String, Object>> levels = ticketTierService.getStockLevelsBySessionId(sessionId);
+        if (levels == null) {
+            return null;
+        }
+        List<StockStreamVO.TierState> tierStates = new ArrayList<>(levels.size());
+        boolean hasStock = false;
+        for (Map<String, Object> level : levels) {
+            String state = toState((Number) level.get("available_stock"), (Number) level.get("total_stock"));
+            hasStock |= !STATE_SOLD_OUT.equals(state);
+            tierStates.add(new StockStreamVO.TierState(((Number) level.get("id")).longValue(),
+                    (String) level.get("tier_name"), state));
+        }
+        return objectMapper.writeValueAsString(new StockStreamVO(sessionId, hasStock, tierStates));
+    }
+
+    private String toState(Number available, Number total) {
+        if (available == null || available.intValue() <= 0) {
+            return STATE_SOLD_OUT;
+        }
+        if (total != null && available.intValue() <= total.intValue() * stockStreamConfig.getLowStockRatio()) {
+            return STATE_LOW_STOCK;
+        }
+        return STATE_AVAILABLE;
+    }
+
+    /**
+     * 创建一个推送连接
+     */
+    SseEmitter newEmitter(long timeout) {
+        return new SseEmitter(timeout);
+    }
+
+    /**
+     * 把同一份状态分批交给发送线程写给通道的所有连接，全部写完后释放通道的发送标记
+     * @param state 要推送的状态，为null时发送心跳
+     */
+    private void fanOut(SessionChannel channel, StockState state, long now) {
+        List<Watcher> watchers = new ArrayList<>(channel.watchers);
+        int batchSize = Math.max(1, stockStreamConfig.getSendBatchSize());
+        int batches = (watchers.size() + batchSize - 1) / batchSize;
+        if (batches == 0) {
+            channel.sending.set(false);
+            return;
+        }
+        AtomicInteger remaining = new AtomicInteger(batches);
+        for (int from = 0; from < watchers.size(); from += batchSize) {
+            List<Watcher> batch = watchers.subList(from, Math.min(from + batchSize, watchers.size()));
+            senderExecutor.execute(() -> {
+                try {
+                    for (Watcher watcher : batch) {
+                        synchronized (watcher) {
+                            if (state != null) {
+                                sendState(channel, watcher, state);
+                            } else {
+                                sendEvent(channel, watcher, HEARTBEAT);
+                            }
+                        }
+                    }
+                } finally {
+                    if (remaining.decrementAndGet() == 0) {
+                        channel.lastSentTime = now;
+                        channel.sending.set(false);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * 连接还没有收到该版本（或更新版本）的状态时发送（调用方持有连接的锁）
+     */
+    private void sendState(SessionChannel channel, Watcher watcher, StockState state) {
+        if (state == null || state.version <= watcher.sentVersion) {
+            return;
+        }
+        if (sendEvent(channel, watcher, state.event)) {
+            watcher.sentVersion = state.version;
+        }
+    }
+
+    private boolean sendEvent(SessionChannel channel, Watcher watcher,
+                              Set<ResponseBodyEmitter.DataWithMediaType> event) {
+        try {
+            watcher.emitter.send(event);
+            return true;
+        } catch (Exception e) {
+            // 客户端已断开
+            removeWatcher(channel, watcher);
+            return false;
+        }
+    }
+
+    private void removeWatcher(SessionChannel channel, Watcher watcher) {
+        if (channel.watchers.remove(watcher)) {
+            watcherCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * 场次推送通道，同一场次的所有连接共享一次库存读取和一份推送内容
+     */
+    private static final class SessionChannel {
+        private final Long sessionId;
+        private final Set<Watcher> watchers = ConcurrentHashMap.newKeySet();
+        // 上次推送的状态
+        private volatile StockState lastState;
+        // 上次推送（含心跳）完成的时间
+        private volatile long lastSentTime;
+        // 是否有一轮推送还没发送完
+        private final AtomicBoolean sending = new AtomicBoolean();
+
+        private SessionChannel(Long sessionId) {
+            this.sessionId = sessionId;
+        }
+    }
+
+    /**
+     * 一次推送的库存状态，事件内容只构建一次，所有连接共用
+     */
+    private static final class StockState {
+        // 通道内递增的版本号
+        private final long version;
+        private final String payload;
+        private final Set<ResponseBodyEmitter.DataWithMediaType> event;
+
+        private StockState(long version, String payload) {
+            this.version = version;
+            this.payload = payload;
+            this.event = SseEmitter.event().name(EVENT_STOCK).data(payload).build();
+        }
+    }
+
+    /**
+     * 一个推送连接，发送都在连接的锁内进行，保证同一连接按版本号顺序接收
+     */
+    private static final class Watcher {
+        private final SseEmitter emitter;
+        // 已发送的最新状态版本号
+        private long sentVersion;
+
+        private Watcher(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+}
@@ -1,8 +1,16 @@
 // org/example/ticketmanagement/service/impl/TicketTierServiceImpl.java
 package org.example.ticketmanagement.serviceimpl;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.config.OwnershipConfig;
+import org.example.ticketmanagement.config.QuotaConfig;
+import org.example.ticketmanagement.config.StockConfig;
 import org.example.ticketmanagement.dto.TicketTierDTO;
+import org.example.ticketmanagement.event.StockReleasedEvent;
+import org.example.ticketmanagement.vo.StockForwardVO;
 import org.example.ticketmanagement.vo.StockStatisticsVO;
 import org.example.ticketmanagement.vo.TicketStockVO;
 import org.example.ticketmanagement.vo.TicketTierVO;
@@ -13,22 +21,48 @@ import org.example.ticketmanagement.pojo.Event;
 import org.example.ticketmanagement.pojo.EventSession;
 import org.example.ticketmanagement.pojo.TicketTier;
 import org.example.ticketmanagement.service.TicketTierService;
+import org.example.ticketmanagement.store.PurchaseQuotaStore;
+import org.example.ticketmanagement.store.RedisPurchaseQuotaStore;
+import org.example.ticketmanagement.util.DegradedStockManager;
+import org.example.ticketmanagement.util.DetailCache;
+import org.example.ticketmanagement.util.JournalStockEngine;
+import org.example.ticketmanagement.util.RedisStockUtil;
+import org.example.ticketmanagement.util.SessionOwnershipManager;
+import org.example.ticketmanagement.util.SingleFlight;
+import org.example.ticketmanagement.util.ShardedStockManager;
+import org.example.ticketmanagement.util.SoldOutRegistry;
+import org.example.ticketmanagement.util.StockDeductionCombiner;
+import org.example.ticketmanagement.util.StockForwardClient;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class TicketTierServiceImpl implements TicketTierService {
 
+    private static final String QUOTA_EXCEEDED_MESSAGE = "超出限购数量";
+
     @Autowired
     private TicketTierMapper ticketTierMapper;
 
@@ -38,6 +72,64 @@ public class TicketTierServiceImpl implements TicketTierService {
     @Autowired
     private EventSessionMapper eventSessionMapper;
 
+    @Autowired
+    private RedisStockUtil redisStockUtil;
+
+    @Autowired
+    private StockConfig stockConfig;
+
+    @Autowired
+    private StockDeductionCombiner stockDeductionCombiner;
+
+    @Autowired
+    private SoldOutRegistry soldOutRegistry;
+
+    @Autowired
+    private DetailCache detailCache;
+
+    @Autowired
+    private ShardedStockManager shardedStockManager;
+
+    @Autowired
+    private JournalStockEngine journalStockEngine;
+
+    @Autowired
+    private PurchaseQuotaStore purchaseQuotaStore;
+
+    @Autowired
+    private QuotaConfig quotaConfig;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private SessionOwnershipManager ownershipManager;
+
+    @Autowired
+    private StockForwardClient stockForwardClient;
+
+    @Autowired
+    private DegradedStockManager degradedStockManager;
+
+    @Autowired
+    private SingleFlight singleFlight;
+
+    @Autowired
+    private OwnershipConfig ownershipConfig;
+
+    // 已执行的转发请求：请求ID -> 执行结果，转发方超时重试或撤销时按请求ID去重
+    private Cache<String, ForwardedRequest> forwardedRequests;
+
+    @PostConstruct
+    public void init() {
+        forwardedRequests = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(ownershipConfig.getForwardDedupTtl()))
+                .build();
+    }
+
     @Override
     @Transactional
     public boolean addTicketTier(TicketTierDTO ticketTierDTO) {
@@ -105,6 +197,8 @@ public class TicketTierServiceImpl implements TicketTierService {
         // 8. 根据受影响行数判断操作结果
         boolean success = (affectedRows == 1);
         if (success) {
+            // 场次新增了票档，清除场次的售罄快照
+            soldOutRegistry.invalidateSession(tier.getSessionId());
             log.info("新增票档成功，ID: {}", tier.getId());
         } else {
             log.error("新增票档失败，受影响行数: {}", affectedRows);
@@ -123,10 +217,31 @@ public class TicketTierServiceImpl implements TicketTierService {
             log.warn("要删除的票档不存在，ID: {}", id);
             return false;
         }
+        // 开启场次属主路由时票档计数可能在其他节点上，删除前先由属主回写并移除计数
+        boolean ownershipRouted = stockConfig.isJournalEngine() && ownershipManager.isEnabled();
+        if (ownershipRouted && !handOffOwnedTier(id)) {
+            log.warn("票档库存移交失败，暂不能删除: {}", id);
+            return false;
+        }
 
         int affectedRows = ticketTierMapper.deleteById(id);
         boolean success = (affectedRows == 1);
         if (success) {
+            // 票档已删除，丢弃库存引擎中的计数和未回写的增量
+            if (stockConfig.isRedisEngine()) {
+                redisStockUtil.remove(id);
+            }
+            if (stockConfig.isShardEngine()) {
+                shardedStockManager.reset(id);
+            }
+            if (stockConfig.isJournalEngine()) {
+                journalStockEngine.remove(id);
+            }
+            if (ownershipRouted) {
+                ownershipManager.evictTier(id);
+            }
+            soldOutRegistry.invalidateTier(id);
+            detailCache.evict(DetailCache.TIER, id);
             log.info("删除票档成功，ID: {}", id);
         } else {
             log.warn("删除票档未生效，ID: {}", id);
@@ -201,7 +316,7 @@ public class TicketTierServiceImpl implements TicketTierService {
             return false;
         }
 
-        // 7. DTO 转 Entity，只更新非空字段
+        // 7. DTO 转 Entity，只更新非空字段（可用库存不随其他字段写回，见第10步）
         TicketTier tier = new TicketTier();
         // 先复制原有字段
         BeanUtils.copyProperties(existingTier, tier);
@@ -224,35 +339,169 @@ public class TicketTierServiceImpl implements TicketTierService {
         if (ticketTierDTO.getTotalStock() != null) {
             tier.setTotalStock(ticketTierDTO.getTotalStock());
         }
-        if (ticketTierDTO.getAvailableStock() != null) {
-            tier.setAvailableStock(ticketTierDTO.getAvailableStock());
-        }
         if (ticketTierDTO.getStatus() != null) {
             tier.setStatus(ticketTierDTO.getStatus());
         }
+        if (ticketTierDTO.getPurchaseLimit() != null) {
+            tier.setPurchaseLimit(ticketTierDTO.getPurchaseLimit());
+        }
         tier.setId(id);
         tier.setUpdateTime(LocalDateTime.now());
 
-        // 8. 执行更新
+        // 8. 先回写库存引擎中已售出的增量，缩小数据库与计数的差距；
+        //    开启场次属主路由时票档计数可能在其他节点上，由属主回写并移除计数，更新后下次预扣时按新的可用库存载入
+        boolean ownershipRouted = stockConfig.isJournalEngine() && ownershipManager.isEnabled();
+        if (ownershipRouted && !handOffOwnedTier(id)) {
+            log.warn("票档库存移交失败，暂不能修改: {}", id);
+            return false;
+        }
+        boolean stockLoaded = (stockConfig.isRedisEngine() && redisStockUtil.getStock(id) != null)
+                || (stockConfig.isJournalEngine() && !ownershipRouted && journalStockEngine.getStock(id) != null);
+        if (stockLoaded) {
+            flushInNewTransaction(id);
+        }
+        //    分片引擎在本事务中锁住分片后再汇总，直到分片删除提交前不会再有扣减落在旧分片上
+        Integer shardStock = stockConfig.isShardEngine() && shardedStockManager.getShardCount(id) > 0
+                ? shardedStockManager.lockAvailableStock(id) : null;
+        boolean stockSharded = shardStock != null;
+
+        // 9. 执行更新
         int affectedRows = ticketTierMapper.update(tier);
-        boolean success = (affectedRows == 1);
-        if (success) {
-            log.info("更新票档成功，ID: {}", id);
-        } else {
+        if (affectedRows != 1) {
             log.warn("更新票档未生效，ID: {}", id);
+            return false;
         }
-        return success;
+
+        // 10. 调整可用库存，超出 0 ~ 总库存 时回滚整个修改
+        if (!adjustAvailableStock(id, ticketTierDTO.getAvailableStock(), stockLoaded, shardStock)) {
+            log.warn("可用库存调整超出范围: tierId={}, availableStock={}", id, ticketTierDTO.getAvailableStock());
+            throw new RuntimeException("可用库存调整超出范围，请刷新后重试");
+        }
+
+        // 删除旧分片，下次扣减时按新的可用库存重新拆分
+        if (stockSharded) {
+            shardedStockManager.reset(id);
+        }
+        // 可能补货或调整了状态、场次，清除售罄标记并通知其他节点
+        soldOutRegistry.invalidateTier(id);
+        detailCache.evict(DetailCache.TIER, id);
+        Integer availableStock = getAvailableStock(id);
+        if (tier.getStatus() == 1 && availableStock != null && availableStock > 0) {
+            eventPublisher.publishEvent(new StockReleasedEvent(id, availableStock));
+        }
+        if (!tier.getSessionId().equals(existingTier.getSessionId())) {
+            soldOutRegistry.invalidateSession(tier.getSessionId());
+            if (ownershipRouted) {
+                ownershipManager.evictTier(id);
+            }
+        }
+        log.info("更新票档成功，ID: {}", id);
+        return true;
+    }
+
+    /**
+     * 管理端修改票档后调整可用库存
+     * 1. 未指定可用库存时数据库和库存引擎中的计数都不改动（修改价格、名称等不会写回修改前读到的库存）
+     * 2. 指定时按 目标值 - 当前实时库存 的差值调整：库存引擎用脚本/写锁原子地加上差值，数据库同样加上差值，
+     *    期间新发生的预扣、释放仍然保留在计数和待回写增量中，不会被覆盖
+     * 3. 分片库存已在本事务中全部锁住，直接把分片之和（或目标值）写回票档表
+     * 库存引擎的调整不在数据库事务内，事务回滚时按相反的差值调整回去
+     * @return 是否调整成功（超出 0 ~ 总库存 时返回 false）
+     */
+    private boolean adjustAvailableStock(Long tierId, Integer target, boolean stockLoaded, Integer shardStock) {
+        if (shardStock != null) {
+            int stock = target != null ? target : shardStock;
+            return ticketTierMapper.resetAvailableStock(tierId, stock) == 1;
+        }
+        if (target == null) {
+            return true;
+        }
+
+        // 1. 库存引擎中有计数时以实时计数为基准
+        if (stockLoaded) {
+            boolean journal = stockConfig.isJournalEngine();
+            Integer current = journal ? journalStockEngine.getStock(tierId) : redisStockUtil.getStock(tierId);
+            if (current != null) {
+                int delta = target - current;
+                if (delta == 0) {
+                    return true;
+                }
+                long remain = journal ? journalStockEngine.adjust(tierId, delta) : redisStockUtil.adjustStock(tierId, delta);
+                if (remain == RedisStockUtil.INSUFFICIENT) {
+                    return false;
+                }
+                if (remain != RedisStockUtil.NOT_LOADED) {
+                    restoreOnRollback(tierId, delta, journal);
+                    return ticketTierMapper.applyStockDelta(tierId, (long) -delta) == 1;
+                }
+                // 计数已被移除（票档移交、删除），按数据库调整
+            }
+        }
+
+        // 2. 没有计数时锁住票档行，以数据库库存为基准
+        TicketTier locked = ticketTierMapper.selectByIdForUpdate(tierId);
+        if (locked == null) {
+            return false;
+        }
+        int delta = target - locked.getAvailableStock();
+        return delta == 0 || ticketTierMapper.applyStockDelta(tierId, (long) -delta) == 1;
+    }
+
+    /**
+     * 在独立事务中回写票档的待回写增量并提交，与定时回写相同；
+     * 回写不加入调用方的事务，调用方回滚时已回写的增量不会随之丢失（库存引擎中已清除的增量无法找回）
+     */
+    private void flushInNewTransaction(Long tierId) {
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        requiresNew.executeWithoutResult(status -> flushPendingDelta(tierId));
+    }
+
+    /**
+     * 事务回滚时撤销已对库存引擎做的调整
+     */
+    private void restoreOnRollback(Long tierId, int delta, boolean journal) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK) {
+                    return;
+                }
+                long remain = journal ? journalStockEngine.adjust(tierId, -delta) : redisStockUtil.adjust(tierId, -delta);
+                log.warn("票档修改已回滚，撤销库存计数调整: tierId={}, delta={}, 撤销后: {}", tierId, -delta, remain);
+            }
+        });
     }
 
     @Override
     public TicketTierVO getTicketTierById(Long id) {
         log.debug("根据ID查询票档，ID: {}", id);
-        TicketTier tier = ticketTierMapper.selectById(id);
-        if (tier == null) {
+        // 1. 票档详情走两级缓存
+        TicketTierVO cached = detailCache.get(DetailCache.TIER, id, TicketTierVO.class, tierId -> {
+            TicketTier tier = ticketTierMapper.selectById(tierId);
+            // Entity 转 VO（基础信息）
+            return tier != null ? convertToVO(tier) : null;
+        });
+        if (cached == null) {
             return null;
         }
-        // Entity 转 VO（基础信息）
-        return convertToVO(tier);
+
+        // 2. 缓存中的可用库存是载入时的快照，库存引擎有实时计数时以计数为准（复制后修改，不改动共享的缓存对象）
+        TicketTierVO vo = new TicketTierVO();
+        BeanUtils.copyProperties(cached, vo);
+        Integer stock = null;
+        if (stockConfig.isRedisEngine() && !degradedStockManager.isDegraded()) {
+            stock = getRedisStock(id);
+        } else if (stockConfig.isJournalEngine()) {
+            stock = journalStockEngine.getStock(id);
+        }
+        if (stock != null) {
+            vo.setAvailableStock(stock);
+        }
+        return vo;
     }
 
     @Override
@@ -321,30 +570,132 @@ public class TicketTierServiceImpl implements TicketTierService {
     public TicketStockVO getStockInfoBySessionId(Long sessionId) {
         log.debug("获取场次票档库存信息，sessionId: {}", sessionId);
 
-        // 1. 检查场次是否存在
-        EventSession session = eventSessionMapper.selectById(sessionId);
-        if (session == null) {
+        // 1. 场次已售罄时直接返回快照，不访问数据库
+        SoldOutRegistry.SoldOutSession soldOut = soldOutRegistry.getSoldOutSession(sessionId);
+        if (soldOut != null) {
+            TicketStockVO stockVO = TicketStockVO.create(soldOut.getEventId(), sessionId, false, true);
+            stockVO.setTierStockList(soldOut.copyTierStockList());
+            return stockVO;
+        }
+
+        // 2-3. 查询场次和各票档库存信息，同一场次的并发查询只访问一次数据库，各请求使用结果的副本
+        SessionStock loaded = singleFlight.execute("stock:" + sessionId, () -> loadSessionStock(sessionId));
+        if (loaded == null) {
             log.warn("场次不存在: {}", sessionId);
             return null;
         }
+        long epoch = loaded.epoch;
+        EventSession session = loaded.session;
+        List<Map<String, Object>> tierStockList = new ArrayList<>();
+        for (Map<String, Object> tier : loaded.tierStockList) {
+            tierStockList.add(new HashMap<>(tier));
+        }
 
-        // 2. 查询各票档库存信息
-        List<Map<String, Object>> tierStockList = ticketTierMapper.selectStockInfoBySessionId(sessionId);
-
-        // 3. 判断是否有库存（任一票档有库存即为有库存）
+        // 4. 判断是否有库存（任一票档有库存即为有库存）
         boolean hasStock = tierStockList.stream()
                 .anyMatch(tier -> (Boolean) tier.get("has_stock"));
 
-        // 4. 判断是否已开票
+        // 5. 判断是否已开票
         boolean onSale = isSessionOnSale(sessionId);
 
-        // 5. 构建返回对象
+        // 6. 已开票且全部售罄时缓存快照，后续查询快速返回
+        if (onSale && !hasStock && !tierStockList.isEmpty()) {
+            soldOutRegistry.markSessionSoldOut(sessionId, session.getEventId(), tierStockList, epoch);
+        }
+
+        // 7. 构建返回对象
         TicketStockVO stockVO = TicketStockVO.create(session.getEventId(), sessionId, hasStock, onSale);
         stockVO.setTierStockList(tierStockList);
 
         return stockVO;
     }
 
+    /**
+     * 查询场次和各票档库存信息（分片库存模式下以分片之和为准），场次不存在返回null
+     */
+    private SessionStock loadSessionStock(Long sessionId) {
+        // 先取售罄标记的版本，查询期间发生补货时不标记售罄
+        long epoch = soldOutRegistry.currentEpoch();
+        EventSession session = eventSessionMapper.selectById(sessionId);
+        if (session == null) {
+            return null;
+        }
+        List<Map<String, Object>> tierStockList = ticketTierMapper.selectStockInfoBySessionId(sessionId);
+        applyShardStock(tierStockList);
+        return new SessionStock(epoch, session, tierStockList);
+    }
+
+    @Override
+    public Integer getAvailableStock(Long tierId) {
+        // 优先读取库存引擎中的实时计数，未载入时以数据库为准
+        Integer stock = null;
+        if (stockConfig.isRedisEngine() && !degradedStockManager.isDegraded()) {
+            stock = getRedisStock(tierId);
+        } else if (stockConfig.isJournalEngine()) {
+            stock = journalStockEngine.getStock(tierId);
+        } else if (stockConfig.isShardEngine()) {
+            stock = shardedStockManager.getAvailableStock(tierId);
+        }
+        if (stock != null) {
+            return stock;
+        }
+        TicketTier tier = ticketTierMapper.selectById(tierId);
+        return tier != null ? tier.getAvailableStock() : null;
+    }
+
+    @Override
+    public List<Map<String, Object>> getStockLevelsBySessionId(Long sessionId) {
+        // 1. 场次已售罄时直接按快照返回，不访问数据库
+        SoldOutRegistry.SoldOutSession soldOut = soldOutRegistry.getSoldOutSession(sessionId);
+        if (soldOut != null) {
+            List<Map<String, Object>> levels = new ArrayList<>();
+            for (Map<String, Object> tier : soldOut.copyTierStockList()) {
+                Map<String, Object> level = new HashMap<>();
+                level.put("id", tier.get("id"));
+                level.put("tier_name", tier.get("tier_name"));
+                level.put("total_stock", null);
+                level.put("available_stock", 0);
+                levels.add(level);
+            }
+            return levels;
+        }
+
+        // 2. 查询数据库中的库存数量
+        List<Map<String, Object>> levels = ticketTierMapper.selectStockLevelBySessionId(sessionId);
+        if (levels.isEmpty()) {
+            return eventSessionMapper.selectById(sessionId) != null ? levels : null;
+        }
+
+        // 3. 数据库库存由定时任务异步回写，以库存引擎中的计数为准
+        List<Long> tierIds = levels.stream()
+                .map(tier -> ((Number) tier.get("id")).longValue())
+                .collect(Collectors.toList());
+        Map<Long, Integer> engineStocks = new HashMap<>();
+        if (stockConfig.isRedisEngine() && !degradedStockManager.isDegraded()) {
+            try {
+                engineStocks = redisStockUtil.getStocks(tierIds);
+            } catch (DataAccessException e) {
+                log.warn("读取Redis库存失败，以数据库库存为准: sessionId={}, {}", sessionId, e.getMessage());
+            }
+        } else if (stockConfig.isShardEngine()) {
+            engineStocks = shardedStockManager.getAvailableStocks(tierIds);
+        } else if (stockConfig.isJournalEngine()) {
+            for (Long tierId : tierIds) {
+                Integer stock = journalStockEngine.getStock(tierId);
+                if (stock != null) {
+                    engineStocks.put(tierId, stock);
+                }
+            }
+        }
+        for (Map<String, Object> level : levels) {
+            Integer stock = engineStocks.get(((Number) level.get("id")).longValue());
+            if (stock != null) {
+                level.put("available_stock", stock);
+            }
+        }
+        return levels;
+    }
+
     @Override
     public TicketStockVO getStockInfoByEventId(Long eventId) {
         log.debug("获取演出票档库存信息，eventId: {}", eventId);
@@ -356,8 +707,9 @@ public class TicketTierServiceImpl implements TicketTierService {
             return null;
         }
 
-        // 2. 查询各票档库存信息
+        // 2. 查询各票档库存信息（分片库存模式下以分片之和为准）
         List<Map<String, Object>> tierStockList = ticketTierMapper.selectStockInfoByEventId(eventId);
+        applyShardStock(tierStockList);
 
         // 3. 判断是否有库存
         boolean hasStock = tierStockList.stream()
@@ -377,6 +729,11 @@ public class TicketTierServiceImpl implements TicketTierService {
     public boolean isSessionOnSale(Long sessionId) {
         log.debug("检查场次是否已开票，sessionId: {}", sessionId);
 
+        // 已售罄的场次一定已开票，不访问数据库
+        if (soldOutRegistry.getSoldOutSession(sessionId) != null) {
+            return true;
+        }
+
         // 1. 检查场次是否存在
         EventSession session = eventSessionMapper.selectById(sessionId);
         if (session == null) {
@@ -410,8 +767,18 @@ public class TicketTierServiceImpl implements TicketTierService {
     public StockStatisticsVO getStockStatistics(Long eventId, Long sessionId, Long tierId) {
         log.debug("获取库存统计，eventId: {}, sessionId: {}, tierId: {}", eventId, sessionId, tierId);
 
-        // 1. 使用动态SQL查询票档
+        // 1. 使用动态SQL查询票档，分片库存模式下可用库存以分片之和为准
         List<TicketTier> tiers = ticketTierMapper.selectByCondition(eventId, sessionId, tierId);
+        if (stockConfig.isShardEngine()) {
+            Map<Long, Integer> shardStocks = shardedStockManager.getAvailableStocks(
+                    tiers.stream().map(TicketTier::getId).collect(Collectors.toList()));
+            for (TicketTier tier : tiers) {
+                Integer shardStock = shardStocks.get(tier.getId());
+                if (shardStock != null) {
+                    tier.setAvailableStock(shardStock);
+                }
+            }
+        }
 
         // 2. 计算统计信息
         StockStatisticsVO statistics = new StockStatisticsVO();
@@ -488,6 +855,910 @@ public class TicketTierServiceImpl implements TicketTierService {
         return statistics;
     }
 
+    @Override
+    public int preloadStockBySessionId(Long sessionId) {
+        log.info("预热场次库存，sessionId: {}", sessionId);
+        if (stockConfig.isShardEngine()) {
+            // 分片库存模式：提前拆分分片，避免开售瞬间集中拆分
+            int split = 0;
+            for (TicketTier tier : ticketTierMapper.selectBySessionIdAndStatus(sessionId, 1)) {
+                if (shardedStockManager.ensureSplit(tier.getId()) > 0) {
+                    split++;
+                }
+            }
+            log.info("场次库存分片拆分完成，sessionId: {}, 票档数: {}", sessionId, split);
+            return split;
+        }
+        if (!stockConfig.isRedisEngine() && !stockConfig.isJournalEngine()) {
+            log.debug("当前库存引擎为数据库，无需预热");
+            return 0;
+        }
+        // 开启场次属主路由时只有取得租约的属主节点载入场次库存
+        if (stockConfig.isJournalEngine() && ownershipManager.isEnabled() && !ownershipManager.acquire(sessionId)) {
+            log.info("场次不归本节点所有或租约尚未移交，跳过预热，sessionId: {}, 属主: {}",
+                    sessionId, ownershipManager.getOwner(sessionId));
+            return 0;
+        }
+
+        List<TicketTier> tiers = ticketTierMapper.selectBySessionIdAndStatus(sessionId, 1);
+        int loaded = 0;
+        for (TicketTier tier : tiers) {
+            if (stockConfig.isJournalEngine()) {
+                journalStockEngine.load(tier.getId(), tier.getAvailableStock());
+            } else {
+                redisStockUtil.preload(tier.getId(), tier.getAvailableStock());
+            }
+            loaded++;
+        }
+        log.info("场次库存预热完成，sessionId: {}, 票档数: {}", sessionId, loaded);
+        return loaded;
+    }
+
+    @Override
+    public boolean preloadTierStock(Long tierId) {
+        if (stockConfig.isShardEngine()) {
+            return shardedStockManager.ensureSplit(tierId) > 0;
+        }
+        if (!stockConfig.isRedisEngine() && !stockConfig.isJournalEngine()) {
+            return true;
+        }
+
+        TicketTier tier = ticketTierMapper.selectById(tierId);
+        if (tier == null || tier.getStatus() != 1) {
+            log.warn("票档不存在或已禁用，无法预热库存: {}", tierId);
+            return false;
+        }
+        if (stockConfig.isJournalEngine()) {
+            if (ownershipManager.isEnabled() && !ownershipManager.acquire(tier.getSessionId())) {
+                log.info("场次不归本节点所有或租约尚未移交，暂不载入库存: tierId={}, sessionId={}",
+                        tierId, tier.getSessionId());
+                return false;
+            }
+            journalStockEngine.load(tierId, tier.getAvailableStock());
+        } else {
+            redisStockUtil.preload(tierId, tier.getAvailableStock());
+        }
+        return true;
+    }
+
+    @Override
+    public boolean reserveStock(Long tierId, Integer quantity) {
+        if (quantity == null || quantity <= 0) {
+            log.warn("预扣数量不合法: tierId={}, quantity={}", tierId, quantity);
+            return false;
+        }
+
+        // 1. 已售罄的票档直接失败，不产生任何I/O
+        if (soldOutRegistry.isTierSoldOut(tierId)) {
+            return false;
+        }
+        long epoch = soldOutRegistry.currentEpoch();
+
+        // 2. 分片库存引擎：扣减分散到多个分片行上
+        if (stockConfig.isShardEngine()) {
+            if (shardedStockManager.deduct(tierId, quantity)) {
+                return true;
+            }
+            Integer shardStock = shardedStockManager.getAvailableStock(tierId);
+            if (shardStock != null && shardStock == 0) {
+                soldOutRegistry.markTierSoldOut(tierId, epoch);
+            }
+            return false;
+        }
+
+        // 3. 本地日志引擎：追加日志后修改内存计数，场次属于其他节点时转发给属主
+        if (stockConfig.isJournalEngine()) {
+            return applyJournalResult(reserveJournal(Map.of(tierId, quantity)), epoch);
+        }
+
+        // 4. 数据库引擎：同一票档的并发扣减合并成一条条件UPDATE
+        if (!stockConfig.isRedisEngine()) {
+            if (stockDeductionCombiner.deduct(tierId, quantity)) {
+                return true;
+            }
+            TicketTier tier = ticketTierMapper.selectById(tierId);
+            if (tier != null && tier.getAvailableStock() == 0) {
+                soldOutRegistry.markTierSoldOut(tierId, epoch);
+            }
+            return false;
+        }
+
+        // 5. Redis引擎：Lua原子预扣，未预热时懒加载后重试一次；Redis不可用时改由本节点的降级库存分片扣减
+        if (degradedStockManager.isDegraded()) {
+            return degradedStockManager.reserve(tierId, quantity);
+        }
+        try {
+            long remain = redisStockUtil.reserve(tierId, quantity);
+            if (remain == RedisStockUtil.NOT_LOADED) {
+                if (!preloadTierStock(tierId)) {
+                    return false;
+                }
+                remain = redisStockUtil.reserve(tierId, quantity);
+            }
+            return handleRedisReserveResult(tierId, quantity, remain, epoch);
+        } catch (DataAccessException e) {
+            if (!degradedStockManager.onRedisFailure(e)) {
+                throw e;
+            }
+            return degradedStockManager.reserve(tierId, quantity);
+        }
+    }
+
+    @Override
+    public boolean reserveStock(Long tierId, Integer quantity, Long userId, Long eventId,
+                                Integer eventLimit, Integer tierLimit) {
+        int eventQuota = eventLimit != null ? eventLimit : 0;
+        int tierQuota = tierLimit != null ? tierLimit : 0;
+
+        // 1. 不限购时与普通预扣相同，不产生额外I/O
+        if (eventQuota <= 0 && tierQuota <= 0) {
+            return reserveStock(tierId, quantity);
+        }
+        if (quantity == null || quantity <= 0) {
+            log.warn("预扣数量不合法: tierId={}, quantity={}", tierId, quantity);
+            return false;
+        }
+        // 2. 单笔数量已超过限购，无需查询已购数量
+        if ((eventQuota > 0 && quantity > eventQuota) || (tierQuota > 0 && quantity > tierQuota)) {
+            throw new RuntimeException(QUOTA_EXCEEDED_MESSAGE);
+        }
+
+        // 3. Redis引擎且额度计数也在Redis中：额度与库存在同一个Lua脚本中原子校验和扣减
+        if (stockConfig.isRedisEngine() && quotaConfig.isRedisStore()) {
+            if (soldOutRegistry.isTierSoldOut(tierId)) {
+                return false;
+            }
+            if (degradedStockManager.isDegraded()) {
+                return reserveDegraded(Map.of(tierId, quantity), userId, eventId, eventQuota, Map.of(tierId, tierQuota));
+            }
+            long epoch = soldOutRegistry.currentEpoch();
+            String eventQuotaKey = RedisPurchaseQuotaStore.getEventKey(userId, eventId);
+            String tierQuotaKey = RedisPurchaseQuotaStore.getTierKey(userId, tierId);
+            long remain;
+            try {
+                remain = redisStockUtil.reserveWithQuota(tierId, quantity, eventQuotaKey, eventQuota,
+                        tierQuotaKey, tierQuota, quotaConfig.getCounterTtl());
+                if (remain == RedisStockUtil.NOT_LOADED) {
+                    if (!preloadTierStock(tierId)) {
+                        return false;
+                    }
+                    remain = redisStockUtil.reserveWithQuota(tierId, quantity, eventQuotaKey, eventQuota,
+                            tierQuotaKey, tierQuota, quotaConfig.getCounterTtl());
+                }
+            } catch (DataAccessException e) {
+                if (!degradedStockManager.onRedisFailure(e)) {
+                    throw e;
+                }
+                return reserveDegraded(Map.of(tierId, quantity), userId, eventId, eventQuota, Map.of(tierId, tierQuota));
+            }
+            if (remain == RedisStockUtil.QUOTA_EXCEEDED) {
+                log.info("超出限购数量: userId={}, eventId={}, tierId={}, quantity={}",
+                        userId, eventId, tierId, quantity);
+                throw new RuntimeException(QUOTA_EXCEEDED_MESSAGE);
+            }
+            return handleRedisReserveResult(tierId, quantity, remain, epoch);
+        }
+
+        // 4. 其他引擎：先占用额度再扣减库存，扣减失败时归还额度
+        if (!purchaseQuotaStore.tryAcquire(userId, eventId, eventQuota, tierId, tierQuota, quantity)) {
+            log.info("超出限购数量: userId={}, eventId={}, tierId={}, quantity={}",
+                    userId, eventId, tierId, quantity);
+            throw new RuntimeException(QUOTA_EXCEEDED_MESSAGE);
+        }
+        boolean reserved = false;
+        try {
+            reserved = reserveStock(tierId, quantity);
+        } finally {
+            if (!reserved) {
+                purchaseQuotaStore.release(userId, eventId, tierId, quantity);
+            }
+        }
+        return reserved;
+    }
+
+    @Override
+    public boolean reserveStockBatch(Map<Long, Integer> quantities, Long userId, Long eventId,
+                                     Integer eventLimit, Map<Long, Integer> tierLimits) {
+        // 1. 按票档ID升序排列，所有引擎都按同一顺序访问票档
+        TreeMap<Long, Integer> sorted = new TreeMap<>();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            if (entry.getValue() == null || entry.getValue() <= 0) {
+                log.warn("预扣数量不合法: tierId={}, quantity={}", entry.getKey(), entry.getValue());
+                return false;
+            }
+            sorted.put(entry.getKey(), entry.getValue());
+        }
+        if (sorted.isEmpty()) {
+            return false;
+        }
+        if (sorted.size() == 1) {
+            Long tierId = sorted.firstKey();
+            return reserveStock(tierId, sorted.get(tierId), userId, eventId, eventLimit, tierLimits.get(tierId));
+        }
+
+        // 2. 任一票档已售罄直接失败，不产生任何I/O
+        for (Long tierId : sorted.keySet()) {
+            if (soldOutRegistry.isTierSoldOut(tierId)) {
+                return false;
+            }
+        }
+
+        // 3. 单笔数量已超过限购，无需查询已购数量
+        int eventQuota = eventLimit != null ? eventLimit : 0;
+        int total = 0;
+        boolean limited = eventQuota > 0;
+        for (Map.Entry<Long, Integer> entry : sorted.entrySet()) {
+            int tierQuota = getQuota(tierLimits, entry.getKey());
+            if (tierQuota > 0 && entry.getValue() > tierQuota) {
+                throw new RuntimeException(QUOTA_EXCEEDED_MESSAGE);
+            }
+            limited |= tierQuota > 0;
+            total += entry.getValue();
+        }
+        if (eventQuota > 0 && total > eventQuota) {
+            throw new RuntimeException(QUOTA_EXCEEDED_MESSAGE);
+        }
+
+        // 4. Redis引擎且额度计数也在Redis中（或不限购）：库存与额度在同一个Lua脚本中原子校验和扣减
+        if (stockConfig.isRedisEngine() && (!limited || quotaConfig.isRedisStore())) {
+            return reserveRedisBatch(sorted, userId, eventId, eventQuota, tierLimits);
+        }
+
+        // 5. 其他情况：先按顺序占用各票档额度，再一次性扣减库存，任一步失败都归还已占用的额度
+        Map<Long, Integer> acquired = new LinkedHashMap<>();
+        boolean reserved = false;
+        try {
+            if (limited) {
+                for (Map.Entry<Long, Integer> entry : sorted.entrySet()) {
+                    if (!purchaseQuotaStore.tryAcquire(userId, eventId, eventQuota, entry.getKey(),
+                            getQuota(tierLimits, entry.getKey()), entry.getValue())) {
+                        log.info("超出限购数量: userId={}, eventId={}, tierId={}, quantity={}",
+                                userId, eventId, entry.getKey(), entry.getValue());
+                        throw new RuntimeException(QUOTA_EXCEEDED_MESSAGE);
+                    }
+                    acquired.put(entry.getKey(), entry.getValue());
+                }
+            }
+            reserved = reserveStockBatch(sorted);
+        } finally {
+            if (!reserved) {
+                acquired.forEach((tierId, quantity) -> purchaseQuotaStore.release(userId, eventId, tierId, quantity));
+            }
+        }
+        return reserved;
+    }
+
+    @Override
+    public boolean releaseStock(Long tierId, Integer quantity) {
+        if (quantity == null || quantity <= 0) {
+            log.warn("释放数量不合法: tierId={}, quantity={}", tierId, quantity);
+            return false;
+        }
+
+        // Redis中没有计数时（未预热或已删除）直接归还到数据库
+        if (stockConfig.isRedisEngine() && releaseRedis(tierId, quantity)) {
+            onStockReleased(tierId, quantity);
+            return true;
+        }
+        if (stockConfig.isJournalEngine()) {
+            if (ownershipManager.isEnabled() && !ownershipManager.isLocalTier(tierId)) {
+                return releaseForwarded(tierId, quantity);
+            }
+            if (journalStockEngine.release(tierId, quantity) != JournalStockEngine.NOT_LOADED) {
+                onStockReleased(tierId, quantity);
+                return true;
+            }
+        }
+        // 票档未拆分分片时同样直接归还到票档表
+        if (stockConfig.isShardEngine() && shardedStockManager.release(tierId, quantity)) {
+            onStockReleased(tierId, quantity);
+            return true;
+        }
+        // 数据库引擎：归还与同一票档的扣减合并执行，不单独争抢行锁
+        boolean success = stockConfig.isDbEngine()
+                ? stockDeductionCombiner.release(tierId, quantity)
+                : ticketTierMapper.releaseStock(tierId, quantity) == 1;
+        if (success) {
+            onStockReleased(tierId, quantity);
+        } else {
+            log.warn("归还库存失败，可能票档不存在或超出总库存: tierId={}, quantity={}", tierId, quantity);
+        }
+        return success;
+    }
+
+    @Override
+    public boolean releaseStock(Long tierId, Integer quantity, Long userId, Long eventId) {
+        boolean success = releaseStock(tierId, quantity);
+        // 额度与库存分开归还：票档已删除导致库存归还失败时，额度同样要还给用户
+        if (quantity != null && quantity > 0) {
+            if (degradedStockManager.isDegraded()) {
+                degradedStockManager.getQuotaStore().release(userId, eventId, tierId, quantity);
+            }
+            try {
+                purchaseQuotaStore.release(userId, eventId, tierId, quantity);
+            } catch (Exception e) {
+                log.error("归还限购额度失败: userId={}, eventId={}, tierId={}, quantity={}",
+                        userId, eventId, tierId, quantity, e);
+            }
+        }
+        return success;
+    }
+
+    @Override
+    public int syncStockToDatabase() {
+        if (stockConfig.isShardEngine()) {
+            return shardedStockManager.syncToTier();
+        }
+        if (stockConfig.isJournalEngine()) {
+            return journalStockEngine.drain();
+        }
+        if (!stockConfig.isRedisEngine() || degradedStockManager.isDegraded()) {
+            return 0;
+        }
+
+        int synced = 0;
+        for (Long tierId : redisStockUtil.getLoadedTierIds()) {
+            if (flushPendingDelta(tierId)) {
+                synced++;
+            }
+        }
+        if (synced > 0) {
+            log.debug("库存增量回写完成，票档数: {}", synced);
+        }
+        return synced;
+    }
+
+    @Override
+    public int reconcileStockCache() {
+        if (stockConfig.isJournalEngine()) {
+            return reconcileJournalStock();
+        }
+        if (!stockConfig.isRedisEngine() || degradedStockManager.isDegraded()) {
+            return 0;
+        }
+
+        int corrected = 0;
+        for (Long tierId : redisStockUtil.getLoadedTierIds()) {
+            // 先取回写序号再读数据库，读取之后发生的回写会让本次对账跳过，避免用旧库存覆盖计数
+            long flushSeq = redisStockUtil.getFlushSeq(tierId);
+            TicketTier tier = ticketTierMapper.selectById(tierId);
+            if (tier == null) {
+                // 票档已被删除，清理残留计数
+                redisStockUtil.remove(tierId);
+                continue;
+            }
+
+            Integer cachedStock = redisStockUtil.getStock(tierId);
+            long result = redisStockUtil.reconcile(tierId, tier.getAvailableStock(), flushSeq);
+            if (result == 1) {
+                corrected++;
+                soldOutRegistry.invalidateTier(tierId);
+                log.warn("库存计数与数据库不一致，已修正: tierId={}, redis={}, db={}",
+                        tierId, cachedStock, tier.getAvailableStock());
+            }
+        }
+        return corrected;
+    }
+
+    @Override
+    public boolean snapshotStockJournal() {
+        if (!stockConfig.isJournalEngine()) {
+            return false;
+        }
+        try {
+            journalStockEngine.snapshot();
+            return true;
+        } catch (IOException e) {
+            log.error("库存日志快照失败", e);
+            return false;
+        }
+    }
+
+    @Override
+    public int recoverDegradedStock() {
+        if (!stockConfig.isRedisEngine()) {
+            return 0;
+        }
+        int recovered = degradedStockManager.recover();
+        if (recovered > 0) {
+            // 降级期间的售出与归还已同步到Redis计数，本节点的售罄标记重新确认
+            soldOutRegistry.clearAll();
+        }
+        return recovered;
+    }
+
+    @Override
+    public StockForwardVO reserveOwnedStock(String requestId, Map<Long, Integer> quantities) {
+        // 1. 只有场次属主能执行，防止成员列表不一致时两个节点同时持有计数
+        checkOwnedTiers(quantities.keySet());
+        TreeMap<Long, Integer> sorted = new TreeMap<>();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            if (entry.getValue() == null || entry.getValue() <= 0) {
+                throw new IllegalArgumentException("预扣数量不合法: tierId=" + entry.getKey());
+            }
+            sorted.put(entry.getKey(), entry.getValue());
+        }
+
+        // 2. 同一请求ID只预扣一次（转发方超时重试），本节点的售罄标记同样更新
+        ForwardedRequest request = forwardedRequests.asMap().computeIfAbsent(requestId, id -> {
+            long epoch = soldOutRegistry.currentEpoch();
+            StockForwardVO result = reserveJournalLocally(sorted);
+            applyJournalResult(result, epoch);
+            return new ForwardedRequest(sorted, result, false);
+        });
+        if (request.aborted) {
+            return new StockForwardVO(false, getJournalStocks(sorted.keySet()));
+        }
+        return request.result;
+    }
+
+    @Override
+    public boolean abortOwnedReserve(String requestId) {
+        Map<Long, Integer> released = new HashMap<>();
+        forwardedRequests.asMap().compute(requestId, (id, request) -> {
+            // 预扣请求还没有到达：留下撤销标记，之后到达的预扣不再执行
+            if (request == null) {
+                return new ForwardedRequest(Map.of(), new StockForwardVO(false, null), true);
+            }
+            if (!request.aborted && Boolean.TRUE.equals(request.result.getSuccess())) {
+                request.quantities.forEach((tierId, quantity) -> {
+                    releaseOwnedQuantity(tierId, quantity);
+                    released.put(tierId, quantity);
+                });
+            }
+            return new ForwardedRequest(request.quantities, request.result, true);
+        });
+        released.forEach(this::onStockReleased);
+        log.info("撤销转发的预扣: requestId={}, 归还票档: {}", requestId, released.keySet());
+        return !released.isEmpty();
+    }
+
+    @Override
+    public StockForwardVO releaseOwnedStock(String requestId, Long tierId, Integer quantity) {
+        checkOwnedTiers(List.of(tierId));
+        if (quantity == null || quantity <= 0) {
+            throw new IllegalArgumentException("释放数量不合法: tierId=" + tierId);
+        }
+        // 同一请求ID只释放一次；库存归还事件由发起释放的节点发布，这里只修改计数
+        ForwardedRequest request = forwardedRequests.asMap().computeIfAbsent(requestId, id -> new ForwardedRequest(
+                Map.of(tierId, quantity),
+                new StockForwardVO(releaseOwnedQuantity(tierId, quantity), getJournalStocks(List.of(tierId))),
+                false));
+        return request.result;
+    }
+
+    @Override
+    public int retryForwardedStock() {
+        return stockForwardClient.retryPending();
+    }
+
+    @Override
+    public boolean handOffTierStock(Long tierId) {
+        if (!stockConfig.isJournalEngine() || journalStockEngine.getStock(tierId) == null) {
+            return true;
+        }
+        boolean removed = journalStockEngine.handOff(List.of(tierId)) == 1;
+        log.info("移交票档库存: tierId={}, 结果: {}", tierId, removed);
+        return removed;
+    }
+
+    @Override
+    public int rebalanceStockOwnership() {
+        if (!ownershipManager.isEnabled()) {
+            return 0;
+        }
+        return ownershipManager.rebalance();
+    }
+
+    @Override
+    public boolean isTierSoldOut(Long tierId) {
+        return soldOutRegistry.isTierSoldOut(tierId);
+    }
+
+    @Override
+    public void resetSoldOutCache() {
+        soldOutRegistry.clearAll();
+    }
+
+    /**
+     * 以数据库库存为准对账本地日志引擎中的内存计数
+     * @return 本次修正的票档数量
+     */
+    private int reconcileJournalStock() {
+        int corrected = 0;
+        for (Long tierId : journalStockEngine.getLoadedTierIds()) {
+            // 先取同步版本再读数据库，读取之后回写过的票档本次跳过
+            long version = journalStockEngine.getSyncVersion();
+            TicketTier tier = ticketTierMapper.selectById(tierId);
+            if (tier == null) {
+                // 票档已被删除，清理残留计数
+                journalStockEngine.remove(tierId);
+                continue;
+            }
+
+            Integer cachedStock = journalStockEngine.getStock(tierId);
+            if (journalStockEngine.reconcile(tierId, tier.getAvailableStock(), version) == 1) {
+                corrected++;
+                soldOutRegistry.invalidateTier(tierId);
+                log.warn("库存计数与数据库不一致，已修正: tierId={}, journal={}, db={}",
+                        tierId, cachedStock, tier.getAvailableStock());
+            }
+        }
+        return corrected;
+    }
+
+    /**
+     * 分片库存模式下，用各分片可用库存之和覆盖票档库存列表中的是否有库存
+     */
+    private void applyShardStock(List<Map<String, Object>> tierStockList) {
+        if (!stockConfig.isShardEngine() || tierStockList.isEmpty()) {
+            return;
+        }
+        List<Long> tierIds = tierStockList.stream()
+                .map(tier -> ((Number) tier.get("id")).longValue())
+                .collect(Collectors.toList());
+        Map<Long, Integer> shardStocks = shardedStockManager.getAvailableStocks(tierIds);
+        for (Map<String, Object> tier : tierStockList) {
+            Integer shardStock = shardStocks.get(((Number) tier.get("id")).longValue());
+            if (shardStock != null) {
+                tier.put("has_stock", shardStock > 0);
+            }
+        }
+    }
+
+    /**
+     * 库存归还后清除售罄标记，并通知候补名单向排队用户放票
+     */
+    private void onStockReleased(Long tierId, int quantity) {
+        soldOutRegistry.invalidateTier(tierId);
+        eventPublisher.publishEvent(new StockReleasedEvent(tierId, quantity));
+    }
+
+    private int getQuota(Map<Long, Integer> tierLimits, Long tierId) {
+        Integer limit = tierLimits != null ? tierLimits.get(tierId) : null;
+        return limit != null ? limit : 0;
+    }
+
+    /**
+     * Redis引擎的多票档预扣：一个Lua脚本完成全部校验与扣减，未预热的票档懒加载后重试
+     */
+    private boolean reserveRedisBatch(TreeMap<Long, Integer> sorted, Long userId, Long eventId,
+                                      int eventQuota, Map<Long, Integer> tierLimits) {
+        if (degradedStockManager.isDegraded()) {
+            return reserveDegraded(sorted, userId, eventId, eventQuota, tierLimits);
+        }
+        try {
+            return doReserveRedisBatch(sorted, userId, eventId, eventQuota, tierLimits);
+        } catch (DataAccessException e) {
+            if (!degradedStockManager.onRedisFailure(e)) {
+                throw e;
+            }
+            return reserveDegraded(sorted, userId, eventId, eventQuota, tierLimits);
+        }
+    }
+
+    private boolean doReserveRedisBatch(TreeMap<Long, Integer> sorted, Long userId, Long eventId,
+                                        int eventQuota, Map<Long, Integer> tierLimits) {
+        long epoch = soldOutRegistry.currentEpoch();
+        List<Long> tierIds = new ArrayList<>(sorted.keySet());
+        List<Integer> amounts = new ArrayList<>(sorted.values());
+        List<String> tierQuotaKeys = new ArrayList<>(tierIds.size());
+        List<Integer> tierQuotas = new ArrayList<>(tierIds.size());
+        for (Long tierId : tierIds) {
+            tierQuotaKeys.add(RedisPurchaseQuotaStore.getTierKey(userId, tierId));
+            tierQuotas.add(getQuota(tierLimits, tierId));
+        }
+        String eventQuotaKey = RedisPurchaseQuotaStore.getEventKey(userId, eventId);
+
+        List<Long> result = redisStockUtil.reserveBatch(tierIds, amounts, eventQuotaKey, eventQuota,
+                tierQuotaKeys, tierQuotas, quotaConfig.getCounterTtl());
+        // 每次重试至少载入一个票档，最多重试票档数次
+        for (int attempt = 0; attempt < tierIds.size() && result.get(0) == RedisStockUtil.NOT_LOADED; attempt++) {
+            if (!preloadTierStock(tierIds.get(result.get(1).intValue() - 1))) {
+                return false;
+            }
+            result = redisStockUtil.reserveBatch(tierIds, amounts, eventQuotaKey, eventQuota,
+                    tierQuotaKeys, tierQuotas, quotaConfig.getCounterTtl());
+        }
+
+        long status = result.get(0);
+        if (status == RedisStockUtil.QUOTA_EXCEEDED) {
+            log.info("超出限购数量: userId={}, eventId={}, tierIds={}", userId, eventId, tierIds);
+            throw new RuntimeException(QUOTA_EXCEEDED_MESSAGE);
+        }
+        if (status == RedisStockUtil.INSUFFICIENT) {
+            Long tierId = tierIds.get(result.get(1).intValue() - 1);
+            Integer stock = redisStockUtil.getStock(tierId);
+            if (stock != null && stock == 0) {
+                soldOutRegistry.markTierSoldOut(tierId, epoch);
+            }
+            return false;
+        }
+        if (status != 0) {
+            return false;
+        }
+        for (int i = 0; i < tierIds.size(); i++) {
+            if (result.get(i + 1) == 0) {
+                soldOutRegistry.markTierSoldOut(tierIds.get(i), epoch);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Redis不可用时的降级预扣：限购额度记在本节点内存中，库存从本节点的降级分片中扣减，任一步失败都归还已占用的额度
+     */
+    private boolean reserveDegraded(Map<Long, Integer> quantities, Long userId, Long eventId,
+                                    int eventQuota, Map<Long, Integer> tierLimits) {
+        PurchaseQuotaStore quotaStore = degradedStockManager.getQuotaStore();
+        Map<Long, Integer> acquired = new LinkedHashMap<>();
+        boolean reserved = false;
+        try {
+            for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+                int tierQuota = getQuota(tierLimits, entry.getKey());
+                if (eventQuota <= 0 && tierQuota <= 0) {
+                    continue;
+                }
+                if (!quotaStore.tryAcquire(userId, eventId, eventQuota, entry.getKey(), tierQuota, entry.getValue())) {
+                    log.info("超出限购数量（降级）: userId={}, eventId={}, tierId={}, quantity={}",
+                            userId, eventId, entry.getKey(), entry.getValue());
+                    throw new RuntimeException(QUOTA_EXCEEDED_MESSAGE);
+                }
+                acquired.put(entry.getKey(), entry.getValue());
+            }
+            reserved = degradedStockManager.reserveAll(quantities);
+        } finally {
+            if (!reserved) {
+                acquired.forEach((tierId, quantity) -> quotaStore.release(userId, eventId, tierId, quantity));
+            }
+        }
+        return reserved;
+    }
+
+    /**
+     * Redis引擎释放：Redis不可用时释放到本节点的降级分片；未预热时返回 false，由调用方直接归还到数据库
+     */
+    private boolean releaseRedis(Long tierId, int quantity) {
+        if (!degradedStockManager.isDegraded()) {
+            try {
+                return redisStockUtil.release(tierId, quantity) != RedisStockUtil.NOT_LOADED;
+            } catch (DataAccessException e) {
+                if (!degradedStockManager.onRedisFailure(e)) {
+                    throw e;
+                }
+            }
+        }
+        degradedStockManager.release(tierId, quantity);
+        return true;
+    }
+
+    /**
+     * 读取Redis中的库存计数，Redis不可用时返回null（以数据库为准）
+     */
+    private Integer getRedisStock(Long tierId) {
+        try {
+            return redisStockUtil.getStock(tierId);
+        } catch (DataAccessException e) {
+            log.warn("读取Redis库存失败，以数据库库存为准: tierId={}, {}", tierId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 本地日志引擎预扣：开启场次属主路由且场次属于其他节点时转发给属主（多个票档属于同一场次），
+     * 属主拒绝或结果不确定时按预扣失败处理（不确定时转发客户端会撤销这次预扣，属主不会留下占用）
+     */
+    private StockForwardVO reserveJournal(Map<Long, Integer> quantities) {
+        Long tierId = quantities.keySet().iterator().next();
+        if (ownershipManager.isEnabled() && !ownershipManager.isLocalTier(tierId)) {
+            StockForwardVO result = stockForwardClient.reserve(ownershipManager.getOwnerUrl(tierId), quantities);
+            return result != null ? result : new StockForwardVO(false, null);
+        }
+        return reserveJournalLocally(quantities);
+    }
+
+    /**
+     * 在本节点的日志引擎中预扣，多个票档时在写锁内一次校验并扣减；未载入的票档载入后重试一次
+     */
+    private StockForwardVO reserveJournalLocally(Map<Long, Integer> quantities) {
+        long status = reserveJournalOnce(quantities);
+        if (status == JournalStockEngine.NOT_LOADED) {
+            for (Long tierId : quantities.keySet()) {
+                if (journalStockEngine.getStock(tierId) == null && !preloadTierStock(tierId)) {
+                    return new StockForwardVO(false, getJournalStocks(quantities.keySet()));
+                }
+            }
+            status = reserveJournalOnce(quantities);
+        }
+        return new StockForwardVO(status >= 0, getJournalStocks(quantities.keySet()));
+    }
+
+    private long reserveJournalOnce(Map<Long, Integer> quantities) {
+        if (quantities.size() == 1) {
+            Map.Entry<Long, Integer> entry = quantities.entrySet().iterator().next();
+            return journalStockEngine.reserve(entry.getKey(), entry.getValue());
+        }
+        return journalStockEngine.reserveAll(quantities);
+    }
+
+    /**
+     * 根据预扣结果中的库存计数标记售罄（抢到最后一张或库存已为0）
+     */
+    private boolean applyJournalResult(StockForwardVO result, long epoch) {
+        if (result.getStocks() != null) {
+            result.getStocks().forEach((tierId, stock) -> {
+                if (stock != null && stock == 0) {
+                    soldOutRegistry.markTierSoldOut(tierId, epoch);
+                }
+            });
+        }
+        return Boolean.TRUE.equals(result.getSuccess());
+    }
+
+    /**
+     * 转发给属主节点释放：属主未载入计数时由属主归还到数据库，本节点不直接归还到数据库，
+     * 避免转发超时后属主已经释放、本节点又归还一次；结果不确定时由转发客户端排队重发
+     */
+    private boolean releaseForwarded(Long tierId, int quantity) {
+        StockForwardVO result = stockForwardClient.release(ownershipManager.getOwnerUrl(tierId), tierId, quantity);
+        if (result == null || !Boolean.TRUE.equals(result.getSuccess())) {
+            log.warn("属主节点未能归还库存: tierId={}, quantity={}", tierId, quantity);
+            return false;
+        }
+        onStockReleased(tierId, quantity);
+        return true;
+    }
+
+    /**
+     * 属主节点归还库存：计数已载入时归还到计数，否则直接归还到数据库（下次载入时读到）
+     */
+    private boolean releaseOwnedQuantity(Long tierId, int quantity) {
+        if (journalStockEngine.release(tierId, quantity) != JournalStockEngine.NOT_LOADED) {
+            return true;
+        }
+        return ticketTierMapper.releaseStock(tierId, quantity) == 1;
+    }
+
+    /**
+     * 让票档的属主节点回写并移除库存计数（属主是本节点时直接移交）
+     */
+    private boolean handOffOwnedTier(Long tierId) {
+        if (ownershipManager.isLocalTier(tierId)) {
+            return handOffTierStock(tierId);
+        }
+        StockForwardVO result = stockForwardClient.handOff(ownershipManager.getOwnerUrl(tierId), tierId);
+        return result != null && Boolean.TRUE.equals(result.getSuccess());
+    }
+
+    private void checkOwnedTiers(Collection<Long> tierIds) {
+        if (!ownershipManager.isEnabled()) {
+            throw new IllegalStateException("未开启场次属主路由");
+        }
+        for (Long tierId : tierIds) {
+            if (!ownershipManager.isLocalTier(tierId)) {
+                throw new IllegalStateException("当前节点不是场次属主: tierId=" + tierId);
+            }
+        }
+    }
+
+    private Map<Long, Integer> getJournalStocks(Collection<Long> tierIds) {
+        Map<Long, Integer> stocks = new HashMap<>();
+        for (Long tierId : tierIds) {
+            stocks.put(tierId, journalStockEngine.getStock(tierId));
+        }
+        return stocks;
+    }
+
+    /**
+     * 不涉及限购额度的多票档预扣（票档已按ID升序排列）
+     */
+    private boolean reserveStockBatch(TreeMap<Long, Integer> sorted) {
+        long epoch = soldOutRegistry.currentEpoch();
+
+        // 1. Redis引擎（额度由本地存储占用）：同一个Lua脚本，限购传0
+        if (stockConfig.isRedisEngine()) {
+            return reserveRedisBatch(sorted, 0L, 0L, 0, null);
+        }
+
+        // 2. 本地日志引擎：在写锁内一次校验并扣减，场次属于其他节点时整单转发给属主
+        if (stockConfig.isJournalEngine()) {
+            return applyJournalResult(reserveJournal(sorted), epoch);
+        }
+
+        // 3. 分片库存引擎：每个分片扣减都是独立的短事务，按票档ID顺序逐个扣减，失败时逆序归还已扣减的票档
+        if (stockConfig.isShardEngine()) {
+            List<Map.Entry<Long, Integer>> deducted = new ArrayList<>();
+            for (Map.Entry<Long, Integer> entry : sorted.entrySet()) {
+                if (!reserveStock(entry.getKey(), entry.getValue())) {
+                    for (int i = deducted.size() - 1; i >= 0; i--) {
+                        releaseStock(deducted.get(i).getKey(), deducted.get(i).getValue());
+                    }
+                    return false;
+                }
+                deducted.add(entry);
+            }
+            return true;
+        }
+
+        // 4. 数据库引擎：一条UPDATE按主键顺序加锁扣减全部票档，有票档库存不足时回滚，事务内只有这一条语句
+        List<Long> tierIds = new ArrayList<>(sorted.keySet());
+        List<Integer> amounts = new ArrayList<>(sorted.values());
+        Boolean success = transactionTemplate.execute(status -> {
+            if (ticketTierMapper.deductStockBatch(tierIds, amounts) == tierIds.size()) {
+                return true;
+            }
+            status.setRollbackOnly();
+            return false;
+        });
+        if (!Boolean.TRUE.equals(success)) {
+            log.debug("购物车预扣库存失败，已回滚: tierIds={}, quantities={}", tierIds, amounts);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 处理Redis预扣脚本的返回值，抢到最后一张或库存已为0时标记售罄
+     */
+    private boolean handleRedisReserveResult(Long tierId, int quantity, long remain, long epoch) {
+        if (remain < 0) {
+            log.debug("预扣库存失败: tierId={}, quantity={}, result={}", tierId, quantity, remain);
+            Integer stock = remain == RedisStockUtil.INSUFFICIENT ? redisStockUtil.getStock(tierId) : null;
+            if (stock != null && stock == 0) {
+                soldOutRegistry.markTierSoldOut(tierId, epoch);
+            }
+            return false;
+        }
+        if (remain == 0) {
+            // 抢到最后一张票，后续请求在本节点快速失败
+            soldOutRegistry.markTierSoldOut(tierId, epoch);
+        }
+        log.debug("预扣库存成功: tierId={}, quantity={}, 剩余: {}", tierId, quantity, remain);
+        return true;
+    }
+
+    /**
+     * 把单个票档的待回写增量写入数据库
+     * 增量在写入提交前保留在回写中哈希，对账不会用旧的数据库库存覆盖计数；
+     * 写入异常或超出库存区间时都把增量放回待回写哈希，不丢弃已发生的预扣/释放
+     * @return 是否有增量被回写
+     */
+    private boolean flushPendingDelta(Long tierId) {
+        if (stockConfig.isJournalEngine()) {
+            return journalStockEngine.drain(List.of(tierId)) > 0;
+        }
+        long delta = redisStockUtil.drainPending(tierId);
+        if (delta == 0) {
+            return false;
+        }
+        // 一个回写周期的增量用于估算Redis故障时尚未回写的扣减，作为降级领取分片的最低保留量
+        degradedStockManager.recordPending(tierId, delta);
+
+        int affectedRows;
+        try {
+            affectedRows = ticketTierMapper.applyStockDelta(tierId, delta);
+        } catch (Exception e) {
+            log.error("库存增量回写异常，稍后重试: tierId={}, delta={}", tierId, delta, e);
+            redisStockUtil.restorePending(tierId, delta);
+            return false;
+        }
+
+        if (affectedRows != 1) {
+            // 增量对应真实的预扣/释放，不能丢弃；放回后对账会一直跳过该票档，需人工核对库存
+            TicketTier tier = ticketTierMapper.selectById(tierId);
+            log.error("库存增量回写失败，票档不存在或库存越界，增量已放回待回写: tierId={}, delta={}, db={}",
+                    tierId, delta, tier != null ? tier.getAvailableStock() : null);
+            redisStockUtil.restorePending(tierId, delta);
+            return false;
+        }
+        redisStockUtil.commitInflight(tierId, delta);
+        if (delta < 0) {
+            // 净归还的库存已写入数据库，基于数据库的售罄快照需要失效
+            soldOutRegistry.invalidateTier(tierId);
+        }
+        return true;
+    }
+
     /**
      * 校验票档价格逻辑（新增时）
      * 规则：
@@ -635,4 +1906,36 @@ public class TicketTierServiceImpl implements TicketTierService {
 
         return vo;
     }
-}
\ No newline at end of file
+
+    /**
+     * 合并查询的场次库存结果，由并发请求共享，使用前复制票档列表
+     */
+    private static final class SessionStock {
+        // 查询前的售罄标记版本
+        private final long epoch;
+        private final EventSession session;
+        private final List<Map<String, Object>> tierStockList;
+
+        private SessionStock(long epoch, EventSession session, List<Map<String, Object>> tierStockList) {
+            this.epoch = epoch;
+            this.session = session;
+            this.tierStockList = tierStockList;
+        }
+    }
+
+    /**
+     * 属主节点执行过的转发请求
+     */
+    private static final class ForwardedRequest {
+        private final Map<Long, Integer> quantities;
+        private final StockForwardVO result;
+        // 转发方已撤销（仅预扣）
+        private final boolean aborted;
+
+        private ForwardedRequest(Map<Long, Integer> quantities, StockForwardVO result, boolean aborted) {
+            this.quantities = quantities;
+            this.result = result;
+            this.aborted = aborted;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package org.example.ticketmanagement.serviceimpl;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.config.WaitlistConfig;
+import org.example.ticketmanagement.event.StockReleasedEvent;
+import org.example.ticketmanagement.mapper.TicketTierMapper;
+import org.example.ticketmanagement.pojo.TicketTier;
+import org.example.ticketmanagement.service.TicketTierService;
+import org.example.ticketmanagement.service.WaitlistService;
+import org.example.ticketmanagement.store.WaitlistStore;
+import org.example.ticketmanagement.util.ClusterBroadcaster;
+import org.example.ticketmanagement.util.DegradedStockManager;
+import org.example.ticketmanagement.vo.WaitlistVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 售罄票档候补名单
+ * 库存归还时只把票档记为待放票，由定时任务按批从队首放票：每批最多 batchSize 人，
+ * 每人获得 claimWindow 秒的购买机会，放票数量不超过“可用库存 - 未过期的购买机会数”；
+ * 放票后直到这批购买机会全部过期或用掉，该票档只允许持有购买机会的用户购买，保证候补用户优先
+ * （最后一批放票清空了候补队列时同样如此，否则为购买机会保留的库存会被其他用户买走）
+ * 候补用户按排位获得建议的查询间隔，排位越靠后查询越少，归还大量库存时不会引发轮询风暴
+ */
+@Slf4j
+@Service
+public class WaitlistServiceImpl implements WaitlistService {
+
+    // 候补状态
+    private static final int STATUS_NOT_WAITING = 0;
+    private static final int STATUS_WAITING = 1;
+    private static final int STATUS_OFFERED = 2;
+    private static final String TOPIC = "waitlist-offer";
+    // 每个购买机会可购买的张数，放票时按张数扣除可用库存
+    private static final int CLAIM_QUANTITY = 1;
+
+    @Autowired
+    private WaitlistStore waitlistStore;
+
+    @Autowired
+    private WaitlistConfig waitlistConfig;
+
+    @Autowired
+    private TicketTierMapper ticketTierMapper;
+
+    @Autowired
+    private TicketTierService ticketTierService;
+
+    @Autowired
+    private ClusterBroadcaster clusterBroadcaster;
+
+    @Autowired
+    private DegradedStockManager degradedStockManager;
+
+    // 本节点有库存归还、等待放票的票档
+    private final Set<Long> releasedTiers = ConcurrentHashMap.newKeySet();
+    // 正在向候补用户优先放票的票档 -> 优先购买截止时间（毫秒时间戳）
+    private final ConcurrentHashMap<Long, Long> priorityDeadlines = new ConcurrentHashMap<>();
+    private long lastSweepMillis;
+
+    @PostConstruct
+    public void init() {
+        // 其他节点放票后同步优先购买截止时间，消息格式：票档ID:截止时间
+        clusterBroadcaster.subscribe(TOPIC, payload -> {
+            int index = payload.indexOf(':');
+            priorityDeadlines.merge(Long.valueOf(payload.substring(0, index)),
+                    Long.valueOf(payload.substring(index + 1)), Math::max);
+        });
+    }
+
+    @EventListener
+    public void onStockReleased(StockReleasedEvent event) {
+        releasedTiers.add(event.getTierId());
+    }
+
+    @Override
+    public WaitlistVO join(Long tierId, Long userId) {
+        log.info("加入候补名单，票档ID: {}, 用户ID: {}", tierId, userId);
+
+        // 1. 校验票档是否存在且启用
+        TicketTier tier = ticketTierMapper.selectById(tierId);
+        if (tier == null || tier.getStatus() != 1) {
+            throw new RuntimeException("票档不存在或已停售");
+        }
+
+        // 2. 已获得购买机会，直接返回
+        Long claimExpireAt = waitlistStore.getClaimExpireAt(tierId, userId);
+        if (claimExpireAt != null) {
+            return buildOfferedVO(tierId, claimExpireAt);
+        }
+
+        // 3. 有余票且不在优先放票期间时直接购买即可
+        if (!isPriorityActive(tierId, System.currentTimeMillis())) {
+            Integer available = ticketTierService.getAvailableStock(tierId);
+            if (available != null && available > 0) {
+                throw new RuntimeException("票档尚有余票，请直接购买");
+            }
+        }
+
+        // 4. 加入候补队列（重复加入保持原位置）
+        long position = waitlistStore.join(tierId, userId);
+        return buildWaitingVO(tierId, position);
+    }
+
+    @Override
+    public WaitlistVO getWaitlistStatus(Long tierId, Long userId) {
+        log.debug("查询候补状态，票档ID: {}, 用户ID: {}", tierId, userId);
+
+        Long claimExpireAt = waitlistStore.getClaimExpireAt(tierId, userId);
+        if (claimExpireAt != null) {
+            return buildOfferedVO(tierId, claimExpireAt);
+        }
+        Long position = waitlistStore.getPosition(tierId, userId);
+        if (position == null) {
+            return new WaitlistVO(tierId, STATUS_NOT_WAITING, null, waitlistStore.size(tierId), null, null);
+        }
+        return buildWaitingVO(tierId, position);
+    }
+
+    @Override
+    public boolean leave(Long tierId, Long userId) {
+        log.info("退出候补名单，票档ID: {}, 用户ID: {}", tierId, userId);
+        return waitlistStore.leave(tierId, userId);
+    }
+
+    @Override
+    public Long takeClaim(Long tierId, Long userId, int quantity) {
+        // 不在优先放票期间时不产生任何I/O
+        long now = System.currentTimeMillis();
+        if (!isPriorityActive(tierId, now)) {
+            return null;
+        }
+        if (quantity > CLAIM_QUANTITY) {
+            throw new RuntimeException("候补购买机会每次只能购买" + CLAIM_QUANTITY + "张");
+        }
+        // Redis降级期间无法取走购买机会，不再限制只有候补用户可以购买
+        if (waitlistConfig.isRedisStore() && degradedStockManager.isDegraded()) {
+            return null;
+        }
+        Long claimExpireAt;
+        try {
+            claimExpireAt = waitlistStore.takeClaim(tierId, userId, now);
+        } catch (DataAccessException e) {
+            if (!waitlistConfig.isRedisStore() || !degradedStockManager.failOpen(e)) {
+                throw e;
+            }
+            log.warn("取走候补购买机会失败，Redis降级期间放行: tierId={}, userId={}", tierId, userId);
+            return null;
+        }
+        if (claimExpireAt == null) {
+            throw new RuntimeException("该票档正在向候补用户放票，请加入候补或稍后再试");
+        }
+        return claimExpireAt;
+    }
+
+    @Override
+    public void restoreClaim(Long tierId, Long userId, Long claimExpireAt) {
+        if (claimExpireAt == null) {
+            return;
+        }
+        try {
+            waitlistStore.restoreClaim(tierId, userId, claimExpireAt, System.currentTimeMillis());
+        } catch (Exception e) {
+            log.error("归还候补购买机会失败: tierId={}, userId={}", tierId, userId, e);
+        }
+    }
+
+    @Override
+    public synchronized int dispatchOffers() {
+        long now = System.currentTimeMillis();
+
+        // 1. 待放票的票档：本节点有库存归还的票档，每个全量检查周期再加上所有候补票档
+        Set<Long> tierIds = new HashSet<>();
+        for (Long tierId : releasedTiers) {
+            releasedTiers.remove(tierId);
+            tierIds.add(tierId);
+        }
+        if (now - lastSweepMillis >= waitlistConfig.getSweepInterval()) {
+            lastSweepMillis = now;
+            Map<Long, Long> deadlines = Map.copyOf(priorityDeadlines);
+            Set<Long> activeTierIds = waitlistStore.getActiveTierIds();
+            tierIds.addAll(activeTierIds);
+            // 购买时限已过，或候补队列与购买机会都已清空（购买机会都已用掉）时结束优先购买；
+            // 按读到的截止时间移除，期间其他节点又放票延长了截止时间的不移除
+            deadlines.forEach((tierId, deadline) -> {
+                if (deadline <= now || !activeTierIds.contains(tierId)) {
+                    priorityDeadlines.remove(tierId, deadline);
+                }
+            });
+        }
+
+        // 2. 逐个票档按可用库存从队首放票
+        int offered = 0;
+        for (Long tierId : tierIds) {
+            try {
+                offered += offerTier(tierId, now);
+            } catch (Exception e) {
+                log.error("候补放票失败: tierId={}", tierId, e);
+            }
+        }
+        return offered;
+    }
+
+    /**
+     * 向单个票档的候补队首放一批票
+     * @return 本次放票人数
+     */
+    private int offerTier(Long tierId, long now) {
+        waitlistStore.cleanup(tierId, now);
+        if (waitlistStore.size(tierId) == 0) {
+            return 0;
+        }
+        Integer available = ticketTierService.getAvailableStock(tierId);
+        if (available == null || available <= 0) {
+            return 0;
+        }
+
+        long expireAt = now + waitlistConfig.getClaimWindow() * 1000;
+        List<Long> users = waitlistStore.offer(tierId, available, waitlistConfig.getBatchSize(), now, expireAt);
+        if (users.isEmpty()) {
+            return 0;
+        }
+
+        // 购买机会未过期或未用掉之前只允许持有购买机会的用户购买，与队列中是否还有人候补无关
+        priorityDeadlines.merge(tierId, expireAt, Math::max);
+        clusterBroadcaster.publish(TOPIC, tierId + ":" + expireAt);
+        log.info("候补放票: tierId={}, 可用库存: {}, 放票人数: {}", tierId, available, users.size());
+        return users.size();
+    }
+
+    private boolean isPriorityActive(Long tierId, long now) {
+        Long deadline = priorityDeadlines.get(tierId);
+        return deadline != null && deadline > now;
+    }
+
+    /**
+     * 内部辅助方法：构建候补中的状态，排位越靠后建议的查询间隔越长
+     */
+    private WaitlistVO buildWaitingVO(Long tierId, long position) {
+        long batches = position / Math.max(1, waitlistConfig.getBatchSize()) + 1;
+        long nextCheckSeconds = Math.min(waitlistConfig.getMaxPollInterval(),
+                batches * waitlistConfig.getMinPollInterval());
+        return new WaitlistVO(tierId, STATUS_WAITING, position, waitlistStore.size(tierId), null, nextCheckSeconds);
+    }
+
+    /**
+     * 内部辅助方法：构建已获得购买机会的状态
+     */
+    private WaitlistVO buildOfferedVO(Long tierId, long claimExpireAt) {
+        LocalDateTime expireTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(claimExpireAt), ZoneId.systemDefault());
+        return new WaitlistVO(tierId, STATUS_OFFERED, null, waitlistStore.size(tierId), expireTime, null);
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.ticketmanagement.store;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 排队入场队列存储
+ * 每个场次一个等候队列（按排队先后排序）和一个已放行集合（带资格过期时间）
+ */
+public interface AdmissionQueueStore {
+
+    /**
+     * 加入等候队列，重复排队保持原位置
+     * @return 当前排位（从0开始）
+     */
+    long enqueue(Long sessionId, Long userId);
+
+    /**
+     * 查询排位
+     * @return 排位（从0开始），不在等候队列中返回null
+     */
+    Long getPosition(Long sessionId, Long userId);
+
+    /**
+     * 从队首放行指定人数，放行的用户获得截止到 expireAtMillis 的购买资格
+     * @return 本次放行的用户ID
+     */
+    List<Long> admit(Long sessionId, int count, long expireAtMillis);
+
+    /**
+     * 查询购买资格的过期时间（毫秒时间戳），未放行或已过期返回null
+     */
+    Long getAdmissionExpireAt(Long sessionId, Long userId);
+
+    /**
+     * 等候队列长度
+     */
+    long size(Long sessionId);
+
+    /**
+     * 清理过期的购买资格，等候队列和已放行集合都为空时移出活跃场次
+     */
+    void cleanup(Long sessionId, long nowMillis);
+
+    /**
+     * 有人排队或持有购买资格的场次
+     */
+    Set<Long> getActiveSessionIds();
+}
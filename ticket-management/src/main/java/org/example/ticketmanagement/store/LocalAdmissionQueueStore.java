@@ -0,0 +1,128 @@
+package org.example.ticketmanagement.store;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 本地内存排队入场队列，仅在单节点部署或测试时使用
+ * 只从队首出队，队列中的序号始终连续，排位 = 自己的序号 - 队首序号
+ */
+@Component
+@ConditionalOnProperty(prefix = "admission", name = "store", havingValue = "local")
+public class LocalAdmissionQueueStore implements AdmissionQueueStore {
+
+    private final ConcurrentHashMap<Long, SessionQueue> queues = new ConcurrentHashMap<>();
+
+    @Override
+    public long enqueue(Long sessionId, Long userId) {
+        while (true) {
+            SessionQueue queue = queues.computeIfAbsent(sessionId, id -> new SessionQueue());
+            synchronized (queue) {
+                // 队列刚被清理移除时重新创建
+                if (queue.removed) {
+                    continue;
+                }
+                Long seq = queue.seqByUser.get(userId);
+                if (seq == null) {
+                    seq = queue.headSeq + queue.waiting.size();
+                    queue.seqByUser.put(userId, seq);
+                    queue.waiting.addLast(userId);
+                }
+                return seq - queue.headSeq;
+            }
+        }
+    }
+
+    @Override
+    public Long getPosition(Long sessionId, Long userId) {
+        SessionQueue queue = queues.get(sessionId);
+        if (queue == null) {
+            return null;
+        }
+        synchronized (queue) {
+            Long seq = queue.seqByUser.get(userId);
+            return seq != null ? seq - queue.headSeq : null;
+        }
+    }
+
+    @Override
+    public List<Long> admit(Long sessionId, int count, long expireAtMillis) {
+        List<Long> admitted = new ArrayList<>();
+        SessionQueue queue = queues.get(sessionId);
+        if (queue == null) {
+            return admitted;
+        }
+        synchronized (queue) {
+            while (admitted.size() < count && !queue.waiting.isEmpty()) {
+                Long userId = queue.waiting.pollFirst();
+                queue.seqByUser.remove(userId);
+                queue.headSeq++;
+                queue.admitted.put(userId, expireAtMillis);
+                admitted.add(userId);
+            }
+        }
+        return admitted;
+    }
+
+    @Override
+    public Long getAdmissionExpireAt(Long sessionId, Long userId) {
+        SessionQueue queue = queues.get(sessionId);
+        if (queue == null) {
+            return null;
+        }
+        synchronized (queue) {
+            Long expireAt = queue.admitted.get(userId);
+            return expireAt != null && expireAt > System.currentTimeMillis() ? expireAt : null;
+        }
+    }
+
+    @Override
+    public long size(Long sessionId) {
+        SessionQueue queue = queues.get(sessionId);
+        if (queue == null) {
+            return 0L;
+        }
+        synchronized (queue) {
+            return queue.waiting.size();
+        }
+    }
+
+    @Override
+    public void cleanup(Long sessionId, long nowMillis) {
+        SessionQueue queue = queues.get(sessionId);
+        if (queue == null) {
+            return;
+        }
+        synchronized (queue) {
+            queue.admitted.values().removeIf(expireAt -> expireAt <= nowMillis);
+            if (queue.waiting.isEmpty() && queue.admitted.isEmpty()) {
+                queue.removed = true;
+                queues.remove(sessionId, queue);
+            }
+        }
+    }
+
+    @Override
+    public Set<Long> getActiveSessionIds() {
+        return Set.copyOf(queues.keySet());
+    }
+
+    /**
+     * 单个场次的队列，所有访问都在该对象上同步
+     */
+    private static class SessionQueue {
+        private final ArrayDeque<Long> waiting = new ArrayDeque<>();
+        private final Map<Long, Long> seqByUser = new HashMap<>();
+        private final Map<Long, Long> admitted = new HashMap<>();
+        private long headSeq;
+        private boolean removed;
+    }
+}
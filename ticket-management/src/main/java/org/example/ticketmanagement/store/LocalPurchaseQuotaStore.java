@@ -0,0 +1,69 @@
+package org.example.ticketmanagement.store;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 本地内存限购额度，仅在单节点部署或测试时使用
+ * 按用户ID分段加锁，同一用户的两个维度计数在同一把锁内校验和累加
+ */
+@Component
+@ConditionalOnProperty(prefix = "quota", name = "store", havingValue = "local")
+public class LocalPurchaseQuotaStore implements PurchaseQuotaStore {
+
+    private static final int SEGMENTS = 64;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    public LocalPurchaseQuotaStore() {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    @Override
+    public boolean tryAcquire(Long userId, Long eventId, int eventLimit, Long tierId, int tierLimit, int quantity) {
+        Segment segment = segmentFor(userId);
+        String eventKey = "event:" + eventId + ":" + userId;
+        String tierKey = "tier:" + tierId + ":" + userId;
+        synchronized (segment) {
+            if (eventLimit > 0 && segment.used.getOrDefault(eventKey, 0) + quantity > eventLimit) {
+                return false;
+            }
+            if (tierLimit > 0 && segment.used.getOrDefault(tierKey, 0) + quantity > tierLimit) {
+                return false;
+            }
+            if (eventLimit > 0) {
+                segment.used.merge(eventKey, quantity, Integer::sum);
+            }
+            if (tierLimit > 0) {
+                segment.used.merge(tierKey, quantity, Integer::sum);
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public void release(Long userId, Long eventId, Long tierId, int quantity) {
+        Segment segment = segmentFor(userId);
+        synchronized (segment) {
+            decrease(segment, "event:" + eventId + ":" + userId, quantity);
+            decrease(segment, "tier:" + tierId + ":" + userId, quantity);
+        }
+    }
+
+    private void decrease(Segment segment, String key, int quantity) {
+        segment.used.computeIfPresent(key, (k, used) -> used > quantity ? used - quantity : null);
+    }
+
+    private Segment segmentFor(Long userId) {
+        return segments[(Long.hashCode(userId) & Integer.MAX_VALUE) % SEGMENTS];
+    }
+
+    private static final class Segment {
+        private final Map<String, Integer> used = new HashMap<>();
+    }
+}
@@ -0,0 +1,175 @@
+package org.example.ticketmanagement.store;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 本地内存候补名单，仅在单节点部署或测试时使用
+ * 用户可以从队列中间退出，队列按序号排序，排位 = 序号更小的用户数
+ */
+@Component
+@ConditionalOnProperty(prefix = "waitlist", name = "store", havingValue = "local")
+public class LocalWaitlistStore implements WaitlistStore {
+
+    private final ConcurrentHashMap<Long, TierWaitlist> waitlists = new ConcurrentHashMap<>();
+
+    @Override
+    public long join(Long tierId, Long userId) {
+        while (true) {
+            TierWaitlist waitlist = waitlists.computeIfAbsent(tierId, id -> new TierWaitlist());
+            synchronized (waitlist) {
+                // 名单刚被清理移除时重新创建
+                if (waitlist.removed) {
+                    continue;
+                }
+                Long seq = waitlist.seqByUser.get(userId);
+                if (seq == null) {
+                    seq = ++waitlist.lastSeq;
+                    waitlist.seqByUser.put(userId, seq);
+                    waitlist.waiting.put(seq, userId);
+                }
+                return waitlist.waiting.headMap(seq).size();
+            }
+        }
+    }
+
+    @Override
+    public Long getPosition(Long tierId, Long userId) {
+        TierWaitlist waitlist = waitlists.get(tierId);
+        if (waitlist == null) {
+            return null;
+        }
+        synchronized (waitlist) {
+            Long seq = waitlist.seqByUser.get(userId);
+            return seq != null ? (long) waitlist.waiting.headMap(seq).size() : null;
+        }
+    }
+
+    @Override
+    public boolean leave(Long tierId, Long userId) {
+        TierWaitlist waitlist = waitlists.get(tierId);
+        if (waitlist == null) {
+            return false;
+        }
+        synchronized (waitlist) {
+            Long seq = waitlist.seqByUser.remove(userId);
+            if (seq == null) {
+                return false;
+            }
+            waitlist.waiting.remove(seq);
+            return true;
+        }
+    }
+
+    @Override
+    public List<Long> offer(Long tierId, int available, int batchSize, long nowMillis, long expireAtMillis) {
+        List<Long> offered = new ArrayList<>();
+        TierWaitlist waitlist = waitlists.get(tierId);
+        if (waitlist == null) {
+            return offered;
+        }
+        synchronized (waitlist) {
+            waitlist.claims.values().removeIf(expireAt -> expireAt <= nowMillis);
+            int count = Math.min(available - waitlist.claims.size(), batchSize);
+            while (offered.size() < count && !waitlist.waiting.isEmpty()) {
+                Long userId = waitlist.waiting.pollFirstEntry().getValue();
+                waitlist.seqByUser.remove(userId);
+                waitlist.claims.put(userId, expireAtMillis);
+                offered.add(userId);
+            }
+        }
+        return offered;
+    }
+
+    @Override
+    public Long getClaimExpireAt(Long tierId, Long userId) {
+        TierWaitlist waitlist = waitlists.get(tierId);
+        if (waitlist == null) {
+            return null;
+        }
+        synchronized (waitlist) {
+            Long expireAt = waitlist.claims.get(userId);
+            return expireAt != null && expireAt > System.currentTimeMillis() ? expireAt : null;
+        }
+    }
+
+    @Override
+    public Long takeClaim(Long tierId, Long userId, long nowMillis) {
+        TierWaitlist waitlist = waitlists.get(tierId);
+        if (waitlist == null) {
+            return null;
+        }
+        synchronized (waitlist) {
+            Long expireAt = waitlist.claims.remove(userId);
+            return expireAt != null && expireAt > nowMillis ? expireAt : null;
+        }
+    }
+
+    @Override
+    public void restoreClaim(Long tierId, Long userId, long expireAtMillis, long nowMillis) {
+        if (expireAtMillis <= nowMillis) {
+            return;
+        }
+        while (true) {
+            TierWaitlist waitlist = waitlists.computeIfAbsent(tierId, id -> new TierWaitlist());
+            synchronized (waitlist) {
+                // 名单刚被清理移除时重新创建
+                if (waitlist.removed) {
+                    continue;
+                }
+                waitlist.claims.put(userId, expireAtMillis);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public long size(Long tierId) {
+        TierWaitlist waitlist = waitlists.get(tierId);
+        if (waitlist == null) {
+            return 0L;
+        }
+        synchronized (waitlist) {
+            return waitlist.waiting.size();
+        }
+    }
+
+    @Override
+    public void cleanup(Long tierId, long nowMillis) {
+        TierWaitlist waitlist = waitlists.get(tierId);
+        if (waitlist == null) {
+            return;
+        }
+        synchronized (waitlist) {
+            waitlist.claims.values().removeIf(expireAt -> expireAt <= nowMillis);
+            if (waitlist.waiting.isEmpty() && waitlist.claims.isEmpty()) {
+                waitlist.removed = true;
+                waitlists.remove(tierId, waitlist);
+            }
+        }
+    }
+
+    @Override
+    public Set<Long> getActiveTierIds() {
+        return Set.copyOf(waitlists.keySet());
+    }
+
+    /**
+     * 单个票档的候补名单，所有访问都在该对象上同步
+     */
+    private static class TierWaitlist {
+        private final TreeMap<Long, Long> waiting = new TreeMap<>();
+        private final Map<Long, Long> seqByUser = new HashMap<>();
+        private final Map<Long, Long> claims = new HashMap<>();
+        private long lastSeq;
+        private boolean removed;
+    }
+}
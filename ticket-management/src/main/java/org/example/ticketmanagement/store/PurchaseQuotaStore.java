@@ -0,0 +1,19 @@
+package org.example.ticketmanagement.store;
+
+/**
+ * 用户限购额度计数存储
+ * 每个用户在每个演出、每个票档上各有一个已购数量计数，限购数量为0表示该维度不限购（也不计数）
+ */
+public interface PurchaseQuotaStore {
+
+    /**
+     * 校验并占用额度：两个维度都不超限时同时累加，否则都不变
+     * @return 占用成功返回 true，超出限购返回 false
+     */
+    boolean tryAcquire(Long userId, Long eventId, int eventLimit, Long tierId, int tierLimit, int quantity);
+
+    /**
+     * 归还额度（订单取消、超时使用），计数最多减到0
+     */
+    void release(Long userId, Long eventId, Long tierId, int quantity);
+}
@@ -0,0 +1,135 @@
+package org.example.ticketmanagement.store;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 基于Redis有序集合的排队入场队列，多节点共享同一队列
+ * 等候队列以自增序号为分数保证先来先放行，已放行集合以资格过期时间为分数
+ */
+@Component
+@ConditionalOnProperty(prefix = "admission", name = "store", havingValue = "redis", matchIfMissing = true)
+public class RedisAdmissionQueueStore implements AdmissionQueueStore {
+
+    private static final String QUEUE_KEY_PREFIX = "admission:queue:";
+    private static final String SEQ_KEY_PREFIX = "admission:seq:";
+    private static final String ADMITTED_KEY_PREFIX = "admission:admitted:";
+    // 活跃场次ID集合
+    private static final String SESSIONS_KEY = "admission:sessions";
+
+    /**
+     * 排队：已在队列中直接返回排位，否则以自增序号入队
+     */
+    private static final DefaultRedisScript<Long> ENQUEUE_SCRIPT = new DefaultRedisScript<>(
+            "local rank = redis.call('ZRANK', KEYS[1], ARGV[1]) " +
+            "if rank then return rank end " +
+            "local seq = redis.call('INCR', KEYS[2]) " +
+            "redis.call('ZADD', KEYS[1], seq, ARGV[1]) " +
+            "redis.call('SADD', KEYS[3], ARGV[2]) " +
+            "return redis.call('ZRANK', KEYS[1], ARGV[1])", Long.class);
+
+    /**
+     * 放行：取出队首N人写入已放行集合，多个节点同时放行也不会重复
+     */
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> ADMIT_SCRIPT = new DefaultRedisScript<>(
+            "local users = redis.call('ZRANGE', KEYS[1], 0, tonumber(ARGV[1]) - 1) " +
+            "for _, user in ipairs(users) do " +
+            "  redis.call('ZADD', KEYS[2], ARGV[2], user) " +
+            "end " +
+            "if #users > 0 then redis.call('ZREMRANGEBYRANK', KEYS[1], 0, #users - 1) end " +
+            "return users", List.class);
+
+    /**
+     * 清理过期资格，队列和已放行集合都为空时移出活跃场次
+     */
+    private static final DefaultRedisScript<Long> CLEANUP_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('ZREMRANGEBYSCORE', KEYS[2], '-inf', ARGV[1]) " +
+            "if redis.call('ZCARD', KEYS[1]) == 0 and redis.call('ZCARD', KEYS[2]) == 0 then " +
+            "  redis.call('SREM', KEYS[3], ARGV[2]) " +
+            "  redis.call('DEL', KEYS[4]) " +
+            "  return 1 " +
+            "end " +
+            "return 0", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Override
+    public long enqueue(Long sessionId, Long userId) {
+        Long rank = stringRedisTemplate.execute(ENQUEUE_SCRIPT,
+                List.of(getQueueKey(sessionId), SEQ_KEY_PREFIX + sessionId, SESSIONS_KEY),
+                String.valueOf(userId), String.valueOf(sessionId));
+        return rank != null ? rank : 0L;
+    }
+
+    @Override
+    public Long getPosition(Long sessionId, Long userId) {
+        return stringRedisTemplate.opsForZSet().rank(getQueueKey(sessionId), String.valueOf(userId));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Long> admit(Long sessionId, int count, long expireAtMillis) {
+        List<String> users = stringRedisTemplate.execute(ADMIT_SCRIPT,
+                List.of(getQueueKey(sessionId), getAdmittedKey(sessionId)),
+                String.valueOf(count), String.valueOf(expireAtMillis));
+        List<Long> userIds = new ArrayList<>();
+        if (users != null) {
+            for (String user : users) {
+                userIds.add(Long.valueOf(user));
+            }
+        }
+        return userIds;
+    }
+
+    @Override
+    public Long getAdmissionExpireAt(Long sessionId, Long userId) {
+        Double score = stringRedisTemplate.opsForZSet().score(getAdmittedKey(sessionId), String.valueOf(userId));
+        if (score == null || score.longValue() <= System.currentTimeMillis()) {
+            return null;
+        }
+        return score.longValue();
+    }
+
+    @Override
+    public long size(Long sessionId) {
+        Long size = stringRedisTemplate.opsForZSet().zCard(getQueueKey(sessionId));
+        return size != null ? size : 0L;
+    }
+
+    @Override
+    public void cleanup(Long sessionId, long nowMillis) {
+        stringRedisTemplate.execute(CLEANUP_SCRIPT,
+                List.of(getQueueKey(sessionId), getAdmittedKey(sessionId), SESSIONS_KEY, SEQ_KEY_PREFIX + sessionId),
+                String.valueOf(nowMillis), String.valueOf(sessionId));
+    }
+
+    @Override
+    public Set<Long> getActiveSessionIds() {
+        Set<String> members = stringRedisTemplate.opsForSet().members(SESSIONS_KEY);
+        Set<Long> sessionIds = new HashSet<>();
+        if (members != null) {
+            for (String member : members) {
+                sessionIds.add(Long.valueOf(member));
+            }
+        }
+        return sessionIds;
+    }
+
+    private String getQueueKey(Long sessionId) {
+        return QUEUE_KEY_PREFIX + sessionId;
+    }
+
+    private String getAdmittedKey(Long sessionId) {
+        return ADMITTED_KEY_PREFIX + sessionId;
+    }
+}
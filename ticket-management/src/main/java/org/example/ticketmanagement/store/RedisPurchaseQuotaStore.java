@@ -0,0 +1,81 @@
+package org.example.ticketmanagement.store;
+
+import org.example.ticketmanagement.config.QuotaConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 基于Redis计数的限购额度，多节点共享同一计数
+ * Redis库存引擎下额度校验直接合并进库存预扣脚本（见 RedisStockUtil），这里的计数键与其共用
+ */
+@Component
+@ConditionalOnProperty(prefix = "quota", name = "store", havingValue = "redis", matchIfMissing = true)
+public class RedisPurchaseQuotaStore implements PurchaseQuotaStore {
+
+    private static final String EVENT_KEY_PREFIX = "quota:event:";
+    private static final String TIER_KEY_PREFIX = "quota:tier:";
+
+    /**
+     * 占用额度：两个维度都不超限时才累加，返回 1-成功，0-超限
+     */
+    private static final DefaultRedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "local qty = tonumber(ARGV[3]) " +
+            "for i = 1, 2 do " +
+            "  local limit = tonumber(ARGV[i]) " +
+            "  if limit > 0 and tonumber(redis.call('GET', KEYS[i]) or '0') + qty > limit then return 0 end " +
+            "end " +
+            "for i = 1, 2 do " +
+            "  if tonumber(ARGV[i]) > 0 then " +
+            "    redis.call('INCRBY', KEYS[i], qty) " +
+            "    redis.call('EXPIRE', KEYS[i], ARGV[4]) " +
+            "  end " +
+            "end " +
+            "return 1", Long.class);
+
+    /**
+     * 归还额度：计数最多减到0，减完删除
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "local qty = tonumber(ARGV[1]) " +
+            "for i = 1, 2 do " +
+            "  local used = tonumber(redis.call('GET', KEYS[i]) or '0') " +
+            "  if used > qty then redis.call('DECRBY', KEYS[i], qty) " +
+            "  elseif used > 0 then redis.call('DEL', KEYS[i]) end " +
+            "end " +
+            "return 1", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private QuotaConfig quotaConfig;
+
+    @Override
+    public boolean tryAcquire(Long userId, Long eventId, int eventLimit, Long tierId, int tierLimit, int quantity) {
+        Long result = stringRedisTemplate.execute(ACQUIRE_SCRIPT,
+                List.of(getEventKey(userId, eventId), getTierKey(userId, tierId)),
+                String.valueOf(eventLimit), String.valueOf(tierLimit),
+                String.valueOf(quantity), String.valueOf(quotaConfig.getCounterTtl()));
+        return result != null && result == 1L;
+    }
+
+    @Override
+    public void release(Long userId, Long eventId, Long tierId, int quantity) {
+        stringRedisTemplate.execute(RELEASE_SCRIPT,
+                List.of(getEventKey(userId, eventId), getTierKey(userId, tierId)),
+                String.valueOf(quantity));
+    }
+
+    public static String getEventKey(Long userId, Long eventId) {
+        return EVENT_KEY_PREFIX + eventId + ":" + userId;
+    }
+
+    public static String getTierKey(Long userId, Long tierId) {
+        return TIER_KEY_PREFIX + tierId + ":" + userId;
+    }
+}
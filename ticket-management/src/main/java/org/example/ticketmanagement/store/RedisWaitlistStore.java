@@ -0,0 +1,178 @@
+package org.example.ticketmanagement.store;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 基于Redis有序集合的候补名单，多节点共享
+ * 候补队列以自增序号为分数保证先来先得，已放票集合以购买时限为分数
+ */
+@Component
+@ConditionalOnProperty(prefix = "waitlist", name = "store", havingValue = "redis", matchIfMissing = true)
+public class RedisWaitlistStore implements WaitlistStore {
+
+    private static final String QUEUE_KEY_PREFIX = "waitlist:queue:";
+    private static final String SEQ_KEY_PREFIX = "waitlist:seq:";
+    private static final String CLAIMS_KEY_PREFIX = "waitlist:claims:";
+    // 活跃票档ID集合
+    private static final String TIERS_KEY = "waitlist:tiers";
+
+    /**
+     * 加入候补：已在队列中直接返回排位，否则以自增序号入队
+     */
+    private static final DefaultRedisScript<Long> JOIN_SCRIPT = new DefaultRedisScript<>(
+            "local rank = redis.call('ZRANK', KEYS[1], ARGV[1]) " +
+            "if rank then return rank end " +
+            "local seq = redis.call('INCR', KEYS[2]) " +
+            "redis.call('ZADD', KEYS[1], seq, ARGV[1]) " +
+            "redis.call('SADD', KEYS[3], ARGV[2]) " +
+            "return redis.call('ZRANK', KEYS[1], ARGV[1])", Long.class);
+
+    /**
+     * 放票：扣除未过期的购买机会后按可放数量取出队首用户写入已放票集合，多个节点同时放票也不会超放
+     */
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> OFFER_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('ZREMRANGEBYSCORE', KEYS[2], '-inf', ARGV[3]) " +
+            "local count = math.min(tonumber(ARGV[1]) - redis.call('ZCARD', KEYS[2]), tonumber(ARGV[2])) " +
+            "if count <= 0 then return {} end " +
+            "local users = redis.call('ZRANGE', KEYS[1], 0, count - 1) " +
+            "for _, user in ipairs(users) do " +
+            "  redis.call('ZADD', KEYS[2], ARGV[4], user) " +
+            "end " +
+            "if #users > 0 then redis.call('ZREMRANGEBYRANK', KEYS[1], 0, #users - 1) end " +
+            "return users", List.class);
+
+    /**
+     * 清理过期的购买机会，队列和已放票集合都为空时移出活跃票档
+     */
+    private static final DefaultRedisScript<Long> CLEANUP_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('ZREMRANGEBYSCORE', KEYS[2], '-inf', ARGV[1]) " +
+            "if redis.call('ZCARD', KEYS[1]) == 0 and redis.call('ZCARD', KEYS[2]) == 0 then " +
+            "  redis.call('SREM', KEYS[3], ARGV[2]) " +
+            "  redis.call('DEL', KEYS[4]) " +
+            "  return 1 " +
+            "end " +
+            "return 0", Long.class);
+
+    /**
+     * 取走购买机会：未过期时删除并返回过期时间，检查和删除在一个脚本中完成，并发下单只有一个请求能取到
+     */
+    private static final DefaultRedisScript<Long> TAKE_CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local score = redis.call('ZSCORE', KEYS[1], ARGV[1]) " +
+            "if not score then return nil end " +
+            "redis.call('ZREM', KEYS[1], ARGV[1]) " +
+            "if tonumber(score) <= tonumber(ARGV[2]) then return nil end " +
+            "return tonumber(score)", Long.class);
+
+    /**
+     * 归还购买机会，并重新记为活跃票档（取走期间可能已被清理移出）
+     */
+    private static final DefaultRedisScript<Long> RESTORE_CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('ZADD', KEYS[1], ARGV[2], ARGV[1]) " +
+            "redis.call('SADD', KEYS[2], ARGV[3]) " +
+            "return 1", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Override
+    public long join(Long tierId, Long userId) {
+        Long rank = stringRedisTemplate.execute(JOIN_SCRIPT,
+                List.of(getQueueKey(tierId), SEQ_KEY_PREFIX + tierId, TIERS_KEY),
+                String.valueOf(userId), String.valueOf(tierId));
+        return rank != null ? rank : 0L;
+    }
+
+    @Override
+    public Long getPosition(Long tierId, Long userId) {
+        return stringRedisTemplate.opsForZSet().rank(getQueueKey(tierId), String.valueOf(userId));
+    }
+
+    @Override
+    public boolean leave(Long tierId, Long userId) {
+        Long removed = stringRedisTemplate.opsForZSet().remove(getQueueKey(tierId), String.valueOf(userId));
+        return removed != null && removed > 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Long> offer(Long tierId, int available, int batchSize, long nowMillis, long expireAtMillis) {
+        List<String> users = stringRedisTemplate.execute(OFFER_SCRIPT,
+                List.of(getQueueKey(tierId), getClaimsKey(tierId)),
+                String.valueOf(available), String.valueOf(batchSize),
+                String.valueOf(nowMillis), String.valueOf(expireAtMillis));
+        List<Long> userIds = new ArrayList<>();
+        if (users != null) {
+            for (String user : users) {
+                userIds.add(Long.valueOf(user));
+            }
+        }
+        return userIds;
+    }
+
+    @Override
+    public Long getClaimExpireAt(Long tierId, Long userId) {
+        Double score = stringRedisTemplate.opsForZSet().score(getClaimsKey(tierId), String.valueOf(userId));
+        if (score == null || score.longValue() <= System.currentTimeMillis()) {
+            return null;
+        }
+        return score.longValue();
+    }
+
+    @Override
+    public Long takeClaim(Long tierId, Long userId, long nowMillis) {
+        return stringRedisTemplate.execute(TAKE_CLAIM_SCRIPT, List.of(getClaimsKey(tierId)),
+                String.valueOf(userId), String.valueOf(nowMillis));
+    }
+
+    @Override
+    public void restoreClaim(Long tierId, Long userId, long expireAtMillis, long nowMillis) {
+        if (expireAtMillis <= nowMillis) {
+            return;
+        }
+        stringRedisTemplate.execute(RESTORE_CLAIM_SCRIPT, List.of(getClaimsKey(tierId), TIERS_KEY),
+                String.valueOf(userId), String.valueOf(expireAtMillis), String.valueOf(tierId));
+    }
+
+    @Override
+    public long size(Long tierId) {
+        Long size = stringRedisTemplate.opsForZSet().zCard(getQueueKey(tierId));
+        return size != null ? size : 0L;
+    }
+
+    @Override
+    public void cleanup(Long tierId, long nowMillis) {
+        stringRedisTemplate.execute(CLEANUP_SCRIPT,
+                List.of(getQueueKey(tierId), getClaimsKey(tierId), TIERS_KEY, SEQ_KEY_PREFIX + tierId),
+                String.valueOf(nowMillis), String.valueOf(tierId));
+    }
+
+    @Override
+    public Set<Long> getActiveTierIds() {
+        Set<String> members = stringRedisTemplate.opsForSet().members(TIERS_KEY);
+        Set<Long> tierIds = new HashSet<>();
+        if (members != null) {
+            for (String member : members) {
+                tierIds.add(Long.valueOf(member));
+            }
+        }
+        return tierIds;
+    }
+
+    private String getQueueKey(Long tierId) {
+        return QUEUE_KEY_PREFIX + tierId;
+    }
+
+    private String getClaimsKey(Long tierId) {
+        return CLAIMS_KEY_PREFIX + tierId;
+    }
+}
@@ -0,0 +1,67 @@
+package org.example.ticketmanagement.store;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 售罄票档候补名单存储
+ * 每个票档一个候补队列（按加入先后排序）和一个已放票集合（带购买时限）
+ */
+public interface WaitlistStore {
+
+    /**
+     * 加入候补队列，重复加入保持原位置
+     * @return 当前排位（从0开始）
+     */
+    long join(Long tierId, Long userId);
+
+    /**
+     * 查询排位
+     * @return 排位（从0开始），不在候补队列中返回null
+     */
+    Long getPosition(Long tierId, Long userId);
+
+    /**
+     * 退出候补队列
+     * @return 原本在队列中返回 true
+     */
+    boolean leave(Long tierId, Long userId);
+
+    /**
+     * 从队首放票：先清理过期的购买机会，可放数量 = min(可用库存 - 未过期的购买机会数, 每批数量)，
+     * 放到的用户获得截止到 expireAtMillis 的购买机会
+     * @return 本次放票的用户ID
+     */
+    List<Long> offer(Long tierId, int available, int batchSize, long nowMillis, long expireAtMillis);
+
+    /**
+     * 查询购买机会的过期时间（毫秒时间戳），没有或已过期返回null
+     */
+    Long getClaimExpireAt(Long tierId, Long userId);
+
+    /**
+     * 原子地取走未过期的购买机会（下单预扣库存前调用），同一个购买机会只能被一个请求取走
+     * @return 取走的购买机会的过期时间（毫秒时间戳），没有或已过期返回null
+     */
+    Long takeClaim(Long tierId, Long userId, long nowMillis);
+
+    /**
+     * 归还取走的购买机会（下单失败时调用），已过期的不再归还
+     */
+    void restoreClaim(Long tierId, Long userId, long expireAtMillis, long nowMillis);
+
+    /**
+     * 候补队列长度
+     */
+    long size(Long tierId);
+
+    /**
+     * 清理过期的购买机会，候补队列和已放票集合都为空时移出活跃票档
+     */
+    void cleanup(Long tierId, long nowMillis);
+
+    /**
+     * 有人候补或持有购买机会的票档
+     */
+    Set<Long> getActiveTierIds();
+}
@@ -0,0 +1,44 @@
+package org.example.ticketmanagement.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.service.AdmissionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 排队放行与速率调整定时任务
+ * 多个节点同时放行是安全的：出队在Redis脚本中原子执行，同一用户只会被放行一次；
+ * 每个节点按自己测得的下单耗时控制自己的放行速率
+ */
+@Slf4j
+@Component
+public class AdmissionTask {
+
+    @Autowired
+    private AdmissionService admissionService;
+
+    /**
+     * 定时从等候队列队首放行用户
+     */
+    @Scheduled(fixedDelayString = "${admission.tick-interval:200}")
+    public void admitWaitingUsers() {
+        try {
+            admissionService.admitWaitingUsers();
+        } catch (Exception e) {
+            log.error("排队放行任务执行失败", e);
+        }
+    }
+
+    /**
+     * 定时根据下单P99调整放行速率
+     */
+    @Scheduled(fixedDelayString = "${admission.adjust-interval:2000}")
+    public void adjustAdmissionRate() {
+        try {
+            admissionService.adjustAdmissionRate();
+        } catch (Exception e) {
+            log.error("放行速率调整任务执行失败", e);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.ticketmanagement.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.util.DictionarySnapshot;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 字典快照兜底刷新任务：比对Redis中的版本号，不一致时重新载入（版本变更广播丢失时生效）
+ */
+@Slf4j
+@Component
+public class DictionaryRefreshTask {
+
+    @Autowired
+    private DictionarySnapshot dictionarySnapshot;
+
+    @Scheduled(fixedDelayString = "${dictionary.refresh-interval:30000}")
+    public void refreshDictionary() {
+        try {
+            dictionarySnapshot.refresh();
+        } catch (Exception e) {
+            log.error("字典快照刷新任务执行失败", e);
+        }
+    }
+}
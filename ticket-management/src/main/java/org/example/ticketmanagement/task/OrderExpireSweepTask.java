@@ -0,0 +1,28 @@
+package org.example.ticketmanagement.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.service.OrderService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 超时订单兜底关闭任务
+ * 超时任务只保存在创建订单的节点的时间轮中，该节点宕机且不重启时，其待支付订单由任一节点定时扫描关闭
+ */
+@Slf4j
+@Component
+public class OrderExpireSweepTask {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Scheduled(fixedDelayString = "${order.expire-sweep-interval:60000}")
+    public void closeExpiredOrders() {
+        try {
+            orderService.closeExpiredOrders();
+        } catch (Exception e) {
+            log.error("兜底关闭超时订单任务执行失败", e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.ticketmanagement.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.service.OrderService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * 应用启动后恢复待支付订单的超时任务
+ * 超时任务只保存在内存时间轮中，重启后需要从数据库重新加载一次
+ * 多个节点都会加载全部待支付订单，关单使用条件更新，库存只会被释放一次
+ */
+@Slf4j
+@Component
+public class OrderHoldRecoveryRunner implements ApplicationRunner {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            orderService.recoverPendingOrders();
+        } catch (Exception e) {
+            log.error("恢复待支付订单超时任务失败", e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.ticketmanagement.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.service.TicketTierService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 场次库存属主移交定时任务（ownership.enabled=true 时生效）
+ */
+@Slf4j
+@Component
+public class OwnershipTask {
+
+    @Autowired
+    private TicketTierService ticketTierService;
+
+    /**
+     * 定时移交不再属于本节点的场次：回写增量、移除计数后释放租约，由新属主从数据库载入
+     */
+    @Scheduled(fixedDelayString = "${ownership.check-interval:5000}")
+    public void rebalanceStockOwnership() {
+        try {
+            int moved = ticketTierService.rebalanceStockOwnership();
+            if (moved > 0) {
+                log.info("场次库存移交完成，场次数: {}", moved);
+            }
+        } catch (Exception e) {
+            log.error("场次库存移交任务执行失败", e);
+        }
+    }
+
+    /**
+     * 定时重发结果不确定的库存转发请求（预扣的撤销与释放），属主按请求ID去重
+     */
+    @Scheduled(fixedDelayString = "${ownership.forward-retry-interval:1000}")
+    public void retryForwardedStock() {
+        try {
+            int answered = ticketTierService.retryForwardedStock();
+            if (answered > 0) {
+                log.info("库存转发请求重发完成，数量: {}", answered);
+            }
+        } catch (Exception e) {
+            log.error("库存转发请求重发任务执行失败", e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.example.ticketmanagement.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.service.SaleWarmupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 开售预热定时任务
+ * 每个节点都要执行：本地缓存、售罄快照和JIT编译都是节点级别的，Redis库存预热本身是幂等的
+ */
+@Slf4j
+@Component
+public class SaleWarmupTask {
+
+    @Autowired
+    private SaleWarmupService saleWarmupService;
+
+    /**
+     * 定时扫描即将开售的演出并预热
+     */
+    @Scheduled(fixedDelayString = "${warmup.scan-interval:60000}")
+    public void warmUpUpcomingSales() {
+        try {
+            int warmed = saleWarmupService.warmUpUpcomingSales();
+            if (warmed > 0) {
+                log.info("开售预热任务完成，预热演出数: {}", warmed);
+            }
+        } catch (Exception e) {
+            log.error("开售预热任务执行失败", e);
+        }
+    }
+}
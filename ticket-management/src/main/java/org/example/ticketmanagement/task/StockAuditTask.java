@@ -0,0 +1,34 @@
+package org.example.ticketmanagement.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.config.StockAuditConfig;
+import org.example.ticketmanagement.service.StockAuditService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 库存对账定时任务：持续增量对账，按配置间隔做一次全量对账
+ */
+@Slf4j
+@Component
+public class StockAuditTask {
+
+    @Autowired
+    private StockAuditService stockAuditService;
+
+    @Autowired
+    private StockAuditConfig stockAuditConfig;
+
+    @Scheduled(fixedDelayString = "${stock-audit.interval:5000}")
+    public void auditStock() {
+        if (!stockAuditConfig.isEnabled()) {
+            return;
+        }
+        try {
+            stockAuditService.audit(false);
+        } catch (Exception e) {
+            log.error("库存对账任务执行失败", e);
+        }
+    }
+}
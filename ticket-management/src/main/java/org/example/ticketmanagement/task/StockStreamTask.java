@@ -0,0 +1,30 @@
+package org.example.ticketmanagement.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.service.StockStreamService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 实时库存推送定时任务
+ */
+@Slf4j
+@Component
+public class StockStreamTask {
+
+    @Autowired
+    private StockStreamService stockStreamService;
+
+    /**
+     * 按固定间隔为有订阅者的场次推送库存状态变化
+     */
+    @Scheduled(fixedDelayString = "${stock-stream.push-interval:500}")
+    public void pushStockStates() {
+        try {
+            stockStreamService.pushStockStates();
+        } catch (Exception e) {
+            log.error("实时库存推送任务执行失败", e);
+        }
+    }
+}
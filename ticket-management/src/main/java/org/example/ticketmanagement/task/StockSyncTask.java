@@ -0,0 +1,82 @@
+package org.example.ticketmanagement.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.service.TicketTierService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 库存回写与对账定时任务
+ * 多个节点同时执行也是安全的：待回写增量通过Lua脚本原子取出，每笔增量只会回写一次
+ */
+@Slf4j
+@Component
+public class StockSyncTask {
+
+    @Autowired
+    private TicketTierService ticketTierService;
+
+    /**
+     * 定时把Redis中的库存扣减增量回写数据库
+     */
+    @Scheduled(fixedDelayString = "${stock.sync-interval:1000}")
+    public void syncStock() {
+        try {
+            ticketTierService.syncStockToDatabase();
+        } catch (Exception e) {
+            log.error("库存增量回写任务执行失败", e);
+        }
+    }
+
+    /**
+     * 定时以数据库为准对账Redis库存计数
+     */
+    @Scheduled(fixedDelayString = "${stock.reconcile-interval:60000}")
+    public void reconcileStock() {
+        try {
+            int corrected = ticketTierService.reconcileStockCache();
+            if (corrected > 0) {
+                log.warn("库存对账完成，修正票档数: {}", corrected);
+            }
+        } catch (Exception e) {
+            log.error("库存对账任务执行失败", e);
+        }
+    }
+
+    /**
+     * 定时为本地库存日志生成快照并清理旧日志段（仅 journal 引擎有效）
+     */
+    @Scheduled(fixedDelayString = "${journal.snapshot-interval:60000}")
+    public void snapshotStockJournal() {
+        try {
+            ticketTierService.snapshotStockJournal();
+        } catch (Exception e) {
+            log.error("库存日志快照任务执行失败", e);
+        }
+    }
+
+    /**
+     * Redis降级期间定时探测Redis是否恢复，恢复后归还本节点的降级库存分片（仅 redis 引擎有效）
+     */
+    @Scheduled(fixedDelayString = "${stock.degraded-probe-interval:1000}")
+    public void recoverDegradedStock() {
+        try {
+            ticketTierService.recoverDegradedStock();
+        } catch (Exception e) {
+            log.error("降级库存恢复任务执行失败", e);
+        }
+    }
+
+    /**
+     * 定时清空本节点的售罄标记，兜底集群广播丢失的情况
+     */
+    @Scheduled(fixedDelayString = "${stock.sold-out-refresh-interval:30000}")
+    public void refreshSoldOutCache() {
+        try {
+            ticketTierService.resetSoldOutCache();
+        } catch (Exception e) {
+            log.error("售罄标记刷新任务执行失败", e);
+        }
+    }
+}
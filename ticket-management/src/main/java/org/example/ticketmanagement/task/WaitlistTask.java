@@ -0,0 +1,30 @@
+package org.example.ticketmanagement.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.service.WaitlistService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 候补放票定时任务
+ */
+@Slf4j
+@Component
+public class WaitlistTask {
+
+    @Autowired
+    private WaitlistService waitlistService;
+
+    /**
+     * 按固定间隔向有库存归还的票档的候补用户分批放票
+     */
+    @Scheduled(fixedDelayString = "${waitlist.tick-interval:100}")
+    public void dispatchOffers() {
+        try {
+            waitlistService.dispatchOffers();
+        } catch (Exception e) {
+            log.error("候补放票任务执行失败", e);
+        }
+    }
+}
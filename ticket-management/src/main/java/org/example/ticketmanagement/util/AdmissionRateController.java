@@ -0,0 +1,95 @@
+package org.example.ticketmanagement.util;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.config.AdmissionConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 排队放行速率控制器（AIMD）
+ * 按毫秒分桶记录下单耗时，每个调整周期计算一次P99：
+ * 超过目标时按系数降低放行速率，达标时线性增加，使下单P99稳定在目标附近
+ */
+@Slf4j
+@Component
+public class AdmissionRateController {
+
+    // 耗时分桶上限（毫秒），更长的耗时都计入最后一个桶
+    private static final int MAX_TRACKED_MILLIS = 10000;
+
+    @Autowired
+    private AdmissionConfig admissionConfig;
+
+    private final AtomicLongArray latencyBuckets = new AtomicLongArray(MAX_TRACKED_MILLIS + 1);
+    private volatile int currentRate;
+    private volatile long lastP99;
+
+    @PostConstruct
+    public void init() {
+        currentRate = admissionConfig.getInitialRate();
+    }
+
+    /**
+     * 记录一次下单耗时
+     */
+    public void recordLatency(long millis) {
+        int bucket = (int) Math.min(Math.max(millis, 0), MAX_TRACKED_MILLIS);
+        latencyBuckets.incrementAndGet(bucket);
+    }
+
+    /**
+     * 当前放行速率（人/秒）
+     */
+    public int getCurrentRate() {
+        return currentRate;
+    }
+
+    /**
+     * 上一个调整周期的下单P99（毫秒）
+     */
+    public long getLastP99() {
+        return lastP99;
+    }
+
+    /**
+     * 取出本周期的耗时样本并调整放行速率
+     */
+    public synchronized void adjust() {
+        long[] counts = new long[latencyBuckets.length()];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = latencyBuckets.getAndSet(i, 0);
+            total += counts[i];
+        }
+        // 本周期没有下单，缺少依据，保持当前速率
+        if (total == 0) {
+            return;
+        }
+
+        long threshold = (long) Math.ceil(total * 0.99);
+        long seen = 0;
+        long p99 = MAX_TRACKED_MILLIS;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= threshold) {
+                p99 = i;
+                break;
+            }
+        }
+        lastP99 = p99;
+
+        int oldRate = currentRate;
+        if (p99 > admissionConfig.getTargetP99()) {
+            currentRate = Math.max(admissionConfig.getMinRate(),
+                    (int) (oldRate * admissionConfig.getDecreaseFactor()));
+        } else {
+            currentRate = Math.min(admissionConfig.getMaxRate(), oldRate + admissionConfig.getIncreaseStep());
+        }
+        if (currentRate != oldRate) {
+            log.debug("调整放行速率: {} -> {} 人/秒，下单P99: {}ms，样本数: {}", oldRate, currentRate, p99, total);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.example.ticketmanagement.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * 集群广播工具类
+ * 通过Redis发布订阅在节点间广播消息（如本地缓存失效），
+ * 消息体带上发送节点ID，节点不会处理自己发出的消息（发送方应先在本地生效）
+ */
+@Slf4j
+@Component
+public class ClusterBroadcaster {
+
+    private static final String CHANNEL_PREFIX = "cluster:broadcast:";
+    private static final char SEPARATOR = '|';
+
+    // 当前节点ID，每次启动随机生成
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    /**
+     * 向其他节点广播消息，发送失败只记录日志（订阅方应有兜底的过期机制）
+     */
+    public void publish(String topic, String payload) {
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL_PREFIX + topic, nodeId + SEPARATOR + payload);
+        } catch (Exception e) {
+            log.error("集群广播发送失败: topic={}, payload={}", topic, payload, e);
+        }
+    }
+
+    /**
+     * 订阅其他节点广播的消息
+     */
+    public void subscribe(String topic, Consumer<String> handler) {
+        redisMessageListenerContainer.addMessageListener((message, pattern) -> {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            int index = body.indexOf(SEPARATOR);
+            if (index < 0 || nodeId.equals(body.substring(0, index))) {
+                return;
+            }
+            try {
+                handler.accept(body.substring(index + 1));
+            } catch (Exception e) {
+                log.error("处理集群广播失败: topic={}, body={}", topic, body, e);
+            }
+        }, new ChannelTopic(CHANNEL_PREFIX + topic));
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+}
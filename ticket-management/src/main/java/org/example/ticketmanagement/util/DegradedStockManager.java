@@ -0,0 +1,230 @@
+package org.example.ticketmanagement.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.config.StockConfig;
+import org.example.ticketmanagement.mapper.TicketTierMapper;
+import org.example.ticketmanagement.store.LocalPurchaseQuotaStore;
+import org.example.ticketmanagement.store.PurchaseQuotaStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Redis降级库存管理（stock.engine=redis 时生效）
+ * Redis调用失败后本节点进入降级模式：每个票档按需从数据库领取一段库存（分片），预扣、释放只在本节点内存中增减分片，
+ * 分片用完再领取下一段；领取时每个票档保留一部分库存不领取，用于吸收Redis中尚未回写数据库的扣减。
+ * 保留量取 总库存 × 保留比例 与 该票档最近一次回写的增量 中的较大值：Redis故障时尚未回写的扣减通常不超过一个回写周期的销量，
+ * 若故障前的销量明显高于最近一次回写（或回写中的增量写库失败），超出保留量的部分会超卖，由库存对账报告。
+ * Redis恢复后先把未用完的分片归还数据库，再把降级期间净售出的数量同步扣减到Redis计数上，然后退出降级模式
+ * 降级期间排队资格、幂等键、候补购买机会同样不依赖Redis：排队与候补放行，幂等键只在本节点内去重
+ * 注意：降级期间的限购额度只记在本节点内存中，只能限制降级期间在本节点的购买
+ */
+@Slf4j
+@Component
+public class DegradedStockManager {
+
+    @Autowired
+    private StockConfig stockConfig;
+
+    @Autowired
+    private TicketTierMapper ticketTierMapper;
+
+    @Autowired
+    private RedisStockUtil redisStockUtil;
+
+    private volatile boolean degraded;
+    private volatile long degradedSince;
+    // 票档ID -> 本节点领取的库存分片
+    private final ConcurrentHashMap<Long, Slice> slices = new ConcurrentHashMap<>();
+    // 票档ID -> 最近一次从Redis回写数据库的扣减增量，作为领取分片时的最低保留量
+    private final ConcurrentHashMap<Long, Long> lastPendings = new ConcurrentHashMap<>();
+    // 降级期间的限购额度，每次进入降级模式时重建
+    private volatile PurchaseQuotaStore quotaStore = new LocalPurchaseQuotaStore();
+
+    public boolean isDegraded() {
+        return degraded;
+    }
+
+    /**
+     * Redis调用失败时进入降级模式（未开启降级时返回 false，由调用方按原样抛出异常）
+     */
+    public synchronized boolean onRedisFailure(Exception e) {
+        if (!stockConfig.isDegradedEnabled()) {
+            return false;
+        }
+        if (!degraded) {
+            quotaStore = new LocalPurchaseQuotaStore();
+            degradedSince = System.currentTimeMillis();
+            degraded = true;
+            log.error("Redis不可用，库存切换到本地降级模式", e);
+        }
+        return true;
+    }
+
+    /**
+     * 库存之外的Redis依赖（排队资格、幂等键、候补购买机会）调用失败时判断能否放行：
+     * 仅 redis 引擎且开启降级时进入降级模式并返回 true，调用方改用本地兜底；否则返回 false，由调用方按原样抛出异常
+     */
+    public boolean failOpen(Exception e) {
+        return stockConfig.isRedisEngine() && onRedisFailure(e);
+    }
+
+    /**
+     * 记录票档最近一次回写的扣减增量（净归还时清除）
+     */
+    public void recordPending(Long tierId, long delta) {
+        if (delta > 0) {
+            lastPendings.put(tierId, delta);
+        } else {
+            lastPendings.remove(tierId);
+        }
+    }
+
+    /**
+     * 从本节点的分片中预扣库存，分片不足时从数据库领取
+     */
+    public boolean reserve(Long tierId, int quantity) {
+        while (true) {
+            Slice slice = slices.computeIfAbsent(tierId, id -> new Slice());
+            synchronized (slice) {
+                // 分片已被归还，重新取一个新分片
+                if (slice.closed) {
+                    continue;
+                }
+                if (slice.remaining < quantity && !refill(tierId, slice, quantity - slice.remaining)) {
+                    return false;
+                }
+                slice.remaining -= quantity;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 按票档ID顺序从各分片预扣，任一票档不足时归还已预扣的票档
+     */
+    public boolean reserveAll(Map<Long, Integer> quantities) {
+        List<Map.Entry<Long, Integer>> reserved = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            if (!reserve(entry.getKey(), entry.getValue())) {
+                reserved.forEach(done -> release(done.getKey(), done.getValue()));
+                return false;
+            }
+            reserved.add(entry);
+        }
+        return true;
+    }
+
+    /**
+     * 释放库存到本节点的分片，Redis恢复后随分片一起归还数据库
+     */
+    public void release(Long tierId, int quantity) {
+        while (true) {
+            Slice slice = slices.computeIfAbsent(tierId, id -> new Slice());
+            synchronized (slice) {
+                if (!slice.closed) {
+                    slice.remaining += quantity;
+                    return;
+                }
+            }
+        }
+    }
+
+    public PurchaseQuotaStore getQuotaStore() {
+        return quotaStore;
+    }
+
+    /**
+     * 探测Redis是否恢复，恢复后归还分片、同步Redis计数并退出降级模式；
+     * 未降级但仍有残留分片（退出降级时并发写入的释放）时同样归还
+     * @return 本次归还的票档数量
+     */
+    public synchronized int recover() {
+        if (!degraded && slices.isEmpty()) {
+            return 0;
+        }
+        if (!redisStockUtil.isAvailable()) {
+            return 0;
+        }
+        // 先退出降级模式，新请求回到Redis，再逐个归还分片
+        boolean wasDegraded = degraded;
+        degraded = false;
+
+        int recovered = 0;
+        for (Map.Entry<Long, Slice> entry : slices.entrySet()) {
+            Long tierId = entry.getKey();
+            Slice slice = entry.getValue();
+            try {
+                synchronized (slice) {
+                    // 1. 未用完的分片归还数据库
+                    if (slice.remaining > 0) {
+                        if (ticketTierMapper.releaseStock(tierId, slice.remaining) != 1) {
+                            log.error("归还降级库存分片失败，票档不存在或超出总库存: tierId={}, quantity={}",
+                                    tierId, slice.remaining);
+                        }
+                        slice.taken -= slice.remaining;
+                        slice.remaining = 0;
+                    }
+                    // 2. 降级期间净售出（领取 - 归还）的数量已写入数据库，同步扣减Redis计数
+                    if (slice.taken != 0 && redisStockUtil.adjust(tierId, -slice.taken) == 0) {
+                        log.warn("降级期间售出后Redis计数已为0: tierId={}, 净售出: {}", tierId, slice.taken);
+                    }
+                    slice.taken = 0;
+                    slice.closed = true;
+                    slices.remove(tierId, slice);
+                }
+                recovered++;
+            } catch (Exception e) {
+                // 归还失败的分片留到下次，Redis再次不可用时重新进入降级
+                log.error("归还降级库存分片失败，稍后重试: tierId={}", tierId, e);
+                onRedisFailure(e);
+                return recovered;
+            }
+        }
+        if (wasDegraded) {
+            log.warn("Redis已恢复，退出库存降级模式，降级时长: {}ms, 归还票档数: {}",
+                    System.currentTimeMillis() - degradedSince, recovered);
+        }
+        return recovered;
+    }
+
+    /**
+     * 从数据库领取库存：至少领取缺少的数量，优先按分片大小领取
+     */
+    private boolean refill(Long tierId, Slice slice, int shortage) {
+        int sliceSize = Math.max(shortage, stockConfig.getDegradedSliceSize());
+        double holdBack = stockConfig.getDegradedHoldBackRatio();
+        long holdBackMin = lastPendings.getOrDefault(tierId, 0L);
+        int taken = 0;
+        if (ticketTierMapper.takeStockSlice(tierId, sliceSize, holdBack, holdBackMin) == 1) {
+            taken = sliceSize;
+        } else if (sliceSize > shortage
+                && ticketTierMapper.takeStockSlice(tierId, shortage, holdBack, holdBackMin) == 1) {
+            taken = shortage;
+        }
+        if (taken == 0) {
+            log.debug("降级库存不足: tierId={}, 缺少: {}", tierId, shortage);
+            return false;
+        }
+        slice.remaining += taken;
+        slice.taken += taken;
+        log.info("领取降级库存分片: tierId={}, 数量: {}", tierId, taken);
+        return true;
+    }
+
+    /**
+     * 本节点领取的库存分片，字段都在分片锁内访问
+     */
+    private static final class Slice {
+        // 分片中剩余可售的数量
+        private int remaining;
+        // 从数据库领取的累计数量（归还后扣除）
+        private int taken;
+        // 已归还并从分片表中移除
+        private boolean closed;
+    }
+}
@@ -0,0 +1,212 @@
+package org.example.ticketmanagement.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.config.DetailCacheConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 详情缓存（本地 + Redis 两级，读穿透）
+ * 读取顺序：本地缓存 -> Redis -> 数据库，下层命中后回填上层；同一节点上同一个键并发未命中时只加载一次（SingleFlight），
+ * 本地缓存到期前按概率由单个请求提前刷新，热点键不会在过期瞬间一起未命中
+ * 修改、删除后先在本节点失效并删除Redis中的缓存，再广播给其他节点失效本地缓存；
+ * 在事务中失效时，提交后再失效一次，避免提交前被并发读取回填旧值；
+ * 每次失效同时递增Redis中该键的版本号，回填Redis时版本号与查询数据库前读到的不一致就不写入，
+ * 其他节点在失效前查到的旧数据不会在失效之后写回Redis
+ * Redis不可用时跳过Redis直接查询数据库，本地缓存的存活时间兜底广播丢失
+ */
+@Slf4j
+@Component
+public class DetailCache {
+
+    public static final String EVENT = "event";
+    public static final String SESSION = "session";
+    public static final String TIER = "tier";
+
+    private static final String TOPIC = "detail-cache";
+    private static final String KEY_PREFIX = "detail:";
+    private static final String VERSION_PREFIX = "detail-version:";
+
+    /**
+     * 失效：删除缓存并递增版本号
+     * KEYS[1]: 缓存键, KEYS[2]: 版本号键
+     * ARGV[1]: 版本号的存活时间（秒）
+     */
+    private static final DefaultRedisScript<Long> EVICT_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[1]) " +
+            "local version = redis.call('INCR', KEYS[2]) " +
+            "redis.call('EXPIRE', KEYS[2], ARGV[1]) " +
+            "return version", Long.class);
+
+    /**
+     * 回填：版本号与查询数据库前读到的一致时才写入
+     * KEYS[1]: 缓存键, KEYS[2]: 版本号键
+     * ARGV[1]: 读到的版本号（没有版本号时为0）, ARGV[2]: 缓存值, ARGV[3]: 存活时间（秒）
+     */
+    private static final DefaultRedisScript<Long> FILL_SCRIPT = new DefaultRedisScript<>(
+            "if (redis.call('GET', KEYS[2]) or '0') ~= ARGV[1] then return 0 end " +
+            "redis.call('SET', KEYS[1], ARGV[2], 'EX', ARGV[3]) " +
+            "return 1", Long.class);
+
+    @Autowired
+    private DetailCacheConfig detailCacheConfig;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private ClusterBroadcaster clusterBroadcaster;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SingleFlight singleFlight;
+
+    // 类型:ID -> 详情对象
+    private Cache<String, Entry> localCache;
+    // 失效次数，加载期间发生过失效的结果不写入本地缓存，避免写回失效前查到的旧数据
+    private final AtomicLong evictions = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(detailCacheConfig.getLocalMaxSize())
+                .expireAfterWrite(Duration.ofSeconds(detailCacheConfig.getLocalTtl()))
+                .build();
+        clusterBroadcaster.subscribe(TOPIC, this::evictLocal);
+    }
+
+    /**
+     * 读取详情，两级缓存都未命中时调用 loader 查询数据库；不存在的记录不缓存
+     * 返回的对象由所有调用方共享，调用方不能修改
+     */
+    public <T> T get(String type, Long id, Class<T> valueType, Function<Long, T> loader) {
+        if (!detailCacheConfig.isEnabled()) {
+            return loader.apply(id);
+        }
+        String key = type + ":" + id;
+        Entry entry = localCache.getIfPresent(key);
+        if (entry != null && !singleFlight.shouldRefreshEarly(entry.loadMillis, entry.expiresAt)) {
+            return valueType.cast(entry.value);
+        }
+        // 未命中或被选中提前刷新：同一个键同时只有一个请求加载，其他请求等待共享结果
+        Entry loaded = singleFlight.execute(KEY_PREFIX + key, () -> reload(key, id, valueType, loader));
+        return valueType.cast(loaded.value);
+    }
+
+    /**
+     * 失效详情缓存（修改、删除后调用）
+     */
+    public void evict(String type, Long id) {
+        String key = type + ":" + id;
+        doEvict(key);
+        clusterBroadcaster.publish(TOPIC, key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doEvict(key);
+                    clusterBroadcaster.publish(TOPIC, key);
+                }
+            });
+        }
+    }
+
+    private void doEvict(String key) {
+        evictLocal(key);
+        try {
+            // 版本号比缓存多存活一段时间，覆盖失效前开始、失效后才回填的加载
+            stringRedisTemplate.execute(EVICT_SCRIPT, List.of(KEY_PREFIX + key, VERSION_PREFIX + key),
+                    String.valueOf(detailCacheConfig.getRedisTtl() * 2));
+        } catch (Exception e) {
+            log.warn("删除Redis详情缓存失败，等待过期: key={}", key, e);
+        }
+    }
+
+    private void evictLocal(String key) {
+        evictions.incrementAndGet();
+        localCache.invalidate(key);
+    }
+
+    /**
+     * 加载详情并写入本地缓存，记录加载耗时用于提前刷新
+     */
+    private <T> Entry reload(String key, Long id, Class<T> valueType, Function<Long, T> loader) {
+        long stamp = evictions.get();
+        long start = System.currentTimeMillis();
+        T value = load(key, id, valueType, loader);
+        long now = System.currentTimeMillis();
+        Entry entry = new Entry(value, now - start, now + detailCacheConfig.getLocalTtl() * 1000);
+        if (value != null && evictions.get() == stamp) {
+            localCache.put(key, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * 本地未命中时先读Redis，再查数据库并回填Redis（缓存与版本号一次读取，查询期间被失效时不回填）
+     */
+    private <T> T load(String key, Long id, Class<T> valueType, Function<Long, T> loader) {
+        String redisKey = KEY_PREFIX + key;
+        String versionKey = VERSION_PREFIX + key;
+        String version = null;
+        try {
+            List<String> values = stringRedisTemplate.opsForValue().multiGet(List.of(redisKey, versionKey));
+            if (values != null) {
+                if (values.get(0) != null) {
+                    return objectMapper.readValue(values.get(0), valueType);
+                }
+                version = values.get(1) != null ? values.get(1) : "0";
+            }
+        } catch (Exception e) {
+            log.warn("读取Redis详情缓存失败，直接查询数据库: key={}, error={}", key, e.getMessage());
+        }
+
+        T value = loader.apply(id);
+        // 没有读到版本号（Redis不可用）时不回填，无法判断查询期间是否被失效
+        if (value == null || version == null) {
+            return value;
+        }
+        try {
+            Long filled = stringRedisTemplate.execute(FILL_SCRIPT, List.of(redisKey, versionKey),
+                    version, objectMapper.writeValueAsString(value), String.valueOf(detailCacheConfig.getRedisTtl()));
+            if (filled == null || filled == 0) {
+                log.debug("查询期间详情缓存已失效，不回填Redis: key={}", key);
+            }
+        } catch (Exception e) {
+            log.warn("写入Redis详情缓存失败: key={}, error={}", key, e.getMessage());
+        }
+        return value;
+    }
+
+    /**
+     * 本地缓存条目
+     */
+    private static final class Entry {
+        private final Object value;
+        // 加载耗时（毫秒）
+        private final long loadMillis;
+        // 逻辑过期时间（毫秒时间戳），与本地缓存的存活时间一致
+        private final long expiresAt;
+
+        private Entry(Object value, long loadMillis, long expiresAt) {
+            this.value = value;
+            this.loadMillis = loadMillis;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
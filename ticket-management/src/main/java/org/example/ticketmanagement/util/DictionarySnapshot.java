@@ -0,0 +1,195 @@
+package org.example.ticketmanagement.util;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.mapper.CityMapper;
+import org.example.ticketmanagement.mapper.EventCategoryMapper;
+import org.example.ticketmanagement.pojo.City;
+import org.example.ticketmanagement.pojo.EventCategory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 字典快照（城市、演出分类）
+ * 两张表数据量小、读多写少，整体载入为一份不可变快照，查询直接读 volatile 引用上的Map，不加锁也不访问数据库
+ * 管理端修改后（事务提交后）在Redis中递增版本号，本节点重新载入并整体替换快照，再广播新版本号让其他节点重新载入；
+ * 定时任务比对Redis中的版本号兜底广播丢失；递增版本号失败时记下待发布，定时任务在Redis恢复后补发
+ * 快照中的对象由所有调用方共享，调用方不能修改，需要返回给外部时先复制
+ */
+@Slf4j
+@Component
+public class DictionarySnapshot {
+
+    private static final String TOPIC = "dictionary";
+    private static final String VERSION_KEY = "dictionary:version";
+
+    @Autowired
+    private CityMapper cityMapper;
+
+    @Autowired
+    private EventCategoryMapper eventCategoryMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private ClusterBroadcaster clusterBroadcaster;
+
+    private volatile Snapshot snapshot;
+    // 递增版本号失败、尚未通知其他节点的变更
+    private final AtomicBoolean publishPending = new AtomicBoolean();
+
+    @PostConstruct
+    public void init() {
+        Long version = getRemoteVersion();
+        reload(version != null ? version : 0L);
+        clusterBroadcaster.subscribe(TOPIC, payload -> {
+            long received = Long.parseLong(payload);
+            if (received != snapshot.version) {
+                reload(received);
+            }
+        });
+    }
+
+    public long getVersion() {
+        return snapshot.version;
+    }
+
+    public City getCity(Long id) {
+        return id != null ? snapshot.citiesById.get(id) : null;
+    }
+
+    public City getCityByName(String name) {
+        return name != null ? snapshot.citiesByName.get(name) : null;
+    }
+
+    /**
+     * 所有城市，按热门等级降序、创建时间降序排列
+     */
+    public List<City> getCities() {
+        return snapshot.cities;
+    }
+
+    public EventCategory getCategory(Long id) {
+        return id != null ? snapshot.categoriesById.get(id) : null;
+    }
+
+    /**
+     * 所有演出分类，按排序字段升序、创建时间降序排列
+     */
+    public List<EventCategory> getCategories() {
+        return snapshot.categories;
+    }
+
+    /**
+     * 城市或分类变更后调用：在事务中时等提交后再发布，避免载入未提交的数据或回滚前的数据
+     */
+    public void onChange() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publishChange();
+                }
+            });
+        } else {
+            publishChange();
+        }
+    }
+
+    /**
+     * 有待发布的变更时补发（递增版本号并广播），否则比对Redis中的版本号，不一致时重新载入
+     * @return 是否重新载入
+     */
+    public boolean refresh() {
+        if (publishPending.compareAndSet(true, false)) {
+            publishChange();
+            return true;
+        }
+        Long version = getRemoteVersion();
+        if (version == null || version == snapshot.version) {
+            return false;
+        }
+        reload(version);
+        return true;
+    }
+
+    /**
+     * 递增版本号，重新载入本节点的快照并广播给其他节点
+     */
+    private void publishChange() {
+        long version;
+        try {
+            version = stringRedisTemplate.opsForValue().increment(VERSION_KEY);
+        } catch (Exception e) {
+            // 版本号没有递增，其他节点比对版本号发现不了这次变更：先只刷新本节点，记下待发布，由定时任务重试
+            log.warn("递增字典版本号失败，只刷新本节点快照，等待补发: {}", e.getMessage());
+            publishPending.set(true);
+            reload(snapshot.version);
+            return;
+        }
+        reload(version);
+        clusterBroadcaster.publish(TOPIC, String.valueOf(version));
+    }
+
+    /**
+     * 从数据库载入城市和分类，整体替换快照
+     */
+    private synchronized void reload(long version) {
+        List<City> cities = List.copyOf(cityMapper.selectAll());
+        List<EventCategory> categories = List.copyOf(eventCategoryMapper.selectAll());
+        snapshot = new Snapshot(version, cities, categories);
+        log.info("字典快照已载入: version={}, 城市数: {}, 分类数: {}", version, cities.size(), categories.size());
+    }
+
+    private Long getRemoteVersion() {
+        try {
+            String value = stringRedisTemplate.opsForValue().get(VERSION_KEY);
+            return value != null ? Long.parseLong(value) : 0L;
+        } catch (Exception e) {
+            log.warn("读取字典版本号失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 不可变的字典快照，列表保持数据库查询的排序
+     */
+    private static final class Snapshot {
+        private final long version;
+        private final List<City> cities;
+        private final List<EventCategory> categories;
+        private final Map<Long, City> citiesById;
+        private final Map<String, City> citiesByName;
+        private final Map<Long, EventCategory> categoriesById;
+
+        private Snapshot(long version, List<City> cities, List<EventCategory> categories) {
+            this.version = version;
+            this.cities = cities;
+            this.categories = categories;
+            Map<Long, City> byId = new HashMap<>();
+            Map<String, City> byName = new HashMap<>();
+            for (City city : cities) {
+                byId.put(city.getId(), city);
+                if (city.getName() != null) {
+                    byName.putIfAbsent(city.getName(), city);
+                }
+            }
+            Map<Long, EventCategory> categoryById = new HashMap<>();
+            for (EventCategory category : categories) {
+                categoryById.put(category.getId(), category);
+            }
+            this.citiesById = Map.copyOf(byId);
+            this.citiesByName = Map.copyOf(byName);
+            this.categoriesById = Map.copyOf(categoryById);
+        }
+    }
+}
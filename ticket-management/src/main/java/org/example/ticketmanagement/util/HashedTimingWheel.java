@@ -0,0 +1,258 @@
+package org.example.ticketmanagement.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 哈希时间轮
+ * 定时任务按到期时间散列到环形槽位中，新增、取消、到期都是 O(1)，
+ * 适合订单支付超时这类数量巨大、精度要求不高的延时任务，避免定时扫表
+ * 时间轮线程只负责推进槽位，到期任务交给 taskExecutor 执行
+ */
+@Slf4j
+public class HashedTimingWheel {
+
+    private final long tickMillis;
+    private final int mask;
+    private final Bucket[] wheel;
+    private final Executor taskExecutor;
+    private final ConcurrentLinkedQueue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final Thread workerThread;
+    private final long startTime;
+
+    private volatile boolean running = true;
+    private long tick;
+
+    /**
+     * @param name 时间轮线程名称
+     * @param tickDuration 每个槽位代表的时间
+     * @param unit 时间单位
+     * @param wheelSize 槽位数量（会向上取整为2的幂）
+     * @param taskExecutor 到期任务的执行器
+     */
+    public HashedTimingWheel(String name, long tickDuration, TimeUnit unit, int wheelSize, Executor taskExecutor) {
+        if (tickDuration <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("时间轮参数必须大于0");
+        }
+        this.tickMillis = Math.max(1, unit.toMillis(tickDuration));
+        int size = Integer.highestOneBit(wheelSize - 1) << 1;
+        size = Math.max(size, 1);
+        this.mask = size - 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.taskExecutor = taskExecutor;
+        this.startTime = System.currentTimeMillis();
+        this.workerThread = new Thread(this::runWorker, name);
+        this.workerThread.setDaemon(true);
+        this.workerThread.start();
+    }
+
+    /**
+     * 新增延时任务
+     * @return 可用于取消任务的句柄
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        if (!running) {
+            throw new IllegalStateException("时间轮已停止");
+        }
+        long deadline = System.currentTimeMillis() + Math.max(0, unit.toMillis(delay));
+        Timeout timeout = new Timeout(this, task, deadline);
+        pendingCount.incrementAndGet();
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * 当前尚未到期的任务数量
+     */
+    public int pendingTimeouts() {
+        return pendingCount.get();
+    }
+
+    /**
+     * 停止时间轮，未到期的任务不再执行
+     */
+    public void stop() {
+        running = false;
+        workerThread.interrupt();
+    }
+
+    private void runWorker() {
+        while (running) {
+            long deadline = startTime + (tick + 1) * tickMillis;
+            long sleepMillis = deadline - System.currentTimeMillis();
+            if (sleepMillis > 0) {
+                try {
+                    Thread.sleep(sleepMillis);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        break;
+                    }
+                    continue;
+                }
+            }
+
+            try {
+                processCancelledTimeouts();
+                transferPendingTimeouts();
+                wheel[(int) (tick & mask)].expireTimeouts();
+            } catch (Exception e) {
+                log.error("时间轮推进异常", e);
+            }
+            tick++;
+        }
+    }
+
+    /**
+     * 把新增的任务放入对应槽位
+     */
+    private void transferPendingTimeouts() {
+        Timeout timeout;
+        while ((timeout = pendingTimeouts.poll()) != null) {
+            if (timeout.state.get() == Timeout.ST_CANCELLED) {
+                continue;
+            }
+            long calculated = (timeout.deadline - startTime) / tickMillis;
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+            // 已经过期的任务放到当前槽位，本次推进就会执行
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private void processCancelledTimeouts() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void execute(Timeout timeout) {
+        pendingCount.decrementAndGet();
+        try {
+            taskExecutor.execute(timeout.task);
+        } catch (Exception e) {
+            log.error("时间轮任务提交失败", e);
+        }
+    }
+
+    /**
+     * 延时任务句柄
+     */
+    public static final class Timeout {
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+
+        private final HashedTimingWheel timingWheel;
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(ST_INIT);
+
+        // 以下字段只在时间轮线程中访问
+        private long remainingRounds;
+        private Timeout next;
+        private Timeout prev;
+        private Bucket bucket;
+
+        private Timeout(HashedTimingWheel timingWheel, Runnable task, long deadline) {
+            this.timingWheel = timingWheel;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * 取消任务
+         * @return 取消成功返回 true，已到期或已取消返回 false
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            timingWheel.pendingCount.decrementAndGet();
+            timingWheel.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == ST_CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == ST_EXPIRED;
+        }
+
+        private void expire() {
+            if (state.compareAndSet(ST_INIT, ST_EXPIRED)) {
+                timingWheel.execute(this);
+            }
+        }
+    }
+
+    /**
+     * 槽位：双向链表，保证任务的移除是 O(1)
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        private void expireTimeouts() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    // 槽位按到期时间计算，轮到该槽位时任务一定已到期
+                    remove(timeout);
+                    timeout.expire();
+                } else if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = timeout.next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
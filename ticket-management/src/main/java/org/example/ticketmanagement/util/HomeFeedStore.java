@@ -0,0 +1,176 @@
+package org.example.ticketmanagement.util;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.config.HomeFeedConfig;
+import org.example.ticketmanagement.vo.EventVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 首页推荐物化存储
+ * 按 城市 -> 分类:条数 保存推荐演出列表（分段），首页请求只读取分段，缺失或过期的分段合并为一次查询重建：
+ * 1. 演出新增、修改、删除后只失效该演出所在城市和分类的分段（修改前后的城市、分类都失效），并广播给其他节点
+ * 2. 每个分段在其中最早结束的演出结束时过期，下次读取时重建（结束的演出移出、后面的演出补上）；
+ *    到期前按概率由单个请求提前重建，同一城市、条数的并发重建只查询一次数据库（SingleFlight）
+ * 分类、城市信息不放在分段里，由调用方每次从字典快照读取，分类、城市变更不需要失效分段
+ * 分段中的演出列表由所有调用方共享，调用方不能修改
+ */
+@Slf4j
+@Component
+public class HomeFeedStore {
+
+    private static final String TOPIC = "home-feed";
+
+    @Autowired
+    private HomeFeedConfig homeFeedConfig;
+
+    @Autowired
+    private ClusterBroadcaster clusterBroadcaster;
+
+    @Autowired
+    private SingleFlight singleFlight;
+
+    // 城市ID -> (分类ID:条数 -> 分段)
+    private final ConcurrentHashMap<Long, ConcurrentHashMap<String, Segment>> feeds = new ConcurrentHashMap<>();
+    // 失效次数，重建期间发生过失效的分段不写入，避免写回失效前查到的旧数据
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        clusterBroadcaster.subscribe(TOPIC, payload -> {
+            int index = payload.indexOf(':');
+            doInvalidate(Long.valueOf(payload.substring(0, index)), Long.valueOf(payload.substring(index + 1)));
+        });
+    }
+
+    /**
+     * 读取城市下多个分类的推荐演出，缺失或过期的分段一起交给 loader 一次查询重建
+     * @return 分类ID -> 演出列表，顺序与 categoryIds 一致
+     */
+    public Map<Long, List<EventVO>> get(Long cityId, List<Long> categoryIds, int limit,
+                                        Function<List<Long>, Map<Long, List<EventVO>>> loader) {
+        if (!homeFeedConfig.isEnabled() || limit > homeFeedConfig.getMaxCachedLimit()) {
+            return loader.apply(categoryIds);
+        }
+        ConcurrentHashMap<String, Segment> segments = feeds.computeIfAbsent(cityId, id -> new ConcurrentHashMap<>());
+        long now = System.currentTimeMillis();
+        Map<Long, List<EventVO>> result = new LinkedHashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long categoryId : categoryIds) {
+            Segment segment = segments.get(categoryId + ":" + limit);
+            if (segment != null && now < segment.expiresAt
+                    && !singleFlight.shouldRefreshEarly(segment.loadMillis, segment.expiresAt)) {
+                result.put(categoryId, segment.events);
+            } else {
+                result.put(categoryId, null);
+                missing.add(categoryId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        Map<Long, List<EventVO>> loaded = singleFlight.execute("home:" + cityId + ":" + limit + ":" + missing,
+                () -> rebuild(segments, cityId, missing, limit, loader));
+        result.putAll(loaded);
+        return result;
+    }
+
+    /**
+     * 一次查询重建多个分段，重建期间没有发生失效时写入
+     */
+    private Map<Long, List<EventVO>> rebuild(ConcurrentHashMap<String, Segment> segments, Long cityId,
+                                             List<Long> categoryIds, int limit,
+                                             Function<List<Long>, Map<Long, List<EventVO>>> loader) {
+        long stamp = invalidations.get();
+        long start = System.currentTimeMillis();
+        Map<Long, List<EventVO>> loaded = loader.apply(categoryIds);
+        long now = System.currentTimeMillis();
+        boolean unchanged = invalidations.get() == stamp;
+        Map<Long, List<EventVO>> result = new LinkedHashMap<>();
+        for (Long categoryId : categoryIds) {
+            List<EventVO> events = List.copyOf(loaded.getOrDefault(categoryId, List.of()));
+            result.put(categoryId, events);
+            if (unchanged) {
+                segments.put(categoryId + ":" + limit, new Segment(events, now - start, expiresAt(events, now)));
+            }
+        }
+        log.debug("重建首页推荐分段: cityId={}, categoryIds={}, limit={}", cityId, categoryIds, limit);
+        return result;
+    }
+
+    /**
+     * 失效城市、分类下的推荐分段（演出新增、修改、删除后调用）
+     * 在事务中失效时，提交后再失效一次，避免提交前被并发读取重建为旧数据
+     */
+    public void invalidate(Long cityId, Long categoryId) {
+        if (cityId == null || categoryId == null) {
+            return;
+        }
+        String payload = cityId + ":" + categoryId;
+        doInvalidate(cityId, categoryId);
+        clusterBroadcaster.publish(TOPIC, payload);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doInvalidate(cityId, categoryId);
+                    clusterBroadcaster.publish(TOPIC, payload);
+                }
+            });
+        }
+    }
+
+    private void doInvalidate(Long cityId, Long categoryId) {
+        invalidations.incrementAndGet();
+        ConcurrentHashMap<String, Segment> segments = feeds.get(cityId);
+        if (segments != null) {
+            String prefix = categoryId + ":";
+            segments.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+    }
+
+    /**
+     * 分段过期时间：最早结束的演出的结束时间，不超过最长存活时间
+     */
+    private long expiresAt(List<EventVO> events, long now) {
+        long expiresAt = now + homeFeedConfig.getMaxTtl() * 1000;
+        ZoneId zone = ZoneId.systemDefault();
+        for (EventVO event : events) {
+            LocalDateTime endTime = event.getEventEndTime();
+            if (endTime != null) {
+                expiresAt = Math.min(expiresAt, endTime.atZone(zone).toInstant().toEpochMilli());
+            }
+        }
+        return expiresAt;
+    }
+
+    /**
+     * 不可变的推荐分段
+     */
+    private static final class Segment {
+        private final List<EventVO> events;
+        // 重建耗时（毫秒）
+        private final long loadMillis;
+        private final long expiresAt;
+
+        private Segment(List<EventVO> events, long loadMillis, long expiresAt) {
+            this.events = events;
+            this.loadMillis = loadMillis;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
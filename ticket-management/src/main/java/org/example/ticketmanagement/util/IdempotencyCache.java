@@ -0,0 +1,136 @@
+package org.example.ticketmanagement.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.config.IdempotencyConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 幂等键缓存（本地 + Redis）
+ * Redis 上的 SET NX 负责跨节点抢占幂等键，请求完成后把结果同时写入本地缓存与Redis；
+ * 重试命中本地缓存时不产生任何I/O，命中其他节点写入的结果时只读一次Redis；
+ * Redis降级期间改在本地抢占幂等键，只能保证同一节点上的重试不会重复执行
+ */
+@Slf4j
+@Component
+public class IdempotencyCache {
+
+    // 处理中标记
+    public static final String PROCESSING = "PROCESSING";
+
+    private static final String KEY_PREFIX = "idempotency:";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private IdempotencyConfig idempotencyConfig;
+
+    @Autowired
+    private DegradedStockManager degradedStockManager;
+
+    // 已完成请求的结果，容量和存活时间都有上限
+    private Cache<String, String> localResults;
+    // Redis降级期间在本地抢占的处理中标记，与Redis上的标记同样到期后允许重试
+    private Cache<String, String> localClaims;
+
+    @PostConstruct
+    public void init() {
+        localResults = Caffeine.newBuilder()
+                .maximumSize(idempotencyConfig.getLocalMaxSize())
+                .expireAfterWrite(Duration.ofSeconds(idempotencyConfig.getTtl()))
+                .build();
+        localClaims = Caffeine.newBuilder()
+                .maximumSize(idempotencyConfig.getLocalMaxSize())
+                .expireAfterWrite(Duration.ofSeconds(idempotencyConfig.getProcessingTtl()))
+                .build();
+    }
+
+    /**
+     * 开始处理一个幂等请求
+     * @return null 表示抢占成功，调用方应执行请求；否则返回 PROCESSING 或第一次请求的结果
+     */
+    public String begin(String key) {
+        String local = localResults.getIfPresent(key);
+        if (local != null) {
+            return local;
+        }
+
+        if (degradedStockManager.isDegraded()) {
+            return beginLocal(key);
+        }
+
+        String redisKey = KEY_PREFIX + key;
+        String existing;
+        try {
+            Boolean claimed = stringRedisTemplate.opsForValue().setIfAbsent(redisKey, PROCESSING,
+                    Duration.ofSeconds(idempotencyConfig.getProcessingTtl()));
+            if (Boolean.TRUE.equals(claimed)) {
+                return null;
+            }
+            existing = stringRedisTemplate.opsForValue().get(redisKey);
+        } catch (DataAccessException e) {
+            if (!degradedStockManager.failOpen(e)) {
+                throw e;
+            }
+            log.warn("抢占幂等键失败，Redis降级期间改为本地抢占: {}", key);
+            return beginLocal(key);
+        }
+        if (existing == null) {
+            // 处理中标记恰好过期，按处理中返回，由客户端稍后重试
+            return PROCESSING;
+        }
+        if (!PROCESSING.equals(existing)) {
+            localResults.put(key, existing);
+        }
+        return existing;
+    }
+
+    /**
+     * 请求成功，保存结果
+     * 请求已经产生写入，保存结果失败时不能再让调用方报错：只记录日志，本节点的重试仍能命中本地缓存
+     */
+    public void complete(String key, String result) {
+        localResults.put(key, result);
+        localClaims.invalidate(key);
+        if (degradedStockManager.isDegraded()) {
+            return;
+        }
+        try {
+            stringRedisTemplate.opsForValue().set(KEY_PREFIX + key, result,
+                    Duration.ofSeconds(idempotencyConfig.getTtl()));
+        } catch (Exception e) {
+            log.error("保存幂等结果到Redis失败，其他节点在处理中标记过期后可能重复执行: key={}, result={}", key, result, e);
+        }
+    }
+
+    /**
+     * 请求失败（没有产生任何写入），释放幂等键以允许重试
+     */
+    public void abort(String key) {
+        localClaims.invalidate(key);
+        if (degradedStockManager.isDegraded()) {
+            return;
+        }
+        try {
+            stringRedisTemplate.delete(KEY_PREFIX + key);
+        } catch (Exception e) {
+            log.warn("释放幂等键失败，等待处理中标记过期: {}", key, e);
+        }
+    }
+
+    /**
+     * 在本地抢占幂等键
+     * @return null 表示抢占成功，否则返回 PROCESSING
+     */
+    private String beginLocal(String key) {
+        return localClaims.asMap().putIfAbsent(key, PROCESSING);
+    }
+}
@@ -0,0 +1,654 @@
+package org.example.ticketmanagement.util;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.config.JournalConfig;
+import org.example.ticketmanagement.config.StockConfig;
+import org.example.ticketmanagement.mapper.StockJournalCheckpointMapper;
+import org.example.ticketmanagement.mapper.TicketTierMapper;
+import org.example.ticketmanagement.pojo.StockJournalCheckpoint;
+import org.example.ticketmanagement.pojo.TicketTier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * 本地日志库存引擎（stock.engine=journal）
+ * 库存计数保存在本节点内存中，每次预扣/释放先追加到内存映射的库存日志再修改内存计数，
+ * 下单路径上没有网络和数据库往返；后台按批把累计增量回写 ticket_tier，
+ * 并在同一事务中记录回写到的日志序号，崩溃后以“快照 + 快照之后的日志”重建内存计数，
+ * 只有序号大于回写位点的记录才计入待回写增量，每笔增量只会回写一次
+ * 注意：计数只存在于本节点，同一票档只能由一个节点售卖；多节点部署时开启场次属主路由（ownership.enabled），
+ * 由 SessionOwnershipManager 保证每个场次只在属主节点上载入
+ */
+@Slf4j
+@Component
+public class JournalStockEngine {
+
+    // 返回值：库存不足
+    public static final long INSUFFICIENT = -1L;
+    // 返回值：票档未载入内存
+    public static final long NOT_LOADED = -2L;
+
+    private static final String SNAPSHOT_FILE = "snapshot.dat";
+    private static final int SNAPSHOT_MAGIC = 0x534E4150;
+
+    @Autowired
+    private JournalConfig journalConfig;
+
+    @Autowired
+    private StockConfig stockConfig;
+
+    @Autowired
+    private TicketTierMapper ticketTierMapper;
+
+    @Autowired
+    private StockJournalCheckpointMapper checkpointMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // 写锁：日志追加与内存计数变更在同一把锁内完成，保证日志顺序即变更顺序
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // 维护锁：回写、快照、对账互斥，保证快照中的待回写增量与数据库回写位点一致
+    private final ReentrantLock maintenanceLock = new ReentrantLock();
+    private final ConcurrentHashMap<Long, TierStock> stocks = new ConcurrentHashMap<>();
+    // 正在移交的票档：计数仍保留以便回写增量，但不再接受预扣和释放
+    private final Set<Long> frozen = ConcurrentHashMap.newKeySet();
+    // 同步版本：每次载入、覆盖、取出增量回写时递增并记到票档上，对账据此判断读取数据库库存之后计数是否与数据库同步过
+    private volatile long syncVersion;
+    private StockJournal journal;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!stockConfig.isJournalEngine()) {
+            return;
+        }
+        recover();
+        log.warn("本地日志库存引擎已启用，库存计数只存在于本节点，同一票档只能由一个节点售卖");
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * 载入库存（票档已在内存中时不覆盖）
+     * @return 本次是否载入了新计数
+     */
+    public boolean load(Long tierId, int stock) {
+        writeLock.lock();
+        try {
+            if (stocks.containsKey(tierId)) {
+                return false;
+            }
+            append(StockJournal.TYPE_LOAD, tierId, stock);
+            stocks.put(tierId, newTierStock(stock));
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 预扣库存
+     * @return 剩余库存；库存不足返回 INSUFFICIENT，未载入返回 NOT_LOADED
+     */
+    public long reserve(Long tierId, int quantity) {
+        writeLock.lock();
+        try {
+            TierStock tierStock = stocks.get(tierId);
+            if (tierStock == null || frozen.contains(tierId)) {
+                return NOT_LOADED;
+            }
+            if (tierStock.stock < quantity) {
+                return INSUFFICIENT;
+            }
+            append(StockJournal.TYPE_RESERVE, tierId, quantity);
+            tierStock.stock -= quantity;
+            tierStock.pending += quantity;
+            return tierStock.stock;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 同时预扣多个票档的库存：全部载入且全部足够时才扣减，否则一张都不扣
+     * @param quantities 票档ID -> 预扣数量
+     * @return 成功返回 0；任一票档库存不足返回 INSUFFICIENT，任一票档未载入返回 NOT_LOADED
+     */
+    public long reserveAll(Map<Long, Integer> quantities) {
+        writeLock.lock();
+        try {
+            // 1. 先校验全部票档，不满足时不写日志
+            boolean insufficient = false;
+            for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+                TierStock tierStock = stocks.get(entry.getKey());
+                if (tierStock == null || frozen.contains(entry.getKey())) {
+                    return NOT_LOADED;
+                }
+                if (tierStock.stock < entry.getValue()) {
+                    insufficient = true;
+                }
+            }
+            if (insufficient) {
+                return INSUFFICIENT;
+            }
+
+            // 2. 逐个追加日志并扣减；写日志失败时把已扣减的票档补一条释放记录后抛出
+            List<Map.Entry<Long, Integer>> applied = new ArrayList<>();
+            try {
+                for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+                    append(StockJournal.TYPE_RESERVE, entry.getKey(), entry.getValue());
+                    TierStock tierStock = stocks.get(entry.getKey());
+                    tierStock.stock -= entry.getValue();
+                    tierStock.pending += entry.getValue();
+                    applied.add(entry);
+                }
+            } catch (UncheckedIOException e) {
+                for (Map.Entry<Long, Integer> entry : applied) {
+                    append(StockJournal.TYPE_RELEASE, entry.getKey(), entry.getValue());
+                    TierStock tierStock = stocks.get(entry.getKey());
+                    tierStock.stock += entry.getValue();
+                    tierStock.pending -= entry.getValue();
+                }
+                throw e;
+            }
+            return 0;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 释放库存
+     * @return 释放后的库存；未载入返回 NOT_LOADED
+     */
+    public long release(Long tierId, int quantity) {
+        writeLock.lock();
+        try {
+            TierStock tierStock = stocks.get(tierId);
+            if (tierStock == null || frozen.contains(tierId)) {
+                return NOT_LOADED;
+            }
+            append(StockJournal.TYPE_RELEASE, tierId, quantity);
+            tierStock.stock += quantity;
+            tierStock.pending -= quantity;
+            return tierStock.stock;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 调整库存计数（管理端修改可用库存后使用，数据库在同一次修改中按相同的调整量更新）
+     * 只改变计数，不计入待回写增量，期间的预扣、释放不受影响；同时推进同步版本，进行中的对账跳过该票档
+     * @param delta 调整量，负数表示减少
+     * @return 调整后的库存；调整后小于0返回 INSUFFICIENT，未载入返回 NOT_LOADED
+     */
+    public long adjust(Long tierId, int delta) {
+        writeLock.lock();
+        try {
+            TierStock tierStock = stocks.get(tierId);
+            if (tierStock == null || frozen.contains(tierId)) {
+                return NOT_LOADED;
+            }
+            if (tierStock.stock + delta < 0) {
+                return INSUFFICIENT;
+            }
+            append(StockJournal.TYPE_ADJUST, tierId, delta);
+            tierStock.stock += delta;
+            tierStock.syncedVersion = ++syncVersion;
+            return tierStock.stock;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 移除库存计数（票档删除时使用）
+     */
+    public void remove(Long tierId) {
+        writeLock.lock();
+        try {
+            if (stocks.containsKey(tierId)) {
+                append(StockJournal.TYPE_REMOVE, tierId, 0);
+                stocks.remove(tierId);
+            }
+            frozen.remove(tierId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 移交票档（场次属主变化、其他节点修改票档时使用）：
+     * 先冻结票档，之后的预扣、释放都返回 NOT_LOADED；再回写待回写增量，回写成功后移除计数。
+     * 回写失败的票档保持冻结并保留计数，下次移交时重试
+     * @return 已移除的票档数量
+     */
+    public int handOff(Collection<Long> tierIds) {
+        maintenanceLock.lock();
+        try {
+            // 1. 冻结票档，冻结之后不会再产生新的增量
+            writeLock.lock();
+            try {
+                for (Long tierId : tierIds) {
+                    if (stocks.containsKey(tierId)) {
+                        frozen.add(tierId);
+                    }
+                }
+            } finally {
+                writeLock.unlock();
+            }
+
+            // 2. 回写冻结前累计的增量
+            drain(tierIds);
+
+            // 3. 移除已回写完的票档
+            int removed = 0;
+            writeLock.lock();
+            try {
+                for (Long tierId : tierIds) {
+                    TierStock tierStock = stocks.get(tierId);
+                    if (tierStock == null) {
+                        frozen.remove(tierId);
+                        removed++;
+                        continue;
+                    }
+                    if (tierStock.pending != 0) {
+                        continue;
+                    }
+                    append(StockJournal.TYPE_REMOVE, tierId, 0);
+                    stocks.remove(tierId);
+                    frozen.remove(tierId);
+                    removed++;
+                }
+            } finally {
+                writeLock.unlock();
+            }
+            return removed;
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+
+    /**
+     * 获取内存中的库存计数，未载入返回null
+     */
+    public Integer getStock(Long tierId) {
+        TierStock tierStock = stocks.get(tierId);
+        return tierStock != null ? tierStock.stock : null;
+    }
+
+    /**
+     * 获取尚未回写数据库的累计扣减数量（释放为负数），未载入返回null
+     */
+    public Long getPending(Long tierId) {
+        writeLock.lock();
+        try {
+            TierStock tierStock = stocks.get(tierId);
+            return tierStock != null ? tierStock.pending : null;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 获取当前同步版本，对账时在读取数据库库存之前调用
+     */
+    public long getSyncVersion() {
+        return syncVersion;
+    }
+
+    /**
+     * 获取所有已载入的票档ID
+     */
+    public Set<Long> getLoadedTierIds() {
+        return new HashSet<>(stocks.keySet());
+    }
+
+    /**
+     * 把所有票档的待回写增量回写数据库
+     * @return 本次回写的票档数量
+     */
+    public int drain() {
+        return drain(stocks.keySet());
+    }
+
+    /**
+     * 把指定票档的待回写增量按批回写数据库，每批一个事务，同时推进回写位点
+     * 回写失败或超出库存区间的增量都放回内存等待下次重试，不会丢弃取出之后新发生的预扣和释放
+     * @return 本次回写的票档数量
+     */
+    public int drain(Collection<Long> tierIds) {
+        maintenanceLock.lock();
+        try {
+            // 1. 在写锁内取出增量，取出时的最后序号之前的记录都已计入增量
+            Map<Long, Long> deltas = new LinkedHashMap<>();
+            long seq;
+            writeLock.lock();
+            try {
+                seq = journal.getLastSeq();
+                long version = ++syncVersion;
+                for (Long tierId : tierIds) {
+                    TierStock tierStock = stocks.get(tierId);
+                    if (tierStock != null && tierStock.pending != 0) {
+                        deltas.put(tierId, tierStock.pending);
+                        tierStock.pending = 0;
+                        tierStock.syncedVersion = version;
+                    }
+                }
+            } finally {
+                writeLock.unlock();
+            }
+            if (deltas.isEmpty()) {
+                return 0;
+            }
+
+            // 2. 按批回写
+            int drained = 0;
+            List<Map.Entry<Long, Long>> entries = new ArrayList<>(deltas.entrySet());
+            int batchSize = Math.max(1, journalConfig.getDrainBatchSize());
+            for (int from = 0; from < entries.size(); from += batchSize) {
+                List<Map.Entry<Long, Long>> batch = entries.subList(from, Math.min(from + batchSize, entries.size()));
+                drained += drainBatch(batch, seq);
+            }
+            return drained;
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+
+    /**
+     * 以数据库库存为准对账
+     * @param version 读取数据库库存之前取得的同步版本，之后票档回写或覆盖过时跳过，避免用旧库存覆盖计数
+     * @return 0-一致，1-已修正，-1-存在待回写增量或期间同步过跳过，-2-未载入
+     */
+    public long reconcile(Long tierId, int dbStock, long version) {
+        maintenanceLock.lock();
+        writeLock.lock();
+        try {
+            TierStock tierStock = stocks.get(tierId);
+            if (tierStock == null) {
+                return NOT_LOADED;
+            }
+            if (tierStock.pending != 0 || tierStock.syncedVersion > version) {
+                return -1;
+            }
+            if (tierStock.stock == dbStock) {
+                return 0;
+            }
+            append(StockJournal.TYPE_OVERWRITE, tierId, dbStock);
+            stocks.put(tierId, newTierStock(dbStock));
+            return 1;
+        } finally {
+            writeLock.unlock();
+            maintenanceLock.unlock();
+        }
+    }
+
+    /**
+     * 生成快照并删除快照已覆盖的日志段
+     * 快照先写临时文件并刷盘，再原子替换旧快照，任何时刻崩溃都至少保留一份完整快照
+     * @return 快照对应的日志序号
+     */
+    public long snapshot() throws IOException {
+        maintenanceLock.lock();
+        try {
+            // 1. 在写锁内复制内存计数
+            long seq;
+            Map<Long, TierStock> copy = new HashMap<>();
+            writeLock.lock();
+            try {
+                seq = journal.getLastSeq();
+                for (Map.Entry<Long, TierStock> entry : stocks.entrySet()) {
+                    copy.put(entry.getKey(), new TierStock(entry.getValue().stock, entry.getValue().pending));
+                }
+            } finally {
+                writeLock.unlock();
+            }
+
+            // 2. 写入临时文件并刷盘后原子替换，文件末尾是内容的校验和
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(seq);
+            out.writeInt(copy.size());
+            for (Map.Entry<Long, TierStock> entry : copy.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeInt(entry.getValue().stock);
+                out.writeLong(entry.getValue().pending);
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(bytes.toByteArray());
+            out.writeLong(crc.getValue());
+
+            Path dir = Paths.get(journalConfig.getDir());
+            Path tmp = dir.resolve(SNAPSHOT_FILE + ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(bytes.toByteArray()));
+                channel.force(true);
+            }
+            Files.move(tmp, dir.resolve(SNAPSHOT_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            // 3. 清理快照已覆盖的日志段
+            int deleted = journal.truncateBefore(seq);
+            log.info("库存日志快照完成: seq={}, 票档数: {}, 清理日志段: {}", seq, copy.size(), deleted);
+            return seq;
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+
+    /**
+     * 回写一批增量
+     * @return 成功回写的票档数量
+     */
+    private int drainBatch(List<Map.Entry<Long, Long>> batch, long seq) {
+        List<Long> outOfRange = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Map.Entry<Long, Long> entry : batch) {
+                    if (ticketTierMapper.applyStockDelta(entry.getKey(), entry.getValue()) == 1) {
+                        checkpointMapper.upsert(journalConfig.getJournalId(), entry.getKey(), seq);
+                    } else {
+                        outOfRange.add(entry.getKey());
+                    }
+                }
+            });
+        } catch (Exception e) {
+            log.error("库存日志增量回写异常，稍后重试: 票档数={}", batch.size(), e);
+            restorePending(batch);
+            return 0;
+        }
+
+        // 越界的增量对应真实的预扣/释放，放回待回写增量（取出之后的新增量仍在内存中），不用数据库库存覆盖计数
+        List<Map.Entry<Long, Long>> restored = new ArrayList<>();
+        for (Map.Entry<Long, Long> entry : batch) {
+            if (!outOfRange.contains(entry.getKey())) {
+                continue;
+            }
+            TicketTier tier = ticketTierMapper.selectById(entry.getKey());
+            if (tier == null) {
+                log.warn("库存日志增量回写跳过，票档已删除: tierId={}", entry.getKey());
+                remove(entry.getKey());
+                continue;
+            }
+            log.error("库存日志增量回写失败，库存越界，增量已放回待回写，需人工核对: tierId={}, delta={}, db={}",
+                    entry.getKey(), entry.getValue(), tier.getAvailableStock());
+            restored.add(entry);
+        }
+        restorePending(restored);
+        return batch.size() - outOfRange.size();
+    }
+
+    /**
+     * 把未能回写的增量放回内存中的待回写增量
+     */
+    private void restorePending(List<Map.Entry<Long, Long>> entries) {
+        writeLock.lock();
+        try {
+            for (Map.Entry<Long, Long> entry : entries) {
+                TierStock tierStock = stocks.get(entry.getKey());
+                if (tierStock != null) {
+                    tierStock.pending += entry.getValue();
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 崩溃恢复：载入快照，再重放快照之后的日志
+     */
+    private void recover() throws IOException {
+        Path dir = Paths.get(journalConfig.getDir());
+        Files.createDirectories(dir);
+
+        // 1. 读取数据库中的回写位点
+        Map<Long, Long> checkpoints = new HashMap<>();
+        for (StockJournalCheckpoint checkpoint : checkpointMapper.selectByJournalId(journalConfig.getJournalId())) {
+            checkpoints.put(checkpoint.getTierId(), checkpoint.getAppliedSeq());
+        }
+
+        // 2. 载入快照：回写位点已越过快照序号的票档，快照中的待回写增量已经写入数据库
+        long snapshotSeq = loadSnapshot(dir.resolve(SNAPSHOT_FILE), checkpoints);
+
+        // 3. 重放快照之后的日志，只有序号大于回写位点的记录计入待回写增量
+        Long maxAppliedSeq = checkpointMapper.selectMaxAppliedSeq(journalConfig.getJournalId());
+        journal = new StockJournal(dir, journalConfig.getSegmentSize(), journalConfig.getFsyncInterval());
+        long lastSeq = journal.open(snapshotSeq, maxAppliedSeq != null ? maxAppliedSeq : 0L,
+                (seq, type, tierId, value) -> replay(seq, type, tierId, value,
+                        checkpoints.getOrDefault(tierId, 0L)));
+        log.info("本地日志库存恢复完成: 快照序号={}, 最后序号={}, 票档数: {}", snapshotSeq, lastSeq, stocks.size());
+    }
+
+    private long loadSnapshot(Path file, Map<Long, Long> checkpoints) throws IOException {
+        if (!Files.exists(file)) {
+            return 0L;
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        if (bytes.length < Long.BYTES) {
+            throw new IOException("库存日志快照不完整: " + file);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, bytes.length - Long.BYTES);
+        if (ByteBuffer.wrap(bytes, bytes.length - Long.BYTES, Long.BYTES).getLong() != crc.getValue()) {
+            throw new IOException("库存日志快照校验失败: " + file);
+        }
+
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (data.readInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("库存日志快照格式错误: " + file);
+        }
+        long seq = data.readLong();
+        int count = data.readInt();
+        for (int i = 0; i < count; i++) {
+            long tierId = data.readLong();
+            int stock = data.readInt();
+            long pending = data.readLong();
+            boolean applied = checkpoints.getOrDefault(tierId, 0L) >= seq;
+            stocks.put(tierId, new TierStock(stock, applied ? 0 : pending));
+        }
+        return seq;
+    }
+
+    private void replay(long seq, int type, long tierId, int value, long appliedSeq) {
+        switch (type) {
+            case StockJournal.TYPE_LOAD, StockJournal.TYPE_OVERWRITE -> stocks.put(tierId, new TierStock(value));
+            case StockJournal.TYPE_REMOVE -> stocks.remove(tierId);
+            case StockJournal.TYPE_ADJUST -> {
+                TierStock tierStock = stocks.get(tierId);
+                if (tierStock == null) {
+                    log.warn("库存日志记录对应的票档未载入，跳过: seq={}, tierId={}", seq, tierId);
+                    return;
+                }
+                tierStock.stock += value;
+            }
+            case StockJournal.TYPE_RESERVE, StockJournal.TYPE_RELEASE -> {
+                TierStock tierStock = stocks.get(tierId);
+                if (tierStock == null) {
+                    log.warn("库存日志记录对应的票档未载入，跳过: seq={}, tierId={}", seq, tierId);
+                    return;
+                }
+                int delta = type == StockJournal.TYPE_RESERVE ? value : -value;
+                tierStock.stock -= delta;
+                if (seq > appliedSeq) {
+                    tierStock.pending += delta;
+                }
+            }
+            default -> log.warn("未知的库存日志记录类型: seq={}, type={}", seq, type);
+        }
+    }
+
+    /**
+     * 新建与数据库同步的计数并分配同步版本，须在写锁内调用
+     */
+    private TierStock newTierStock(int stock) {
+        TierStock tierStock = new TierStock(stock);
+        tierStock.syncedVersion = ++syncVersion;
+        return tierStock;
+    }
+
+    private void append(int type, Long tierId, int value) {
+        try {
+            journal.append(type, tierId, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入库存日志失败", e);
+        }
+    }
+
+    /**
+     * 单个票档的内存计数，修改都在写锁内进行
+     */
+    private static final class TierStock {
+        private volatile int stock;
+        // 尚未回写数据库的累计扣减数量（释放为负数）
+        private long pending;
+        // 最近一次与数据库同步（载入、覆盖、取出增量）时的同步版本
+        private long syncedVersion;
+
+        private TierStock(int stock) {
+            this(stock, 0);
+        }
+
+        private TierStock(int stock, long pending) {
+            this.stock = stock;
+            this.pending = pending;
+        }
+    }
+}
@@ -0,0 +1,474 @@
+package org.example.ticketmanagement.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 票档库存Redis工具类
+ * 库存计数预热到Redis后，预扣/释放都通过Lua脚本原子执行，
+ * 同时把扣减量累加到待回写哈希中，由定时任务异步回写数据库
+ */
+@Slf4j
+@Component
+public class RedisStockUtil {
+
+    // 返回值：库存不足
+    public static final long INSUFFICIENT = -1L;
+    // 返回值：库存未预热到Redis
+    public static final long NOT_LOADED = -2L;
+    // 返回值：超出用户限购数量
+    public static final long QUOTA_EXCEEDED = -3L;
+
+    private static final String STOCK_KEY_PREFIX = "stock:tier:";
+    // 待回写数据库的扣减增量（field为票档ID，value为累计扣减数量，释放为负数）
+    private static final String PENDING_KEY = "stock:pending";
+    // 已取出、正在写入数据库的增量（写入提交后清除，写入失败时放回待回写哈希）
+    private static final String INFLIGHT_KEY = "stock:inflight";
+    // 每个票档取出增量的次数，对账据此判断读取数据库库存之后是否发生过回写
+    private static final String FLUSH_SEQ_KEY = "stock:flushseq";
+    // 已预热的票档ID集合
+    private static final String LOADED_KEY = "stock:loaded";
+
+    /**
+     * 预扣库存：库存足够时扣减并记录待回写增量，返回剩余库存
+     */
+    private static final DefaultRedisScript<Long> RESERVE_SCRIPT = new DefaultRedisScript<>(
+            "local stock = redis.call('GET', KEYS[1]) " +
+            "if not stock then return -2 end " +
+            "stock = tonumber(stock) " +
+            "local qty = tonumber(ARGV[2]) " +
+            "if stock < qty then return -1 end " +
+            "redis.call('DECRBY', KEYS[1], qty) " +
+            "redis.call('HINCRBY', KEYS[2], ARGV[1], qty) " +
+            "return stock - qty", Long.class);
+
+    /**
+     * 预扣库存并占用限购额度：库存与额度在同一个脚本中校验，全部满足时才同时扣减库存、累加额度计数
+     * 限购数量为0的维度不校验也不计数
+     */
+    private static final DefaultRedisScript<Long> RESERVE_WITH_QUOTA_SCRIPT = new DefaultRedisScript<>(
+            "local stock = redis.call('GET', KEYS[1]) " +
+            "if not stock then return -2 end " +
+            "stock = tonumber(stock) " +
+            "local qty = tonumber(ARGV[2]) " +
+            "if stock < qty then return -1 end " +
+            "for i = 3, 4 do " +
+            "  local limit = tonumber(ARGV[i]) " +
+            "  if limit > 0 and tonumber(redis.call('GET', KEYS[i]) or '0') + qty > limit then return -3 end " +
+            "end " +
+            "redis.call('DECRBY', KEYS[1], qty) " +
+            "redis.call('HINCRBY', KEYS[2], ARGV[1], qty) " +
+            "for i = 3, 4 do " +
+            "  if tonumber(ARGV[i]) > 0 then " +
+            "    redis.call('INCRBY', KEYS[i], qty) " +
+            "    redis.call('EXPIRE', KEYS[i], ARGV[5]) " +
+            "  end " +
+            "end " +
+            "return stock - qty", Long.class);
+
+    /**
+     * 同时预扣多个票档的库存并占用限购额度：先校验全部票档的库存和额度，全部满足时才一起扣减
+     * KEYS: 待回写哈希, 演出额度键, 各票档库存键..., 各票档额度键...
+     * ARGV: 票档数, 演出限购, 额度TTL, 然后每个票档依次为 票档ID, 数量, 票档限购
+     * 返回 {0, 各票档剩余库存...}；{-1, 第几个票档} 库存不足；{-2, 第几个票档} 未预热；{-3} 超出限购
+     */
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> RESERVE_BATCH_SCRIPT = new DefaultRedisScript<>(
+            "local n = tonumber(ARGV[1]) " +
+            "local eventLimit = tonumber(ARGV[2]) " +
+            "local total = 0 " +
+            "for i = 1, n do " +
+            "  local stock = redis.call('GET', KEYS[2 + i]) " +
+            "  if not stock then return {-2, i} end " +
+            "  local qty = tonumber(ARGV[3 + i * 3 - 1]) " +
+            "  if tonumber(stock) < qty then return {-1, i} end " +
+            "  local limit = tonumber(ARGV[3 + i * 3]) " +
+            "  if limit > 0 and tonumber(redis.call('GET', KEYS[2 + n + i]) or '0') + qty > limit then return {-3} end " +
+            "  total = total + qty " +
+            "end " +
+            "if eventLimit > 0 and tonumber(redis.call('GET', KEYS[2]) or '0') + total > eventLimit then return {-3} end " +
+            "local result = {0} " +
+            "for i = 1, n do " +
+            "  local qty = tonumber(ARGV[3 + i * 3 - 1]) " +
+            "  result[i + 1] = redis.call('DECRBY', KEYS[2 + i], qty) " +
+            "  redis.call('HINCRBY', KEYS[1], ARGV[3 + i * 3 - 2], qty) " +
+            "  if tonumber(ARGV[3 + i * 3]) > 0 then " +
+            "    redis.call('INCRBY', KEYS[2 + n + i], qty) " +
+            "    redis.call('EXPIRE', KEYS[2 + n + i], ARGV[3]) " +
+            "  end " +
+            "end " +
+            "if eventLimit > 0 then " +
+            "  redis.call('INCRBY', KEYS[2], total) " +
+            "  redis.call('EXPIRE', KEYS[2], ARGV[3]) " +
+            "end " +
+            "return result", List.class);
+
+    /**
+     * 释放库存：归还数量并抵扣待回写增量，返回释放后的库存
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -2 end " +
+            "local remain = redis.call('INCRBY', KEYS[1], ARGV[2]) " +
+            "redis.call('HINCRBY', KEYS[2], ARGV[1], -tonumber(ARGV[2])) " +
+            "return remain", Long.class);
+
+    /**
+     * 取出某票档的待回写增量并转入回写中哈希，同时递增回写序号
+     * KEYS: 待回写哈希, 回写中哈希, 回写序号哈希
+     */
+    private static final DefaultRedisScript<Long> DRAIN_SCRIPT = new DefaultRedisScript<>(
+            "local delta = redis.call('HGET', KEYS[1], ARGV[1]) " +
+            "if not delta then return 0 end " +
+            "redis.call('HDEL', KEYS[1], ARGV[1]) " +
+            "delta = tonumber(delta) " +
+            "if delta == 0 then return 0 end " +
+            "redis.call('HINCRBY', KEYS[2], ARGV[1], delta) " +
+            "redis.call('HINCRBY', KEYS[3], ARGV[1], 1) " +
+            "return delta", Long.class);
+
+    /**
+     * 回写提交：从回写中哈希扣除已写入数据库的增量，归零后删除字段
+     */
+    private static final DefaultRedisScript<Long> COMMIT_INFLIGHT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HEXISTS', KEYS[1], ARGV[1]) == 0 then return 0 end " +
+            "local remain = redis.call('HINCRBY', KEYS[1], ARGV[1], -tonumber(ARGV[2])) " +
+            "if remain == 0 then redis.call('HDEL', KEYS[1], ARGV[1]) end " +
+            "return remain", Long.class);
+
+    /**
+     * 回写失败：把回写中的增量原子地放回待回写哈希
+     * KEYS: 待回写哈希, 回写中哈希
+     */
+    private static final DefaultRedisScript<Long> RESTORE_INFLIGHT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HEXISTS', KEYS[2], ARGV[1]) == 0 then return 0 end " +
+            "local remain = redis.call('HINCRBY', KEYS[2], ARGV[1], -tonumber(ARGV[2])) " +
+            "if remain == 0 then redis.call('HDEL', KEYS[2], ARGV[1]) end " +
+            "return redis.call('HINCRBY', KEYS[1], ARGV[1], ARGV[2])", Long.class);
+
+    /**
+     * 对账：没有待回写、回写中的增量，且读取数据库库存之后没有发生过回写时，以数据库库存为准修正Redis计数
+     * KEYS: 库存键, 待回写哈希, 回写中哈希, 回写序号哈希
+     * ARGV: 票档ID, 数据库库存, 读取数据库库存前的回写序号
+     * 返回 0-一致，1-已修正，-1-存在待回写/回写中增量或期间发生过回写跳过，-2-未预热
+     */
+    private static final DefaultRedisScript<Long> RECONCILE_SCRIPT = new DefaultRedisScript<>(
+            "for i = 2, 3 do " +
+            "  local delta = redis.call('HGET', KEYS[i], ARGV[1]) " +
+            "  if delta and tonumber(delta) ~= 0 then return -1 end " +
+            "end " +
+            "if tonumber(redis.call('HGET', KEYS[4], ARGV[1]) or '0') ~= tonumber(ARGV[3]) then return -1 end " +
+            "local stock = redis.call('GET', KEYS[1]) " +
+            "if not stock then return -2 end " +
+            "if tonumber(stock) == tonumber(ARGV[2]) then return 0 end " +
+            "redis.call('SET', KEYS[1], ARGV[2]) " +
+            "return 1", Long.class);
+
+    /**
+     * 直接调整库存计数（不计入待回写增量，对应的扣减已直接写入数据库），调整后不低于0
+     * 返回调整后的库存，未预热返回 -2
+     */
+    private static final DefaultRedisScript<Long> ADJUST_SCRIPT = new DefaultRedisScript<>(
+            "local stock = redis.call('GET', KEYS[1]) " +
+            "if not stock then return -2 end " +
+            "local remain = tonumber(stock) + tonumber(ARGV[1]) " +
+            "if remain < 0 then remain = 0 end " +
+            "redis.call('SET', KEYS[1], remain) " +
+            "return remain", Long.class);
+
+    /**
+     * 管理端调整库存计数：调整后小于0时不修改；不计入待回写增量（数据库在同一次修改中按相同的调整量更新），
+     * 同时递增回写序号，读取数据库库存后才调整的票档在对账时跳过
+     * KEYS: 库存键, 回写序号哈希
+     * 返回调整后的库存，-1 调整后小于0，-2 未预热
+     */
+    private static final DefaultRedisScript<Long> ADJUST_STOCK_SCRIPT = new DefaultRedisScript<>(
+            "local stock = redis.call('GET', KEYS[1]) " +
+            "if not stock then return -2 end " +
+            "local remain = tonumber(stock) + tonumber(ARGV[2]) " +
+            "if remain < 0 then return -1 end " +
+            "redis.call('SET', KEYS[1], remain) " +
+            "redis.call('HINCRBY', KEYS[2], ARGV[1], 1) " +
+            "return remain", Long.class);
+
+    /**
+     * 比较并设置库存计数：计数仍等于预期值时才修改（库存对账自动修正使用）
+     * 返回 1-已修改，0-计数已变化，-2-未预热
+     */
+    private static final DefaultRedisScript<Long> COMPARE_AND_SET_SCRIPT = new DefaultRedisScript<>(
+            "local stock = redis.call('GET', KEYS[1]) " +
+            "if not stock then return -2 end " +
+            "if tonumber(stock) ~= tonumber(ARGV[1]) then return 0 end " +
+            "redis.call('SET', KEYS[1], ARGV[2]) " +
+            "return 1", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 预热库存（计数已存在时不覆盖，避免冲掉正在售卖中的计数）
+     * @return 本次是否写入了新计数
+     */
+    public boolean preload(Long tierId, int stock) {
+        Boolean created = stringRedisTemplate.opsForValue()
+                .setIfAbsent(getStockKey(tierId), String.valueOf(stock));
+        stringRedisTemplate.opsForSet().add(LOADED_KEY, String.valueOf(tierId));
+        return Boolean.TRUE.equals(created);
+    }
+
+    /**
+     * 覆盖库存计数（只用于准备压测、基准测试数据，售卖中的票档改用 adjustStock）
+     */
+    public void overwrite(Long tierId, int stock) {
+        stringRedisTemplate.opsForValue().set(getStockKey(tierId), String.valueOf(stock));
+        stringRedisTemplate.opsForSet().add(LOADED_KEY, String.valueOf(tierId));
+    }
+
+    /**
+     * 移除库存计数及其待回写、回写中增量和回写序号（票档删除时使用）
+     */
+    public void remove(Long tierId) {
+        String field = String.valueOf(tierId);
+        stringRedisTemplate.delete(getStockKey(tierId));
+        stringRedisTemplate.opsForHash().delete(PENDING_KEY, field);
+        stringRedisTemplate.opsForHash().delete(INFLIGHT_KEY, field);
+        stringRedisTemplate.opsForHash().delete(FLUSH_SEQ_KEY, field);
+        stringRedisTemplate.opsForSet().remove(LOADED_KEY, field);
+    }
+
+    /**
+     * 预扣库存
+     * @return 剩余库存；库存不足返回 INSUFFICIENT，未预热返回 NOT_LOADED
+     */
+    public long reserve(Long tierId, int quantity) {
+        Long result = stringRedisTemplate.execute(RESERVE_SCRIPT,
+                List.of(getStockKey(tierId), PENDING_KEY),
+                String.valueOf(tierId), String.valueOf(quantity));
+        return result != null ? result : NOT_LOADED;
+    }
+
+    /**
+     * 预扣库存并占用限购额度（额度计数键由调用方给出，与额度存储共用）
+     * @return 剩余库存；库存不足返回 INSUFFICIENT，未预热返回 NOT_LOADED，超出限购返回 QUOTA_EXCEEDED
+     */
+    public long reserveWithQuota(Long tierId, int quantity, String eventQuotaKey, int eventLimit,
+                                 String tierQuotaKey, int tierLimit, long quotaTtlSeconds) {
+        Long result = stringRedisTemplate.execute(RESERVE_WITH_QUOTA_SCRIPT,
+                List.of(getStockKey(tierId), PENDING_KEY, eventQuotaKey, tierQuotaKey),
+                String.valueOf(tierId), String.valueOf(quantity), String.valueOf(eventLimit),
+                String.valueOf(tierLimit), String.valueOf(quotaTtlSeconds));
+        return result != null ? result : NOT_LOADED;
+    }
+
+    /**
+     * 同时预扣多个票档的库存并占用限购额度（限购数量为0的维度不校验也不计数）
+     * @param tierIds 票档ID列表
+     * @param quantities 与票档ID一一对应的预扣数量
+     * @param tierQuotaKeys 与票档ID一一对应的票档额度计数键
+     * @param tierLimits 与票档ID一一对应的票档限购数量
+     * @return 第一个元素为结果：0-成功，其后为各票档剩余库存；INSUFFICIENT / NOT_LOADED 时第二个元素为出问题的票档下标（从1开始）；
+     *         QUOTA_EXCEEDED 表示超出限购
+     */
+    public List<Long> reserveBatch(List<Long> tierIds, List<Integer> quantities, String eventQuotaKey, int eventLimit,
+                                   List<String> tierQuotaKeys, List<Integer> tierLimits, long quotaTtlSeconds) {
+        int n = tierIds.size();
+        List<String> keys = new ArrayList<>(2 + n * 2);
+        keys.add(PENDING_KEY);
+        keys.add(eventQuotaKey);
+        for (Long tierId : tierIds) {
+            keys.add(getStockKey(tierId));
+        }
+        keys.addAll(tierQuotaKeys);
+        String[] args = new String[3 + n * 3];
+        args[0] = String.valueOf(n);
+        args[1] = String.valueOf(eventLimit);
+        args[2] = String.valueOf(quotaTtlSeconds);
+        for (int i = 0; i < n; i++) {
+            args[3 + i * 3] = String.valueOf(tierIds.get(i));
+            args[4 + i * 3] = String.valueOf(quantities.get(i));
+            args[5 + i * 3] = String.valueOf(tierLimits.get(i));
+        }
+        @SuppressWarnings("unchecked")
+        List<Long> result = stringRedisTemplate.execute(RESERVE_BATCH_SCRIPT, keys, (Object[]) args);
+        return result != null && !result.isEmpty() ? result : List.of(NOT_LOADED, 1L);
+    }
+
+    /**
+     * 释放库存
+     * @return 释放后的库存；未预热返回 NOT_LOADED
+     */
+    public long release(Long tierId, int quantity) {
+        Long result = stringRedisTemplate.execute(RELEASE_SCRIPT,
+                List.of(getStockKey(tierId), PENDING_KEY),
+                String.valueOf(tierId), String.valueOf(quantity));
+        return result != null ? result : NOT_LOADED;
+    }
+
+    /**
+     * 获取Redis中的库存计数，未预热返回null
+     */
+    public Integer getStock(Long tierId) {
+        String value = stringRedisTemplate.opsForValue().get(getStockKey(tierId));
+        return value != null ? Integer.valueOf(value) : null;
+    }
+
+    /**
+     * 批量获取Redis中的库存计数（一次往返），未预热的票档不在结果中
+     */
+    public Map<Long, Integer> getStocks(List<Long> tierIds) {
+        Map<Long, Integer> stocks = new HashMap<>();
+        if (tierIds.isEmpty()) {
+            return stocks;
+        }
+        List<String> values = stringRedisTemplate.opsForValue().multiGet(
+                tierIds.stream().map(this::getStockKey).collect(Collectors.toList()));
+        if (values == null) {
+            return stocks;
+        }
+        for (int i = 0; i < tierIds.size(); i++) {
+            if (values.get(i) != null) {
+                stocks.put(tierIds.get(i), Integer.valueOf(values.get(i)));
+            }
+        }
+        return stocks;
+    }
+
+    /**
+     * 批量获取尚未写入数据库的增量（待回写 + 回写中，各一次往返），没有增量的票档不在结果中
+     */
+    public Map<Long, Long> getPendings(List<Long> tierIds) {
+        Map<Long, Long> pendings = new HashMap<>();
+        if (tierIds.isEmpty()) {
+            return pendings;
+        }
+        List<Object> fields = tierIds.stream().map(String::valueOf).collect(Collectors.toList());
+        for (String key : List.of(PENDING_KEY, INFLIGHT_KEY)) {
+            List<Object> values = stringRedisTemplate.opsForHash().multiGet(key, fields);
+            for (int i = 0; i < tierIds.size(); i++) {
+                if (values.get(i) != null) {
+                    pendings.merge(tierIds.get(i), Long.valueOf(values.get(i).toString()), Long::sum);
+                }
+            }
+        }
+        return pendings;
+    }
+
+    /**
+     * 库存计数仍等于预期值时修改为新值
+     * @return 1-已修改，0-计数已变化，NOT_LOADED-未预热
+     */
+    public long compareAndSet(Long tierId, int expect, int update) {
+        Long result = stringRedisTemplate.execute(COMPARE_AND_SET_SCRIPT,
+                List.of(getStockKey(tierId)), String.valueOf(expect), String.valueOf(update));
+        return result != null ? result : NOT_LOADED;
+    }
+
+    /**
+     * 取出待回写增量并转入回写中，写入数据库后须调用 commitInflight 或 restorePending 之一
+     */
+    public long drainPending(Long tierId) {
+        Long delta = stringRedisTemplate.execute(DRAIN_SCRIPT,
+                List.of(PENDING_KEY, INFLIGHT_KEY, FLUSH_SEQ_KEY), String.valueOf(tierId));
+        return delta != null ? delta : 0L;
+    }
+
+    /**
+     * 增量已写入数据库，清除对应的回写中增量
+     */
+    public void commitInflight(Long tierId, long delta) {
+        stringRedisTemplate.execute(COMMIT_INFLIGHT_SCRIPT,
+                List.of(INFLIGHT_KEY), String.valueOf(tierId), String.valueOf(delta));
+    }
+
+    /**
+     * 回写失败时把回写中的增量放回待回写哈希，等待下次重试
+     */
+    public void restorePending(Long tierId, long delta) {
+        stringRedisTemplate.execute(RESTORE_INFLIGHT_SCRIPT,
+                List.of(PENDING_KEY, INFLIGHT_KEY), String.valueOf(tierId), String.valueOf(delta));
+    }
+
+    /**
+     * 获取票档的回写序号，对账前在读取数据库库存之前调用
+     */
+    public long getFlushSeq(Long tierId) {
+        Object value = stringRedisTemplate.opsForHash().get(FLUSH_SEQ_KEY, String.valueOf(tierId));
+        return value != null ? Long.parseLong(value.toString()) : 0L;
+    }
+
+    /**
+     * 以数据库库存为准对账
+     * @param flushSeq 读取数据库库存之前取得的回写序号，期间发生过回写时跳过
+     */
+    public long reconcile(Long tierId, int dbStock, long flushSeq) {
+        Long result = stringRedisTemplate.execute(RECONCILE_SCRIPT,
+                List.of(getStockKey(tierId), PENDING_KEY, INFLIGHT_KEY, FLUSH_SEQ_KEY),
+                String.valueOf(tierId), String.valueOf(dbStock), String.valueOf(flushSeq));
+        return result != null ? result : NOT_LOADED;
+    }
+
+    /**
+     * 直接调整库存计数（降级期间在数据库中售出、归还的库存，Redis恢复后同步到计数上）
+     * @param delta 调整量，负数表示减少
+     * @return 调整后的库存；未预热返回 NOT_LOADED
+     */
+    public long adjust(Long tierId, long delta) {
+        Long result = stringRedisTemplate.execute(ADJUST_SCRIPT,
+                List.of(getStockKey(tierId)), String.valueOf(delta));
+        return result != null ? result : NOT_LOADED;
+    }
+
+    /**
+     * 管理端修改可用库存：按调整量原子地修改计数，期间的预扣、释放不会被覆盖
+     * @param delta 调整量，负数表示减少
+     * @return 调整后的库存；调整后小于0返回 INSUFFICIENT，未预热返回 NOT_LOADED
+     */
+    public long adjustStock(Long tierId, int delta) {
+        Long result = stringRedisTemplate.execute(ADJUST_STOCK_SCRIPT,
+                List.of(getStockKey(tierId), FLUSH_SEQ_KEY), String.valueOf(tierId), String.valueOf(delta));
+        return result != null ? result : NOT_LOADED;
+    }
+
+    /**
+     * 探测Redis是否可用
+     */
+    public boolean isAvailable() {
+        try {
+            String reply = stringRedisTemplate.execute((RedisCallback<String>) RedisConnection::ping);
+            return "PONG".equalsIgnoreCase(reply);
+        } catch (Exception e) {
+            log.debug("Redis探测失败: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 获取所有已预热的票档ID
+     */
+    public Set<Long> getLoadedTierIds() {
+        Set<String> members = stringRedisTemplate.opsForSet().members(LOADED_KEY);
+        Set<Long> tierIds = new HashSet<>();
+        if (members != null) {
+            for (String member : members) {
+                tierIds.add(Long.valueOf(member));
+            }
+        }
+        return tierIds;
+    }
+
+    private String getStockKey(Long tierId) {
+        return STOCK_KEY_PREFIX + tierId;
+    }
+}
@@ -0,0 +1,388 @@
+package org.example.ticketmanagement.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.mapper.SeatRowMapper;
+import org.example.ticketmanagement.mapper.SeatSectionMapper;
+import org.example.ticketmanagement.pojo.SeatRow;
+import org.example.ticketmanagement.pojo.SeatSection;
+import org.example.ticketmanagement.vo.SeatAllocationVO;
+import org.example.ticketmanagement.vo.SeatMapVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 座位图分配引擎
+ * 场次的座位图第一次使用时整体加载到内存，每排座位是一个位图（1表示已售出），
+ * 分配与释放按区域加锁，不同区域之间互不阻塞；
+ * 分配“N个连续座位”时按区域优选顺序、从前排到后排查找第一个放得下的排，
+ * 同一排内选择最靠近中间的位置；变更后的排在锁内写回数据库后才返回，写入失败时撤销内存中的变更
+ * 写回带版本号条件：版本不一致说明该排已被其他节点修改，重新加载该排后再分配/释放，
+ * 因此多个节点可以同时分配同一场次的座位（其他节点释放的座位在本节点重新加载该排之前不可见）
+ */
+@Slf4j
+@Component
+public class SeatMapEngine {
+
+    // 写回时版本冲突后重新加载重试的次数
+    private static final int MAX_CONFLICT_RETRIES = 3;
+
+    @Autowired
+    private SeatSectionMapper seatSectionMapper;
+
+    @Autowired
+    private SeatRowMapper seatRowMapper;
+
+    private final ConcurrentHashMap<Long, SessionSeats> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * 在指定票档的区域中分配 count 个同一排的连续座位，返回前已写入数据库
+     * @return 分配结果，没有放得下的排时返回null
+     * @throws RuntimeException 写入数据库失败（内存中的分配已撤销）
+     */
+    public SeatAllocationVO allocate(Long sessionId, Long tierId, int count) {
+        SessionSeats seats = getSession(sessionId);
+        for (Section section : seats.sections) {
+            // 先无锁检查剩余座位，跳过明显放不下的区域
+            if (!section.meta.getTierId().equals(tierId) || section.available < count) {
+                continue;
+            }
+            synchronized (section) {
+                for (Row row : section.rows) {
+                    int start = allocateInRow(row, count);
+                    if (start < 0) {
+                        continue;
+                    }
+                    List<Integer> seatNos = new ArrayList<>(count);
+                    for (int i = start; i < start + count; i++) {
+                        seatNos.add(i + 1);
+                    }
+                    return new SeatAllocationVO(sessionId, tierId, section.meta.getId(),
+                            section.meta.getSectionName(), row.rowNo, seatNos);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 是否为场次的指定票档配置了座位区域（配置了座位的票档下单时需要分配座位）
+     */
+    public boolean hasSections(Long sessionId, Long tierId) {
+        for (Section section : getSession(sessionId).sections) {
+            if (section.meta.getTierId().equals(tierId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 区域所属的票档ID，区域不存在返回null
+     */
+    public Long getSectionTierId(Long sessionId, Long sectionId) {
+        Section section = getSession(sessionId).sectionsById.get(sectionId);
+        return section != null ? section.meta.getTierId() : null;
+    }
+
+    /**
+     * 释放座位，未售出或不存在的座位号忽略，返回前已写入数据库
+     * @return 实际释放的座位数
+     * @throws RuntimeException 写入数据库失败（内存中的释放已撤销）
+     */
+    public int release(Long sessionId, Long sectionId, int rowNo, List<Integer> seatNos) {
+        Section section = getSession(sessionId).sectionsById.get(sectionId);
+        if (section == null) {
+            return 0;
+        }
+        synchronized (section) {
+            Row row = section.findRow(rowNo);
+            if (row == null) {
+                return 0;
+            }
+            for (int attempt = 0; ; attempt++) {
+                List<Integer> released = new ArrayList<>();
+                for (Integer seatNo : seatNos) {
+                    int index = seatNo - 1;
+                    if (index >= 0 && index < row.seatCount && row.sold.get(index)) {
+                        row.sold.clear(index);
+                        released.add(index);
+                    }
+                }
+                if (released.isEmpty()) {
+                    return 0;
+                }
+                row.available += released.size();
+                section.available += released.size();
+                boolean written = false;
+                try {
+                    written = persist(row);
+                } finally {
+                    if (!written) {
+                        // 写入失败或该排已被其他节点修改：撤销内存中的释放
+                        released.forEach(row.sold::set);
+                        row.available -= released.size();
+                        section.available -= released.size();
+                    }
+                }
+                if (written) {
+                    return released.size();
+                }
+                reloadOrFail(row, attempt);
+            }
+        }
+    }
+
+    /**
+     * 新增区域后同步到已加载的座位图（未加载的场次下次使用时会从数据库加载）
+     */
+    public void addSection(SeatSection sectionMeta, List<SeatRow> rows) {
+        SessionSeats seats = sessions.get(sectionMeta.getSessionId());
+        if (seats != null) {
+            seats.addSection(new Section(sectionMeta, rows));
+        }
+    }
+
+    /**
+     * 获取场次的座位图
+     */
+    public SeatMapVO describe(Long sessionId) {
+        SessionSeats seats = getSession(sessionId);
+        Base64.Encoder encoder = Base64.getEncoder();
+        List<SeatMapVO.SectionDetail> details = new ArrayList<>();
+        int totalSeats = 0;
+        int availableSeats = 0;
+        for (Section section : seats.sections) {
+            List<SeatMapVO.RowDetail> rowDetails = new ArrayList<>();
+            int sectionTotal = 0;
+            int sectionAvailable;
+            synchronized (section) {
+                for (Row row : section.rows) {
+                    rowDetails.add(new SeatMapVO.RowDetail(row.rowNo, row.seatCount, row.available,
+                            encoder.encodeToString(row.sold.toByteArray())));
+                    sectionTotal += row.seatCount;
+                }
+                sectionAvailable = section.available;
+            }
+            details.add(new SeatMapVO.SectionDetail(section.meta.getId(), section.meta.getTierId(),
+                    section.meta.getSectionName(), section.meta.getSortOrder(),
+                    sectionTotal, sectionAvailable, rowDetails));
+            totalSeats += sectionTotal;
+            availableSeats += sectionAvailable;
+        }
+        return new SeatMapVO(sessionId, totalSeats, availableSeats, details);
+    }
+
+    /**
+     * 在一排中分配 count 个连续座位并写回数据库（调用方持有区域锁）
+     * @return 起始下标，放不下返回 -1
+     */
+    private int allocateInRow(Row row, int count) {
+        Section section = row.section;
+        for (int attempt = 0; ; attempt++) {
+            if (row.available < count) {
+                return -1;
+            }
+            int start = findBestRun(row.sold, row.seatCount, count);
+            if (start < 0) {
+                return -1;
+            }
+            row.sold.set(start, start + count);
+            row.available -= count;
+            section.available -= count;
+            boolean written = false;
+            try {
+                written = persist(row);
+            } finally {
+                if (!written) {
+                    // 写入失败或该排已被其他节点修改：撤销内存中的分配
+                    row.sold.clear(start, start + count);
+                    row.available += count;
+                    section.available += count;
+                }
+            }
+            if (written) {
+                return start;
+            }
+            reloadOrFail(row, attempt);
+        }
+    }
+
+    /**
+     * 以下一个版本号写回一排的位图（调用方持有区域锁，返回 false 或抛出异常时撤销内存中的变更）
+     * @return 写入成功返回 true，数据库中的版本已被其他节点修改返回 false
+     * @throws RuntimeException 写入失败
+     */
+    private boolean persist(Row row) {
+        long next = row.version + 1;
+        try {
+            if (seatRowMapper.updateSeatBits(row.id, row.sold.toByteArray(), next, row.version) != 1) {
+                return false;
+            }
+        } catch (Exception e) {
+            log.error("座位位图写入失败: rowId={}", row.id, e);
+            throw new RuntimeException("座位位图写入失败", e);
+        }
+        row.version = next;
+        return true;
+    }
+
+    /**
+     * 版本冲突后从数据库重新加载一排，冲突次数过多时放弃（调用方持有区域锁）
+     */
+    private void reloadOrFail(Row row, int attempt) {
+        if (attempt >= MAX_CONFLICT_RETRIES) {
+            throw new RuntimeException("座位位图并发修改冲突，请稍后重试");
+        }
+        SeatRow latest = seatRowMapper.selectById(row.id);
+        if (latest == null) {
+            throw new RuntimeException("座位排不存在: " + row.id);
+        }
+        int before = row.available;
+        row.load(latest);
+        row.section.available += row.available - before;
+        log.info("座位排已被其他节点修改，重新加载: rowId={}, version={}", row.id, row.version);
+    }
+
+    /**
+     * 在一排中查找 count 个连续空座，有多个位置时选择最靠近中间的
+     * @return 起始下标，放不下返回 -1
+     */
+    private int findBestRun(BitSet sold, int seatCount, int count) {
+        int ideal = (seatCount - count) / 2;
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        int from = sold.nextClearBit(0);
+        while (from + count <= seatCount) {
+            int to = sold.nextSetBit(from);
+            if (to < 0 || to > seatCount) {
+                to = seatCount;
+            }
+            if (to - from >= count) {
+                // 空位段内尽量向中间靠拢
+                int start = Math.max(from, Math.min(ideal, to - count));
+                int distance = Math.abs(start - ideal);
+                if (distance < bestDistance) {
+                    best = start;
+                    bestDistance = distance;
+                    if (distance == 0) {
+                        break;
+                    }
+                }
+            }
+            if (to >= seatCount) {
+                break;
+            }
+            from = sold.nextClearBit(to);
+        }
+        return best;
+    }
+
+    private SessionSeats getSession(Long sessionId) {
+        return sessions.computeIfAbsent(sessionId, this::loadSession);
+    }
+
+    private SessionSeats loadSession(Long sessionId) {
+        List<SeatSection> sectionMetas = seatSectionMapper.selectBySessionId(sessionId);
+        Map<Long, List<SeatRow>> rowsBySection = new HashMap<>();
+        for (SeatRow row : seatRowMapper.selectBySessionId(sessionId)) {
+            rowsBySection.computeIfAbsent(row.getSectionId(), id -> new ArrayList<>()).add(row);
+        }
+        SessionSeats seats = new SessionSeats();
+        int seatCount = 0;
+        for (SeatSection meta : sectionMetas) {
+            Section section = new Section(meta, rowsBySection.getOrDefault(meta.getId(), List.of()));
+            seats.addSection(section);
+            for (Row row : section.rows) {
+                seatCount += row.seatCount;
+            }
+        }
+        log.info("加载场次座位图: sessionId={}, 区域数: {}, 座位数: {}", sessionId, sectionMetas.size(), seatCount);
+        return seats;
+    }
+
+    /**
+     * 场次座位图，区域列表在新增区域时整体替换，读取无需加锁
+     */
+    private static final class SessionSeats {
+        private volatile List<Section> sections = List.of();
+        private final Map<Long, Section> sectionsById = new ConcurrentHashMap<>();
+
+        private synchronized void addSection(Section section) {
+            List<Section> updated = new ArrayList<>(sections);
+            updated.add(section);
+            updated.sort(Comparator.comparing((Section s) -> s.meta.getSortOrder())
+                    .thenComparing(s -> s.meta.getId()));
+            sectionsById.put(section.meta.getId(), section);
+            sections = List.copyOf(updated);
+        }
+    }
+
+    /**
+     * 区域：分配、释放都以区域为锁
+     */
+    private static final class Section {
+        private final SeatSection meta;
+        private final List<Row> rows;
+        // 剩余座位数，锁内修改，锁外只用于快速跳过
+        private volatile int available;
+
+        private Section(SeatSection meta, List<SeatRow> seatRows) {
+            this.meta = meta;
+            List<Row> loaded = new ArrayList<>();
+            int free = 0;
+            for (SeatRow seatRow : seatRows) {
+                Row row = new Row(this, seatRow);
+                loaded.add(row);
+                free += row.available;
+            }
+            loaded.sort(Comparator.comparingInt(row -> row.rowNo));
+            this.rows = loaded;
+            this.available = free;
+        }
+
+        private Row findRow(int rowNo) {
+            for (Row row : rows) {
+                if (row.rowNo == rowNo) {
+                    return row;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 一排座位，位图、剩余数与版本号都在所属区域的锁内访问
+     */
+    private static final class Row {
+        private final Section section;
+        private final Long id;
+        private final int rowNo;
+        private final int seatCount;
+        private BitSet sold;
+        private int available;
+        private long version;
+
+        private Row(Section section, SeatRow seatRow) {
+            this.section = section;
+            this.id = seatRow.getId();
+            this.rowNo = seatRow.getRowNo();
+            this.seatCount = seatRow.getSeatCount();
+            load(seatRow);
+        }
+
+        private void load(SeatRow seatRow) {
+            this.sold = seatRow.getSeatBits() != null ? BitSet.valueOf(seatRow.getSeatBits()) : new BitSet(seatCount);
+            this.available = seatCount - sold.get(0, seatCount).cardinality();
+            this.version = seatRow.getVersion() != null ? seatRow.getVersion() : 0L;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package org.example.ticketmanagement.util;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.config.OwnershipConfig;
+import org.example.ticketmanagement.config.StockConfig;
+import org.example.ticketmanagement.mapper.SessionOwnerMapper;
+import org.example.ticketmanagement.mapper.TicketTierMapper;
+import org.example.ticketmanagement.pojo.SessionOwner;
+import org.example.ticketmanagement.pojo.TicketTier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 场次库存属主管理（stock.engine=journal 且 ownership.enabled=true 时生效）
+ * 每个场次按一致性哈希归属到成员列表中的一个节点，属主节点在内存中持有该场次所有票档的库存计数；
+ * 节点载入场次库存前必须在数据库中取得该场次的租约，属主变化时原属主冻结票档、回写增量、移除计数后才释放租约，
+ * 新属主取得租约后再从数据库载入，因此即使各节点的成员列表短暂不一致，同一场次的计数也只存在于一个节点上
+ * 成员列表是静态配置，增减节点时修改各节点的 ownership.members 后滚动重启，属主变化的场次由移交任务逐个移交
+ * 注意：属主节点宕机时它持有的场次暂停售卖，直到该节点重启重放日志（日志中可能有尚未回写的增量，不能由其他节点接管）
+ */
+@Slf4j
+@Component
+public class SessionOwnershipManager {
+
+    private static final String TOPIC = "stock-ownership-tier";
+
+    @Autowired
+    private OwnershipConfig ownershipConfig;
+
+    @Autowired
+    private StockConfig stockConfig;
+
+    @Autowired
+    private SessionOwnerMapper sessionOwnerMapper;
+
+    @Autowired
+    private TicketTierMapper ticketTierMapper;
+
+    @Autowired
+    private JournalStockEngine journalStockEngine;
+
+    @Autowired
+    private ClusterBroadcaster clusterBroadcaster;
+
+    private volatile ConsistentHashRing ring = new ConsistentHashRing(List.of(), 1);
+    private volatile Map<String, String> memberUrls = Map.of();
+    // 场次ID -> 属主节点（哈希结果缓存）
+    private volatile ConcurrentHashMap<Long, String> owners = new ConcurrentHashMap<>();
+    // 票档ID -> 场次ID
+    private final ConcurrentHashMap<Long, Long> tierSessions = new ConcurrentHashMap<>();
+    // 本节点持有租约的场次
+    private final Set<Long> heldSessions = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        if (!isEnabled()) {
+            return;
+        }
+        applyMembers(ownershipConfig.getMembers());
+        if (!memberUrls.containsKey(ownershipConfig.getNodeId())) {
+            log.warn("当前节点不在成员列表中，不会持有任何场次的库存: nodeId={}", ownershipConfig.getNodeId());
+        }
+        heldSessions.addAll(sessionOwnerMapper.selectSessionIdsByOwner(ownershipConfig.getNodeId()));
+        clusterBroadcaster.subscribe(TOPIC, payload -> tierSessions.remove(Long.valueOf(payload)));
+        // 启动时立即移交不再属于本节点的场次，重放日志恢复的计数在此之前不对外售卖
+        rebalance();
+        log.info("场次属主路由已启用: nodeId={}, 成员: {}, 持有租约的场次数: {}",
+                ownershipConfig.getNodeId(), memberUrls.keySet(), heldSessions.size());
+    }
+
+    public boolean isEnabled() {
+        return ownershipConfig.isEnabled() && stockConfig.isJournalEngine();
+    }
+
+    public String getNodeId() {
+        return ownershipConfig.getNodeId();
+    }
+
+    /**
+     * 获取场次的属主节点
+     */
+    public String getOwner(Long sessionId) {
+        return owners.computeIfAbsent(sessionId, id -> ring.getNode(String.valueOf(id)));
+    }
+
+    /**
+     * 票档所属场次是否归本节点所有，票档不存在时视为本节点（由后续的载入逻辑判断失败）
+     */
+    public boolean isLocalTier(Long tierId) {
+        Long sessionId = getSessionId(tierId);
+        return sessionId == null || isLocal(sessionId);
+    }
+
+    public boolean isLocal(Long sessionId) {
+        return ownershipConfig.getNodeId().equals(getOwner(sessionId));
+    }
+
+    /**
+     * 获取票档属主节点的内部访问地址
+     */
+    public String getOwnerUrl(Long tierId) {
+        Long sessionId = getSessionId(tierId);
+        return sessionId != null ? memberUrls.get(getOwner(sessionId)) : null;
+    }
+
+    /**
+     * 获取票档所属的场次ID，票档不存在返回null
+     */
+    public Long getSessionId(Long tierId) {
+        Long sessionId = tierSessions.get(tierId);
+        if (sessionId == null) {
+            TicketTier tier = ticketTierMapper.selectById(tierId);
+            if (tier == null) {
+                return null;
+            }
+            sessionId = tier.getSessionId();
+            tierSessions.put(tierId, sessionId);
+        }
+        return sessionId;
+    }
+
+    /**
+     * 票档改换场次或被删除后清除缓存的所属场次，并通知其他节点
+     */
+    public void evictTier(Long tierId) {
+        tierSessions.remove(tierId);
+        clusterBroadcaster.publish(TOPIC, String.valueOf(tierId));
+    }
+
+    /**
+     * 为票档所属场次取得租约，场次不归本节点所有或租约由其他节点持有时返回 false
+     */
+    public boolean acquireTier(Long tierId) {
+        Long sessionId = getSessionId(tierId);
+        return sessionId != null && acquire(sessionId);
+    }
+
+    /**
+     * 取得场次租约，已持有时不产生I/O
+     */
+    public boolean acquire(Long sessionId) {
+        if (!isLocal(sessionId)) {
+            return false;
+        }
+        if (heldSessions.contains(sessionId)) {
+            return true;
+        }
+        String nodeId = ownershipConfig.getNodeId();
+        sessionOwnerMapper.claim(sessionId, nodeId);
+        SessionOwner owner = sessionOwnerMapper.selectBySessionId(sessionId);
+        if (owner == null || !nodeId.equals(owner.getOwnerNode())) {
+            log.info("场次租约由其他节点持有，等待移交: sessionId={}, owner={}",
+                    sessionId, owner != null ? owner.getOwnerNode() : null);
+            return false;
+        }
+        heldSessions.add(sessionId);
+        log.info("取得场次租约: sessionId={}, epoch={}", sessionId, owner.getEpoch());
+        return true;
+    }
+
+    /**
+     * 移交不再属于本节点的场次：冻结并回写这些场次已载入的票档，全部移除后释放租约
+     * 本节点重放日志恢复、但租约已由其他节点持有的票档同样移交（回写增量后丢弃计数）
+     * @return 本次释放租约的场次数
+     */
+    public synchronized int rebalance() {
+        // 1. 按场次归组已载入的票档
+        Map<Long, List<Long>> loaded = new LinkedHashMap<>();
+        for (Long tierId : journalStockEngine.getLoadedTierIds()) {
+            Long sessionId = getSessionId(tierId);
+            if (sessionId != null) {
+                loaded.computeIfAbsent(sessionId, id -> new ArrayList<>()).add(tierId);
+            }
+        }
+        Set<Long> sessionIds = new HashSet<>(heldSessions);
+        sessionIds.addAll(loaded.keySet());
+
+        // 2. 仍归本节点且持有（或能取得）租约的场次保留，其余移交
+        int released = 0;
+        for (Long sessionId : sessionIds) {
+            try {
+                if (acquire(sessionId)) {
+                    continue;
+                }
+                List<Long> tierIds = loaded.getOrDefault(sessionId, List.of());
+                if (!tierIds.isEmpty() && journalStockEngine.handOff(tierIds) < tierIds.size()) {
+                    log.warn("场次库存移交未完成，稍后重试: sessionId={}, tierIds={}", sessionId, tierIds);
+                    continue;
+                }
+                if (heldSessions.contains(sessionId)) {
+                    sessionOwnerMapper.release(sessionId, ownershipConfig.getNodeId());
+                    heldSessions.remove(sessionId);
+                    released++;
+                    log.info("场次库存已移交并释放租约: sessionId={}, 新属主: {}, 票档数: {}",
+                            sessionId, getOwner(sessionId), tierIds.size());
+                }
+            } catch (Exception e) {
+                log.error("场次库存移交失败，稍后重试: sessionId={}", sessionId, e);
+            }
+        }
+        return released;
+    }
+
+    /**
+     * 解析成员列表并重建哈希环
+     */
+    private void applyMembers(List<String> members) {
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (String member : members) {
+            String trimmed = member.trim();
+            int index = trimmed.indexOf('=');
+            if (index <= 0 || index == trimmed.length() - 1) {
+                throw new IllegalArgumentException("成员格式错误，应为 节点ID=访问地址: " + member);
+            }
+            urls.put(trimmed.substring(0, index).trim(), trimmed.substring(index + 1).trim());
+        }
+        ring = new ConsistentHashRing(urls.keySet(), ownershipConfig.getVirtualNodes());
+        memberUrls = Map.copyOf(urls);
+        owners = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,294 @@
+package org.example.ticketmanagement.util;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.config.StockConfig;
+import org.example.ticketmanagement.mapper.TicketTierMapper;
+import org.example.ticketmanagement.mapper.TicketTierStockShardMapper;
+import org.example.ticketmanagement.pojo.TicketTier;
+import org.example.ticketmanagement.pojo.TicketTierStockShard;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 分片库存管理器
+ * 票档第一次扣减时把可用库存平均拆分到 N 个分片行，之后每次扣减只锁其中一行：
+ * 先扣随机（或按线程固定）的分片，不足时依次尝试其余分片，
+ * 单个分片都不够但总量足够时，在事务中按分片序号加锁后跨分片扣减
+ */
+@Slf4j
+@Component
+public class ShardedStockManager {
+
+    private static final String TOPIC = "stock-shard";
+
+    @Autowired
+    private TicketTierStockShardMapper shardMapper;
+
+    @Autowired
+    private TicketTierMapper ticketTierMapper;
+
+    @Autowired
+    private StockConfig stockConfig;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ClusterBroadcaster clusterBroadcaster;
+
+    // 已拆分票档的分片数量缓存
+    private final ConcurrentHashMap<Long, Integer> shardCounts = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        // 其他节点重设了分片，丢弃本地缓存的分片数量
+        clusterBroadcaster.subscribe(TOPIC, payload -> shardCounts.remove(Long.valueOf(payload)));
+    }
+
+    /**
+     * 扣减库存
+     * @return 扣减成功返回 true
+     */
+    public boolean deduct(Long tierId, int quantity) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            int shards = ensureSplit(tierId);
+            if (shards == 0) {
+                return false;
+            }
+
+            // 1. 从起始分片开始依次尝试单个分片
+            int start = pickShard(shards);
+            for (int i = 0; i < shards; i++) {
+                if (shardMapper.deductStock(tierId, (start + i) % shards, quantity) == 1) {
+                    return true;
+                }
+            }
+
+            // 2. 单个分片都不够时跨分片扣减
+            Boolean result = transactionTemplate.execute(status -> deductAcrossShards(tierId, quantity));
+            if (result != null) {
+                return result;
+            }
+            // 分片已被重设（其他节点修改了库存），重新拆分后再试一次
+            shardCounts.remove(tierId);
+        }
+        return false;
+    }
+
+    /**
+     * 归还库存到任意一个未满的分片，单个分片放不下时分摊到多个分片
+     * @return 票档未拆分或所有分片剩余空间之和不足时返回 false
+     */
+    public boolean release(Long tierId, int quantity) {
+        int shards = getShardCount(tierId);
+        if (shards == 0) {
+            return false;
+        }
+        int start = ThreadLocalRandom.current().nextInt(shards);
+        for (int i = 0; i < shards; i++) {
+            if (shardMapper.releaseStock(tierId, (start + i) % shards, quantity) == 1) {
+                return true;
+            }
+        }
+        Boolean result = transactionTemplate.execute(status -> releaseAcrossShards(tierId, quantity));
+        return Boolean.TRUE.equals(result);
+    }
+
+    /**
+     * 确保票档已拆分
+     * @return 分片数量，票档不存在或已禁用返回0
+     */
+    public int ensureSplit(Long tierId) {
+        Integer cached = shardCounts.get(tierId);
+        if (cached != null) {
+            return cached;
+        }
+        int shards = shardMapper.countByTierId(tierId);
+        if (shards == 0) {
+            Integer created = transactionTemplate.execute(status -> split(tierId));
+            shards = created != null ? created : 0;
+        }
+        if (shards > 0) {
+            shardCounts.put(tierId, shards);
+        }
+        return shards;
+    }
+
+    /**
+     * 票档的分片数量，未拆分返回0
+     */
+    public int getShardCount(Long tierId) {
+        Integer cached = shardCounts.get(tierId);
+        if (cached != null) {
+            return cached;
+        }
+        int shards = shardMapper.countByTierId(tierId);
+        if (shards > 0) {
+            shardCounts.put(tierId, shards);
+        }
+        return shards;
+    }
+
+    /**
+     * 票档各分片可用库存之和，未拆分返回null
+     */
+    public Integer getAvailableStock(Long tierId) {
+        return getAvailableStocks(List.of(tierId)).get(tierId);
+    }
+
+    /**
+     * 批量汇总分片可用库存，结果中只包含已拆分的票档
+     */
+    public Map<Long, Integer> getAvailableStocks(List<Long> tierIds) {
+        Map<Long, Integer> stocks = new HashMap<>();
+        if (tierIds.isEmpty()) {
+            return stocks;
+        }
+        for (Map<String, Object> row : shardMapper.selectAvailableByTierIds(tierIds)) {
+            stocks.put(((Number) row.get("tier_id")).longValue(),
+                    ((Number) row.get("available_stock")).intValue());
+        }
+        return stocks;
+    }
+
+    /**
+     * 依次锁定票档行和所有分片后汇总分片可用库存（与拆分时的加锁顺序一致）
+     * 须在调用方事务中执行：锁持有到事务提交，期间的分片扣减会等待，
+     * 提交后分片已被 reset 删除，扣减发现分片不存在时按票档表的新库存重新拆分，不会丢失已扣减的数量
+     * @return 分片可用库存之和，未拆分返回null
+     */
+    public Integer lockAvailableStock(Long tierId) {
+        ticketTierMapper.selectByIdForUpdate(tierId);
+        List<TicketTierStockShard> shards = shardMapper.selectByTierIdForUpdate(tierId);
+        if (shards.isEmpty()) {
+            return null;
+        }
+        return shards.stream().mapToInt(TicketTierStockShard::getAvailableStock).sum();
+    }
+
+    /**
+     * 删除票档的分片（管理端重设库存或删除票档后调用），下次扣减时按票档表的库存重新拆分
+     */
+    public void reset(Long tierId) {
+        shardMapper.deleteByTierId(tierId);
+        shardCounts.remove(tierId);
+        clusterBroadcaster.publish(TOPIC, String.valueOf(tierId));
+    }
+
+    /**
+     * 把分片可用库存之和回写到票档表
+     * @return 本次有变化的票档数量
+     */
+    public int syncToTier() {
+        int synced = 0;
+        for (Long tierId : shardMapper.selectShardedTierIds()) {
+            synced += shardMapper.syncTierAvailableStock(tierId);
+        }
+        return synced;
+    }
+
+    /**
+     * 在事务中锁定所有分片后跨分片扣减
+     * @return 扣减结果；分片已不存在时返回null
+     */
+    private Boolean deductAcrossShards(Long tierId, int quantity) {
+        List<TicketTierStockShard> shards = shardMapper.selectByTierIdForUpdate(tierId);
+        if (shards.isEmpty()) {
+            return null;
+        }
+        int available = shards.stream().mapToInt(TicketTierStockShard::getAvailableStock).sum();
+        if (available < quantity) {
+            return false;
+        }
+
+        int remaining = quantity;
+        for (TicketTierStockShard shard : shards) {
+            int take = Math.min(shard.getAvailableStock(), remaining);
+            if (take > 0) {
+                shardMapper.deductStock(tierId, shard.getShardNo(), take);
+                remaining -= take;
+            }
+            if (remaining == 0) {
+                break;
+            }
+        }
+        log.debug("跨分片扣减成功: tierId={}, quantity={}", tierId, quantity);
+        return true;
+    }
+
+    /**
+     * 锁定票档的所有分片后按各分片剩余空间分摊归还
+     * @return 剩余空间之和不足时返回 false（不做任何修改）
+     */
+    private boolean releaseAcrossShards(Long tierId, int quantity) {
+        List<TicketTierStockShard> shards = shardMapper.selectByTierIdForUpdate(tierId);
+        int room = shards.stream().mapToInt(shard -> shard.getTotalStock() - shard.getAvailableStock()).sum();
+        if (shards.isEmpty() || room < quantity) {
+            return false;
+        }
+
+        int remaining = quantity;
+        for (TicketTierStockShard shard : shards) {
+            int put = Math.min(shard.getTotalStock() - shard.getAvailableStock(), remaining);
+            if (put > 0) {
+                shardMapper.releaseStock(tierId, shard.getShardNo(), put);
+                remaining -= put;
+            }
+            if (remaining == 0) {
+                break;
+            }
+        }
+        log.debug("跨分片归还成功: tierId={}, quantity={}", tierId, quantity);
+        return true;
+    }
+
+    /**
+     * 锁定票档行后把可用库存拆分到分片（多个节点同时拆分时只有一个会真正写入）
+     */
+    private int split(Long tierId) {
+        TicketTier tier = ticketTierMapper.selectByIdForUpdate(tierId);
+        if (tier == null || tier.getStatus() != 1) {
+            log.warn("票档不存在或已禁用，无法拆分库存分片: {}", tierId);
+            return 0;
+        }
+        int existing = shardMapper.countByTierId(tierId);
+        if (existing > 0) {
+            return existing;
+        }
+
+        // 总库存与可用库存按同样方式均分，余数分给前面的分片，保证每个分片可用库存不超过其总库存
+        int shards = Math.max(1, stockConfig.getShardCount());
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < shards; i++) {
+            TicketTierStockShard shard = new TicketTierStockShard();
+            shard.setTierId(tierId);
+            shard.setShardNo(i);
+            shard.setTotalStock(share(tier.getTotalStock(), shards, i));
+            shard.setAvailableStock(share(tier.getAvailableStock(), shards, i));
+            shard.setUpdateTime(now);
+            shardMapper.insert(shard);
+        }
+        log.info("票档库存已拆分: tierId={}, 分片数: {}, 可用库存: {}", tierId, shards, tier.getAvailableStock());
+        return shards;
+    }
+
+    private int share(int amount, int shards, int index) {
+        return amount / shards + (index < amount % shards ? 1 : 0);
+    }
+
+    private int pickShard(int shards) {
+        if ("thread".equalsIgnoreCase(stockConfig.getShardPick())) {
+            return (int) (Thread.currentThread().threadId() % shards);
+        }
+        return ThreadLocalRandom.current().nextInt(shards);
+    }
+}
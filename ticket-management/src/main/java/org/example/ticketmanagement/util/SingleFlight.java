@@ -0,0 +1,83 @@
+package org.example.ticketmanagement.util;
+
+import org.example.ticketmanagement.config.SingleFlightConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * 热点读取合并
+ * 1. 同一个键同时只有一个请求执行加载，加载期间到达的请求等待并共享同一个结果（包括异常），加载结束后移除
+ * 2. 缓存到期前按概率提前刷新：越接近过期、加载越慢，被选中刷新的概率越大，
+ *    热点键通常由某一个请求在过期前刷新，避免大量请求在同一时刻一起未命中
+ * 只合并本节点内的请求，多个节点同时未命中时每个节点各查询一次
+ */
+@Component
+public class SingleFlight {
+
+    @Autowired
+    private SingleFlightConfig singleFlightConfig;
+
+    // 键 -> 正在进行的加载
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 执行加载，同一个键已有加载在进行时等待其结果
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Supplier<T> loader) {
+        if (!singleFlightConfig.isEnabled()) {
+            return loader.get();
+        }
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return (T) await(existing);
+        }
+        try {
+            T value = loader.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * 是否提前刷新：当前时间加上 加载耗时 * 系数 * -ln(随机数) 超过过期时间时刷新
+     * @param loadMillis 上次加载的耗时（毫秒）
+     * @param expiresAt 过期时间（毫秒时间戳）
+     */
+    public boolean shouldRefreshEarly(long loadMillis, long expiresAt) {
+        double beta = singleFlightConfig.getEarlyRefreshBeta();
+        if (beta <= 0) {
+            return false;
+        }
+        // 随机数取 (0, 1]，避免 ln(0)
+        double gap = -Math.max(loadMillis, 1) * beta * Math.log(1 - ThreadLocalRandom.current().nextDouble());
+        return System.currentTimeMillis() + gap >= expiresAt;
+    }
+
+    private Object await(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package org.example.ticketmanagement.util;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 售罄快速失败登记表（节点本地）
+ * 票档售罄标记保存在按票档ID分页的位图中，判断只需一次哈希查找和一次位运算，不产生任何I/O；
+ * 场次下所有票档都售罄时保存场次的售罄快照，库存查询直接返回快照
+ *
+ * 补货、退票、管理端修改库存时调用 invalidate 方法清除标记并广播给其他节点。
+ * 标记时需传入查询前读取的版本号：查询期间发生过清除则放弃标记，避免用旧数据把刚补货的票档标记为售罄
+ */
+@Slf4j
+@Component
+public class SoldOutRegistry {
+
+    private static final String TOPIC = "sold-out";
+    // 每页 2^16 个票档ID，占用 8KB
+    private static final int PAGE_SHIFT = 16;
+    private static final int PAGE_WORDS = (1 << PAGE_SHIFT) / 64;
+
+    @Autowired
+    private ClusterBroadcaster clusterBroadcaster;
+
+    private final ConcurrentHashMap<Long, AtomicLongArray> pages = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, SoldOutSession> soldOutSessions = new ConcurrentHashMap<>();
+    // 已缓存售罄快照的票档 -> 场次，票档被清除时同时清除场次快照
+    private final ConcurrentHashMap<Long, Long> tierSessions = new ConcurrentHashMap<>();
+    // 每次清除都会递增的版本号
+    private volatile long epoch;
+
+    @PostConstruct
+    public void init() {
+        clusterBroadcaster.subscribe(TOPIC, this::onBroadcast);
+    }
+
+    /**
+     * 当前版本号，在查询库存之前读取
+     */
+    public long currentEpoch() {
+        return epoch;
+    }
+
+    /**
+     * 票档是否已售罄（纯内存判断）
+     */
+    public boolean isTierSoldOut(Long tierId) {
+        AtomicLongArray page = pages.get(tierId >>> PAGE_SHIFT);
+        if (page == null) {
+            return false;
+        }
+        int bit = (int) (tierId & ((1 << PAGE_SHIFT) - 1));
+        return (page.get(bit >>> 6) & (1L << bit)) != 0;
+    }
+
+    /**
+     * 标记票档售罄
+     * @param observedEpoch 查询库存前读取的版本号
+     * @return 版本号已变化（期间有补货）时放弃标记并返回 false
+     */
+    public synchronized boolean markTierSoldOut(Long tierId, long observedEpoch) {
+        if (observedEpoch != epoch) {
+            return false;
+        }
+        AtomicLongArray page = pages.computeIfAbsent(tierId >>> PAGE_SHIFT, p -> new AtomicLongArray(PAGE_WORDS));
+        int bit = (int) (tierId & ((1 << PAGE_SHIFT) - 1));
+        long mask = 1L << bit;
+        page.getAndAccumulate(bit >>> 6, mask, (current, m) -> current | m);
+        log.debug("票档已售罄，后续请求快速失败: {}", tierId);
+        return true;
+    }
+
+    /**
+     * 获取场次的售罄快照，未售罄返回null
+     */
+    public SoldOutSession getSoldOutSession(Long sessionId) {
+        return soldOutSessions.get(sessionId);
+    }
+
+    /**
+     * 缓存场次的售罄快照，同时标记其下所有票档售罄
+     */
+    public synchronized boolean markSessionSoldOut(Long sessionId, Long eventId,
+                                                   List<Map<String, Object>> tierStockList, long observedEpoch) {
+        if (observedEpoch != epoch) {
+            return false;
+        }
+        List<Map<String, Object>> tiers = new ArrayList<>();
+        for (Map<String, Object> tier : tierStockList) {
+            tiers.add(Map.copyOf(tier));
+            Long tierId = ((Number) tier.get("id")).longValue();
+            tierSessions.put(tierId, sessionId);
+            markTierSoldOut(tierId, observedEpoch);
+        }
+        soldOutSessions.put(sessionId, new SoldOutSession(eventId, List.copyOf(tiers)));
+        log.debug("场次已售罄，库存查询直接返回快照: {}", sessionId);
+        return true;
+    }
+
+    /**
+     * 清除票档的售罄标记并广播给其他节点
+     */
+    public void invalidateTier(Long tierId) {
+        clearTier(tierId);
+        clusterBroadcaster.publish(TOPIC, "tier:" + tierId);
+    }
+
+    /**
+     * 清除场次的售罄快照并广播给其他节点
+     */
+    public void invalidateSession(Long sessionId) {
+        clearSession(sessionId);
+        clusterBroadcaster.publish(TOPIC, "session:" + sessionId);
+    }
+
+    /**
+     * 清除本节点所有售罄标记（定时兜底，防止广播丢失导致标记长期残留）
+     */
+    public synchronized void clearAll() {
+        epoch++;
+        pages.clear();
+        soldOutSessions.clear();
+        tierSessions.clear();
+    }
+
+    private synchronized void clearTier(Long tierId) {
+        epoch++;
+        AtomicLongArray page = pages.get(tierId >>> PAGE_SHIFT);
+        if (page != null) {
+            int bit = (int) (tierId & ((1 << PAGE_SHIFT) - 1));
+            long mask = ~(1L << bit);
+            page.getAndAccumulate(bit >>> 6, mask, (current, m) -> current & m);
+        }
+        Long sessionId = tierSessions.remove(tierId);
+        if (sessionId != null) {
+            soldOutSessions.remove(sessionId);
+        }
+    }
+
+    private synchronized void clearSession(Long sessionId) {
+        epoch++;
+        soldOutSessions.remove(sessionId);
+        tierSessions.values().removeIf(sessionId::equals);
+    }
+
+    private void onBroadcast(String payload) {
+        if (payload.startsWith("tier:")) {
+            clearTier(Long.valueOf(payload.substring(5)));
+        } else if (payload.startsWith("session:")) {
+            clearSession(Long.valueOf(payload.substring(8)));
+        }
+    }
+
+    /**
+     * 场次售罄快照（不可变）
+     */
+    public static final class SoldOutSession {
+        private final Long eventId;
+        private final List<Map<String, Object>> tierStockList;
+
+        private SoldOutSession(Long eventId, List<Map<String, Object>> tierStockList) {
+            this.eventId = eventId;
+            this.tierStockList = tierStockList;
+        }
+
+        public Long getEventId() {
+            return eventId;
+        }
+
+        /**
+         * 返回票档库存列表的副本，调用方可以自由修改
+         */
+        public List<Map<String, Object>> copyTierStockList() {
+            List<Map<String, Object>> copy = new ArrayList<>();
+            for (Map<String, Object> tier : tierStockList) {
+                copy.add(new HashMap<>(tier));
+            }
+            return copy;
+        }
+    }
+}
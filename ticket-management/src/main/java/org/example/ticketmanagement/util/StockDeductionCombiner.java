@@ -0,0 +1,268 @@
+package org.example.ticketmanagement.util;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.config.StockConfig;
+import org.example.ticketmanagement.mapper.TicketTierMapper;
+import org.example.ticketmanagement.pojo.TicketTier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 库存扣减合并器（组提交）
+ * 同一票档在合并窗口内的并发扣减请求合并成一条
+ * UPDATE ... available_stock = available_stock - SUM，
+ * 整批库存不足时按请求到达顺序拆分成功与失败，大幅减少热点行的加锁次数
+ * 取消、退款归还的库存进入同一批次，与扣减按净额一条UPDATE执行，归还的库存在同一批次内即可被买家抢到
+ */
+@Slf4j
+@Component
+public class StockDeductionCombiner {
+
+    // 整批扣减冲突时的最大重试次数，超过后退化为逐个扣减
+    private static final int MAX_SPLIT_RETRY = 3;
+
+    @Autowired
+    private TicketTierMapper ticketTierMapper;
+
+    @Autowired
+    private StockConfig stockConfig;
+
+    private final ConcurrentHashMap<Long, TierBatch> batches = new ConcurrentHashMap<>();
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newScheduledThreadPool(stockConfig.getCombineThreads());
+        log.info("库存扣减合并器初始化完成，合并窗口: {}ms，线程数: {}",
+                stockConfig.getCombineWindow(), stockConfig.getCombineThreads());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    /**
+     * 提交扣减请求并等待合并执行的结果
+     * 等待超时且请求尚未被执行时取消请求；已被执行的请求会等到结果返回，保证结果确定
+     * @return 扣减成功返回 true
+     */
+    public boolean deduct(Long tierId, int quantity) {
+        DeductRequest request = new DeductRequest(quantity);
+        TierBatch batch = batches.computeIfAbsent(tierId, id -> new TierBatch());
+        batch.queue.add(request);
+        if (batch.scheduled.compareAndSet(false, true)) {
+            executor.schedule(() -> flush(tierId, batch),
+                    stockConfig.getCombineWindow(), TimeUnit.MILLISECONDS);
+        }
+
+        try {
+            return request.future.get(stockConfig.getCombineTimeout(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("库存扣减等待超时: tierId={}, quantity={}", tierId, quantity);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("库存扣减执行异常: tierId={}, quantity={}", tierId, quantity, e);
+            return false;
+        }
+
+        // 尚未被执行的请求直接取消；已被合并执行的请求等待确定结果
+        if (request.state.compareAndSet(DeductRequest.PENDING, DeductRequest.CANCELLED)) {
+            return false;
+        }
+        try {
+            return request.future.join();
+        } catch (Exception e) {
+            log.error("库存扣减执行异常: tierId={}, quantity={}", tierId, quantity, e);
+            return false;
+        }
+    }
+
+    /**
+     * 提交归还请求并等待合并执行的结果
+     * 等待超时且请求尚未被执行时取消请求并直接归还，保证归还不会丢失
+     * @return 归还成功返回 true，归还后超出总库存返回 false
+     */
+    public boolean release(Long tierId, int quantity) {
+        DeductRequest request = new DeductRequest(-quantity);
+        TierBatch batch = batches.computeIfAbsent(tierId, id -> new TierBatch());
+        batch.queue.add(request);
+        if (batch.scheduled.compareAndSet(false, true)) {
+            executor.schedule(() -> flush(tierId, batch),
+                    stockConfig.getCombineWindow(), TimeUnit.MILLISECONDS);
+        }
+
+        try {
+            return request.future.get(stockConfig.getCombineTimeout(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("库存归还等待超时: tierId={}, quantity={}", tierId, quantity);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("库存归还执行异常: tierId={}, quantity={}", tierId, quantity, e);
+        }
+
+        if (request.state.compareAndSet(DeductRequest.PENDING, DeductRequest.CANCELLED)) {
+            return ticketTierMapper.releaseStock(tierId, quantity) == 1;
+        }
+        try {
+            return request.future.join();
+        } catch (Exception e) {
+            // 合并执行失败时整批未生效，直接归还
+            return ticketTierMapper.releaseStock(tierId, quantity) == 1;
+        }
+    }
+
+    /**
+     * 执行一批扣减
+     */
+    private void flush(Long tierId, TierBatch batch) {
+        // 先复位调度标记再取请求，保证之后入队的请求一定会触发新的批次
+        batch.scheduled.set(false);
+
+        List<DeductRequest> requests = new ArrayList<>();
+        DeductRequest request;
+        while ((request = batch.queue.poll()) != null) {
+            if (request.state.compareAndSet(DeductRequest.PENDING, DeductRequest.CLAIMED)) {
+                requests.add(request);
+            }
+        }
+        if (requests.isEmpty()) {
+            return;
+        }
+
+        try {
+            executeBatch(tierId, requests);
+        } catch (Exception e) {
+            log.error("合并扣减执行异常: tierId={}, 请求数: {}", tierId, requests.size(), e);
+            for (DeductRequest r : requests) {
+                r.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void executeBatch(Long tierId, List<DeductRequest> requests) {
+        // 0. 批次中有归还请求时先与扣减按净额执行
+        List<DeductRequest> releases = requests.stream().filter(r -> r.quantity < 0).collect(Collectors.toList());
+        if (!releases.isEmpty()) {
+            requests = requests.stream().filter(r -> r.quantity > 0).collect(Collectors.toList());
+            if (executeWithReleases(tierId, releases, requests)) {
+                return;
+            }
+        }
+
+        // 1. 整批扣减：绝大多数情况下一条UPDATE完成整批
+        int total = requests.stream().mapToInt(r -> r.quantity).sum();
+        if (ticketTierMapper.updateStock(tierId, total) == 1) {
+            requests.forEach(r -> r.future.complete(true));
+            log.debug("合并扣减成功: tierId={}, 请求数: {}, 总数量: {}", tierId, requests.size(), total);
+            return;
+        }
+
+        // 2. 库存不足：按到达顺序挑出能满足的请求，再用一条UPDATE扣减
+        for (int attempt = 0; attempt < MAX_SPLIT_RETRY; attempt++) {
+            TicketTier tier = ticketTierMapper.selectById(tierId);
+            int available = tier != null ? tier.getAvailableStock() : 0;
+
+            Set<DeductRequest> accepted = new HashSet<>();
+            int acceptedTotal = 0;
+            for (DeductRequest r : requests) {
+                if (acceptedTotal + r.quantity <= available) {
+                    accepted.add(r);
+                    acceptedTotal += r.quantity;
+                }
+            }
+
+            if (accepted.isEmpty()) {
+                requests.forEach(r -> r.future.complete(false));
+                return;
+            }
+            if (ticketTierMapper.updateStock(tierId, acceptedTotal) == 1) {
+                for (DeductRequest r : requests) {
+                    r.future.complete(accepted.contains(r));
+                }
+                log.debug("合并扣减部分成功: tierId={}, 成功: {}, 失败: {}",
+                        tierId, accepted.size(), requests.size() - accepted.size());
+                return;
+            }
+            // 库存在查询后又被其他节点扣减，重新拆分
+        }
+
+        // 3. 多次冲突后退化为逐个扣减
+        log.warn("合并扣减多次冲突，退化为逐个扣减: tierId={}, 请求数: {}", tierId, requests.size());
+        for (DeductRequest r : requests) {
+            r.future.complete(ticketTierMapper.updateStock(tierId, r.quantity) == 1);
+        }
+    }
+
+    /**
+     * 执行含归还请求的批次：归还与扣减的净额一条UPDATE完成；
+     * 净额不满足库存约束时先单独归还，扣减请求交回普通流程拆分
+     * @return 扣减请求也已全部完成返回 true
+     */
+    private boolean executeWithReleases(Long tierId, List<DeductRequest> releases, List<DeductRequest> deductions) {
+        int released = -releases.stream().mapToInt(r -> r.quantity).sum();
+        int deducted = deductions.stream().mapToInt(r -> r.quantity).sum();
+
+        // 1. 净额执行：归还的库存直接抵扣同批次的扣减
+        if (ticketTierMapper.applyStockDelta(tierId, (long) deducted - released) == 1) {
+            releases.forEach(r -> r.future.complete(true));
+            deductions.forEach(r -> r.future.complete(true));
+            log.debug("合并扣减与归还成功: tierId={}, 扣减: {}, 归还: {}", tierId, deducted, released);
+            return true;
+        }
+
+        // 2. 净额不满足约束：先单独归还，归还后超出总库存的请求逐个判断
+        if (ticketTierMapper.applyStockDelta(tierId, (long) -released) == 1) {
+            releases.forEach(r -> r.future.complete(true));
+        } else {
+            for (DeductRequest r : releases) {
+                r.future.complete(ticketTierMapper.releaseStock(tierId, -r.quantity) == 1);
+            }
+        }
+        return deductions.isEmpty();
+    }
+
+    /**
+     * 单个票档的待合并请求
+     */
+    private static class TierBatch {
+        private final ConcurrentLinkedQueue<DeductRequest> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    }
+
+    /**
+     * 单个扣减请求（数量为负数表示归还）
+     */
+    private static class DeductRequest {
+        private static final int PENDING = 0;
+        private static final int CLAIMED = 1;
+        private static final int CANCELLED = 2;
+
+        private final int quantity;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+        private DeductRequest(int quantity) {
+            this.quantity = quantity;
+        }
+    }
+}
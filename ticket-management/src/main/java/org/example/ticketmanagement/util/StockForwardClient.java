@@ -0,0 +1,195 @@
+package org.example.ticketmanagement.util;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ticketmanagement.config.OwnershipConfig;
+import org.example.ticketmanagement.dto.StockForwardDTO;
+import org.example.ticketmanagement.pojo.Result;
+import org.example.ticketmanagement.vo.StockForwardVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 库存请求转发客户端
+ * 把预扣/释放请求转发给场次的属主节点执行，每次请求带一个请求ID，属主按请求ID去重；
+ * 超时、连接中断等无法确定属主是否已执行的情况，用同一个请求ID重试，仍不确定时：
+ * 预扣排队撤销（属主已执行则归还，未执行则不再执行），按预扣失败返回；释放排队重发，按已释放返回
+ */
+@Slf4j
+@Component
+public class StockForwardClient {
+
+    public static final String TOKEN_HEADER = "X-Internal-Token";
+
+    private static final String RESERVE_PATH = "/api/internal/stock/reserve";
+    private static final String RELEASE_PATH = "/api/internal/stock/release";
+    private static final String ABORT_PATH = "/api/internal/stock/abort/";
+
+    private static final ParameterizedTypeReference<Result<StockForwardVO>> RESULT_TYPE =
+            new ParameterizedTypeReference<>() {
+            };
+
+    @Autowired
+    private OwnershipConfig ownershipConfig;
+
+    private RestTemplate restTemplate;
+
+    // 结果不确定、等待重发的请求（预扣的撤销与释放）
+    private final ConcurrentLinkedQueue<PendingRequest> pendingRequests = new ConcurrentLinkedQueue<>();
+
+    @PostConstruct
+    public void init() {
+        // 转发在下单路径上，单独设置较短的超时，不复用全局的 RestTemplate
+        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+        factory.setConnectTimeout(ownershipConfig.getForwardTimeout());
+        factory.setReadTimeout(ownershipConfig.getForwardTimeout());
+        restTemplate = new RestTemplate(factory);
+    }
+
+    /**
+     * 在属主节点上预扣库存（多个票档时全部成功或全部失败）
+     * @return 预扣结果；属主拒绝或结果不确定时返回 null（不确定时已排队撤销这次预扣）
+     */
+    public StockForwardVO reserve(String ownerUrl, Map<Long, Integer> quantities) {
+        String requestId = newRequestId();
+        Reply reply = postWithRetry(ownerUrl, RESERVE_PATH, new StockForwardDTO(requestId, quantities));
+        if (!reply.delivered) {
+            log.warn("转发预扣结果不确定，排队撤销: url={}, requestId={}", ownerUrl, requestId);
+            pendingRequests.add(new PendingRequest(ownerUrl, ABORT_PATH + requestId, null));
+            return null;
+        }
+        return reply.data;
+    }
+
+    /**
+     * 在属主节点上释放库存
+     * @return 释放结果；属主拒绝时返回 null；结果不确定时排队重发（同一请求ID最多执行一次），按已释放返回
+     */
+    public StockForwardVO release(String ownerUrl, Long tierId, int quantity) {
+        StockForwardDTO request = new StockForwardDTO(newRequestId(), Map.of(tierId, quantity));
+        Reply reply = postWithRetry(ownerUrl, RELEASE_PATH, request);
+        if (!reply.delivered) {
+            log.warn("转发释放结果不确定，排队重发: url={}, requestId={}, tierId={}, quantity={}",
+                    ownerUrl, request.getRequestId(), tierId, quantity);
+            pendingRequests.add(new PendingRequest(ownerUrl, RELEASE_PATH, request));
+            return new StockForwardVO(true, null);
+        }
+        return reply.data;
+    }
+
+    /**
+     * 让属主节点回写并移除票档的库存计数（其他节点修改、删除票档前后使用，重复执行没有副作用）
+     */
+    public StockForwardVO handOff(String ownerUrl, Long tierId) {
+        return post(ownerUrl, "/api/internal/stock/hand-off/" + tierId, null).data;
+    }
+
+    /**
+     * 重发结果不确定的请求，属主给出答复（执行或拒绝）后出队，超过属主的去重时间仍不确定时放弃
+     * @return 本次得到答复的请求数量
+     */
+    public int retryPending() {
+        int answered = 0;
+        Iterator<PendingRequest> iterator = pendingRequests.iterator();
+        while (iterator.hasNext()) {
+            PendingRequest pending = iterator.next();
+            Reply reply = post(pending.ownerUrl, pending.path, pending.body);
+            if (reply.delivered) {
+                iterator.remove();
+                answered++;
+                if (reply.data == null) {
+                    log.warn("属主节点拒绝重发的库存请求: url={}{}", pending.ownerUrl, pending.path);
+                }
+            } else if (System.currentTimeMillis() - pending.createTime > ownershipConfig.getForwardDedupTtl()) {
+                iterator.remove();
+                log.error("库存请求重发超时放弃，需人工核对库存: url={}{}, body={}",
+                        pending.ownerUrl, pending.path, pending.body);
+            }
+        }
+        return answered;
+    }
+
+    /**
+     * 等待重发的请求数量
+     */
+    public int getPendingCount() {
+        return pendingRequests.size();
+    }
+
+    private Reply postWithRetry(String ownerUrl, String path, Object body) {
+        Reply reply = post(ownerUrl, path, body);
+        for (int i = 0; i < ownershipConfig.getForwardRetries() && !reply.delivered; i++) {
+            reply = post(ownerUrl, path, body);
+        }
+        return reply;
+    }
+
+    private Reply post(String ownerUrl, String path, Object body) {
+        if (ownerUrl == null) {
+            return Reply.REJECTED;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(TOKEN_HEADER, ownershipConfig.getInternalToken());
+        try {
+            ResponseEntity<Result<StockForwardVO>> response = restTemplate.exchange(
+                    ownerUrl + path, HttpMethod.POST, new HttpEntity<>(body, headers), RESULT_TYPE);
+            Result<StockForwardVO> result = response.getBody();
+            if (result == null || result.getCode() == null || result.getCode() != 1) {
+                log.warn("属主节点拒绝库存请求: url={}{}, msg={}", ownerUrl, path, result != null ? result.getMsg() : null);
+                return Reply.REJECTED;
+            }
+            return new Reply(true, result.getData());
+        } catch (Exception e) {
+            // 请求可能已经到达属主并执行，只是没有收到响应
+            log.error("转发库存请求失败: url={}{}", ownerUrl, path, e);
+            return Reply.UNKNOWN;
+        }
+    }
+
+    private static String newRequestId() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * 一次转发的答复：delivered 为 false 表示无法确定属主是否执行；属主拒绝时 data 为 null
+     */
+    private static final class Reply {
+        static final Reply REJECTED = new Reply(true, null);
+        static final Reply UNKNOWN = new Reply(false, null);
+
+        final boolean delivered;
+        final StockForwardVO data;
+
+        Reply(boolean delivered, StockForwardVO data) {
+            this.delivered = delivered;
+            this.data = data;
+        }
+    }
+
+    private static final class PendingRequest {
+        final String ownerUrl;
+        final String path;
+        final Object body;
+        final long createTime = System.currentTimeMillis();
+
+        PendingRequest(String ownerUrl, String path, Object body) {
+            this.ownerUrl = ownerUrl;
+            this.path = path;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package org.example.ticketmanagement.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32C;
+
+/**
+ * 库存追加日志
+ * 预扣、释放等库存变更按序号顺序追加到内存映射的日志段文件中，写入只是一次内存拷贝，
+ * 由后台线程按固定间隔刷盘（进程崩溃时已写入页缓存的记录不会丢失，机器掉电最多丢失一个刷盘间隔）
+ * 每条记录定长32字节：序号(8) + 票档ID(8) + 数值(4) + 类型(4) + CRC32C(4) + 魔数(4)，
+ * 日志段写满后切换到新文件，文件名为该段第一条记录的序号
+ * append 不是线程安全的，由调用方加锁保证记录顺序与内存状态的变更顺序一致
+ */
+@Slf4j
+public class StockJournal {
+
+    // 记录类型：载入库存（数值为库存）
+    public static final int TYPE_LOAD = 1;
+    // 记录类型：预扣（数值为数量）
+    public static final int TYPE_RESERVE = 2;
+    // 记录类型：释放（数值为数量）
+    public static final int TYPE_RELEASE = 3;
+    // 记录类型：覆盖库存（数值为库存，清空待回写增量）
+    public static final int TYPE_OVERWRITE = 4;
+    // 记录类型：移除票档
+    public static final int TYPE_REMOVE = 5;
+    // 记录类型：调整库存（数值为调整量，不计入待回写增量）
+    public static final int TYPE_ADJUST = 6;
+
+    private static final int RECORD_SIZE = 32;
+    private static final int PAYLOAD_SIZE = 24;
+    private static final int MAGIC = 0x53544A4C;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /**
+     * 重放日志记录的回调
+     */
+    public interface RecordHandler {
+        void onRecord(long seq, int type, long tierId, int value);
+    }
+
+    private final Path dir;
+    private final int segmentSize;
+    private final long fsyncIntervalMillis;
+    // 日志段：第一条记录的序号 -> 文件
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    private final ByteBuffer payload = ByteBuffer.allocate(PAYLOAD_SIZE);
+    private final CRC32C crc = new CRC32C();
+
+    private FileChannel currentChannel;
+    private volatile MappedByteBuffer currentBuffer;
+    private long nextSeq = 1;
+    private volatile long lastAppendedSeq;
+    private volatile long lastForcedSeq;
+    private volatile boolean running;
+    private Thread fsyncThread;
+
+    /**
+     * @param dir 日志目录
+     * @param segmentSize 单个日志段大小（字节）
+     * @param fsyncIntervalMillis 刷盘间隔（毫秒）
+     */
+    public StockJournal(Path dir, int segmentSize, long fsyncIntervalMillis) {
+        if (segmentSize < RECORD_SIZE || fsyncIntervalMillis <= 0) {
+            throw new IllegalArgumentException("日志参数不合法");
+        }
+        this.dir = dir;
+        this.segmentSize = segmentSize - segmentSize % RECORD_SIZE;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+    }
+
+    /**
+     * 打开日志：按序重放序号大于 afterSeq 的记录，然后在最后一条有效记录之后继续追加
+     * 校验失败的记录（写入一半时崩溃）及其之后的内容视为日志末尾
+     * @param afterSeq 只重放序号大于该值的记录（快照已包含之前的记录）
+     * @param minSeq 新记录的序号至少从该值之后开始（日志文件丢失时避免序号回退）
+     * @param handler 重放回调
+     * @return 最后一条有效记录的序号
+     */
+    public long open(long afterSeq, long minSeq, RecordHandler handler) throws IOException {
+        Files.createDirectories(dir);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                long firstSeq = Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                        name.length() - SEGMENT_SUFFIX.length()));
+                segments.put(firstSeq, path);
+            }
+        }
+
+        long lastSeq = Math.max(afterSeq, minSeq);
+        int appendPosition = 0;
+        for (Map.Entry<Long, Path> entry : segments.entrySet()) {
+            try (FileChannel channel = FileChannel.open(entry.getValue(), StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                int position = 0;
+                while (position + RECORD_SIZE <= buffer.limit()) {
+                    long seq = readRecord(buffer, position, afterSeq, handler);
+                    if (seq < 0) {
+                        break;
+                    }
+                    lastSeq = Math.max(lastSeq, seq);
+                    position += RECORD_SIZE;
+                }
+                appendPosition = position;
+            }
+        }
+
+        nextSeq = lastSeq + 1;
+        lastAppendedSeq = lastSeq;
+        lastForcedSeq = lastSeq;
+        if (segments.isEmpty() || appendPosition + RECORD_SIZE > segmentSize) {
+            openSegment(nextSeq, 0);
+        } else {
+            Map.Entry<Long, Path> last = segments.lastEntry();
+            mapSegment(last.getValue(), appendPosition);
+        }
+
+        running = true;
+        fsyncThread = new Thread(this::runFsync, "stock-journal-fsync");
+        fsyncThread.setDaemon(true);
+        fsyncThread.start();
+        log.info("库存日志已打开: dir={}, 日志段数: {}, 最后序号: {}", dir, segments.size(), lastSeq);
+        return lastSeq;
+    }
+
+    /**
+     * 追加一条记录（调用方需持有锁）
+     * @return 记录序号
+     */
+    public long append(int type, long tierId, int value) throws IOException {
+        MappedByteBuffer buffer = currentBuffer;
+        if (buffer.remaining() < RECORD_SIZE) {
+            rollSegment();
+            buffer = currentBuffer;
+        }
+        long seq = nextSeq;
+        payload.clear();
+        payload.putLong(seq).putLong(tierId).putInt(value).putInt(type);
+        crc.reset();
+        crc.update(payload.array(), 0, PAYLOAD_SIZE);
+
+        payload.flip();
+        buffer.put(payload);
+        buffer.putInt((int) crc.getValue());
+        buffer.putInt(MAGIC);
+        nextSeq++;
+        lastAppendedSeq = seq;
+        return seq;
+    }
+
+    /**
+     * 最后一条已追加记录的序号
+     */
+    public long getLastSeq() {
+        return lastAppendedSeq;
+    }
+
+    /**
+     * 立即刷盘
+     */
+    public void force() {
+        long seq = lastAppendedSeq;
+        MappedByteBuffer buffer = currentBuffer;
+        if (buffer != null && seq > lastForcedSeq) {
+            buffer.force();
+            lastForcedSeq = seq;
+        }
+    }
+
+    /**
+     * 删除所有记录序号都不大于 seq 的日志段（快照已覆盖这些记录），当前写入的日志段不删除
+     * @return 删除的日志段数量
+     */
+    public int truncateBefore(long seq) {
+        int deleted = 0;
+        synchronized (segments) {
+            while (segments.size() > 1) {
+                Map.Entry<Long, Path> first = segments.firstEntry();
+                // 日志段最后一条记录的序号 = 下一段第一条记录的序号 - 1
+                if (segments.higherKey(first.getKey()) - 1 > seq) {
+                    break;
+                }
+                try {
+                    Files.deleteIfExists(first.getValue());
+                } catch (IOException e) {
+                    log.warn("删除旧日志段失败: {}", first.getValue(), e);
+                    break;
+                }
+                segments.remove(first.getKey());
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * 停止刷盘线程并在关闭前刷盘
+     */
+    public void close() {
+        running = false;
+        if (fsyncThread != null) {
+            fsyncThread.interrupt();
+        }
+        try {
+            force();
+            if (currentChannel != null) {
+                currentChannel.close();
+            }
+        } catch (IOException e) {
+            log.warn("关闭库存日志失败", e);
+        }
+    }
+
+    /**
+     * 读取并校验一条记录
+     * @return 记录序号，到达日志末尾返回 -1
+     */
+    private long readRecord(MappedByteBuffer buffer, int position, long afterSeq, RecordHandler handler) {
+        if (buffer.getInt(position + 28) != MAGIC) {
+            return -1;
+        }
+        crc.reset();
+        crc.update(buffer.slice(position, PAYLOAD_SIZE));
+        if ((int) crc.getValue() != buffer.getInt(position + PAYLOAD_SIZE)) {
+            log.warn("库存日志记录校验失败，视为日志末尾: position={}", position);
+            return -1;
+        }
+        long seq = buffer.getLong(position);
+        if (seq > afterSeq) {
+            handler.onRecord(seq, buffer.getInt(position + 20), buffer.getLong(position + 8),
+                    buffer.getInt(position + 16));
+        }
+        return seq;
+    }
+
+    private void rollSegment() throws IOException {
+        // 切换前把旧日志段完整刷盘
+        currentBuffer.force();
+        lastForcedSeq = lastAppendedSeq;
+        currentChannel.close();
+        openSegment(nextSeq, 0);
+    }
+
+    private void openSegment(long firstSeq, int position) throws IOException {
+        Path path = dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSeq, SEGMENT_SUFFIX));
+        synchronized (segments) {
+            segments.put(firstSeq, path);
+        }
+        mapSegment(path, position);
+    }
+
+    private void mapSegment(Path path, int position) throws IOException {
+        currentChannel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // 映射时文件会被扩展到完整大小并以0填充，0填充区域在重放时视为日志末尾
+        MappedByteBuffer buffer = currentChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        buffer.position(position);
+        currentBuffer = buffer;
+    }
+
+    private void runFsync() {
+        while (running) {
+            try {
+                Thread.sleep(fsyncIntervalMillis);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    break;
+                }
+            }
+            try {
+                force();
+            } catch (Exception e) {
+                log.error("库存日志刷盘失败", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.ticketmanagement.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AdmissionVO {
+    private Long sessionId;               // 场次ID
+    private Integer status;               // 状态：0-未排队，1-等候中，2-已放行
+    private Long position;                // 前面等候的人数（等候中时有值）
+    private Long queueSize;               // 当前等候总人数
+    private Long estimatedWaitSeconds;    // 预计等待秒数（等候中时有值）
+    private LocalDateTime admitExpireTime; // 购买资格过期时间（已放行时有值）
+}
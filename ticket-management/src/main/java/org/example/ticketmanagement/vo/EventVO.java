@@ -24,6 +24,7 @@ public class EventVO {
     private LocalDateTime saleEndTime;
     private LocalDateTime eventStartTime;
     private LocalDateTime eventEndTime;
+    private Integer purchaseLimit;
     private LocalDateTime createTime;
     private LocalDateTime updateTime;
 
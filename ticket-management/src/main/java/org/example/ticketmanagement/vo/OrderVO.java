@@ -0,0 +1,34 @@
+package org.example.ticketmanagement.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderVO {
+    private Long id;
+    private String orderNo;
+    private Long userId;
+    private Long eventId;
+    private Long sessionId;
+    private Long tierId;
+    private Integer quantity;
+    private BigDecimal unitPrice;
+    private BigDecimal totalAmount;
+    private Integer status;
+    private LocalDateTime expireTime;
+    private LocalDateTime payTime;
+    private LocalDateTime cancelTime;
+    private Long seatSectionId;
+    private Integer seatRowNo;
+    private String seatNos;            // 座位号（同一排连续，逗号分隔），未配置座位图的票档为空
+    private LocalDateTime createTime;
+
+    // 关联信息（可选）
+    private String tierName;           // 票档名称
+}
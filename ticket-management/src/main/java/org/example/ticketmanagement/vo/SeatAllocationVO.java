@@ -0,0 +1,19 @@
+package org.example.ticketmanagement.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SeatAllocationVO {
+    private Long sessionId;
+    private Long tierId;
+    private Long sectionId;
+    private String sectionName;
+    private Integer rowNo;
+    private List<Integer> seatNos;     // 分配到的座位号（同一排连续）
+}
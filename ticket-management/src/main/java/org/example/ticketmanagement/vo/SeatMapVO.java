@@ -0,0 +1,40 @@
+package org.example.ticketmanagement.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SeatMapVO {
+    private Long sessionId;
+    private Integer totalSeats;          // 总座位数
+    private Integer availableSeats;      // 可售座位数
+    private List<SectionDetail> sections;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class SectionDetail {
+        private Long sectionId;
+        private Long tierId;
+        private String sectionName;
+        private Integer sortOrder;
+        private Integer totalSeats;
+        private Integer availableSeats;
+        private List<RowDetail> rows;
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RowDetail {
+        private Integer rowNo;
+        private Integer seatCount;
+        private Integer availableSeats;
+        private String seatBits;          // 座位占用位图（Base64，第i位为1表示第i+1号座位已售出）
+    }
+}
@@ -0,0 +1,42 @@
+package org.example.ticketmanagement.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockAuditReportVO {
+    private LocalDateTime startTime;      // 对账开始时间
+    private Long durationMillis;          // 对账耗时（毫秒）
+    private Boolean fullSweep;            // 是否全量对账
+    private String skippedReason;         // 跳过对账的原因（未跳过时为null）
+    private Integer checkedTiers = 0;     // 核对的票档数
+    private Integer suspectTiers = 0;     // 出现偏差但尚未确认的票档数
+    private Integer driftTiers = 0;       // 已确认存在偏差的票档数
+    private Long oversellRiskUnits = 0L;  // 已确认偏差中计数多于订单的数量之和（可能超卖）
+    private Long undersellUnits = 0L;     // 已确认偏差中计数少于订单的数量之和（库存丢失）
+    private Integer correctedTiers = 0;   // 已自动修正的票档数
+    private List<TierDrift> drifts = new ArrayList<>(); // 已确认的偏差明细
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class TierDrift {
+        private Long tierId;
+        private Long sessionId;
+        private Integer totalStock;       // 总库存
+        private Integer availableStock;   // 数据库中的可用库存
+        private Long soldQuantity;        // 待支付、已支付订单占用的数量
+        private Integer engineStock;      // 库存引擎中的计数（没有计数时为null）
+        private Long pending;             // 库存引擎中尚未回写数据库的扣减数量
+        private Long dbDrift;             // 数据库可用库存 - 按订单推算的可用库存，正数表示可能超卖
+        private Long cacheDrift;          // 库存引擎计数 - 按订单推算的剩余库存，正数表示可能超卖
+        private Boolean corrected;        // 是否已自动修正
+    }
+}
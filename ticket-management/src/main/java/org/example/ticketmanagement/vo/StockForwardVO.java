@@ -0,0 +1,15 @@
+package org.example.ticketmanagement.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockForwardVO {
+    private Boolean success;               // 是否预扣/释放成功
+    private Map<Long, Integer> stocks;     // 执行后属主节点上各票档的库存计数（未载入时为null）
+}
@@ -0,0 +1,25 @@
+package org.example.ticketmanagement.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockStreamVO {
+    private Long sessionId;
+    private boolean hasStock;           // 是否有库存
+    private List<TierState> tierStates; // 各票档库存状态
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class TierState {
+        private Long tierId;
+        private String tierName;
+        private String state;           // 库存状态：AVAILABLE-有票，LOW_STOCK-库存紧张，SOLD_OUT-已售罄
+    }
+}
@@ -21,6 +21,7 @@ public class TicketTierVO {
     private Integer totalStock;
     private Integer availableStock;
     private Integer status;
+    private Integer purchaseLimit;
     private LocalDateTime createTime;
     private LocalDateTime updateTime;
 
@@ -0,0 +1,19 @@
+package org.example.ticketmanagement.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class WaitlistVO {
+    private Long tierId;                   // 票档ID
+    private Integer status;                // 状态：0-未候补，1-候补中，2-已获得购买机会
+    private Long position;                 // 前面候补的人数（候补中时有值）
+    private Long waitlistSize;             // 当前候补总人数
+    private LocalDateTime claimExpireTime; // 购买机会的截止时间（已获得购买机会时有值）
+    private Long nextCheckSeconds;         // 建议下次查询状态的间隔（秒），排位越靠后间隔越长
+}
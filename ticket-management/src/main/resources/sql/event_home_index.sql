@@ -0,0 +1,3 @@
+-- 首页推荐 Top-N 查询（EventMapper.selectHomeTopN）使用的索引：
+-- 按城市、状态、分类定位后直接按开始时间顺序读取，窗口函数不需要额外排序
+CREATE INDEX idx_city_status_category_start ON event (city_id, status, category_id, event_start_time);
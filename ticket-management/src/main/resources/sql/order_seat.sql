@@ -0,0 +1,5 @@
+-- 订单座位：配置了座位图的票档下单时同时分配同一排的连续座位，取消、超时、退款时释放
+ALTER TABLE ticket_order
+    ADD COLUMN seat_section_id BIGINT NULL COMMENT '座位区域ID，票档未配置座位图时为空' AFTER cancel_time,
+    ADD COLUMN seat_row_no INT NULL COMMENT '座位排号' AFTER seat_section_id,
+    ADD COLUMN seat_nos VARCHAR(64) NULL COMMENT '座位号（同一排连续，逗号分隔）' AFTER seat_row_no;
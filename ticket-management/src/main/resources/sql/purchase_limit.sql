@@ -0,0 +1,6 @@
+-- 用户限购数量：为空或0表示不限购，已购数量由Redis计数维护，不查询订单表
+ALTER TABLE event
+    ADD COLUMN purchase_limit INT NULL COMMENT '每个用户在该演出的限购数量，为空或0表示不限购' AFTER event_end_time;
+
+ALTER TABLE ticket_tier
+    ADD COLUMN purchase_limit INT NULL COMMENT '每个用户在该票档的限购数量，为空或0表示不限购' AFTER status;
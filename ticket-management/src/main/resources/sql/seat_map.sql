@@ -0,0 +1,25 @@
+-- 座位图：每个场次按区域、排组织座位，区域归属一个票档
+CREATE TABLE IF NOT EXISTS seat_section (
+    id           BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '区域ID',
+    session_id   BIGINT       NOT NULL COMMENT '场次ID',
+    tier_id      BIGINT       NOT NULL COMMENT '票档ID',
+    section_name VARCHAR(100) NOT NULL COMMENT '区域名称',
+    sort_order   INT          NOT NULL DEFAULT 0 COMMENT '优选顺序，越小越优先分配',
+    create_time  DATETIME     NOT NULL COMMENT '创建时间',
+    update_time  DATETIME     NOT NULL COMMENT '更新时间',
+    KEY idx_session_id (session_id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '座位区域表';
+
+-- 座位排：每排的座位占用情况以位图压缩存储（第i位为1表示第i+1号座位已售出）
+CREATE TABLE IF NOT EXISTS seat_row (
+    id          BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '排ID',
+    section_id  BIGINT    NOT NULL COMMENT '区域ID',
+    session_id  BIGINT    NOT NULL COMMENT '场次ID（冗余，按场次整体加载）',
+    row_no      INT       NOT NULL COMMENT '排号（从1开始，越小越靠前）',
+    seat_count  INT       NOT NULL COMMENT '座位数',
+    seat_bits   BLOB      NULL COMMENT '座位占用位图（小端字节序）',
+    version     BIGINT    NOT NULL DEFAULT 0 COMMENT '位图版本号，只接受更新的版本写入',
+    update_time DATETIME  NOT NULL COMMENT '更新时间',
+    UNIQUE KEY uk_section_row (section_id, row_no),
+    KEY idx_session_id (session_id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '座位排表';
@@ -0,0 +1,11 @@
+-- 场次库存属主租约表：开启场次属主路由（ownership.enabled=true）后，节点在内存中持有场次库存前必须先取得租约
+-- 属主变化时原属主先把待回写增量回写 ticket_tier 再释放租约，新属主取得租约后从数据库载入库存，
+-- 任何时刻一个场次最多只有一个节点持有库存计数
+CREATE TABLE IF NOT EXISTS session_owner (
+    session_id  BIGINT      NOT NULL COMMENT '场次ID',
+    owner_node  VARCHAR(64) NULL COMMENT '持有租约的节点ID，NULL表示空闲',
+    epoch       BIGINT      NOT NULL DEFAULT 0 COMMENT '租约版本，每次被取得时加1',
+    update_time DATETIME    NOT NULL COMMENT '更新时间',
+    PRIMARY KEY (session_id),
+    KEY idx_owner_node (owner_node)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '场次库存属主租约表';
@@ -0,0 +1,9 @@
+-- 库存日志回写位点表：本地库存日志引擎把增量回写 ticket_tier 时，在同一事务中记录已回写到的日志序号
+-- 节点崩溃重放日志时只把序号大于位点的记录计入待回写增量，保证每笔增量只回写一次
+CREATE TABLE IF NOT EXISTS stock_journal_checkpoint (
+    journal_id  VARCHAR(64) NOT NULL COMMENT '日志标识',
+    tier_id     BIGINT      NOT NULL COMMENT '票档ID',
+    applied_seq BIGINT      NOT NULL COMMENT '已回写到的日志序号',
+    update_time DATETIME    NOT NULL COMMENT '更新时间',
+    PRIMARY KEY (journal_id, tier_id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '库存日志回写位点表';
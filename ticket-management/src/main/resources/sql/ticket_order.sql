@@ -0,0 +1,22 @@
+-- 订单表：下单即预扣库存，支付窗口内未支付由超时时间轮关闭并释放库存
+CREATE TABLE IF NOT EXISTS ticket_order (
+    id           BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '订单ID',
+    order_no     VARCHAR(32)    NOT NULL COMMENT '订单编号',
+    user_id      BIGINT         NOT NULL COMMENT '用户ID',
+    event_id     BIGINT         NOT NULL COMMENT '演出ID',
+    session_id   BIGINT         NOT NULL COMMENT '场次ID',
+    tier_id      BIGINT         NOT NULL COMMENT '票档ID',
+    quantity     INT            NOT NULL COMMENT '购买数量',
+    unit_price   DECIMAL(12, 2) NOT NULL COMMENT '下单时的票档单价',
+    total_amount DECIMAL(12, 2) NOT NULL COMMENT '订单总金额',
+    status       TINYINT        NOT NULL DEFAULT 0 COMMENT '状态：0-待支付，1-已支付，2-已取消，3-超时关闭，4-已退款',
+    expire_time  DATETIME       NOT NULL COMMENT '支付截止时间',
+    pay_time     DATETIME       NULL COMMENT '支付时间',
+    cancel_time  DATETIME       NULL COMMENT '取消/关闭/退款时间',
+    create_time  DATETIME       NOT NULL COMMENT '创建时间',
+    update_time  DATETIME       NOT NULL COMMENT '更新时间',
+    UNIQUE KEY uk_order_no (order_no),
+    KEY idx_user_id (user_id),
+    KEY idx_status_expire (status, expire_time),
+    KEY idx_tier_status (tier_id, status, quantity)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '订单表';
@@ -0,0 +1,11 @@
+-- 票档库存分片表：分片库存模式下，热门票档的库存拆成多行，扣减分散到不同行上以减少行锁竞争
+-- 票档的实际可用库存 = 各分片可用库存之和，ticket_tier.available_stock 由定时任务汇总回写
+CREATE TABLE IF NOT EXISTS ticket_tier_stock_shard (
+    id              BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '分片ID',
+    tier_id         BIGINT   NOT NULL COMMENT '票档ID',
+    shard_no        INT      NOT NULL COMMENT '分片序号（从0开始）',
+    total_stock     INT      NOT NULL COMMENT '分片总库存（归还库存时的上限）',
+    available_stock INT      NOT NULL COMMENT '分片可用库存',
+    update_time     DATETIME NOT NULL COMMENT '更新时间',
+    UNIQUE KEY uk_tier_shard (tier_id, shard_no)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '票档库存分片表';
@@ -0,0 +1,240 @@
+package org.example.ticketmanagement;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.ticketmanagement.mapper.EventMapper;
+import org.example.ticketmanagement.mapper.EventSessionMapper;
+import org.example.ticketmanagement.mapper.TicketTierMapper;
+import org.example.ticketmanagement.pojo.Event;
+import org.example.ticketmanagement.pojo.EventSession;
+import org.example.ticketmanagement.pojo.TicketTier;
+import org.example.ticketmanagement.service.TicketTierService;
+import org.example.ticketmanagement.support.EmbeddedRedis;
+import org.example.ticketmanagement.util.JwtUtils;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 多节点抢票：同一个库存引擎启动多个完整应用节点，共享一个H2数据库和一个Redis替身，
+ * 用户请求轮流打到各个节点上同时下单，回写各节点的库存引擎后逐个票档检查：
+ * 订单数量不超过总库存、等于客户端确认成功的数量，数据库可用库存 = 总库存 - 订单数量
+ * journal 引擎开启场次属主路由，非属主节点把预扣转发给属主
+ */
+class MultiNodePurchaseTest {
+
+    private static final int NODES = 3;
+    private static final int TIERS = 2;
+    private static final int STOCK_PER_TIER = 30;
+    private static final int BUYERS = 120;
+    private static final int ATTEMPTS = 3;
+    private static final long USER_ID_BASE = 2_000_000L;
+
+    private static final String SOLD_SQL = "SELECT t.total_stock, t.available_stock, " +
+            "(SELECT COALESCE(SUM(o.quantity), 0) FROM ticket_order o " +
+            "WHERE o.tier_id = t.id AND o.status IN (0, 1)) AS sold_quantity " +
+            "FROM ticket_tier t WHERE t.id = ?";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // 票档ID -> 客户端确认下单成功的数量
+    private final Map<Long, LongAdder> confirmed = new ConcurrentHashMap<>();
+
+    @ParameterizedTest(name = "stock.engine={0}")
+    @ValueSource(strings = {"redis", "db", "shard", "journal"})
+    void concurrentPurchasesOnSeveralNodesNeverOversell(String engine) throws Exception {
+        EmbeddedRedis redis = new EmbeddedRedis();
+        String jdbcUrl = "jdbc:h2:mem:multinode_" + engine
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000";
+        List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+        try {
+            // 1. 启动节点（属主路由的成员列表需要事先确定各节点端口）
+            int[] ports = freePorts();
+            List<String> members = new ArrayList<>();
+            for (int i = 0; i < NODES; i++) {
+                members.add("node-" + (i + 1) + "=http://127.0.0.1:" + ports[i]);
+            }
+            String journalDir = "./target/multinode/" + engine + "-" + System.currentTimeMillis();
+            for (int i = 0; i < NODES; i++) {
+                SpringApplication application = new SpringApplication(TicketManagementApplication.class);
+                application.setAdditionalProfiles("loadsim");
+                nodes.add(application.run(
+                        "--stock.engine=" + engine,
+                        "--server.port=" + ports[i],
+                        "--spring.datasource.url=" + jdbcUrl,
+                        "--spring.data.redis.host=" + redis.getHost(),
+                        "--spring.data.redis.port=" + redis.getPort(),
+                        "--journal.dir=" + journalDir + "/node-" + (i + 1),
+                        "--journal.journal-id=node-" + (i + 1),
+                        "--ownership.enabled=" + "journal".equals(engine),
+                        "--ownership.node-id=node-" + (i + 1),
+                        "--ownership.members=" + String.join(",", members),
+                        "--ownership.internal-token=multinode-test"));
+            }
+
+            // 2. 造数后每个节点各自预热（属主路由下只有属主载入）
+            List<Long> tierIds = seed(nodes.get(0));
+            Long sessionId = nodes.get(0).getBean(TicketTierMapper.class).selectById(tierIds.get(0)).getSessionId();
+            for (ConfigurableApplicationContext node : nodes) {
+                node.getBean(TicketTierService.class).preloadStockBySessionId(sessionId);
+            }
+
+            // 3. 用户请求轮流打到各节点，同时开抢
+            buy(ports, tierIds);
+
+            // 4. 回写各节点的库存引擎后核对
+            for (ConfigurableApplicationContext node : nodes) {
+                node.getBean(TicketTierService.class).syncStockToDatabase();
+            }
+            JdbcTemplate jdbcTemplate = nodes.get(0).getBean(JdbcTemplate.class);
+            long soldTotal = 0;
+            for (Long tierId : tierIds) {
+                Map<String, Object> row = jdbcTemplate.queryForMap(SOLD_SQL, tierId);
+                long total = ((Number) row.get("total_stock")).longValue();
+                long available = ((Number) row.get("available_stock")).longValue();
+                long sold = ((Number) row.get("sold_quantity")).longValue();
+                LongAdder purchased = confirmed.get(tierId);
+
+                assertThat(sold).as("票档%d售出数量", tierId).isLessThanOrEqualTo(total);
+                assertThat(sold).as("票档%d订单数量与成功响应", tierId)
+                        .isEqualTo(purchased != null ? purchased.sum() : 0);
+                assertThat(available).as("票档%d数据库可用库存", tierId).isEqualTo(total - sold);
+                soldTotal += sold;
+            }
+            assertThat(soldTotal).isPositive();
+        } finally {
+            for (ConfigurableApplicationContext node : nodes) {
+                node.close();
+            }
+            redis.stop();
+        }
+    }
+
+    /**
+     * 造一个正在售卖的演出场次
+     * @return 票档ID列表
+     */
+    private List<Long> seed(ConfigurableApplicationContext context) {
+        LocalDateTime now = LocalDateTime.now();
+        Event event = new Event();
+        event.setName("多节点抢票");
+        event.setArtistName("测试");
+        event.setVenue("测试场馆");
+        event.setStatus(1);
+        event.setSaleStartTime(now.minusMinutes(1));
+        event.setSaleEndTime(now.plusDays(1));
+        event.setEventStartTime(now.plusDays(7));
+        event.setEventEndTime(now.plusDays(7).plusHours(3));
+        event.setCreateTime(now);
+        event.setUpdateTime(now);
+        context.getBean(EventMapper.class).insert(event);
+
+        EventSession session = new EventSession(null, event.getId(), "测试场", now.plusDays(7), 1, now);
+        context.getBean(EventSessionMapper.class).insert(session);
+
+        List<Long> tierIds = new ArrayList<>();
+        TicketTierMapper ticketTierMapper = context.getBean(TicketTierMapper.class);
+        for (int i = 0; i < TIERS; i++) {
+            BigDecimal price = BigDecimal.valueOf(280L + i * 100L);
+            TicketTier tier = new TicketTier(null, event.getId(), session.getId(), "票档" + (i + 1), price, price,
+                    STOCK_PER_TIER, STOCK_PER_TIER, 1, null, now, now);
+            ticketTierMapper.insert(tier);
+            tierIds.add(tier.getId());
+        }
+        return tierIds;
+    }
+
+    /**
+     * 每个用户随机选择票档下单1~2张，失败时换票档重试
+     */
+    private void buy(int[] ports, List<Long> tierIds) throws InterruptedException {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService buyers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < BUYERS; i++) {
+                long userId = USER_ID_BASE + i;
+                String baseUrl = "http://127.0.0.1:" + ports[i % ports.length];
+                buyers.submit(() -> {
+                    String token = JwtUtils.createUserClaims(userId, "multinode-" + userId, "USER");
+                    start.await();
+                    for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+                        Long tierId = tierIds.get(ThreadLocalRandom.current().nextInt(tierIds.size()));
+                        int quantity = ThreadLocalRandom.current().nextInt(1, 3);
+                        if (order(httpClient, baseUrl, token, tierId, quantity)) {
+                            confirmed.computeIfAbsent(tierId, id -> new LongAdder()).add(quantity);
+                            break;
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+        }
+    }
+
+    private boolean order(HttpClient httpClient, String baseUrl, String token, Long tierId, int quantity)
+            throws IOException, InterruptedException {
+        String body = objectMapper.writeValueAsString(Map.of("tierId", tierId, "quantity", quantity));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/user/orders"))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            return false;
+        }
+        JsonNode result = objectMapper.readTree(response.body());
+        return result.path("code").asInt() == 1;
+    }
+
+    private static int[] freePorts() {
+        int[] ports = new int[NODES];
+        List<ServerSocket> sockets = new ArrayList<>();
+        try {
+            for (int i = 0; i < NODES; i++) {
+                ServerSocket socket = new ServerSocket(0);
+                sockets.add(socket);
+                ports[i] = socket.getLocalPort();
+            }
+            return ports;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            for (ServerSocket socket : sockets) {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                    // 端口随后由节点重新绑定
+                }
+            }
+        }
+    }
+}
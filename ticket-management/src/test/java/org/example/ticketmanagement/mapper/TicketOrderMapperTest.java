@@ -0,0 +1,102 @@
+package org.example.ticketmanagement.mapper;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.example.ticketmanagement.pojo.TicketOrder;
+import org.example.ticketmanagement.support.H2Database;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 超时订单按 (截止时间, ID) 翻页：同一截止时间的订单跨批不重复、不遗漏，未关闭的订单不会被再次读到；
+ * 待支付订单的游标查询在H2上同样可用
+ */
+class TicketOrderMapperTest {
+
+    private static H2Database database;
+    private static TicketOrderMapper ticketOrderMapper;
+
+    private final LocalDateTime now = LocalDateTime.of(2026, 6, 1, 12, 0);
+
+    @BeforeAll
+    static void startDatabase() {
+        database = new H2Database("ticket_order_mapper");
+        ticketOrderMapper = database.mapper(TicketOrderMapper.class);
+    }
+
+    @AfterAll
+    static void stopDatabase() {
+        database.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        database.truncateAll();
+    }
+
+    @Test
+    void expiredPendingPagesByExpireTimeThenId() {
+        // 5个订单中有3个截止时间相同，另有未到期和已关闭的订单
+        insert(1, now.minusMinutes(3), 0);
+        insert(2, now.minusMinutes(2), 0);
+        insert(3, now.minusMinutes(2), 0);
+        insert(4, now.minusMinutes(2), 0);
+        insert(5, now.minusMinutes(1), 0);
+        insert(6, now.plusMinutes(1), 0);
+        insert(7, now.minusMinutes(5), 2);
+
+        List<Long> seen = new ArrayList<>();
+        LocalDateTime afterTime = null;
+        Long afterId = null;
+        int batches = 0;
+        while (true) {
+            List<TicketOrder> batch = ticketOrderMapper.selectExpiredPending(now, afterTime, afterId, 2);
+            batches++;
+            batch.forEach(order -> seen.add(order.getId()));
+            if (batch.size() < 2) {
+                break;
+            }
+            afterTime = batch.get(1).getExpireTime();
+            afterId = batch.get(1).getId();
+        }
+
+        // 订单都没有关闭（仍是待支付），翻页照样结束
+        assertThat(seen).containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(batches).isEqualTo(3);
+    }
+
+    @Test
+    void pendingOrdersCursorStreamsOnH2() {
+        insert(1, now.plusMinutes(1), 0);
+        insert(2, now.plusMinutes(2), 0);
+        insert(3, now.plusMinutes(3), 2);
+
+        List<Long> pending = database.getTransactionTemplate().execute(status -> {
+            List<Long> ids = new ArrayList<>();
+            try (Cursor<TicketOrder> cursor = ticketOrderMapper.selectPendingOrders()) {
+                cursor.forEach(order -> ids.add(order.getId()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return ids;
+        });
+
+        assertThat(pending).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    private void insert(long id, LocalDateTime expireTime, int status) {
+        database.getJdbcTemplate().update("INSERT INTO ticket_order(id, order_no, user_id, event_id, session_id, " +
+                        "tier_id, quantity, unit_price, total_amount, status, expire_time, create_time, update_time) " +
+                        "VALUES(?, ?, 1, 1, 1, 1, 1, 100, 100, ?, ?, ?, ?)",
+                id, "NO" + id, status, expireTime, now.minusMinutes(20), now.minusMinutes(20));
+    }
+}
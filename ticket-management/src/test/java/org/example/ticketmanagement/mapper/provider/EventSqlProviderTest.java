@@ -0,0 +1,112 @@
+package org.example.ticketmanagement.mapper.provider;
+
+import org.example.ticketmanagement.mapper.EventMapper;
+import org.example.ticketmanagement.pojo.Event;
+import org.example.ticketmanagement.support.H2Database;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * 首页推荐的 ROW_NUMBER 查询：每个分类按开始时间取前N场，只含本城市已发布未结束的演出，不查询 description
+ */
+class EventSqlProviderTest {
+
+    private static final long CITY_ID = 1L;
+
+    private static H2Database database;
+    private static EventMapper eventMapper;
+
+    private final LocalDateTime now = LocalDateTime.of(2026, 6, 1, 12, 0);
+
+    @BeforeAll
+    static void startDatabase() {
+        database = new H2Database("event_home_top_n");
+        eventMapper = database.mapper(EventMapper.class);
+    }
+
+    @AfterAll
+    static void stopDatabase() {
+        database.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        database.truncateAll();
+    }
+
+    @Test
+    void returnsFirstNEventsOfEachCategoryByStartTime() {
+        Long a3 = insert("A3", 10L, CITY_ID, 1, 3);
+        Long a1 = insert("A1", 10L, CITY_ID, 1, 1);
+        insert("A4", 10L, CITY_ID, 1, 4);
+        Long a2 = insert("A2", 10L, CITY_ID, 1, 2);
+        Long b1 = insert("B1", 20L, CITY_ID, 1, 5);
+        insert("C1", 30L, CITY_ID, 1, 1);
+
+        List<Event> events = eventMapper.selectHomeTopN(CITY_ID, List.of(10L, 20L), 3, now);
+
+        assertThat(events).extracting(Event::getId, Event::getCategoryId)
+                .containsExactly(tuple(a1, 10L), tuple(a2, 10L), tuple(a3, 10L), tuple(b1, 20L));
+        assertThat(events).allSatisfy(event -> {
+            assertThat(event.getName()).isNotNull();
+            assertThat(event.getEventStartTime()).isNotNull();
+            assertThat(event.getDescription()).isNull();
+        });
+    }
+
+    @Test
+    void skipsOtherCitiesDraftsAndFinishedEvents() {
+        Long visible = insert("上架", 10L, CITY_ID, 1, 3);
+        insert("外地", 10L, 2L, 1, 1);
+        insert("草稿", 10L, CITY_ID, 0, 1);
+        // 开始时间最早但已经结束，不占用名额
+        Event finished = newEvent("已结束", 10L, CITY_ID, 1, -2);
+        finished.setEventEndTime(now.minusDays(1));
+        eventMapper.insert(finished);
+
+        List<Event> events = eventMapper.selectHomeTopN(CITY_ID, List.of(10L), 1, now);
+
+        assertThat(events).extracting(Event::getId).containsExactly(visible);
+    }
+
+    @Test
+    void sameStartTimeIsOrderedById() {
+        Long first = insert("同时开始1", 10L, CITY_ID, 1, 1);
+        Long second = insert("同时开始2", 10L, CITY_ID, 1, 1);
+        insert("同时开始3", 10L, CITY_ID, 1, 1);
+
+        assertThat(eventMapper.selectHomeTopN(CITY_ID, List.of(10L), 2, now))
+                .extracting(Event::getId).containsExactly(first, second);
+    }
+
+    private Long insert(String name, Long categoryId, Long cityId, int status, int startInDays) {
+        Event event = newEvent(name, categoryId, cityId, status, startInDays);
+        eventMapper.insert(event);
+        return event.getId();
+    }
+
+    private Event newEvent(String name, Long categoryId, Long cityId, int status, int startInDays) {
+        Event event = new Event();
+        event.setName(name);
+        event.setCategoryId(categoryId);
+        event.setCityId(cityId);
+        event.setVenue("测试场馆");
+        event.setDescription("详情");
+        event.setStatus(status);
+        event.setSaleStartTime(now.minusDays(10));
+        event.setSaleEndTime(now.plusDays(startInDays));
+        event.setEventStartTime(now.plusDays(startInDays));
+        event.setEventEndTime(now.plusDays(startInDays).plusHours(3));
+        event.setCreateTime(now);
+        event.setUpdateTime(now);
+        return event;
+    }
+}
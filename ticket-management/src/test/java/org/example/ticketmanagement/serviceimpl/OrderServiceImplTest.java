@@ -0,0 +1,372 @@
+package org.example.ticketmanagement.serviceimpl;
+
+import org.example.ticketmanagement.config.IdempotencyConfig;
+import org.example.ticketmanagement.config.JournalConfig;
+import org.example.ticketmanagement.config.OrderConfig;
+import org.example.ticketmanagement.config.OwnershipConfig;
+import org.example.ticketmanagement.config.QuotaConfig;
+import org.example.ticketmanagement.config.SeatConfig;
+import org.example.ticketmanagement.config.StockConfig;
+import org.example.ticketmanagement.dto.CartOrderDTO;
+import org.example.ticketmanagement.dto.OrderCreateDTO;
+import org.example.ticketmanagement.mapper.EventMapper;
+import org.example.ticketmanagement.mapper.EventSessionMapper;
+import org.example.ticketmanagement.mapper.SeatRowMapper;
+import org.example.ticketmanagement.mapper.SeatSectionMapper;
+import org.example.ticketmanagement.mapper.StockJournalCheckpointMapper;
+import org.example.ticketmanagement.mapper.TicketOrderMapper;
+import org.example.ticketmanagement.mapper.TicketTierMapper;
+import org.example.ticketmanagement.mapper.TicketTierStockShardMapper;
+import org.example.ticketmanagement.service.AdmissionService;
+import org.example.ticketmanagement.service.TicketTierService;
+import org.example.ticketmanagement.service.WaitlistService;
+import org.example.ticketmanagement.store.PurchaseQuotaStore;
+import org.example.ticketmanagement.support.EmbeddedRedis;
+import org.example.ticketmanagement.support.H2Database;
+import org.example.ticketmanagement.util.ClusterBroadcaster;
+import org.example.ticketmanagement.util.DegradedStockManager;
+import org.example.ticketmanagement.util.DetailCache;
+import org.example.ticketmanagement.util.IdempotencyCache;
+import org.example.ticketmanagement.util.JournalStockEngine;
+import org.example.ticketmanagement.util.RedisStockUtil;
+import org.example.ticketmanagement.util.SeatMapEngine;
+import org.example.ticketmanagement.util.SessionOwnershipManager;
+import org.example.ticketmanagement.util.ShardedStockManager;
+import org.example.ticketmanagement.util.SoldOutRegistry;
+import org.example.ticketmanagement.util.StockDeductionCombiner;
+import org.example.ticketmanagement.util.StockForwardClient;
+import org.example.ticketmanagement.vo.OrderVO;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 订单服务：购物车下单按幂等键去重，重复请求返回第一次创建的全部订单、失败后可用同一幂等键重试；
+ * 配置了座位图的票档下单时分配座位，分配失败归还库存，取消订单时释放座位；
+ * 退款在场次开始前的截止时间之后拒绝、并发退款只有一次成功，库存经由各库存引擎归还
+ */
+class OrderServiceImplTest {
+
+    private static final long USER_ID = 7L;
+
+    private static H2Database database;
+    private static EmbeddedRedis redis;
+
+    @TempDir
+    Path dir;
+
+    private TicketTierService ticketTierService;
+    private OrderServiceImpl service;
+    private JournalStockEngine journalStockEngine;
+    private StockDeductionCombiner stockDeductionCombiner;
+
+    @BeforeAll
+    static void start() {
+        database = new H2Database("order_service");
+        redis = new EmbeddedRedis();
+    }
+
+    @AfterAll
+    static void stop() {
+        database.close();
+        redis.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        database.truncateAll();
+        redis.getTemplate().execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+        database.getJdbcTemplate().update("INSERT INTO event(id, name, status, create_time, update_time) " +
+                "VALUES(1, '演唱会', 1, NOW(), NOW())");
+        insertTier(1L, "看台");
+        insertTier(2L, "内场");
+
+        IdempotencyCache idempotencyCache = new IdempotencyCache();
+        ReflectionTestUtils.setField(idempotencyCache, "stringRedisTemplate", redis.getTemplate());
+        ReflectionTestUtils.setField(idempotencyCache, "idempotencyConfig", new IdempotencyConfig());
+        ReflectionTestUtils.setField(idempotencyCache, "degradedStockManager", mock(DegradedStockManager.class));
+        idempotencyCache.init();
+
+        ticketTierService = mock(TicketTierService.class);
+        AdmissionService admissionService = mock(AdmissionService.class);
+        when(admissionService.isAdmitted(anyLong(), anyLong())).thenReturn(true);
+
+        SeatMapEngine seatMapEngine = new SeatMapEngine();
+        ReflectionTestUtils.setField(seatMapEngine, "seatSectionMapper", database.mapper(SeatSectionMapper.class));
+        ReflectionTestUtils.setField(seatMapEngine, "seatRowMapper", database.mapper(SeatRowMapper.class));
+        SeatMapServiceImpl seatMapService = new SeatMapServiceImpl();
+        ReflectionTestUtils.setField(seatMapService, "seatMapEngine", seatMapEngine);
+        ReflectionTestUtils.setField(seatMapService, "seatConfig", new SeatConfig());
+
+        service = new OrderServiceImpl();
+        ReflectionTestUtils.setField(service, "ticketOrderMapper", database.mapper(TicketOrderMapper.class));
+        ReflectionTestUtils.setField(service, "ticketTierMapper", database.mapper(TicketTierMapper.class));
+        ReflectionTestUtils.setField(service, "eventMapper", database.mapper(EventMapper.class));
+        ReflectionTestUtils.setField(service, "eventSessionMapper", database.mapper(EventSessionMapper.class));
+        ReflectionTestUtils.setField(service, "ticketTierService", ticketTierService);
+        ReflectionTestUtils.setField(service, "admissionService", admissionService);
+        ReflectionTestUtils.setField(service, "waitlistService", mock(WaitlistService.class));
+        ReflectionTestUtils.setField(service, "seatMapService", seatMapService);
+        ReflectionTestUtils.setField(service, "idempotencyCache", idempotencyCache);
+        ReflectionTestUtils.setField(service, "orderConfig", new OrderConfig());
+        ReflectionTestUtils.setField(service, "transactionTemplate", database.getTransactionTemplate());
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.destroy();
+        if (journalStockEngine != null) {
+            journalStockEngine.destroy();
+        }
+        if (stockDeductionCombiner != null) {
+            stockDeductionCombiner.destroy();
+        }
+    }
+
+    @Test
+    void cartRetryWithSameKeyReturnsFirstOrders() {
+        when(ticketTierService.reserveStockBatch(anyMap(), eq(USER_ID), anyLong(), any(), anyMap())).thenReturn(true);
+
+        List<OrderVO> first = service.createCartOrders(USER_ID, cart(), "cart-1");
+        List<OrderVO> retry = service.createCartOrders(USER_ID, cart(), "cart-1");
+
+        assertThat(first).hasSize(2);
+        assertThat(retry).extracting(OrderVO::getId)
+                .containsExactlyElementsOf(first.stream().map(OrderVO::getId).toList());
+        assertThat(orderCount()).isEqualTo(2);
+        verify(ticketTierService, times(1)).reserveStockBatch(anyMap(), eq(USER_ID), anyLong(), any(), anyMap());
+
+        // 不同的幂等键是新的下单请求
+        service.createCartOrders(USER_ID, cart(), "cart-2");
+        assertThat(orderCount()).isEqualTo(4);
+    }
+
+    @Test
+    void failedCartOrderCanBeRetriedWithSameKey() {
+        when(ticketTierService.reserveStockBatch(anyMap(), eq(USER_ID), anyLong(), any(), anyMap()))
+                .thenReturn(false, true);
+
+        assertThatThrownBy(() -> service.createCartOrders(USER_ID, cart(), "cart-1"))
+                .hasMessage("库存不足");
+        assertThat(service.createCartOrders(USER_ID, cart(), "cart-1")).hasSize(2);
+        assertThat(orderCount()).isEqualTo(2);
+    }
+
+    @Test
+    void seatedTierAssignsSeatsWithTheOrderAndCancelReleasesThem() {
+        insertSeatRow(2L, 4);
+        when(ticketTierService.reserveStock(eq(2L), anyInt(), eq(USER_ID), anyLong(), any(), any())).thenReturn(true);
+
+        OrderVO order = service.createOrder(USER_ID, new OrderCreateDTO(2L, 2));
+
+        assertThat(order.getSeatRowNo()).isEqualTo(1);
+        assertThat(order.getSeatNos()).isEqualTo("2,3");
+        assertThat(seatRowVersion()).isEqualTo(1L);
+        assertThat(service.getOrderById(USER_ID, order.getId()).getSeatNos()).isEqualTo("2,3");
+
+        // 剩下的1号、4号座位不连续，分配失败时归还已预扣的库存
+        assertThatThrownBy(() -> service.createOrder(USER_ID, new OrderCreateDTO(2L, 2)))
+                .hasMessage("没有足够的连续座位");
+        verify(ticketTierService).releaseStock(2L, 2, USER_ID, 1L);
+
+        assertThat(service.cancelOrder(USER_ID, order.getId())).isTrue();
+        verify(ticketTierService, times(2)).releaseStock(2L, 2, USER_ID, 1L);
+        assertThat(seatRowVersion()).isEqualTo(2L);
+        assertThat(service.createOrder(USER_ID, new OrderCreateDTO(2L, 4)).getSeatNos()).isEqualTo("1,2,3,4");
+    }
+
+    @Test
+    void cartReleasesEveryTierWhenSeatsRunOut() {
+        insertSeatRow(1L, 1);
+        when(ticketTierService.reserveStockBatch(anyMap(), eq(USER_ID), anyLong(), any(), anyMap())).thenReturn(true);
+
+        assertThatThrownBy(() -> service.createCartOrders(USER_ID, cart()))
+                .hasMessage("没有足够的连续座位");
+
+        verify(ticketTierService).releaseStock(1L, 2, USER_ID, 1L);
+        verify(ticketTierService).releaseStock(2L, 1, USER_ID, 1L);
+        assertThat(orderCount()).isZero();
+    }
+
+    @Test
+    void refundIsRejectedInsideCutoffBeforeSession() {
+        long orderId = insertPaidOrder(2L, 2);
+        // 场次60分钟后开始，默认截止时间为开场前120分钟
+        insertSession(LocalDateTime.now().plusMinutes(60));
+
+        assertThatThrownBy(() -> service.refundOrder(USER_ID, orderId)).hasMessageContaining("不支持退款");
+
+        assertThat(orderStatus(orderId)).isEqualTo(1);
+        verify(ticketTierService, never()).releaseStock(anyLong(), anyInt(), anyLong(), anyLong());
+    }
+
+    @Test
+    void concurrentRefundReleasesStockOnce() {
+        long orderId = insertPaidOrder(2L, 2);
+        insertSession(LocalDateTime.now().plusDays(1));
+        // 读到已支付状态之后、条件更新之前，另一个请求完成了退款
+        TicketOrderMapper orderMapper = spy(database.mapper(TicketOrderMapper.class));
+        doAnswer(invocation -> {
+            database.getJdbcTemplate().update("UPDATE ticket_order SET status = 4 WHERE id = ?", orderId);
+            return invocation.callRealMethod();
+        }).when(orderMapper).markRefunded(orderId);
+        ReflectionTestUtils.setField(service, "ticketOrderMapper", orderMapper);
+
+        assertThat(service.refundOrder(USER_ID, orderId)).isFalse();
+
+        verify(ticketTierService, never()).releaseStock(anyLong(), anyInt(), anyLong(), anyLong());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"redis", "db", "shard", "journal"})
+    void refundReturnsStockThroughEngine(String engine) throws IOException {
+        TicketTierService tierService = startTierService(engine, 98);
+        ReflectionTestUtils.setField(service, "ticketTierService", tierService);
+        long orderId = insertPaidOrder(2L, 2);
+        insertSession(LocalDateTime.now().plusDays(1));
+
+        assertThat(service.refundOrder(USER_ID, orderId)).isTrue();
+        assertThat(service.refundOrder(USER_ID, orderId)).isFalse();
+
+        assertThat(orderStatus(orderId)).isEqualTo(4);
+        assertThat(tierService.getAvailableStock(2L)).isEqualTo(100);
+    }
+
+    private CartOrderDTO cart() {
+        return new CartOrderDTO(List.of(new OrderCreateDTO(1L, 2), new OrderCreateDTO(2L, 1)));
+    }
+
+    private void insertTier(Long id, String name) {
+        database.getJdbcTemplate().update("INSERT INTO ticket_tier(id, event_id, session_id, tier_name, " +
+                "original_price, current_price, total_stock, available_stock, status, create_time, update_time) " +
+                "VALUES(?, 1, 1, ?, 380, 380, 100, 100, 1, NOW(), NOW())", id, name);
+    }
+
+    private void insertSeatRow(Long tierId, int seatCount) {
+        database.getJdbcTemplate().update("INSERT INTO seat_section(id, session_id, tier_id, section_name, " +
+                "sort_order, create_time, update_time) VALUES(10, 1, ?, 'A区', 0, NOW(), NOW())", tierId);
+        database.getJdbcTemplate().update("INSERT INTO seat_row(id, section_id, session_id, row_no, seat_count, " +
+                "seat_bits, version, update_time) VALUES(100, 10, 1, 1, ?, NULL, 0, NOW())", seatCount);
+    }
+
+    private long seatRowVersion() {
+        return database.getJdbcTemplate().queryForObject("SELECT version FROM seat_row WHERE id = 100", Long.class);
+    }
+
+    /**
+     * 使用真实库存引擎的票档服务，票档2已售出 100 - available 张
+     */
+    private TicketTierService startTierService(String engine, int available) throws IOException {
+        StockConfig stockConfig = new StockConfig();
+        stockConfig.setEngine(engine);
+        TicketTierMapper tierMapper = database.mapper(TicketTierMapper.class);
+        database.getJdbcTemplate().update("UPDATE ticket_tier SET available_stock = ? WHERE id = 2", available);
+
+        RedisStockUtil redisStockUtil = new RedisStockUtil();
+        ReflectionTestUtils.setField(redisStockUtil, "stringRedisTemplate", redis.getTemplate());
+        ShardedStockManager shardedStockManager = new ShardedStockManager();
+        ReflectionTestUtils.setField(shardedStockManager, "shardMapper", database.mapper(TicketTierStockShardMapper.class));
+        ReflectionTestUtils.setField(shardedStockManager, "ticketTierMapper", tierMapper);
+        ReflectionTestUtils.setField(shardedStockManager, "stockConfig", stockConfig);
+        ReflectionTestUtils.setField(shardedStockManager, "transactionTemplate", database.getTransactionTemplate());
+        ReflectionTestUtils.setField(shardedStockManager, "clusterBroadcaster", mock(ClusterBroadcaster.class));
+        shardedStockManager.init();
+        stockDeductionCombiner = new StockDeductionCombiner();
+        ReflectionTestUtils.setField(stockDeductionCombiner, "ticketTierMapper", tierMapper);
+        ReflectionTestUtils.setField(stockDeductionCombiner, "stockConfig", stockConfig);
+        stockDeductionCombiner.init();
+        JournalConfig journalConfig = new JournalConfig();
+        journalConfig.setDir(dir.toString());
+        journalStockEngine = new JournalStockEngine();
+        ReflectionTestUtils.setField(journalStockEngine, "journalConfig", journalConfig);
+        ReflectionTestUtils.setField(journalStockEngine, "stockConfig", stockConfig);
+        ReflectionTestUtils.setField(journalStockEngine, "ticketTierMapper", tierMapper);
+        ReflectionTestUtils.setField(journalStockEngine, "checkpointMapper",
+                database.mapper(StockJournalCheckpointMapper.class));
+        ReflectionTestUtils.setField(journalStockEngine, "transactionTemplate", database.getTransactionTemplate());
+        journalStockEngine.init();
+
+        switch (engine) {
+            case "redis" -> redisStockUtil.preload(2L, available);
+            case "shard" -> shardedStockManager.ensureSplit(2L);
+            case "journal" -> journalStockEngine.load(2L, available);
+            default -> {
+            }
+        }
+
+        TicketTierServiceImpl tierService = new TicketTierServiceImpl();
+        ReflectionTestUtils.setField(tierService, "ticketTierMapper", tierMapper);
+        ReflectionTestUtils.setField(tierService, "redisStockUtil", redisStockUtil);
+        ReflectionTestUtils.setField(tierService, "stockConfig", stockConfig);
+        ReflectionTestUtils.setField(tierService, "stockDeductionCombiner", stockDeductionCombiner);
+        ReflectionTestUtils.setField(tierService, "soldOutRegistry", mock(SoldOutRegistry.class));
+        ReflectionTestUtils.setField(tierService, "detailCache", mock(DetailCache.class));
+        ReflectionTestUtils.setField(tierService, "shardedStockManager", shardedStockManager);
+        ReflectionTestUtils.setField(tierService, "journalStockEngine", journalStockEngine);
+        ReflectionTestUtils.setField(tierService, "purchaseQuotaStore", mock(PurchaseQuotaStore.class));
+        ReflectionTestUtils.setField(tierService, "quotaConfig", new QuotaConfig());
+        ReflectionTestUtils.setField(tierService, "ownershipManager", mock(SessionOwnershipManager.class));
+        ReflectionTestUtils.setField(tierService, "stockForwardClient", mock(StockForwardClient.class));
+        ReflectionTestUtils.setField(tierService, "ownershipConfig", new OwnershipConfig());
+        ReflectionTestUtils.setField(tierService, "degradedStockManager", mock(DegradedStockManager.class));
+        ReflectionTestUtils.setField(tierService, "eventPublisher", mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(tierService, "transactionTemplate", database.getTransactionTemplate());
+        tierService.init();
+        return tierService;
+    }
+
+    private long insertPaidOrder(Long tierId, int quantity) {
+        LocalDateTime now = LocalDateTime.now();
+        database.getJdbcTemplate().update("INSERT INTO ticket_order(id, order_no, user_id, event_id, session_id, " +
+                        "tier_id, quantity, unit_price, total_amount, status, expire_time, pay_time, create_time, " +
+                        "update_time) VALUES(50, 'NO50', ?, 1, 1, ?, ?, 380, ?, 1, ?, ?, ?, ?)",
+                USER_ID, tierId, quantity, 380 * quantity, now.plusMinutes(15), now, now, now);
+        return 50L;
+    }
+
+    private void insertSession(LocalDateTime sessionTime) {
+        database.getJdbcTemplate().update("INSERT INTO event_session(id, event_id, session_name, session_time, " +
+                "status, create_time) VALUES(1, 1, '首场', ?, 1, NOW())", sessionTime);
+    }
+
+    private int orderStatus(long orderId) {
+        return database.getJdbcTemplate().queryForObject(
+                "SELECT status FROM ticket_order WHERE id = ?", Integer.class, orderId);
+    }
+
+    private int orderCount() {
+        return database.getJdbcTemplate().queryForObject("SELECT COUNT(*) FROM ticket_order", Integer.class);
+    }
+}
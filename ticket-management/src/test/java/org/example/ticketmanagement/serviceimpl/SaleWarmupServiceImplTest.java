@@ -0,0 +1,75 @@
+package org.example.ticketmanagement.serviceimpl;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import org.example.ticketmanagement.config.StockConfig;
+import org.example.ticketmanagement.config.WarmupConfig;
+import org.example.ticketmanagement.service.AdmissionService;
+import org.example.ticketmanagement.service.TicketTierService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 开售预热的模拟调用：默认按JVM编译阈值计算调用次数，各线程调用次数之和不少于该次数；
+ * 配置了次数时按配置次数分摊到各线程
+ */
+class SaleWarmupServiceImplTest {
+
+    private TicketTierService ticketTierService;
+    private SaleWarmupServiceImpl service;
+
+    @AfterEach
+    void tearDown() {
+        service.destroy();
+    }
+
+    @Test
+    void defaultCallsReachC2Threshold() {
+        start(0, 4);
+        HotSpotDiagnosticMXBean hotSpot = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+        long c2Threshold = Long.parseLong(hotSpot.getVMOption("Tier3InvocationThreshold").getValue())
+                + Long.parseLong(hotSpot.getVMOption("Tier4InvocationThreshold").getValue());
+        int expected = service.compileThresholdCalls();
+        assertThat(expected).isGreaterThan((int) c2Threshold);
+
+        service.runSyntheticCalls(List.of(1L), List.of(10L));
+
+        // 4个线程平分，向上取整
+        verify(ticketTierService, times((expected + 3) / 4 * 4)).getTicketTierById(anyLong());
+    }
+
+    @Test
+    void configuredCallsAreSplitAcrossThreads() {
+        start(10, 4);
+
+        service.runSyntheticCalls(List.of(1L, 2L), List.of(10L, 20L));
+
+        verify(ticketTierService, times(12)).getTicketTierById(anyLong());
+        verify(ticketTierService, times(12)).getStockInfoBySessionId(anyLong());
+    }
+
+    private void start(int jitIterations, int parallelism) {
+        WarmupConfig config = new WarmupConfig();
+        config.setJitIterations(jitIterations);
+        config.setParallelism(parallelism);
+        StockConfig stockConfig = new StockConfig();
+        stockConfig.setEngine("db");
+        ticketTierService = mock(TicketTierService.class);
+
+        service = new SaleWarmupServiceImpl();
+        ReflectionTestUtils.setField(service, "warmupConfig", config);
+        ReflectionTestUtils.setField(service, "stockConfig", stockConfig);
+        ReflectionTestUtils.setField(service, "ticketTierService", ticketTierService);
+        ReflectionTestUtils.setField(service, "admissionService", mock(AdmissionService.class));
+        service.init();
+    }
+}
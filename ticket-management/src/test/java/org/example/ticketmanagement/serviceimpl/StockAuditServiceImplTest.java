@@ -0,0 +1,189 @@
+package org.example.ticketmanagement.serviceimpl;
+
+import org.example.ticketmanagement.config.StockAuditConfig;
+import org.example.ticketmanagement.config.StockConfig;
+import org.example.ticketmanagement.mapper.TicketTierMapper;
+import org.example.ticketmanagement.mapper.TicketTierStockShardMapper;
+import org.example.ticketmanagement.support.EmbeddedRedis;
+import org.example.ticketmanagement.support.H2Database;
+import org.example.ticketmanagement.util.DegradedStockManager;
+import org.example.ticketmanagement.util.JournalStockEngine;
+import org.example.ticketmanagement.util.RedisStockUtil;
+import org.example.ticketmanagement.util.SessionOwnershipManager;
+import org.example.ticketmanagement.util.SoldOutRegistry;
+import org.example.ticketmanagement.vo.StockAuditReportVO;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+
+/**
+ * 库存对账：同一偏差连续出现 confirmRuns 次才确认、偏差变化时重新计数；
+ * 自动修正时计数在读取之后变化则放弃（CAS失败），下次对账再修正；分片引擎的偏差只报告不修正
+ */
+class StockAuditServiceImplTest {
+
+    private static final long TIER_ID = 1L;
+
+    private static H2Database database;
+    private static EmbeddedRedis redis;
+
+    private StockAuditConfig auditConfig;
+    private StockConfig stockConfig;
+    private RedisStockUtil redisStockUtil;
+    private StockAuditServiceImpl service;
+
+    @BeforeAll
+    static void start() {
+        database = new H2Database("stock_audit");
+        redis = new EmbeddedRedis();
+    }
+
+    @AfterAll
+    static void stop() {
+        database.close();
+        redis.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        database.truncateAll();
+        redis.getTemplate().execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+        database.getJdbcTemplate().update("INSERT INTO ticket_tier(id, event_id, session_id, tier_name, " +
+                "original_price, current_price, total_stock, available_stock, status, create_time, update_time) " +
+                "VALUES(?, 1, 1, '看台', 380, 380, 100, 100, 1, NOW(), NOW())", TIER_ID);
+
+        auditConfig = new StockAuditConfig();
+        stockConfig = new StockConfig();
+        redisStockUtil = new RedisStockUtil();
+        ReflectionTestUtils.setField(redisStockUtil, "stringRedisTemplate", redis.getTemplate());
+
+        service = new StockAuditServiceImpl();
+        ReflectionTestUtils.setField(service, "stockAuditConfig", auditConfig);
+        ReflectionTestUtils.setField(service, "stockConfig", stockConfig);
+        ReflectionTestUtils.setField(service, "sqlSessionFactory", database.getSqlSessionFactory());
+        ReflectionTestUtils.setField(service, "ticketTierMapper", database.mapper(TicketTierMapper.class));
+        ReflectionTestUtils.setField(service, "ticketTierStockShardMapper",
+                database.mapper(TicketTierStockShardMapper.class));
+        ReflectionTestUtils.setField(service, "redisStockUtil", redisStockUtil);
+        ReflectionTestUtils.setField(service, "journalStockEngine", mock(JournalStockEngine.class));
+        ReflectionTestUtils.setField(service, "degradedStockManager", mock(DegradedStockManager.class));
+        ReflectionTestUtils.setField(service, "ownershipManager", mock(SessionOwnershipManager.class));
+        ReflectionTestUtils.setField(service, "soldOutRegistry", mock(SoldOutRegistry.class));
+    }
+
+    @Test
+    void driftIsConfirmedAfterRepeatedRuns() {
+        stockConfig.setEngine("db");
+        insertOrder(5, 1);
+
+        StockAuditReportVO first = service.audit(true);
+        assertThat(first.getCheckedTiers()).isEqualTo(1);
+        assertThat(first.getSuspectTiers()).isEqualTo(1);
+        assertThat(first.getDriftTiers()).isZero();
+
+        StockAuditReportVO second = service.audit(true);
+        assertThat(second.getDriftTiers()).isEqualTo(1);
+        assertThat(second.getOversellRiskUnits()).isEqualTo(5L);
+        assertThat(second.getDrifts()).singleElement().satisfies(drift -> {
+            assertThat(drift.getDbDrift()).isEqualTo(5L);
+            assertThat(drift.getCorrected()).isFalse();
+        });
+        assertThat(tierAvailable()).isEqualTo(100);
+
+        // 偏差变化后重新计数
+        insertOrder(2, 0);
+        assertThat(service.audit(true).getSuspectTiers()).isEqualTo(1);
+
+        // 数据库与订单一致后不再报告
+        database.getJdbcTemplate().update("UPDATE ticket_tier SET available_stock = 93 WHERE id = ?", TIER_ID);
+        StockAuditReportVO clean = service.audit(true);
+        assertThat(clean.getSuspectTiers()).isZero();
+        assertThat(clean.getDriftTiers()).isZero();
+    }
+
+    @Test
+    void correctionAbortsWhenCounterMovesAfterRead() {
+        auditConfig.setAutoCorrect(true);
+        auditConfig.setConfirmRuns(1);
+        redisStockUtil.preload(TIER_ID, 100);
+        insertOrder(5, 1);
+
+        // 读取计数之后、修正之前又有一笔预扣（没有订单）
+        RedisStockUtil racing = spy(redisStockUtil);
+        AtomicBoolean raced = new AtomicBoolean();
+        doAnswer(invocation -> {
+            if (raced.compareAndSet(false, true)) {
+                redisStockUtil.reserve(TIER_ID, 1);
+            }
+            return invocation.callRealMethod();
+        }).when(racing).getPendings(anyList());
+        ReflectionTestUtils.setField(service, "redisStockUtil", racing);
+
+        StockAuditReportVO first = service.audit(true);
+        assertThat(first.getDriftTiers()).isEqualTo(1);
+        assertThat(first.getCorrectedTiers()).isZero();
+        assertThat(first.getDrifts().get(0).getCacheDrift()).isEqualTo(5L);
+        assertThat(redisStockUtil.getStock(TIER_ID)).isEqualTo(99);
+
+        // 下次对账读到新的计数后修正
+        StockAuditReportVO second = service.audit(true);
+        assertThat(second.getCorrectedTiers()).isEqualTo(1);
+        assertThat(redisStockUtil.getStock(TIER_ID)).isEqualTo(95);
+        assertThat(service.audit(true).getDriftTiers()).isZero();
+    }
+
+    @Test
+    void shardDriftIsReportedButNotCorrected() {
+        stockConfig.setEngine("shard");
+        auditConfig.setAutoCorrect(true);
+        auditConfig.setConfirmRuns(1);
+        insertShard(0, 50);
+        insertShard(1, 50);
+        insertOrder(5, 1);
+
+        StockAuditReportVO report = service.audit(true);
+
+        assertThat(report.getDriftTiers()).isEqualTo(1);
+        assertThat(report.getCorrectedTiers()).isZero();
+        assertThat(report.getDrifts()).singleElement().satisfies(drift -> {
+            assertThat(drift.getDbDrift()).isZero();
+            assertThat(drift.getCacheDrift()).isEqualTo(5L);
+            assertThat(drift.getCorrected()).isFalse();
+        });
+        assertThat(database.getJdbcTemplate().queryForObject(
+                "SELECT SUM(available_stock) FROM ticket_tier_stock_shard WHERE tier_id = ?", Integer.class, TIER_ID))
+                .isEqualTo(100);
+        assertThat(tierAvailable()).isEqualTo(100);
+    }
+
+    private void insertOrder(int quantity, int status) {
+        database.getJdbcTemplate().update("INSERT INTO ticket_order(order_no, user_id, event_id, session_id, " +
+                        "tier_id, quantity, unit_price, total_amount, status, expire_time, create_time, update_time) " +
+                        "VALUES(?, 1, 1, 1, ?, ?, 380, 380, ?, NOW(), NOW(), NOW())",
+                "NO" + System.nanoTime(), TIER_ID, quantity, status);
+    }
+
+    private void insertShard(int shardNo, int stock) {
+        database.getJdbcTemplate().update("INSERT INTO ticket_tier_stock_shard(tier_id, shard_no, total_stock, " +
+                "available_stock, update_time) VALUES(?, ?, ?, ?, NOW())", TIER_ID, shardNo, stock, stock);
+    }
+
+    private int tierAvailable() {
+        return database.getJdbcTemplate().queryForObject(
+                "SELECT available_stock FROM ticket_tier WHERE id = ?", Integer.class, TIER_ID);
+    }
+}
@@ -0,0 +1,204 @@
+package org.example.ticketmanagement.serviceimpl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.ticketmanagement.config.StockStreamConfig;
+import org.example.ticketmanagement.mapper.EventSessionMapper;
+import org.example.ticketmanagement.pojo.EventSession;
+import org.example.ticketmanagement.service.TicketTierService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 实时库存推送：新连接立即收到最新状态，与正在进行的分批推送并发时不会收到重复的状态，
+ * 也不会在新状态之后收到旧状态；状态不变时只发心跳；本节点连接数有上限
+ */
+class StockStreamServiceImplTest {
+
+    private static final long SESSION_ID = 1L;
+
+    private final List<RecordingEmitter> emitters = new ArrayList<>();
+    // 下一个连接第一次发送前执行的操作
+    private Runnable nextBeforeFirstSend;
+    private StockStreamConfig config;
+    private TicketTierService ticketTierService;
+    private ExecutorService sender;
+    private CountDownLatch gate;
+    private StockStreamServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        config = new StockStreamConfig();
+        ticketTierService = mock(TicketTierService.class);
+        EventSessionMapper eventSessionMapper = mock(EventSessionMapper.class);
+        when(eventSessionMapper.selectById(SESSION_ID)).thenReturn(new EventSession());
+        setAvailable(100);
+
+        service = new StockStreamServiceImpl() {
+            @Override
+            SseEmitter newEmitter(long timeout) {
+                RecordingEmitter emitter = new RecordingEmitter(nextBeforeFirstSend);
+                nextBeforeFirstSend = null;
+                emitters.add(emitter);
+                return emitter;
+            }
+        };
+        ReflectionTestUtils.setField(service, "ticketTierService", ticketTierService);
+        ReflectionTestUtils.setField(service, "eventSessionMapper", eventSessionMapper);
+        ReflectionTestUtils.setField(service, "stockStreamConfig", config);
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper());
+        service.init();
+        // 单线程发送，发送任务可以先挡住，模拟推送还没发完
+        sender = Executors.newSingleThreadExecutor();
+        ReflectionTestUtils.setField(service, "senderExecutor", sender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sender.shutdownNow();
+    }
+
+    @Test
+    void subscriberJoiningDuringFanOutGetsLatestStateOnce() throws Exception {
+        service.subscribe(SESSION_ID);
+        RecordingEmitter first = emitters.get(0);
+
+        // 推送还没发到第一个连接时，第二个连接加入
+        holdSender();
+        assertThat(service.pushStockStates()).isEqualTo(1);
+        service.subscribe(SESSION_ID);
+        RecordingEmitter second = emitters.get(1);
+        assertThat(second.states()).containsExactly("AVAILABLE");
+        releaseSender();
+
+        assertThat(first.states()).containsExactly("AVAILABLE");
+        assertThat(second.states()).containsExactly("AVAILABLE");
+
+        // 售罄后的推送同样只发一次
+        setAvailable(0);
+        holdSender();
+        service.pushStockStates();
+        service.subscribe(SESSION_ID);
+        RecordingEmitter third = emitters.get(2);
+        releaseSender();
+
+        assertThat(first.states()).containsExactly("AVAILABLE", "SOLD_OUT");
+        assertThat(second.states()).containsExactly("AVAILABLE", "SOLD_OUT");
+        assertThat(third.states()).containsExactly("SOLD_OUT");
+    }
+
+    @Test
+    void stateChangedDuringInitialSendArrivesAfterIt() throws Exception {
+        service.subscribe(SESSION_ID);
+        service.pushStockStates();
+        drainSender();
+
+        // 新连接发送首次状态的同时，库存售罄并开始推送
+        setAvailable(0);
+        nextBeforeFirstSend = service::pushStockStates;
+        service.subscribe(SESSION_ID);
+        drainSender();
+
+        assertThat(emitters.get(0).states()).containsExactly("AVAILABLE", "SOLD_OUT");
+        assertThat(emitters.get(1).states()).containsExactly("AVAILABLE", "SOLD_OUT");
+    }
+
+    @Test
+    void unchangedStateSendsHeartbeatOnly() throws Exception {
+        config.setHeartbeatInterval(0);
+        service.subscribe(SESSION_ID);
+        RecordingEmitter emitter = emitters.get(0);
+
+        assertThat(service.pushStockStates()).isEqualTo(1);
+        drainSender();
+        assertThat(service.pushStockStates()).isZero();
+        drainSender();
+
+        assertThat(emitter.sent).hasSize(2);
+        assertThat(emitter.sent.get(1)).contains("heartbeat");
+        assertThat(emitter.states()).containsExactly("AVAILABLE");
+    }
+
+    @Test
+    void rejectsSubscribersBeyondLimit() {
+        config.setMaxWatchers(1);
+        service.subscribe(SESSION_ID);
+
+        assertThatThrownBy(() -> service.subscribe(SESSION_ID)).hasMessageContaining("连接数已满");
+        assertThatThrownBy(() -> service.subscribe(2L)).hasMessageContaining("连接数已满");
+        assertThat(service.getWatcherCount()).isEqualTo(1);
+    }
+
+    private void setAvailable(int available) {
+        when(ticketTierService.getStockLevelsBySessionId(SESSION_ID)).thenReturn(List.of(
+                Map.of("id", 10L, "tier_name", "看台", "available_stock", available, "total_stock", 100)));
+    }
+
+    private void holdSender() {
+        gate = new CountDownLatch(1);
+        sender.execute(() -> {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    private void releaseSender() throws Exception {
+        gate.countDown();
+        drainSender();
+    }
+
+    private void drainSender() throws Exception {
+        sender.submit(() -> {
+        }).get();
+    }
+
+    /**
+     * 记录发送内容的连接（未接入HTTP响应）
+     */
+    static class RecordingEmitter extends SseEmitter {
+        final List<String> sent = new CopyOnWriteArrayList<>();
+        private Runnable beforeFirstSend;
+
+        RecordingEmitter(Runnable beforeFirstSend) {
+            super(0L);
+            this.beforeFirstSend = beforeFirstSend;
+        }
+
+        @Override
+        public void send(Set<DataWithMediaType> items) {
+            if (beforeFirstSend != null) {
+                Runnable action = beforeFirstSend;
+                beforeFirstSend = null;
+                action.run();
+            }
+            sent.add(items.stream().map(item -> String.valueOf(item.getData())).collect(Collectors.joining()));
+        }
+
+        List<String> states() {
+            return sent.stream()
+                    .filter(text -> text.startsWith("event:stock"))
+                    .map(text -> text.replaceAll("(?s).*\"state\":\"([A-Z_]+)\".*", "$1"))
+                    .collect(Collectors.toList());
+        }
+    }
+}
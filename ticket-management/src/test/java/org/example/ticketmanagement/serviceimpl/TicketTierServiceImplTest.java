@@ -0,0 +1,306 @@
+package org.example.ticketmanagement.serviceimpl;
+
+import org.example.ticketmanagement.config.JournalConfig;
+import org.example.ticketmanagement.config.OwnershipConfig;
+import org.example.ticketmanagement.config.StockConfig;
+import org.example.ticketmanagement.dto.TicketTierDTO;
+import org.example.ticketmanagement.mapper.StockJournalCheckpointMapper;
+import org.example.ticketmanagement.mapper.TicketTierMapper;
+import org.example.ticketmanagement.support.EmbeddedRedis;
+import org.example.ticketmanagement.support.H2Database;
+import org.example.ticketmanagement.util.DegradedStockManager;
+import org.example.ticketmanagement.util.DetailCache;
+import org.example.ticketmanagement.util.JournalStockEngine;
+import org.example.ticketmanagement.util.RedisStockUtil;
+import org.example.ticketmanagement.util.SessionOwnershipManager;
+import org.example.ticketmanagement.util.ShardedStockManager;
+import org.example.ticketmanagement.util.SoldOutRegistry;
+import org.example.ticketmanagement.util.StockForwardClient;
+import org.example.ticketmanagement.vo.StockForwardVO;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 管理端修改票档：只改价格、名称时不写回修改前读到的可用库存；指定可用库存时按实时计数的差值调整，
+ * 修改期间落下的预扣不会被覆盖；超出范围时整体回滚并撤销计数调整（Redis与本地日志两种引擎）；
+ * 属主节点按请求ID去重转发的预扣/释放、撤销预扣，转发方释放失败时不直接归还到数据库
+ */
+class TicketTierServiceImplTest {
+
+    private static final long TIER_ID = 1L;
+
+    private static H2Database database;
+    private static EmbeddedRedis redis;
+
+    @TempDir
+    Path dir;
+
+    private StockConfig stockConfig;
+    private RedisStockUtil redisStockUtil;
+    private JournalStockEngine journalStockEngine;
+    private DegradedStockManager degradedStockManager;
+    private SessionOwnershipManager ownershipManager;
+    private StockForwardClient stockForwardClient;
+    private TicketTierServiceImpl service;
+
+    @BeforeAll
+    static void start() {
+        database = new H2Database("ticket_tier_update");
+        redis = new EmbeddedRedis();
+    }
+
+    @AfterAll
+    static void stop() {
+        database.close();
+        redis.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        database.truncateAll();
+        redis.getTemplate().execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+        database.getJdbcTemplate().update("INSERT INTO ticket_tier(id, event_id, session_id, tier_name, " +
+                "original_price, current_price, total_stock, available_stock, status, create_time, update_time) " +
+                "VALUES(?, 1, 1, '看台', 380, 380, 100, 100, 1, NOW(), NOW())", TIER_ID);
+
+        stockConfig = new StockConfig();
+        redisStockUtil = new RedisStockUtil();
+        ReflectionTestUtils.setField(redisStockUtil, "stringRedisTemplate", redis.getTemplate());
+        degradedStockManager = mock(DegradedStockManager.class);
+        ownershipManager = mock(SessionOwnershipManager.class);
+        stockForwardClient = mock(StockForwardClient.class);
+
+        service = new TicketTierServiceImpl();
+        ReflectionTestUtils.setField(service, "ticketTierMapper", database.mapper(TicketTierMapper.class));
+        ReflectionTestUtils.setField(service, "redisStockUtil", redisStockUtil);
+        ReflectionTestUtils.setField(service, "stockConfig", stockConfig);
+        ReflectionTestUtils.setField(service, "soldOutRegistry", mock(SoldOutRegistry.class));
+        ReflectionTestUtils.setField(service, "detailCache", mock(DetailCache.class));
+        ReflectionTestUtils.setField(service, "shardedStockManager", mock(ShardedStockManager.class));
+        ReflectionTestUtils.setField(service, "ownershipManager", ownershipManager);
+        ReflectionTestUtils.setField(service, "stockForwardClient", stockForwardClient);
+        ReflectionTestUtils.setField(service, "ownershipConfig", new OwnershipConfig());
+        ReflectionTestUtils.setField(service, "degradedStockManager", degradedStockManager);
+        ReflectionTestUtils.setField(service, "eventPublisher", mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(service, "transactionTemplate", database.getTransactionTemplate());
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (journalStockEngine != null) {
+            journalStockEngine.destroy();
+        }
+    }
+
+    @Test
+    void priceEditKeepsSalesSinceLastFlush() {
+        redisStockUtil.preload(TIER_ID, 100);
+        redisStockUtil.reserve(TIER_ID, 10);
+        // 回写增量之后、修改提交之前又有一笔预扣
+        doAnswer(invocation -> redisStockUtil.reserve(TIER_ID, 5))
+                .when(degradedStockManager).recordPending(eq(TIER_ID), anyLong());
+
+        assertThat(update(priceEdit())).isTrue();
+
+        assertThat(redisStockUtil.getStock(TIER_ID)).isEqualTo(85);
+        assertThat(tierAvailable()).isEqualTo(90);
+        assertThat(redisStockUtil.getPendings(List.of(TIER_ID))).containsEntry(TIER_ID, 5L);
+        assertThat(tierPrice()).isEqualByComparingTo("280");
+
+        service.syncStockToDatabase();
+        assertThat(tierAvailable()).isEqualTo(85);
+    }
+
+    @Test
+    void explicitAvailableStockIsAppliedAsDelta() {
+        redisStockUtil.preload(TIER_ID, 100);
+        redisStockUtil.reserve(TIER_ID, 10);
+        doAnswer(invocation -> redisStockUtil.reserve(TIER_ID, 5))
+                .when(degradedStockManager).recordPending(eq(TIER_ID), anyLong());
+
+        TicketTierDTO dto = new TicketTierDTO();
+        dto.setAvailableStock(50);
+        assertThat(update(dto)).isTrue();
+
+        // 管理端看到的实时库存是85，目标50：计数与数据库都减少35，期间的预扣仍待回写
+        assertThat(redisStockUtil.getStock(TIER_ID)).isEqualTo(50);
+        service.syncStockToDatabase();
+        assertThat(tierAvailable()).isEqualTo(50);
+    }
+
+    @Test
+    void outOfRangeAdjustmentRollsBackTierButKeepsFlushedSales() {
+        redisStockUtil.preload(TIER_ID, 100);
+        redisStockUtil.reserve(TIER_ID, 10);
+        doAnswer(invocation -> redisStockUtil.reserve(TIER_ID, 5))
+                .when(degradedStockManager).recordPending(eq(TIER_ID), anyLong());
+
+        // 实时库存85，调到90需要数据库加5，超出新的总库存90
+        TicketTierDTO dto = priceEdit();
+        dto.setTotalStock(90);
+        dto.setAvailableStock(90);
+        assertThatThrownBy(() -> update(dto)).isInstanceOf(RuntimeException.class);
+
+        assertThat(tierPrice()).isEqualByComparingTo("380");
+        assertThat(database.getJdbcTemplate().queryForObject(
+                "SELECT total_stock FROM ticket_tier WHERE id = ?", Integer.class, TIER_ID)).isEqualTo(100);
+        // 计数调整已撤销；修改前回写的10张已提交，期间的5张仍待回写
+        assertThat(redisStockUtil.getStock(TIER_ID)).isEqualTo(85);
+        assertThat(tierAvailable()).isEqualTo(90);
+        service.syncStockToDatabase();
+        assertThat(tierAvailable()).isEqualTo(85);
+    }
+
+    @Test
+    void journalEngineAdjustsCounterAndSurvivesRestart() throws IOException {
+        stockConfig.setEngine("journal");
+        journalStockEngine = startJournal();
+        ReflectionTestUtils.setField(service, "journalStockEngine", journalStockEngine);
+        journalStockEngine.load(TIER_ID, 100);
+        journalStockEngine.reserve(TIER_ID, 10);
+
+        assertThat(update(priceEdit())).isTrue();
+        assertThat(journalStockEngine.getStock(TIER_ID)).isEqualTo(90);
+        assertThat(tierAvailable()).isEqualTo(90);
+
+        journalStockEngine.reserve(TIER_ID, 4);
+        TicketTierDTO dto = new TicketTierDTO();
+        dto.setAvailableStock(96);
+        assertThat(update(dto)).isTrue();
+        assertThat(journalStockEngine.getStock(TIER_ID)).isEqualTo(96);
+
+        // 重放日志后调整量仍在，且待回写增量只回写一次
+        journalStockEngine.destroy();
+        journalStockEngine = startJournal();
+        assertThat(journalStockEngine.getStock(TIER_ID)).isEqualTo(96);
+        journalStockEngine.drain();
+        assertThat(tierAvailable()).isEqualTo(96);
+    }
+
+    @Test
+    void forwardedReserveAndReleaseRunOncePerRequestId() throws IOException {
+        startOwnedJournal();
+
+        StockForwardVO first = service.reserveOwnedStock("r1", Map.of(TIER_ID, 5));
+        StockForwardVO retried = service.reserveOwnedStock("r1", Map.of(TIER_ID, 5));
+        assertThat(first.getSuccess()).isTrue();
+        assertThat(retried.getSuccess()).isTrue();
+        assertThat(journalStockEngine.getStock(TIER_ID)).isEqualTo(95);
+
+        service.releaseOwnedStock("r2", TIER_ID, 2);
+        service.releaseOwnedStock("r2", TIER_ID, 2);
+        assertThat(journalStockEngine.getStock(TIER_ID)).isEqualTo(97);
+    }
+
+    @Test
+    void abortReturnsExecutedReserveAndBlocksLateOne() throws IOException {
+        startOwnedJournal();
+
+        service.reserveOwnedStock("r1", Map.of(TIER_ID, 5));
+        assertThat(service.abortOwnedReserve("r1")).isTrue();
+        assertThat(service.abortOwnedReserve("r1")).isFalse();
+        assertThat(journalStockEngine.getStock(TIER_ID)).isEqualTo(100);
+
+        // 撤销先于预扣到达：之后到达的预扣不执行
+        assertThat(service.abortOwnedReserve("r2")).isFalse();
+        assertThat(service.reserveOwnedStock("r2", Map.of(TIER_ID, 5)).getSuccess()).isFalse();
+        assertThat(journalStockEngine.getStock(TIER_ID)).isEqualTo(100);
+    }
+
+    @Test
+    void ownerReleasesUnloadedTierToDatabase() throws IOException {
+        startOwnedJournal();
+        journalStockEngine.handOff(List.of(TIER_ID));
+        database.getJdbcTemplate().update("UPDATE ticket_tier SET available_stock = 90 WHERE id = ?", TIER_ID);
+
+        assertThat(service.releaseOwnedStock("r1", TIER_ID, 3).getSuccess()).isTrue();
+        assertThat(service.releaseOwnedStock("r1", TIER_ID, 3).getSuccess()).isTrue();
+        assertThat(tierAvailable()).isEqualTo(93);
+    }
+
+    @Test
+    void failedForwardedReleaseNeverFallsBackToDatabase() throws IOException {
+        startOwnedJournal();
+        when(ownershipManager.isLocalTier(TIER_ID)).thenReturn(false);
+        when(ownershipManager.getOwnerUrl(TIER_ID)).thenReturn("http://node-2");
+        database.getJdbcTemplate().update("UPDATE ticket_tier SET available_stock = 90 WHERE id = ?", TIER_ID);
+
+        when(stockForwardClient.release(anyString(), eq(TIER_ID), anyInt())).thenReturn(null);
+        assertThat(service.releaseStock(TIER_ID, 3)).isFalse();
+        assertThat(tierAvailable()).isEqualTo(90);
+
+        when(stockForwardClient.release(anyString(), eq(TIER_ID), anyInt())).thenReturn(new StockForwardVO(true, null));
+        assertThat(service.releaseStock(TIER_ID, 3)).isTrue();
+        assertThat(tierAvailable()).isEqualTo(90);
+    }
+
+    private void startOwnedJournal() throws IOException {
+        stockConfig.setEngine("journal");
+        journalStockEngine = startJournal();
+        ReflectionTestUtils.setField(service, "journalStockEngine", journalStockEngine);
+        when(ownershipManager.isEnabled()).thenReturn(true);
+        when(ownershipManager.isLocalTier(TIER_ID)).thenReturn(true);
+        journalStockEngine.load(TIER_ID, 100);
+    }
+
+    private boolean update(TicketTierDTO dto) {
+        return database.getTransactionTemplate().execute(status -> service.updateTicketTier(TIER_ID, dto));
+    }
+
+    private static TicketTierDTO priceEdit() {
+        TicketTierDTO dto = new TicketTierDTO();
+        dto.setCurrentPrice(BigDecimal.valueOf(280));
+        return dto;
+    }
+
+    private JournalStockEngine startJournal() throws IOException {
+        JournalConfig journalConfig = new JournalConfig();
+        journalConfig.setDir(dir.toString());
+        journalConfig.setSegmentSize(4096);
+        JournalStockEngine started = new JournalStockEngine();
+        ReflectionTestUtils.setField(started, "journalConfig", journalConfig);
+        ReflectionTestUtils.setField(started, "stockConfig", stockConfig);
+        ReflectionTestUtils.setField(started, "ticketTierMapper", database.mapper(TicketTierMapper.class));
+        ReflectionTestUtils.setField(started, "checkpointMapper", database.mapper(StockJournalCheckpointMapper.class));
+        ReflectionTestUtils.setField(started, "transactionTemplate", database.getTransactionTemplate());
+        started.init();
+        return started;
+    }
+
+    private int tierAvailable() {
+        return database.getJdbcTemplate().queryForObject(
+                "SELECT available_stock FROM ticket_tier WHERE id = ?", Integer.class, TIER_ID);
+    }
+
+    private BigDecimal tierPrice() {
+        return database.getJdbcTemplate().queryForObject(
+                "SELECT current_price FROM ticket_tier WHERE id = ?", BigDecimal.class, TIER_ID);
+    }
+}
@@ -0,0 +1,93 @@
+package org.example.ticketmanagement.serviceimpl;
+
+import org.example.ticketmanagement.config.WaitlistConfig;
+import org.example.ticketmanagement.event.StockReleasedEvent;
+import org.example.ticketmanagement.mapper.TicketTierMapper;
+import org.example.ticketmanagement.service.TicketTierService;
+import org.example.ticketmanagement.store.LocalWaitlistStore;
+import org.example.ticketmanagement.util.ClusterBroadcaster;
+import org.example.ticketmanagement.util.DegradedStockManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 候补放票的优先购买：最后一批放票清空候补队列后，购买机会过期或用掉之前其他用户仍不能购买；
+ * 购买机会全部用掉后由全量检查结束优先购买
+ */
+class WaitlistServiceImplTest {
+
+    private static final long TIER_ID = 1L;
+
+    private LocalWaitlistStore store;
+    private TicketTierService ticketTierService;
+    private ClusterBroadcaster broadcaster;
+    private WaitlistServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        WaitlistConfig config = new WaitlistConfig();
+        config.setStore("local");
+        // 每次放票都做全量检查
+        config.setSweepInterval(0);
+        store = new LocalWaitlistStore();
+        ticketTierService = mock(TicketTierService.class);
+        broadcaster = mock(ClusterBroadcaster.class);
+
+        service = new WaitlistServiceImpl();
+        ReflectionTestUtils.setField(service, "waitlistStore", store);
+        ReflectionTestUtils.setField(service, "waitlistConfig", config);
+        ReflectionTestUtils.setField(service, "ticketTierMapper", mock(TicketTierMapper.class));
+        ReflectionTestUtils.setField(service, "ticketTierService", ticketTierService);
+        ReflectionTestUtils.setField(service, "clusterBroadcaster", broadcaster);
+        ReflectionTestUtils.setField(service, "degradedStockManager", mock(DegradedStockManager.class));
+        service.init();
+    }
+
+    @Test
+    void lastBatchKeepsPriorityUntilClaimsAreUsed() {
+        joinQueue(11L);
+        joinQueue(12L);
+        // 归还3张，两位候补用户都放到票，队列清空
+        when(ticketTierService.getAvailableStock(TIER_ID)).thenReturn(3);
+        service.onStockReleased(new StockReleasedEvent(TIER_ID, 3));
+        assertThat(service.dispatchOffers()).isEqualTo(2);
+        verify(broadcaster).publish(eq("waitlist-offer"), anyString());
+
+        // 没有购买机会的用户不能买走为候补用户保留的票
+        assertThatThrownBy(() -> service.takeClaim(TIER_ID, 99L, 1)).isInstanceOf(RuntimeException.class);
+        assertThat(service.takeClaim(TIER_ID, 11L, 1)).isNotNull();
+
+        // 还有一个购买机会未用掉
+        service.dispatchOffers();
+        assertThatThrownBy(() -> service.takeClaim(TIER_ID, 99L, 1)).isInstanceOf(RuntimeException.class);
+
+        assertThat(service.takeClaim(TIER_ID, 12L, 1)).isNotNull();
+        // 全量检查清理空闲票档后，下一次检查结束优先购买
+        service.dispatchOffers();
+        service.dispatchOffers();
+        assertThat(service.takeClaim(TIER_ID, 99L, 1)).isNull();
+    }
+
+    @Test
+    void noOfferNoPriority() {
+        assertThat(service.takeClaim(TIER_ID, 99L, 1)).isNull();
+
+        joinQueue(11L);
+        when(ticketTierService.getAvailableStock(TIER_ID)).thenReturn(0);
+        assertThat(service.dispatchOffers()).isZero();
+        assertThat(service.takeClaim(TIER_ID, 99L, 1)).isNull();
+    }
+
+    private void joinQueue(Long userId) {
+        store.join(TIER_ID, userId);
+    }
+}
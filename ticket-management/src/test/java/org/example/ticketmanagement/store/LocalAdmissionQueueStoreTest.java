@@ -0,0 +1,54 @@
+package org.example.ticketmanagement.store;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 本地排队队列：先进先出、重复排队保持原位置、放行后资格到期清理
+ */
+class LocalAdmissionQueueStoreTest {
+
+    private static final Long SESSION_ID = 1L;
+
+    private final LocalAdmissionQueueStore store = new LocalAdmissionQueueStore();
+
+    @Test
+    void usersAreAdmittedInArrivalOrder() {
+        assertThat(store.enqueue(SESSION_ID, 10L)).isZero();
+        assertThat(store.enqueue(SESSION_ID, 11L)).isEqualTo(1);
+        assertThat(store.enqueue(SESSION_ID, 12L)).isEqualTo(2);
+        // 重复排队保持原位置
+        assertThat(store.enqueue(SESSION_ID, 10L)).isZero();
+
+        long expireAt = System.currentTimeMillis() + 60_000;
+        assertThat(store.admit(SESSION_ID, 2, expireAt)).containsExactly(10L, 11L);
+
+        assertThat(store.getPosition(SESSION_ID, 12L)).isZero();
+        assertThat(store.getPosition(SESSION_ID, 10L)).isNull();
+        assertThat(store.getAdmissionExpireAt(SESSION_ID, 10L)).isEqualTo(expireAt);
+        assertThat(store.getAdmissionExpireAt(SESSION_ID, 12L)).isNull();
+        assertThat(store.size(SESSION_ID)).isEqualTo(1);
+    }
+
+    @Test
+    void expiredAdmissionIsNotHonouredAndCleanedUp() {
+        store.enqueue(SESSION_ID, 10L);
+        long expireAt = System.currentTimeMillis() - 1;
+        store.admit(SESSION_ID, 1, expireAt);
+
+        assertThat(store.getAdmissionExpireAt(SESSION_ID, 10L)).isNull();
+
+        store.cleanup(SESSION_ID, System.currentTimeMillis());
+        assertThat(store.getActiveSessionIds()).doesNotContain(SESSION_ID);
+        // 清理后重新排队从头开始
+        assertThat(store.enqueue(SESSION_ID, 11L)).isZero();
+    }
+
+    @Test
+    void admitOnUnknownSessionAdmitsNobody() {
+        assertThat(store.admit(2L, 5, System.currentTimeMillis() + 1000)).isEmpty();
+        assertThat(store.size(2L)).isZero();
+        assertThat(store.getPosition(2L, 10L)).isNull();
+    }
+}
@@ -0,0 +1,118 @@
+package org.example.ticketmanagement.store;
+
+import org.example.ticketmanagement.config.QuotaConfig;
+import org.example.ticketmanagement.support.EmbeddedRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 限购额度：两个维度同时校验、不限购维度不计数、归还不减到负数、并发占用不超限（本地与Redis两种实现）
+ */
+class PurchaseQuotaStoreTest {
+
+    private static EmbeddedRedis redis;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = new EmbeddedRedis();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.stop();
+    }
+
+    static Stream<Supplier<PurchaseQuotaStore>> stores() {
+        return Stream.of(LocalPurchaseQuotaStore::new, PurchaseQuotaStoreTest::newRedisStore);
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void acquireChecksBothLimitsBeforeCounting(Supplier<PurchaseQuotaStore> factory) {
+        PurchaseQuotaStore store = factory.get();
+
+        assertThat(store.tryAcquire(1L, 7L, 4, 1L, 3, 2)).isTrue();
+        // 票档维度超限时演出维度也不累加
+        assertThat(store.tryAcquire(1L, 7L, 4, 1L, 3, 2)).isFalse();
+        assertThat(store.tryAcquire(1L, 7L, 4, 2L, 3, 2)).isTrue();
+        assertThat(store.tryAcquire(1L, 7L, 4, 3L, 3, 1)).isFalse();
+        // 其他用户互不影响
+        assertThat(store.tryAcquire(2L, 7L, 4, 1L, 3, 3)).isTrue();
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void zeroLimitIsNotCheckedNorCounted(Supplier<PurchaseQuotaStore> factory) {
+        PurchaseQuotaStore store = factory.get();
+
+        assertThat(store.tryAcquire(1L, 7L, 0, 1L, 0, 100)).isTrue();
+        assertThat(store.tryAcquire(1L, 7L, 2, 1L, 0, 2)).isTrue();
+        assertThat(store.tryAcquire(1L, 7L, 2, 1L, 0, 1)).isFalse();
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void releaseReturnsQuotaAndStopsAtZero(Supplier<PurchaseQuotaStore> factory) {
+        PurchaseQuotaStore store = factory.get();
+        store.tryAcquire(1L, 7L, 4, 1L, 4, 3);
+
+        store.release(1L, 7L, 1L, 2);
+        assertThat(store.tryAcquire(1L, 7L, 4, 1L, 4, 3)).isTrue();
+
+        store.release(1L, 7L, 1L, 10);
+        assertThat(store.tryAcquire(1L, 7L, 4, 1L, 4, 4)).isTrue();
+        assertThat(store.tryAcquire(1L, 7L, 4, 1L, 4, 1)).isFalse();
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void concurrentAcquiresNeverExceedLimit(Supplier<PurchaseQuotaStore> factory) throws Exception {
+        PurchaseQuotaStore store = factory.get();
+        ExecutorService callers = Executors.newFixedThreadPool(16);
+        try {
+            CountDownLatch ready = new CountDownLatch(1);
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                results.add(callers.submit(() -> {
+                    ready.await();
+                    return store.tryAcquire(1L, 7L, 5, 1L, 0, 1);
+                }));
+            }
+            ready.countDown();
+
+            int acquired = 0;
+            for (Future<Boolean> result : results) {
+                acquired += result.get() ? 1 : 0;
+            }
+            assertThat(acquired).isEqualTo(5);
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    private static PurchaseQuotaStore newRedisStore() {
+        redis.getTemplate().execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+        RedisPurchaseQuotaStore store = new RedisPurchaseQuotaStore();
+        ReflectionTestUtils.setField(store, "stringRedisTemplate", redis.getTemplate());
+        ReflectionTestUtils.setField(store, "quotaConfig", new QuotaConfig());
+        return store;
+    }
+}
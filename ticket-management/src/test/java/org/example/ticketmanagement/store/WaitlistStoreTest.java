@@ -0,0 +1,183 @@
+package org.example.ticketmanagement.store;
+
+import org.example.ticketmanagement.support.EmbeddedRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 候补名单：先来先得的排位、放票数量扣除未过期的购买机会、购买机会只能取走一次、清理空闲票档（本地与Redis两种实现）
+ */
+class WaitlistStoreTest {
+
+    private static final long TIER_ID = 1L;
+
+    private static EmbeddedRedis redis;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = new EmbeddedRedis();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.stop();
+    }
+
+    static Stream<Supplier<WaitlistStore>> stores() {
+        return Stream.of(LocalWaitlistStore::new, () -> {
+            flushRedis();
+            return newRedisStore(redis.getTemplate());
+        });
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void joinKeepsFirstComeFirstServedPositions(Supplier<WaitlistStore> factory) {
+        WaitlistStore store = factory.get();
+
+        assertThat(store.join(TIER_ID, 11L)).isZero();
+        assertThat(store.join(TIER_ID, 12L)).isEqualTo(1);
+        assertThat(store.join(TIER_ID, 13L)).isEqualTo(2);
+        assertThat(store.join(TIER_ID, 11L)).isZero();
+
+        assertThat(store.leave(TIER_ID, 12L)).isTrue();
+        assertThat(store.leave(TIER_ID, 12L)).isFalse();
+        assertThat(store.getPosition(TIER_ID, 13L)).isEqualTo(1);
+        assertThat(store.getPosition(TIER_ID, 12L)).isNull();
+        assertThat(store.size(TIER_ID)).isEqualTo(2);
+        assertThat(store.getActiveTierIds()).containsExactly(TIER_ID);
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void offerDeductsOutstandingClaimsFromAvailableStock(Supplier<WaitlistStore> factory) {
+        WaitlistStore store = factory.get();
+        for (long userId = 1; userId <= 5; userId++) {
+            store.join(TIER_ID, userId);
+        }
+        long now = System.currentTimeMillis();
+        long expireAt = now + 60_000;
+
+        assertThat(store.offer(TIER_ID, 3, 2, now, expireAt)).containsExactly(1L, 2L);
+        // 已有2个未过期的购买机会，只剩1张可放
+        assertThat(store.offer(TIER_ID, 3, 2, now, expireAt)).containsExactly(3L);
+        assertThat(store.offer(TIER_ID, 3, 2, now, expireAt)).isEmpty();
+        assertThat(store.getClaimExpireAt(TIER_ID, 1L)).isEqualTo(expireAt);
+        assertThat(store.getPosition(TIER_ID, 1L)).isNull();
+        assertThat(store.size(TIER_ID)).isEqualTo(2);
+
+        // 购买机会过期后名额放给后面的用户
+        assertThat(store.offer(TIER_ID, 3, 5, expireAt, expireAt + 60_000)).containsExactly(4L, 5L);
+        assertThat(store.size(TIER_ID)).isZero();
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void claimCanBeTakenOnlyOnceAndRestored(Supplier<WaitlistStore> factory) {
+        WaitlistStore store = factory.get();
+        store.join(TIER_ID, 1L);
+        long now = System.currentTimeMillis();
+        long expireAt = now + 60_000;
+        store.offer(TIER_ID, 1, 1, now, expireAt);
+
+        assertThat(store.takeClaim(TIER_ID, 1L, now)).isEqualTo(expireAt);
+        assertThat(store.takeClaim(TIER_ID, 1L, now)).isNull();
+
+        // 下单失败归还后可以再次取走
+        store.restoreClaim(TIER_ID, 1L, expireAt, now);
+        assertThat(store.takeClaim(TIER_ID, 1L, now)).isEqualTo(expireAt);
+
+        // 已过期的不再归还，也不能取走
+        store.restoreClaim(TIER_ID, 1L, expireAt, expireAt);
+        assertThat(store.takeClaim(TIER_ID, 1L, now)).isNull();
+        store.restoreClaim(TIER_ID, 1L, expireAt, now);
+        assertThat(store.takeClaim(TIER_ID, 1L, expireAt)).isNull();
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void cleanupRemovesTierOnlyWhenIdle(Supplier<WaitlistStore> factory) {
+        WaitlistStore store = factory.get();
+        store.join(TIER_ID, 1L);
+        long now = System.currentTimeMillis();
+        store.offer(TIER_ID, 1, 1, now, now + 1000);
+
+        store.cleanup(TIER_ID, now);
+        assertThat(store.getActiveTierIds()).containsExactly(TIER_ID);
+
+        store.cleanup(TIER_ID, now + 1000);
+        assertThat(store.getActiveTierIds()).isEmpty();
+        // 清理后重新加入从队首开始
+        assertThat(store.join(TIER_ID, 2L)).isZero();
+        assertThat(store.getActiveTierIds()).containsExactly(TIER_ID);
+    }
+
+    @Test
+    void concurrentOffersFromSeveralNodesNeverOverOffer() throws Exception {
+        flushRedis();
+        List<WaitlistStore> nodes = List.of(newRedisStore(redis.getTemplate()),
+                newRedisStore(redis.newTemplate()), newRedisStore(redis.newTemplate()));
+        for (long userId = 1; userId <= 50; userId++) {
+            nodes.get(0).join(TIER_ID, userId);
+        }
+        long now = System.currentTimeMillis();
+        ExecutorService callers = Executors.newFixedThreadPool(12);
+        try {
+            CountDownLatch ready = new CountDownLatch(1);
+            List<Future<List<Long>>> results = new ArrayList<>();
+            for (int i = 0; i < 24; i++) {
+                WaitlistStore node = nodes.get(i % nodes.size());
+                results.add(callers.submit(() -> {
+                    ready.await();
+                    return node.offer(TIER_ID, 10, 3, now, now + 60_000);
+                }));
+            }
+            ready.countDown();
+
+            Set<Long> offered = new HashSet<>();
+            int total = 0;
+            for (Future<List<Long>> result : results) {
+                List<Long> users = result.get();
+                offered.addAll(users);
+                total += users.size();
+            }
+            assertThat(total).isEqualTo(10);
+            assertThat(offered).hasSize(10);
+            assertThat(nodes.get(1).size(TIER_ID)).isEqualTo(40);
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    private static void flushRedis() {
+        redis.getTemplate().execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+    }
+
+    private static WaitlistStore newRedisStore(StringRedisTemplate template) {
+        RedisWaitlistStore store = new RedisWaitlistStore();
+        ReflectionTestUtils.setField(store, "stringRedisTemplate", template);
+        return store;
+    }
+}
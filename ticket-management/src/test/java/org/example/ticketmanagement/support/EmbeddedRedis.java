@@ -0,0 +1,70 @@
+package org.example.ticketmanagement.support;
+
+import com.github.fppt.jedismock.RedisServer;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 测试用的进程内Redis替身（支持Lua脚本），每个实例一个随机端口
+ */
+public class EmbeddedRedis {
+
+    private final RedisServer server;
+    private final List<LettuceConnectionFactory> connectionFactories = new ArrayList<>();
+    private final StringRedisTemplate template;
+
+    public EmbeddedRedis() {
+        try {
+            server = RedisServer.newRedisServer();
+            server.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("启动Redis替身失败", e);
+        }
+        template = newTemplate();
+    }
+
+    public StringRedisTemplate getTemplate() {
+        return template;
+    }
+
+    public String getHost() {
+        return server.getHost();
+    }
+
+    public int getPort() {
+        return server.getBindPort();
+    }
+
+    /**
+     * 新建一个连接到同一个Redis替身的连接（模拟另一个节点）
+     */
+    public StringRedisTemplate newTemplate() {
+        StringRedisTemplate other = new StringRedisTemplate(newConnectionFactory());
+        other.afterPropertiesSet();
+        return other;
+    }
+
+    public void stop() {
+        connectionFactories.forEach(LettuceConnectionFactory::destroy);
+        try {
+            server.stop();
+        } catch (IOException e) {
+            throw new UncheckedIOException("停止Redis替身失败", e);
+        }
+    }
+
+    private LettuceConnectionFactory newConnectionFactory() {
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()));
+        factory.afterPropertiesSet();
+        factory.start();
+        connectionFactories.add(factory);
+        return factory;
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.ticketmanagement.support;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionFactoryBean;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 测试用的内嵌H2数据库（MySQL模式），建表脚本与压测共用 loadsim/schema.sql
+ * Mapper 通过 SqlSessionTemplate 获取，会加入 TransactionTemplate 开启的事务
+ */
+public class H2Database {
+
+    private final HikariDataSource dataSource;
+    private final SqlSessionTemplate sqlSessionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * @param name 内存库名称，同名的实例共享同一个库
+     */
+    public H2Database(String name) {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + name
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        dataSource.setUsername("sa");
+        dataSource.setPassword("");
+        dataSource.setMaximumPoolSize(32);
+        new ResourceDatabasePopulator(new ClassPathResource("loadsim/schema.sql")).execute(dataSource);
+
+        SqlSessionFactoryBean factoryBean = new SqlSessionFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        Configuration configuration = new Configuration();
+        configuration.setMapUnderscoreToCamelCase(true);
+        factoryBean.setConfiguration(configuration);
+        try {
+            SqlSessionFactory sqlSessionFactory = factoryBean.getObject();
+            sqlSessionTemplate = new SqlSessionTemplate(sqlSessionFactory);
+        } catch (Exception e) {
+            throw new IllegalStateException("创建SqlSessionFactory失败", e);
+        }
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    public synchronized <T> T mapper(Class<T> type) {
+        Configuration configuration = sqlSessionTemplate.getConfiguration();
+        if (!configuration.hasMapper(type)) {
+            configuration.addMapper(type);
+        }
+        return sqlSessionTemplate.getMapper(type);
+    }
+
+    public JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    public TransactionTemplate getTransactionTemplate() {
+        return transactionTemplate;
+    }
+
+    public SqlSessionFactory getSqlSessionFactory() {
+        return sqlSessionTemplate.getSqlSessionFactory();
+    }
+
+    public HikariDataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * 清空所有表的数据（保留表结构）
+     */
+    public void truncateAll() {
+        for (String table : jdbcTemplate.queryForList(
+                "SELECT table_name FROM information_schema.tables WHERE table_schema = 'public'", String.class)) {
+            jdbcTemplate.execute("TRUNCATE TABLE " + table + " RESTART IDENTITY");
+        }
+    }
+
+    public void close() {
+        dataSource.close();
+    }
+}
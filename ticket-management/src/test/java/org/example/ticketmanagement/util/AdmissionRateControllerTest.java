@@ -0,0 +1,92 @@
+package org.example.ticketmanagement.util;
+
+import org.example.ticketmanagement.config.AdmissionConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 放行速率控制器：P99超标时按系数降低，达标时线性增加，且不越过上下限
+ */
+class AdmissionRateControllerTest {
+
+    private AdmissionConfig admissionConfig;
+    private AdmissionRateController controller;
+
+    @BeforeEach
+    void setUp() {
+        admissionConfig = new AdmissionConfig();
+        admissionConfig.setInitialRate(100);
+        admissionConfig.setMinRate(20);
+        admissionConfig.setMaxRate(130);
+        admissionConfig.setTargetP99(500);
+        admissionConfig.setIncreaseStep(20);
+        admissionConfig.setDecreaseFactor(0.5);
+        controller = new AdmissionRateController();
+        ReflectionTestUtils.setField(controller, "admissionConfig", admissionConfig);
+        controller.init();
+    }
+
+    @Test
+    void rateIncreasesWhileP99MeetsTarget() {
+        record(100, 200);
+        controller.adjust();
+        assertThat(controller.getCurrentRate()).isEqualTo(120);
+        assertThat(controller.getLastP99()).isEqualTo(200);
+
+        record(100, 200);
+        controller.adjust();
+        assertThat(controller.getCurrentRate()).isEqualTo(130);
+    }
+
+    @Test
+    void rateDropsMultiplicativelyWhenP99ExceedsTarget() {
+        // 99个快请求 + 2个慢请求：P99落在慢请求上
+        record(98, 100);
+        record(2, 800);
+        controller.adjust();
+        assertThat(controller.getCurrentRate()).isEqualTo(50);
+        assertThat(controller.getLastP99()).isEqualTo(800);
+
+        record(10, 800);
+        controller.adjust();
+        assertThat(controller.getCurrentRate()).isEqualTo(25);
+        record(10, 800);
+        controller.adjust();
+        assertThat(controller.getCurrentRate()).isEqualTo(20);
+    }
+
+    @Test
+    void rateStaysWithoutSamples() {
+        controller.adjust();
+
+        assertThat(controller.getCurrentRate()).isEqualTo(100);
+    }
+
+    @Test
+    void samplesAreConsumedByEachAdjustment() {
+        record(10, 900);
+        controller.adjust();
+        record(10, 100);
+        controller.adjust();
+
+        assertThat(controller.getLastP99()).isEqualTo(100);
+        assertThat(controller.getCurrentRate()).isEqualTo(70);
+    }
+
+    @Test
+    void latencyBeyondTrackedRangeCountsAsSlowest() {
+        record(1, 60_000);
+        controller.adjust();
+
+        assertThat(controller.getLastP99()).isEqualTo(10_000);
+    }
+
+    private void record(int count, long millis) {
+        for (int i = 0; i < count; i++) {
+            controller.recordLatency(millis);
+        }
+    }
+}
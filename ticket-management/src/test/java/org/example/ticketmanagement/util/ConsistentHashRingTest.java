@@ -0,0 +1,66 @@
+package org.example.ticketmanagement.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 一致性哈希环：属主稳定、分布大致均匀、增加节点只移动约 1/N 的键且都移到新节点
+ */
+class ConsistentHashRingTest {
+
+    private static final int KEYS = 10000;
+
+    @Test
+    void ownerDoesNotDependOnMemberOrder() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("node-1", "node-2", "node-3"), 128);
+        ConsistentHashRing reordered = new ConsistentHashRing(List.of("node-3", "node-1", "node-2"), 128);
+
+        for (int key = 0; key < KEYS; key++) {
+            assertThat(reordered.getNode(String.valueOf(key))).isEqualTo(ring.getNode(String.valueOf(key)));
+        }
+    }
+
+    @Test
+    void keysAreSpreadAcrossNodes() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("node-1", "node-2", "node-3", "node-4"), 128);
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int key = 0; key < KEYS; key++) {
+            counts.merge(ring.getNode(String.valueOf(key)), 1, Integer::sum);
+        }
+
+        assertThat(counts).hasSize(4);
+        // 每个节点分到的键与平均值相差不超过30%
+        assertThat(counts.values()).allSatisfy(count -> assertThat(count).isBetween(1750, 3250));
+    }
+
+    @Test
+    void addingNodeMovesKeysOnlyToNewNode() {
+        ConsistentHashRing before = new ConsistentHashRing(List.of("node-1", "node-2", "node-3"), 128);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("node-1", "node-2", "node-3", "node-4"), 128);
+
+        int moved = 0;
+        for (int key = 0; key < KEYS; key++) {
+            String oldOwner = before.getNode(String.valueOf(key));
+            String newOwner = after.getNode(String.valueOf(key));
+            if (!oldOwner.equals(newOwner)) {
+                assertThat(newOwner).isEqualTo("node-4");
+                moved++;
+            }
+        }
+        assertThat(moved).isBetween(KEYS / 4 - KEYS / 10, KEYS / 4 + KEYS / 10);
+    }
+
+    @Test
+    void emptyRingHasNoOwner() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of(), 128);
+
+        assertThat(ring.getNode("1")).isNull();
+        assertThat(ring.getNodes()).isEmpty();
+    }
+}
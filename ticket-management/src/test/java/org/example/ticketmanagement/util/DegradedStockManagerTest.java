@@ -0,0 +1,165 @@
+package org.example.ticketmanagement.util;
+
+import org.example.ticketmanagement.config.StockConfig;
+import org.example.ticketmanagement.mapper.TicketTierMapper;
+import org.example.ticketmanagement.support.H2Database;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Redis降级库存：按分片从数据库领取并保留一部分库存、多票档预扣全部成功或全部不扣、
+ * Redis恢复后归还分片并同步Redis计数、未开启降级或非redis引擎时不放行
+ */
+class DegradedStockManagerTest {
+
+    private static H2Database database;
+
+    private StockConfig stockConfig;
+    private RedisStockUtil redisStockUtil;
+    private DegradedStockManager manager;
+
+    @BeforeAll
+    static void startDatabase() {
+        database = new H2Database("degraded_stock");
+    }
+
+    @AfterAll
+    static void stopDatabase() {
+        database.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        database.truncateAll();
+        insertTier(1L, 100);
+        insertTier(2L, 10);
+        stockConfig = new StockConfig();
+        redisStockUtil = mock(RedisStockUtil.class);
+        manager = new DegradedStockManager();
+        ReflectionTestUtils.setField(manager, "stockConfig", stockConfig);
+        ReflectionTestUtils.setField(manager, "ticketTierMapper", database.mapper(TicketTierMapper.class));
+        ReflectionTestUtils.setField(manager, "redisStockUtil", redisStockUtil);
+    }
+
+    @Test
+    void reserveTakesSlicesAndHoldsBackStock() {
+        assertThat(manager.onRedisFailure(new IllegalStateException("redis down"))).isTrue();
+        assertThat(manager.isDegraded()).isTrue();
+
+        assertThat(manager.reserve(1L, 1)).isTrue();
+        assertThat(tierAvailable(1L)).isEqualTo(80);
+        assertThat(manager.reserve(1L, 19)).isTrue();
+        assertThat(tierAvailable(1L)).isEqualTo(80);
+
+        // 总库存的5%不领取，最后一段不足一个分片时只领取缺少的数量
+        int sold = 20;
+        while (manager.reserve(1L, 1)) {
+            sold++;
+        }
+        assertThat(sold).isEqualTo(95);
+        assertThat(tierAvailable(1L)).isEqualTo(5);
+
+        // 释放回分片后可以再次预扣，不访问数据库
+        manager.release(1L, 2);
+        assertThat(manager.reserve(1L, 2)).isTrue();
+        assertThat(tierAvailable(1L)).isEqualTo(5);
+    }
+
+    @Test
+    void lastPendingRaisesHoldBack() {
+        manager.onRedisFailure(new IllegalStateException("redis down"));
+        manager.recordPending(1L, 30);
+
+        int sold = 0;
+        while (manager.reserve(1L, 1)) {
+            sold++;
+        }
+        assertThat(sold).isEqualTo(70);
+
+        // 净归还后恢复按比例保留
+        manager.recordPending(1L, -3);
+        assertThat(manager.reserve(1L, 25)).isTrue();
+        assertThat(tierAvailable(1L)).isEqualTo(5);
+    }
+
+    @Test
+    void reserveAllIsAllOrNothing() {
+        manager.onRedisFailure(new IllegalStateException("redis down"));
+
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        quantities.put(1L, 5);
+        quantities.put(2L, 10);
+        assertThat(manager.reserveAll(quantities)).isFalse();
+
+        quantities.put(2L, 9);
+        assertThat(manager.reserveAll(quantities)).isTrue();
+        assertThat(manager.reserve(2L, 1)).isFalse();
+        // 第一次失败时票档1归还到分片，两次共只售出5张
+        assertThat(manager.reserve(1L, 15)).isTrue();
+        assertThat(manager.reserve(1L, 1)).isTrue();
+        assertThat(tierAvailable(1L)).isEqualTo(60);
+    }
+
+    @Test
+    void recoverReturnsSlicesAndSyncsRedisOnceAvailable() {
+        manager.onRedisFailure(new IllegalStateException("redis down"));
+        manager.reserve(1L, 3);
+        manager.reserve(2L, 2);
+
+        when(redisStockUtil.isAvailable()).thenReturn(false);
+        assertThat(manager.recover()).isZero();
+        assertThat(manager.isDegraded()).isTrue();
+
+        when(redisStockUtil.isAvailable()).thenReturn(true);
+        when(redisStockUtil.adjust(anyLong(), anyLong())).thenReturn(1L);
+        assertThat(manager.recover()).isEqualTo(2);
+
+        assertThat(manager.isDegraded()).isFalse();
+        assertThat(tierAvailable(1L)).isEqualTo(97);
+        assertThat(tierAvailable(2L)).isEqualTo(8);
+        verify(redisStockUtil).adjust(1L, -3);
+        verify(redisStockUtil).adjust(2L, -2);
+        assertThat(manager.recover()).isZero();
+    }
+
+    @Test
+    void failOpenOnlyForRedisEngineWithDegradeEnabled() {
+        stockConfig.setEngine("db");
+        assertThat(manager.failOpen(new IllegalStateException("redis down"))).isFalse();
+        assertThat(manager.isDegraded()).isFalse();
+
+        stockConfig.setEngine("redis");
+        stockConfig.setDegradedEnabled(false);
+        assertThat(manager.failOpen(new IllegalStateException("redis down"))).isFalse();
+        assertThat(manager.isDegraded()).isFalse();
+
+        stockConfig.setDegradedEnabled(true);
+        assertThat(manager.failOpen(new IllegalStateException("redis down"))).isTrue();
+        assertThat(manager.isDegraded()).isTrue();
+        verify(redisStockUtil, never()).adjust(anyLong(), anyLong());
+    }
+
+    private void insertTier(Long id, int stock) {
+        database.getJdbcTemplate().update("INSERT INTO ticket_tier(id, event_id, session_id, tier_name, " +
+                "total_stock, available_stock, status, create_time, update_time) " +
+                "VALUES(?, 1, 1, '看台', ?, ?, 1, NOW(), NOW())", id, stock, stock);
+    }
+
+    private int tierAvailable(Long id) {
+        return database.getJdbcTemplate().queryForObject(
+                "SELECT available_stock FROM ticket_tier WHERE id = ?", Integer.class, id);
+    }
+}
@@ -0,0 +1,186 @@
+package org.example.ticketmanagement.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.ticketmanagement.config.DetailCacheConfig;
+import org.example.ticketmanagement.config.SingleFlightConfig;
+import org.example.ticketmanagement.support.EmbeddedRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 详情缓存：本地与Redis两级读穿透、失效后所有节点重新加载、事务提交后再失效一次、
+ * 其他节点在失效前查到的旧数据不会在失效之后写回Redis
+ */
+class DetailCacheTest {
+
+    private static final long ID = 1L;
+
+    private static EmbeddedRedis redis;
+
+    // 模拟数据库：ID -> 名称
+    private final Map<Long, String> database = new HashMap<>();
+    private final AtomicInteger queries = new AtomicInteger();
+    // 模拟集群广播：发布的消息交给所有节点的订阅者
+    private final List<Consumer<String>> subscribers = new ArrayList<>();
+
+    @BeforeAll
+    static void startRedis() {
+        redis = new EmbeddedRedis();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.getTemplate().execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+        database.put(ID, "初版");
+    }
+
+    @Test
+    void readThroughBothLevels() {
+        DetailCache first = start(redis.getTemplate());
+        DetailCache second = start(redis.newTemplate());
+
+        assertThat(first.get(DetailCache.EVENT, ID, Detail.class, this::load).name).isEqualTo("初版");
+        assertThat(first.get(DetailCache.EVENT, ID, Detail.class, this::load).name).isEqualTo("初版");
+        // 其他节点从Redis读取，不查询数据库
+        assertThat(second.get(DetailCache.EVENT, ID, Detail.class, this::load).name).isEqualTo("初版");
+        assertThat(queries).hasValue(1);
+
+        // 不存在的记录不缓存
+        assertThat(first.get(DetailCache.EVENT, 2L, Detail.class, this::load)).isNull();
+        assertThat(first.get(DetailCache.EVENT, 2L, Detail.class, this::load)).isNull();
+        assertThat(queries).hasValue(3);
+    }
+
+    @Test
+    void evictReloadsOnEveryNode() {
+        DetailCache first = start(redis.getTemplate());
+        DetailCache second = start(redis.newTemplate());
+        first.get(DetailCache.EVENT, ID, Detail.class, this::load);
+        second.get(DetailCache.EVENT, ID, Detail.class, this::load);
+
+        database.put(ID, "修改后");
+        first.evict(DetailCache.EVENT, ID);
+
+        assertThat(second.get(DetailCache.EVENT, ID, Detail.class, this::load).name).isEqualTo("修改后");
+        assertThat(first.get(DetailCache.EVENT, ID, Detail.class, this::load).name).isEqualTo("修改后");
+        assertThat(queries).hasValue(2);
+    }
+
+    @Test
+    void evictInsideTransactionEvictsAgainAfterCommit() {
+        DetailCache cache = start(redis.getTemplate());
+        cache.get(DetailCache.EVENT, ID, Detail.class, this::load);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.evict(DetailCache.EVENT, ID);
+            // 提交前的并发读取回填了旧值
+            assertThat(cache.get(DetailCache.EVENT, ID, Detail.class, this::load).name).isEqualTo("初版");
+            database.put(ID, "修改后");
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(cache.get(DetailCache.EVENT, ID, Detail.class, this::load).name).isEqualTo("修改后");
+    }
+
+    @Test
+    void staleLoadOnAnotherNodeIsNotWrittenBackToRedis() {
+        DetailCache writer = start(redis.getTemplate());
+        DetailCache reader = start(redis.newTemplate());
+
+        // 读取节点查到旧数据之后、写入Redis之前，修改节点提交并失效
+        Function<Long, Detail> staleLoader = id -> {
+            Detail stale = load(id);
+            database.put(ID, "修改后");
+            writer.evict(DetailCache.EVENT, ID);
+            return stale;
+        };
+        assertThat(reader.get(DetailCache.EVENT, ID, Detail.class, staleLoader).name).isEqualTo("初版");
+
+        assertThat(redis.getTemplate().opsForValue().get("detail:event:1")).isNull();
+        assertThat(writer.get(DetailCache.EVENT, ID, Detail.class, this::load).name).isEqualTo("修改后");
+        assertThat(reader.get(DetailCache.EVENT, ID, Detail.class, this::load).name).isEqualTo("修改后");
+    }
+
+    private Detail load(Long id) {
+        queries.incrementAndGet();
+        String name = database.get(id);
+        return name != null ? new Detail(id, name) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private DetailCache start(StringRedisTemplate template) {
+        SingleFlightConfig singleFlightConfig = new SingleFlightConfig();
+        // 关闭提前刷新，避免随机重建
+        singleFlightConfig.setEarlyRefreshBeta(0);
+        SingleFlight singleFlight = new SingleFlight();
+        ReflectionTestUtils.setField(singleFlight, "singleFlightConfig", singleFlightConfig);
+        ClusterBroadcaster broadcaster = mock(ClusterBroadcaster.class);
+        doAnswer(invocation -> {
+            subscribers.add(invocation.getArgument(1, Consumer.class));
+            return null;
+        }).when(broadcaster).subscribe(eq("detail-cache"), any());
+        doAnswer(invocation -> {
+            for (Consumer<String> subscriber : subscribers) {
+                subscriber.accept(invocation.getArgument(1));
+            }
+            return null;
+        }).when(broadcaster).publish(eq("detail-cache"), anyString());
+
+        DetailCache cache = new DetailCache();
+        ReflectionTestUtils.setField(cache, "detailCacheConfig", new DetailCacheConfig());
+        ReflectionTestUtils.setField(cache, "stringRedisTemplate", template);
+        ReflectionTestUtils.setField(cache, "clusterBroadcaster", broadcaster);
+        ReflectionTestUtils.setField(cache, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(cache, "singleFlight", singleFlight);
+        cache.init();
+        return cache;
+    }
+
+    static class Detail {
+        public Long id;
+        public String name;
+
+        public Detail() {
+        }
+
+        Detail(Long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+}
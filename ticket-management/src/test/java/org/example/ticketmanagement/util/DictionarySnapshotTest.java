@@ -0,0 +1,199 @@
+package org.example.ticketmanagement.util;
+
+import org.example.ticketmanagement.mapper.CityMapper;
+import org.example.ticketmanagement.mapper.EventCategoryMapper;
+import org.example.ticketmanagement.pojo.City;
+import org.example.ticketmanagement.pojo.EventCategory;
+import org.example.ticketmanagement.support.EmbeddedRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 字典快照：按ID和名称查询、修改后递增版本号并通知其他节点、事务提交后才发布、定时比对版本号兜底、
+ * 递增版本号失败时由定时任务补发
+ */
+class DictionarySnapshotTest {
+
+    private static EmbeddedRedis redis;
+
+    private final List<City> cities = new ArrayList<>();
+    private final List<EventCategory> categories = new ArrayList<>();
+    // 模拟集群广播：发布的消息交给所有节点的订阅者
+    private final List<Consumer<String>> subscribers = new ArrayList<>();
+    private CityMapper cityMapper;
+    private EventCategoryMapper eventCategoryMapper;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = new EmbeddedRedis();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.getTemplate().execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+        cityMapper = mock(CityMapper.class);
+        eventCategoryMapper = mock(EventCategoryMapper.class);
+        // 每次查询返回当时数据的副本，模拟数据库
+        when(cityMapper.selectAll()).thenAnswer(invocation -> new ArrayList<>(cities));
+        when(eventCategoryMapper.selectAll()).thenAnswer(invocation -> new ArrayList<>(categories));
+        cities.add(city(1L, "北京"));
+        cities.add(city(2L, "上海"));
+        categories.add(new EventCategory(10L, "演唱会", 1, 1, null));
+    }
+
+    @Test
+    void lookupsAreServedFromSnapshot() {
+        DictionarySnapshot snapshot = start(redis.getTemplate(), mock(ClusterBroadcaster.class));
+
+        assertThat(snapshot.getVersion()).isZero();
+        assertThat(snapshot.getCity(2L).getName()).isEqualTo("上海");
+        assertThat(snapshot.getCityByName("北京").getId()).isEqualTo(1L);
+        assertThat(snapshot.getCity(null)).isNull();
+        assertThat(snapshot.getCityByName("广州")).isNull();
+        assertThat(snapshot.getCities()).extracting(City::getId).containsExactly(1L, 2L);
+        assertThat(snapshot.getCategory(10L).getName()).isEqualTo("演唱会");
+        assertThat(snapshot.getCategories()).hasSize(1);
+
+        // 数据库变化但没有通知时仍读旧快照
+        cities.add(city(3L, "广州"));
+        assertThat(snapshot.getCity(3L)).isNull();
+        verify(cityMapper).selectAll();
+    }
+
+    @Test
+    void changeBumpsVersionAndReloadsEveryNode() {
+        DictionarySnapshot first = start(redis.getTemplate(), fanOutBroadcaster());
+        DictionarySnapshot second = start(redis.newTemplate(), fanOutBroadcaster());
+
+        cities.add(city(3L, "广州"));
+        first.onChange();
+
+        assertThat(first.getVersion()).isEqualTo(1L);
+        assertThat(second.getVersion()).isEqualTo(1L);
+        assertThat(first.getCityByName("广州").getId()).isEqualTo(3L);
+        assertThat(second.getCity(3L).getName()).isEqualTo("广州");
+        assertThat(redis.getTemplate().opsForValue().get("dictionary:version")).isEqualTo("1");
+    }
+
+    @Test
+    void changeInsideTransactionIsPublishedAfterCommit() {
+        ClusterBroadcaster broadcaster = mock(ClusterBroadcaster.class);
+        DictionarySnapshot snapshot = start(redis.getTemplate(), broadcaster);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            categories.add(new EventCategory(11L, "话剧", 2, 1, null));
+            snapshot.onChange();
+            assertThat(snapshot.getCategory(11L)).isNull();
+            verify(broadcaster, never()).publish(anyString(), anyString());
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(snapshot.getCategory(11L).getName()).isEqualTo("话剧");
+        verify(broadcaster).publish("dictionary", "1");
+    }
+
+    @Test
+    void refreshReloadsOnlyWhenRemoteVersionDiffers() {
+        DictionarySnapshot snapshot = start(redis.getTemplate(), mock(ClusterBroadcaster.class));
+
+        assertThat(snapshot.refresh()).isFalse();
+
+        // 广播丢失：其他节点已递增版本号
+        cities.add(city(3L, "广州"));
+        redis.getTemplate().opsForValue().set("dictionary:version", "5");
+        assertThat(snapshot.refresh()).isTrue();
+        assertThat(snapshot.getVersion()).isEqualTo(5L);
+        assertThat(snapshot.getCity(3L)).isNotNull();
+        assertThat(snapshot.refresh()).isFalse();
+    }
+
+    @Test
+    void failedVersionBumpIsPublishedOnceRedisRecovers() {
+        StringRedisTemplate flaky = spy(redis.newTemplate());
+        DictionarySnapshot first = start(flaky, fanOutBroadcaster());
+        DictionarySnapshot second = start(redis.newTemplate(), fanOutBroadcaster());
+        doThrow(new RedisConnectionFailureException("redis down")).doCallRealMethod().when(flaky).opsForValue();
+
+        cities.add(city(3L, "广州"));
+        first.onChange();
+        assertThat(first.getCity(3L)).isNotNull();
+        assertThat(second.getCity(3L)).isNull();
+        // 版本号没有递增，其他节点比对版本号发现不了
+        assertThat(second.refresh()).isFalse();
+
+        // 定时任务补发
+        assertThat(first.refresh()).isTrue();
+        assertThat(first.getVersion()).isEqualTo(1L);
+        assertThat(second.getVersion()).isEqualTo(1L);
+        assertThat(second.getCity(3L).getName()).isEqualTo("广州");
+        assertThat(first.refresh()).isFalse();
+    }
+
+    private DictionarySnapshot start(StringRedisTemplate template, ClusterBroadcaster broadcaster) {
+        DictionarySnapshot snapshot = new DictionarySnapshot();
+        ReflectionTestUtils.setField(snapshot, "cityMapper", cityMapper);
+        ReflectionTestUtils.setField(snapshot, "eventCategoryMapper", eventCategoryMapper);
+        ReflectionTestUtils.setField(snapshot, "stringRedisTemplate", template);
+        ReflectionTestUtils.setField(snapshot, "clusterBroadcaster", broadcaster);
+        snapshot.init();
+        return snapshot;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ClusterBroadcaster fanOutBroadcaster() {
+        ClusterBroadcaster broadcaster = mock(ClusterBroadcaster.class);
+        doAnswer(invocation -> {
+            subscribers.add(invocation.getArgument(1, Consumer.class));
+            return null;
+        }).when(broadcaster).subscribe(eq("dictionary"), any());
+        doAnswer(invocation -> {
+            for (Consumer<String> subscriber : subscribers) {
+                subscriber.accept(invocation.getArgument(1));
+            }
+            return null;
+        }).when(broadcaster).publish(eq("dictionary"), anyString());
+        return broadcaster;
+    }
+
+    private static City city(Long id, String name) {
+        return new City(id, name, null, null, 0, 1, null, null);
+    }
+}
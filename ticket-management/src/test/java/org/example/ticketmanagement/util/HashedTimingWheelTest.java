@@ -0,0 +1,113 @@
+package org.example.ticketmanagement.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 哈希时间轮：到期执行、取消、跨多轮的延时
+ */
+class HashedTimingWheelTest {
+
+    // 4个槽位 × 10ms，一轮只有40ms，便于覆盖跨轮的任务
+    private HashedTimingWheel wheel;
+
+    @BeforeEach
+    void setUp() {
+        wheel = new HashedTimingWheel("test-wheel", 10, TimeUnit.MILLISECONDS, 4, Runnable::run);
+    }
+
+    @AfterEach
+    void tearDown() {
+        wheel.stop();
+    }
+
+    @Test
+    void taskRunsNoEarlierThanItsDelay() throws Exception {
+        CountDownLatch fired = new CountDownLatch(1);
+        AtomicLong firedAt = new AtomicLong();
+        long start = System.currentTimeMillis();
+
+        wheel.newTimeout(() -> {
+            firedAt.set(System.currentTimeMillis());
+            fired.countDown();
+        }, 50, TimeUnit.MILLISECONDS);
+
+        assertThat(fired.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(firedAt.get() - start).isGreaterThanOrEqualTo(50);
+        assertThat(wheel.pendingTimeouts()).isZero();
+    }
+
+    @Test
+    void delayLongerThanOneRoundWaitsForRemainingRounds() throws Exception {
+        CountDownLatch fired = new CountDownLatch(1);
+        AtomicLong firedAt = new AtomicLong();
+        long start = System.currentTimeMillis();
+
+        HashedTimingWheel.Timeout timeout = wheel.newTimeout(() -> {
+            firedAt.set(System.currentTimeMillis());
+            fired.countDown();
+        }, 150, TimeUnit.MILLISECONDS);
+
+        assertThat(fired.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(firedAt.get() - start).isGreaterThanOrEqualTo(150);
+        assertThat(timeout.isExpired()).isTrue();
+    }
+
+    @Test
+    void cancelledTaskNeverRuns() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        HashedTimingWheel.Timeout timeout = wheel.newTimeout(runs::incrementAndGet, 30, TimeUnit.MILLISECONDS);
+
+        assertThat(timeout.cancel()).isTrue();
+        assertThat(timeout.cancel()).isFalse();
+        assertThat(wheel.pendingTimeouts()).isZero();
+
+        Thread.sleep(120);
+        assertThat(runs).hasValue(0);
+        assertThat(timeout.isCancelled()).isTrue();
+    }
+
+    @Test
+    void expiredTaskCannotBeCancelled() throws Exception {
+        CountDownLatch fired = new CountDownLatch(1);
+        HashedTimingWheel.Timeout timeout = wheel.newTimeout(fired::countDown, 0, TimeUnit.MILLISECONDS);
+
+        assertThat(fired.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(timeout.cancel()).isFalse();
+    }
+
+    @Test
+    void everyTaskRunsExactlyOnce() throws Exception {
+        int count = 1000;
+        CountDownLatch fired = new CountDownLatch(count);
+        AtomicInteger runs = new AtomicInteger();
+        for (int i = 0; i < count; i++) {
+            wheel.newTimeout(() -> {
+                runs.incrementAndGet();
+                fired.countDown();
+            }, i % 100, TimeUnit.MILLISECONDS);
+        }
+
+        assertThat(fired.await(3, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(50);
+        assertThat(runs).hasValue(count);
+        assertThat(wheel.pendingTimeouts()).isZero();
+    }
+
+    @Test
+    void stoppedWheelRejectsNewTasks() {
+        wheel.stop();
+
+        assertThatThrownBy(() -> wheel.newTimeout(() -> { }, 10, TimeUnit.MILLISECONDS))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,162 @@
+package org.example.ticketmanagement.util;
+
+import org.example.ticketmanagement.config.HomeFeedConfig;
+import org.example.ticketmanagement.config.SingleFlightConfig;
+import org.example.ticketmanagement.vo.EventVO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 首页推荐物化：缺失分段合并为一次查询、只失效演出所在分类、失效广播、按最早结束的演出过期、重建期间失效不写入
+ */
+class HomeFeedStoreTest {
+
+    private static final long CITY_ID = 1L;
+    private static final int LIMIT = 4;
+
+    private HomeFeedConfig config;
+    private ClusterBroadcaster broadcaster;
+    private Consumer<String> subscriber;
+    private HomeFeedStore store;
+
+    // 数据库中的推荐：分类ID -> 演出列表
+    private final Map<Long, List<EventVO>> database = new HashMap<>();
+    // 每次查询的分类
+    private final List<List<Long>> queries = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        config = new HomeFeedConfig();
+        SingleFlightConfig singleFlightConfig = new SingleFlightConfig();
+        // 关闭提前刷新，避免随机重建
+        singleFlightConfig.setEarlyRefreshBeta(0);
+        SingleFlight singleFlight = new SingleFlight();
+        ReflectionTestUtils.setField(singleFlight, "singleFlightConfig", singleFlightConfig);
+        broadcaster = mock(ClusterBroadcaster.class);
+        doAnswer(invocation -> {
+            subscriber = invocation.getArgument(1, Consumer.class);
+            return null;
+        }).when(broadcaster).subscribe(eq("home-feed"), any());
+
+        store = new HomeFeedStore();
+        ReflectionTestUtils.setField(store, "homeFeedConfig", config);
+        ReflectionTestUtils.setField(store, "clusterBroadcaster", broadcaster);
+        ReflectionTestUtils.setField(store, "singleFlight", singleFlight);
+        store.init();
+
+        database.put(10L, List.of(event(101L, 7)));
+        database.put(20L, List.of(event(201L, 7), event(202L, 8)));
+        database.put(30L, List.of());
+    }
+
+    @Test
+    void missingSegmentsAreLoadedTogetherOnce() {
+        Map<Long, List<EventVO>> first = get(10L, 20L);
+        assertThat(first.keySet()).containsExactly(10L, 20L);
+        assertThat(first.get(20L)).extracting(EventVO::getId).containsExactly(201L, 202L);
+
+        Map<Long, List<EventVO>> second = get(20L, 30L, 10L);
+        assertThat(second.keySet()).containsExactly(20L, 30L, 10L);
+        assertThat(second.get(30L)).isEmpty();
+        assertThat(second.get(10L)).isSameAs(first.get(10L));
+
+        assertThat(queries).containsExactly(List.of(10L, 20L), List.of(30L));
+    }
+
+    @Test
+    void invalidateDropsOnlyThatCategoryAndBroadcasts() {
+        get(10L, 20L);
+        database.put(10L, List.of(event(102L, 7)));
+
+        store.invalidate(CITY_ID, 10L);
+        verify(broadcaster).publish("home-feed", CITY_ID + ":10");
+
+        assertThat(get(10L, 20L).get(10L)).extracting(EventVO::getId).containsExactly(102L);
+        assertThat(queries).containsExactly(List.of(10L, 20L), List.of(10L));
+
+        // 其他节点的失效广播
+        subscriber.accept(CITY_ID + ":20");
+        get(10L, 20L);
+        assertThat(queries).last().isEqualTo(List.of(20L));
+    }
+
+    @Test
+    void segmentExpiresWhenEarliestEventEnds() {
+        database.put(10L, List.of(event(101L, 7), finishing(102L)));
+        get(10L, 20L);
+
+        // 10号分类中有演出已经结束，下次读取重建；20号分类未过期
+        get(10L, 20L);
+        assertThat(queries).containsExactly(List.of(10L, 20L), List.of(10L));
+    }
+
+    @Test
+    void invalidationDuringRebuildIsNotCached() {
+        Function<List<Long>, Map<Long, List<EventVO>>> racingLoader = categoryIds -> {
+            Map<Long, List<EventVO>> loaded = load(categoryIds);
+            // 查询结束后、写入前演出被修改
+            store.invalidate(CITY_ID, 10L);
+            return loaded;
+        };
+        store.get(CITY_ID, List.of(10L), LIMIT, racingLoader);
+
+        get(10L);
+        assertThat(queries).containsExactly(List.of(10L), List.of(10L));
+    }
+
+    @Test
+    void disabledOrLargeLimitGoesToDatabase() {
+        store.get(CITY_ID, List.of(10L), config.getMaxCachedLimit() + 1, this::load);
+        store.get(CITY_ID, List.of(10L), config.getMaxCachedLimit() + 1, this::load);
+        config.setEnabled(false);
+        get(10L);
+        get(10L);
+
+        assertThat(queries).hasSize(4);
+    }
+
+    private Map<Long, List<EventVO>> get(Long... categoryIds) {
+        return store.get(CITY_ID, List.of(categoryIds), LIMIT, this::load);
+    }
+
+    private Map<Long, List<EventVO>> load(List<Long> categoryIds) {
+        queries.add(List.copyOf(categoryIds));
+        Map<Long, List<EventVO>> loaded = new LinkedHashMap<>();
+        for (Long categoryId : categoryIds) {
+            loaded.put(categoryId, database.getOrDefault(categoryId, List.of()));
+        }
+        return loaded;
+    }
+
+    private static EventVO event(Long id, int endInDays) {
+        EventVO event = new EventVO();
+        event.setId(id);
+        event.setEventEndTime(LocalDateTime.now().plusDays(endInDays));
+        return event;
+    }
+
+    private static EventVO finishing(Long id) {
+        EventVO event = new EventVO();
+        event.setId(id);
+        event.setEventEndTime(LocalDateTime.now().minusSeconds(1));
+        return event;
+    }
+}
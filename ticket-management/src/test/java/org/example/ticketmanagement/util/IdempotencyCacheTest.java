@@ -0,0 +1,120 @@
+package org.example.ticketmanagement.util;
+
+import org.example.ticketmanagement.config.IdempotencyConfig;
+import org.example.ticketmanagement.support.EmbeddedRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 幂等键缓存：跨节点抢占、结果复用、失败释放，以及Redis降级时的本地抢占
+ */
+class IdempotencyCacheTest {
+
+    private static EmbeddedRedis redis;
+    private DegradedStockManager degradedStockManager;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = new EmbeddedRedis();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.getTemplate().execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+        degradedStockManager = mock(DegradedStockManager.class);
+    }
+
+    @Test
+    void onlyOneNodeClaimsKey() {
+        IdempotencyCache node1 = newCache(redis.getTemplate());
+        IdempotencyCache node2 = newCache(redis.newTemplate());
+
+        assertThat(node1.begin("req-1")).isNull();
+        assertThat(node2.begin("req-1")).isEqualTo(IdempotencyCache.PROCESSING);
+        assertThat(node1.begin("req-1")).isEqualTo(IdempotencyCache.PROCESSING);
+    }
+
+    @Test
+    void completedResultIsReturnedOnRetry() {
+        IdempotencyCache node1 = newCache(redis.getTemplate());
+        IdempotencyCache node2 = newCache(redis.newTemplate());
+        node1.begin("req-1");
+
+        node1.complete("req-1", "ORDER-1");
+
+        assertThat(node1.begin("req-1")).isEqualTo("ORDER-1");
+        assertThat(node2.begin("req-1")).isEqualTo("ORDER-1");
+        // 其他节点读到的结果缓存到本地后不再访问Redis
+        redis.getTemplate().delete("idempotency:req-1");
+        assertThat(node2.begin("req-1")).isEqualTo("ORDER-1");
+    }
+
+    @Test
+    void abortReleasesKeyForRetry() {
+        IdempotencyCache cache = newCache(redis.getTemplate());
+        cache.begin("req-1");
+
+        cache.abort("req-1");
+
+        assertThat(cache.begin("req-1")).isNull();
+    }
+
+    @Test
+    void claimsLocallyWhileDegraded() {
+        when(degradedStockManager.isDegraded()).thenReturn(true);
+        IdempotencyCache cache = newCache(redis.getTemplate());
+
+        assertThat(cache.begin("req-1")).isNull();
+        assertThat(cache.begin("req-1")).isEqualTo(IdempotencyCache.PROCESSING);
+        cache.complete("req-1", "ORDER-1");
+
+        assertThat(cache.begin("req-1")).isEqualTo("ORDER-1");
+        // 降级期间不访问Redis
+        assertThat(redis.getTemplate().hasKey("idempotency:req-1")).isFalse();
+    }
+
+    @Test
+    void redisFailureFallsBackToLocalClaimOnlyWhenFailingOpen() {
+        StringRedisTemplate broken = mock(StringRedisTemplate.class);
+        when(broken.opsForValue()).thenThrow(new RedisConnectionFailureException("down"));
+        IdempotencyCache cache = newCache(broken);
+
+        when(degradedStockManager.failOpen(any())).thenReturn(false);
+        assertThatThrownBy(() -> cache.begin("req-1")).isInstanceOf(RedisConnectionFailureException.class);
+
+        when(degradedStockManager.failOpen(any())).thenReturn(true);
+        assertThat(cache.begin("req-1")).isNull();
+        assertThat(cache.begin("req-1")).isEqualTo(IdempotencyCache.PROCESSING);
+        cache.abort("req-1");
+        assertThat(cache.begin("req-1")).isNull();
+    }
+
+    private IdempotencyCache newCache(StringRedisTemplate template) {
+        IdempotencyCache cache = new IdempotencyCache();
+        ReflectionTestUtils.setField(cache, "stringRedisTemplate", template);
+        ReflectionTestUtils.setField(cache, "idempotencyConfig", new IdempotencyConfig());
+        ReflectionTestUtils.setField(cache, "degradedStockManager", degradedStockManager);
+        cache.init();
+        return cache;
+    }
+}
@@ -0,0 +1,196 @@
+package org.example.ticketmanagement.util;
+
+import org.example.ticketmanagement.config.JournalConfig;
+import org.example.ticketmanagement.config.StockConfig;
+import org.example.ticketmanagement.mapper.StockJournalCheckpointMapper;
+import org.example.ticketmanagement.mapper.TicketTierMapper;
+import org.example.ticketmanagement.support.H2Database;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 本地日志库存引擎：预扣与回写、崩溃后按快照和日志恢复且每笔增量只回写一次、越界增量放回、对账跳过
+ */
+class JournalStockEngineTest {
+
+    private static H2Database database;
+
+    @TempDir
+    Path dir;
+
+    private JournalStockEngine engine;
+
+    @BeforeAll
+    static void startDatabase() {
+        database = new H2Database("journal_stock");
+    }
+
+    @AfterAll
+    static void stopDatabase() {
+        database.close();
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        database.truncateAll();
+        insertTier(1L, 10);
+        insertTier(2L, 10);
+        engine = start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.destroy();
+    }
+
+    @Test
+    void reserveAndReleaseAreDrainedToDatabase() {
+        engine.load(1L, 10);
+
+        assertThat(engine.reserve(1L, 4)).isEqualTo(6);
+        assertThat(engine.reserve(1L, 7)).isEqualTo(JournalStockEngine.INSUFFICIENT);
+        assertThat(engine.release(1L, 1)).isEqualTo(7);
+        assertThat(engine.reserve(3L, 1)).isEqualTo(JournalStockEngine.NOT_LOADED);
+        assertThat(engine.getPending(1L)).isEqualTo(3);
+
+        assertThat(engine.drain()).isEqualTo(1);
+        assertThat(tierAvailable(1L)).isEqualTo(7);
+        assertThat(engine.getPending(1L)).isZero();
+        assertThat(engine.drain()).isZero();
+    }
+
+    @Test
+    void reserveAllIsAllOrNothing() {
+        engine.load(1L, 10);
+        engine.load(2L, 2);
+
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        quantities.put(1L, 5);
+        quantities.put(2L, 3);
+        assertThat(engine.reserveAll(quantities)).isEqualTo(JournalStockEngine.INSUFFICIENT);
+        assertThat(engine.getStock(1L)).isEqualTo(10);
+
+        quantities.put(2L, 2);
+        assertThat(engine.reserveAll(quantities)).isZero();
+        assertThat(engine.getStock(1L)).isEqualTo(5);
+        assertThat(engine.getStock(2L)).isZero();
+
+        quantities.put(3L, 1);
+        assertThat(engine.reserveAll(quantities)).isEqualTo(JournalStockEngine.NOT_LOADED);
+    }
+
+    @Test
+    void crashRecoveryReplaysJournalAndNeverAppliesDeltaTwice() throws IOException {
+        engine.load(1L, 10);
+        engine.load(2L, 10);
+        engine.reserve(1L, 2);
+        engine.drain();
+        engine.reserve(1L, 1);
+        engine.snapshot();
+        engine.reserve(1L, 3);
+        engine.reserve(2L, 4);
+        engine.drain(List.of(2L));
+        engine.release(2L, 1);
+        // 崩溃：未回写 tier1 快照后的增量与 tier2 的释放
+        engine.destroy();
+
+        engine = start();
+        assertThat(engine.getStock(1L)).isEqualTo(4);
+        assertThat(engine.getStock(2L)).isEqualTo(7);
+        assertThat(engine.getPending(1L)).isEqualTo(4);
+        assertThat(engine.getPending(2L)).isEqualTo(-1);
+
+        engine.drain();
+        assertThat(tierAvailable(1L)).isEqualTo(4);
+        assertThat(tierAvailable(2L)).isEqualTo(7);
+
+        // 再次重启时回写位点已覆盖全部记录，不再产生待回写增量
+        engine.destroy();
+        engine = start();
+        assertThat(engine.getPending(1L)).isZero();
+        assertThat(engine.getPending(2L)).isZero();
+        assertThat(engine.getStock(1L)).isEqualTo(4);
+    }
+
+    @Test
+    void outOfRangeDeltaIsKeptPending() {
+        engine.load(1L, 10);
+        engine.reserve(1L, 5);
+        // 数据库库存被其他途径改小，增量回写会越界
+        database.getJdbcTemplate().update("UPDATE ticket_tier SET available_stock = 3 WHERE id = 1");
+
+        assertThat(engine.drain()).isZero();
+        assertThat(engine.getPending(1L)).isEqualTo(5);
+        assertThat(engine.getStock(1L)).isEqualTo(5);
+    }
+
+    @Test
+    void reconcileSkipsWhenSyncedAfterDatabaseRead() {
+        engine.load(1L, 10);
+        engine.reserve(1L, 2);
+        assertThat(engine.reconcile(1L, 10, engine.getSyncVersion())).isEqualTo(-1);
+
+        long staleVersion = engine.getSyncVersion();
+        engine.drain();
+        // 读取数据库库存（10）早于回写，不能用它覆盖计数
+        assertThat(engine.reconcile(1L, 10, staleVersion)).isEqualTo(-1);
+        assertThat(engine.reconcile(1L, 8, engine.getSyncVersion())).isZero();
+
+        database.getJdbcTemplate().update("UPDATE ticket_tier SET available_stock = 6 WHERE id = 1");
+        assertThat(engine.reconcile(1L, 6, engine.getSyncVersion())).isEqualTo(1);
+        assertThat(engine.getStock(1L)).isEqualTo(6);
+        assertThat(engine.reconcile(3L, 6, engine.getSyncVersion())).isEqualTo(JournalStockEngine.NOT_LOADED);
+    }
+
+    @Test
+    void handOffDrainsThenRemovesTiers() {
+        engine.load(1L, 10);
+        engine.reserve(1L, 3);
+
+        assertThat(engine.handOff(List.of(1L))).isEqualTo(1);
+
+        assertThat(tierAvailable(1L)).isEqualTo(7);
+        assertThat(engine.getStock(1L)).isNull();
+        assertThat(engine.reserve(1L, 1)).isEqualTo(JournalStockEngine.NOT_LOADED);
+    }
+
+    private JournalStockEngine start() throws IOException {
+        StockConfig stockConfig = new StockConfig();
+        stockConfig.setEngine("journal");
+        JournalConfig journalConfig = new JournalConfig();
+        journalConfig.setDir(dir.toString());
+        journalConfig.setSegmentSize(4096);
+        JournalStockEngine started = new JournalStockEngine();
+        ReflectionTestUtils.setField(started, "journalConfig", journalConfig);
+        ReflectionTestUtils.setField(started, "stockConfig", stockConfig);
+        ReflectionTestUtils.setField(started, "ticketTierMapper", database.mapper(TicketTierMapper.class));
+        ReflectionTestUtils.setField(started, "checkpointMapper", database.mapper(StockJournalCheckpointMapper.class));
+        ReflectionTestUtils.setField(started, "transactionTemplate", database.getTransactionTemplate());
+        started.init();
+        return started;
+    }
+
+    private void insertTier(Long id, int stock) {
+        database.getJdbcTemplate().update("INSERT INTO ticket_tier(id, event_id, session_id, tier_name, " +
+                "total_stock, available_stock, status, create_time, update_time) " +
+                "VALUES(?, 1, 1, '看台', ?, ?, 1, NOW(), NOW())", id, stock, stock);
+    }
+
+    private int tierAvailable(Long id) {
+        return database.getJdbcTemplate().queryForObject(
+                "SELECT available_stock FROM ticket_tier WHERE id = ?", Integer.class, id);
+    }
+}
@@ -0,0 +1,210 @@
+package org.example.ticketmanagement.util;
+
+import org.example.ticketmanagement.support.EmbeddedRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 库存Lua脚本：预扣/释放、限购额度、多票档整单预扣、待回写增量的取出与回写、对账
+ */
+class RedisStockUtilTest {
+
+    private static EmbeddedRedis redis;
+    private RedisStockUtil redisStockUtil;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = new EmbeddedRedis();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.getTemplate().execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+        redisStockUtil = new RedisStockUtil();
+        ReflectionTestUtils.setField(redisStockUtil, "stringRedisTemplate", redis.getTemplate());
+    }
+
+    @Test
+    void reserveDeductsStockAndRecordsPending() {
+        redisStockUtil.preload(1L, 10);
+
+        assertThat(redisStockUtil.reserve(1L, 3)).isEqualTo(7);
+        assertThat(redisStockUtil.reserve(1L, 8)).isEqualTo(RedisStockUtil.INSUFFICIENT);
+        assertThat(redisStockUtil.reserve(2L, 1)).isEqualTo(RedisStockUtil.NOT_LOADED);
+
+        assertThat(redisStockUtil.getStock(1L)).isEqualTo(7);
+        assertThat(redisStockUtil.getPendings(List.of(1L))).containsEntry(1L, 3L);
+    }
+
+    @Test
+    void releaseReturnsStockAndOffsetsPending() {
+        redisStockUtil.preload(1L, 10);
+        redisStockUtil.reserve(1L, 4);
+
+        assertThat(redisStockUtil.release(1L, 1)).isEqualTo(7);
+        assertThat(redisStockUtil.release(2L, 1)).isEqualTo(RedisStockUtil.NOT_LOADED);
+        assertThat(redisStockUtil.getPendings(List.of(1L))).containsEntry(1L, 3L);
+    }
+
+    @Test
+    void reserveWithQuotaChecksStockAndBothLimitsBeforeWriting() {
+        redisStockUtil.preload(1L, 10);
+
+        assertThat(redisStockUtil.reserveWithQuota(1L, 2, "quota:event:7:1", 4, "quota:tier:1:1", 3, 60))
+                .isEqualTo(8);
+        // 票档限购3张，已购2张
+        assertThat(redisStockUtil.reserveWithQuota(1L, 2, "quota:event:7:1", 4, "quota:tier:1:1", 3, 60))
+                .isEqualTo(RedisStockUtil.QUOTA_EXCEEDED);
+        assertThat(redisStockUtil.reserveWithQuota(1L, 11, "quota:event:7:1", 0, "quota:tier:1:1", 0, 60))
+                .isEqualTo(RedisStockUtil.INSUFFICIENT);
+        assertThat(redisStockUtil.reserveWithQuota(2L, 1, "quota:event:7:1", 4, "quota:tier:2:1", 3, 60))
+                .isEqualTo(RedisStockUtil.NOT_LOADED);
+
+        // 失败的预扣不改变库存和额度计数
+        assertThat(redisStockUtil.getStock(1L)).isEqualTo(8);
+        assertThat(redis.getTemplate().opsForValue().get("quota:event:7:1")).isEqualTo("2");
+        assertThat(redis.getTemplate().opsForValue().get("quota:tier:1:1")).isEqualTo("2");
+        assertThat(redis.getTemplate().getExpire("quota:tier:1:1")).isPositive();
+    }
+
+    @Test
+    void reserveWithQuotaSkipsUnlimitedDimension() {
+        redisStockUtil.preload(1L, 10);
+
+        assertThat(redisStockUtil.reserveWithQuota(1L, 5, "quota:event:7:1", 0, "quota:tier:1:1", 6, 60))
+                .isEqualTo(5);
+        assertThat(redis.getTemplate().hasKey("quota:event:7:1")).isFalse();
+        assertThat(redisStockUtil.reserveWithQuota(1L, 2, "quota:event:7:1", 0, "quota:tier:1:1", 6, 60))
+                .isEqualTo(RedisStockUtil.QUOTA_EXCEEDED);
+    }
+
+    @Test
+    void reserveBatchIsAllOrNothing() {
+        redisStockUtil.preload(1L, 10);
+        redisStockUtil.preload(2L, 2);
+        List<String> tierQuotaKeys = List.of("quota:tier:1:1", "quota:tier:2:1");
+
+        // 第2个票档库存不足，第1个票档也不扣减
+        assertThat(redisStockUtil.reserveBatch(List.of(1L, 2L), List.of(3, 3), "quota:event:7:1", 0,
+                tierQuotaKeys, List.of(0, 0), 60)).containsExactly(RedisStockUtil.INSUFFICIENT, 2L);
+        assertThat(redisStockUtil.reserveBatch(List.of(1L, 3L), List.of(1, 1), "quota:event:7:1", 0,
+                List.of("quota:tier:1:1", "quota:tier:3:1"), List.of(0, 0), 60))
+                .containsExactly(RedisStockUtil.NOT_LOADED, 2L);
+        // 两个票档合计超出演出限购
+        assertThat(redisStockUtil.reserveBatch(List.of(1L, 2L), List.of(3, 2), "quota:event:7:1", 4,
+                tierQuotaKeys, List.of(0, 0), 60)).containsExactly(RedisStockUtil.QUOTA_EXCEEDED);
+        assertThat(redisStockUtil.getStocks(List.of(1L, 2L))).containsOnly(Map.entry(1L, 10), Map.entry(2L, 2));
+        assertThat(redisStockUtil.getPendings(List.of(1L, 2L))).isEmpty();
+        assertThat(redis.getTemplate().hasKey("quota:event:7:1")).isFalse();
+
+        assertThat(redisStockUtil.reserveBatch(List.of(1L, 2L), List.of(3, 2), "quota:event:7:1", 5,
+                tierQuotaKeys, List.of(3, 0), 60)).containsExactly(0L, 7L, 0L);
+        assertThat(redisStockUtil.getPendings(List.of(1L, 2L))).containsOnly(Map.entry(1L, 3L), Map.entry(2L, 2L));
+        assertThat(redis.getTemplate().opsForValue().get("quota:event:7:1")).isEqualTo("5");
+        assertThat(redis.getTemplate().opsForValue().get("quota:tier:1:1")).isEqualTo("3");
+        assertThat(redis.getTemplate().hasKey("quota:tier:2:1")).isFalse();
+
+        // 票档限购已用完
+        redisStockUtil.release(1L, 3);
+        assertThat(redisStockUtil.reserveBatch(List.of(1L), List.of(1), "quota:event:7:1", 0,
+                List.of("quota:tier:1:1"), List.of(3), 60)).containsExactly(RedisStockUtil.QUOTA_EXCEEDED);
+    }
+
+    @Test
+    void preloadDoesNotOverwriteLiveCounter() {
+        assertThat(redisStockUtil.preload(1L, 10)).isTrue();
+        redisStockUtil.reserve(1L, 2);
+
+        assertThat(redisStockUtil.preload(1L, 10)).isFalse();
+        assertThat(redisStockUtil.getStock(1L)).isEqualTo(8);
+    }
+
+    @Test
+    void drainedDeltaStaysVisibleUntilCommitted() {
+        redisStockUtil.preload(1L, 10);
+        redisStockUtil.reserve(1L, 3);
+
+        long seq = redisStockUtil.getFlushSeq(1L);
+        assertThat(redisStockUtil.drainPending(1L)).isEqualTo(3);
+        // 回写中的增量仍计入未回写的扣减，对账不能用数据库库存覆盖计数
+        assertThat(redisStockUtil.getPendings(List.of(1L))).containsEntry(1L, 3L);
+        assertThat(redisStockUtil.reconcile(1L, 10, redisStockUtil.getFlushSeq(1L))).isEqualTo(-1);
+
+        redisStockUtil.commitInflight(1L, 3);
+        assertThat(redisStockUtil.getPendings(List.of(1L))).isEmpty();
+        // 读取数据库库存之后发生过回写，旧的数据库库存不能用于对账
+        assertThat(redisStockUtil.reconcile(1L, 10, seq)).isEqualTo(-1);
+        assertThat(redisStockUtil.reconcile(1L, 7, redisStockUtil.getFlushSeq(1L))).isZero();
+        assertThat(redisStockUtil.getStock(1L)).isEqualTo(7);
+    }
+
+    @Test
+    void failedFlushRestoresDeltaToPending() {
+        redisStockUtil.preload(1L, 10);
+        redisStockUtil.reserve(1L, 3);
+        long delta = redisStockUtil.drainPending(1L);
+        redisStockUtil.reserve(1L, 2);
+
+        redisStockUtil.restorePending(1L, delta);
+
+        assertThat(redisStockUtil.getPendings(List.of(1L))).containsEntry(1L, 5L);
+        assertThat(redisStockUtil.drainPending(1L)).isEqualTo(5);
+    }
+
+    @Test
+    void reconcileCorrectsCounterOnlyWithoutPending() {
+        redisStockUtil.preload(1L, 10);
+        redisStockUtil.reserve(1L, 1);
+        assertThat(redisStockUtil.reconcile(1L, 10, redisStockUtil.getFlushSeq(1L))).isEqualTo(-1);
+
+        redisStockUtil.commitInflight(1L, redisStockUtil.drainPending(1L));
+        redisStockUtil.overwrite(1L, 5);
+        assertThat(redisStockUtil.reconcile(1L, 9, redisStockUtil.getFlushSeq(1L))).isEqualTo(1);
+        assertThat(redisStockUtil.getStock(1L)).isEqualTo(9);
+        assertThat(redisStockUtil.reconcile(2L, 9, 0)).isEqualTo(RedisStockUtil.NOT_LOADED);
+    }
+
+    @Test
+    void removeClearsCounterAndDeltas() {
+        redisStockUtil.preload(1L, 10);
+        redisStockUtil.reserve(1L, 2);
+        redisStockUtil.drainPending(1L);
+        redisStockUtil.reserve(1L, 1);
+
+        redisStockUtil.remove(1L);
+
+        assertThat(redisStockUtil.getStock(1L)).isNull();
+        assertThat(redisStockUtil.getPendings(List.of(1L))).isEmpty();
+        assertThat(redisStockUtil.getLoadedTierIds()).doesNotContain(1L);
+    }
+
+    @Test
+    void getStocksSkipsTiersNotLoaded() {
+        redisStockUtil.preload(1L, 10);
+        redisStockUtil.preload(3L, 30);
+
+        Map<Long, Integer> stocks = redisStockUtil.getStocks(List.of(1L, 2L, 3L));
+
+        assertThat(stocks).containsOnly(Map.entry(1L, 10), Map.entry(3L, 30));
+        assertThat(redisStockUtil.isAvailable()).isTrue();
+        assertThat(redis.getTemplate().execute((RedisCallback<String>) RedisConnection::ping)).isEqualTo("PONG");
+    }
+}
@@ -0,0 +1,225 @@
+package org.example.ticketmanagement.util;
+
+import org.example.ticketmanagement.mapper.SeatRowMapper;
+import org.example.ticketmanagement.mapper.SeatSectionMapper;
+import org.example.ticketmanagement.pojo.SeatRow;
+import org.example.ticketmanagement.pojo.SeatSection;
+import org.example.ticketmanagement.vo.SeatAllocationVO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 座位图分配：同排连续且靠近中间、区域优选顺序与票档匹配、释放、并发分配不重复、
+ * 返回前写入数据库（失败时撤销）、其他节点修改过的排重新加载后再分配
+ */
+class SeatMapEngineTest {
+
+    private static final long SESSION_ID = 1L;
+
+    private SeatSectionMapper sectionMapper;
+    private SeatRowMapper rowMapper;
+    private SeatMapEngine engine;
+    private final List<SeatSection> sections = new ArrayList<>();
+    private final List<SeatRow> rows = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        sectionMapper = mock(SeatSectionMapper.class);
+        rowMapper = mock(SeatRowMapper.class);
+        when(sectionMapper.selectBySessionId(SESSION_ID)).thenReturn(sections);
+        when(rowMapper.selectBySessionId(SESSION_ID)).thenReturn(rows);
+        when(rowMapper.updateSeatBits(anyLong(), any(), anyLong(), anyLong())).thenReturn(1);
+        engine = new SeatMapEngine();
+        ReflectionTestUtils.setField(engine, "seatSectionMapper", sectionMapper);
+        ReflectionTestUtils.setField(engine, "seatRowMapper", rowMapper);
+    }
+
+    @Test
+    void allocatesSeatsClosestToCenterInFirstRowThatFits() {
+        addSection(10L, 1L, 1);
+        // 第1排4~6号已售出
+        addRow(100L, 10L, 1, 10, 3, 4, 5);
+        addRow(101L, 10L, 2, 10);
+
+        SeatAllocationVO first = engine.allocate(SESSION_ID, 1L, 4);
+        assertThat(first.getRowNo()).isEqualTo(1);
+        assertThat(first.getSeatNos()).containsExactly(7, 8, 9, 10);
+
+        SeatAllocationVO second = engine.allocate(SESSION_ID, 1L, 5);
+        assertThat(second.getRowNo()).isEqualTo(2);
+        assertThat(second.getSeatNos()).containsExactly(3, 4, 5, 6, 7);
+
+        assertThat(engine.allocate(SESSION_ID, 1L, 11)).isNull();
+    }
+
+    @Test
+    void sectionsAreTriedInSortOrderForMatchingTier() {
+        addSection(10L, 1L, 2);
+        addSection(11L, 1L, 1);
+        addSection(12L, 2L, 0);
+        addRow(100L, 10L, 1, 4);
+        addRow(110L, 11L, 1, 2);
+        addRow(120L, 12L, 1, 10);
+
+        assertThat(engine.allocate(SESSION_ID, 1L, 2).getSectionId()).isEqualTo(11L);
+        assertThat(engine.allocate(SESSION_ID, 1L, 2).getSectionId()).isEqualTo(10L);
+        assertThat(engine.allocate(SESSION_ID, 1L, 1).getSectionId()).isEqualTo(10L);
+        assertThat(engine.allocate(SESSION_ID, 1L, 2)).isNull();
+        assertThat(engine.describe(SESSION_ID).getAvailableSeats()).isEqualTo(11);
+    }
+
+    @Test
+    void releaseFreesOnlySoldSeats() {
+        addSection(10L, 1L, 1);
+        addRow(100L, 10L, 1, 4);
+        SeatAllocationVO allocation = engine.allocate(SESSION_ID, 1L, 4);
+
+        assertThat(engine.release(SESSION_ID, 10L, 1, List.of(1, 2, 2, 9))).isEqualTo(2);
+        assertThat(engine.release(SESSION_ID, 10L, 1, List.of(1))).isZero();
+        assertThat(engine.release(SESSION_ID, 99L, 1, allocation.getSeatNos())).isZero();
+
+        assertThat(engine.allocate(SESSION_ID, 1L, 2).getSeatNos()).containsExactly(1, 2);
+    }
+
+    @Test
+    void concurrentAllocationsNeverDoubleBook() throws Exception {
+        addSection(10L, 1L, 1);
+        for (int i = 1; i <= 10; i++) {
+            addRow(100L + i, 10L, i, 20);
+        }
+        ExecutorService callers = Executors.newFixedThreadPool(16);
+        try {
+            CountDownLatch ready = new CountDownLatch(1);
+            List<Future<SeatAllocationVO>> results = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                results.add(callers.submit(() -> {
+                    ready.await();
+                    return engine.allocate(SESSION_ID, 1L, 3);
+                }));
+            }
+            ready.countDown();
+
+            Set<String> seats = new HashSet<>();
+            int allocated = 0;
+            for (Future<SeatAllocationVO> result : results) {
+                SeatAllocationVO allocation = result.get();
+                if (allocation == null) {
+                    continue;
+                }
+                for (Integer seatNo : allocation.getSeatNos()) {
+                    assertThat(seats.add(allocation.getRowNo() + "-" + seatNo)).isTrue();
+                    allocated++;
+                }
+            }
+            // 每排20个座位最多放6组3连座
+            assertThat(allocated).isEqualTo(10 * 6 * 3);
+            assertThat(engine.describe(SESSION_ID).getAvailableSeats()).isEqualTo(200 - allocated);
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void allocationIsWrittenBeforeReturning() {
+        addSection(10L, 1L, 1);
+        addRow(100L, 10L, 1, 10);
+
+        engine.allocate(SESSION_ID, 1L, 2);
+        engine.release(SESSION_ID, 10L, 1, List.of(5));
+
+        BitSet allocated = new BitSet();
+        allocated.set(4, 6);
+        verify(rowMapper).updateSeatBits(100L, allocated.toByteArray(), 1L, 0L);
+        allocated.clear(4);
+        verify(rowMapper).updateSeatBits(100L, allocated.toByteArray(), 2L, 1L);
+    }
+
+    @Test
+    void failedWriteUndoesAllocation() {
+        addSection(10L, 1L, 1);
+        addRow(100L, 10L, 1, 2);
+        when(rowMapper.updateSeatBits(eq(100L), any(), anyLong(), anyLong()))
+                .thenThrow(new IllegalStateException("db down"))
+                .thenReturn(1);
+
+        assertThatThrownBy(() -> engine.allocate(SESSION_ID, 1L, 2)).isInstanceOf(RuntimeException.class);
+        assertThat(engine.describe(SESSION_ID).getAvailableSeats()).isEqualTo(2);
+
+        // 撤销后仍以原版本号写入
+        assertThat(engine.allocate(SESSION_ID, 1L, 2).getSeatNos()).containsExactly(1, 2);
+        verify(rowMapper, times(2)).updateSeatBits(eq(100L), any(), eq(1L), eq(0L));
+    }
+
+    @Test
+    void rowChangedByAnotherNodeIsReloadedBeforeAllocating() {
+        addSection(10L, 1L, 1);
+        addRow(100L, 10L, 1, 6);
+        // 其他节点已售出中间的3、4号座位
+        BitSet other = new BitSet();
+        other.set(2, 4);
+        SeatRow latest = new SeatRow();
+        latest.setId(100L);
+        latest.setSectionId(10L);
+        latest.setSessionId(SESSION_ID);
+        latest.setRowNo(1);
+        latest.setSeatCount(6);
+        latest.setSeatBits(other.toByteArray());
+        latest.setVersion(3L);
+        when(rowMapper.selectById(100L)).thenReturn(latest);
+        when(rowMapper.updateSeatBits(eq(100L), any(), eq(1L), eq(0L))).thenReturn(0);
+
+        SeatAllocationVO allocation = engine.allocate(SESSION_ID, 1L, 2);
+
+        assertThat(allocation.getSeatNos()).containsExactly(1, 2);
+        other.set(0, 2);
+        verify(rowMapper).updateSeatBits(100L, other.toByteArray(), 4L, 3L);
+        assertThat(engine.describe(SESSION_ID).getAvailableSeats()).isEqualTo(2);
+    }
+
+    private void addSection(Long id, Long tierId, int sortOrder) {
+        SeatSection section = new SeatSection();
+        section.setId(id);
+        section.setSessionId(SESSION_ID);
+        section.setTierId(tierId);
+        section.setSectionName("区域" + id);
+        section.setSortOrder(sortOrder);
+        sections.add(section);
+    }
+
+    private void addRow(Long id, Long sectionId, int rowNo, int seatCount, int... soldIndexes) {
+        BitSet sold = new BitSet(seatCount);
+        for (int index : soldIndexes) {
+            sold.set(index);
+        }
+        SeatRow row = new SeatRow();
+        row.setId(id);
+        row.setSectionId(sectionId);
+        row.setSessionId(SESSION_ID);
+        row.setRowNo(rowNo);
+        row.setSeatCount(seatCount);
+        row.setSeatBits(sold.toByteArray());
+        row.setVersion(0L);
+        rows.add(row);
+    }
+}
@@ -0,0 +1,217 @@
+package org.example.ticketmanagement.util;
+
+import org.example.ticketmanagement.config.StockConfig;
+import org.example.ticketmanagement.mapper.TicketTierMapper;
+import org.example.ticketmanagement.mapper.TicketTierStockShardMapper;
+import org.example.ticketmanagement.support.H2Database;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 分片库存：拆分、并发扣减不超卖、跨分片扣减与归还、归还上限，以及合并分片时加锁阻塞扣减
+ */
+class ShardedStockManagerTest {
+
+    private static final long TIER_ID = 1L;
+
+    private static H2Database database;
+    private final ExecutorService callers = Executors.newFixedThreadPool(16);
+    private ShardedStockManager manager;
+
+    @BeforeAll
+    static void startDatabase() {
+        database = new H2Database("sharded_stock");
+    }
+
+    @AfterAll
+    static void stopDatabase() {
+        database.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        database.truncateAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void splitSpreadsTotalAndAvailableStockEvenly() {
+        start(4);
+        insertTier(10, 9);
+
+        assertThat(manager.ensureSplit(TIER_ID)).isEqualTo(4);
+
+        List<Integer> totals = database.getJdbcTemplate().queryForList(
+                "SELECT total_stock FROM ticket_tier_stock_shard WHERE tier_id = ? ORDER BY shard_no",
+                Integer.class, TIER_ID);
+        List<Integer> availables = database.getJdbcTemplate().queryForList(
+                "SELECT available_stock FROM ticket_tier_stock_shard WHERE tier_id = ? ORDER BY shard_no",
+                Integer.class, TIER_ID);
+        assertThat(totals).containsExactly(3, 3, 2, 2);
+        assertThat(availables).containsExactly(3, 2, 2, 2);
+        assertThat(manager.getAvailableStock(TIER_ID)).isEqualTo(9);
+        // 已拆分的票档不会重复拆分
+        assertThat(manager.ensureSplit(TIER_ID)).isEqualTo(4);
+    }
+
+    @Test
+    void concurrentDeductionsNeverOversell() throws Exception {
+        start(8);
+        insertTier(30, 30);
+        CountDownLatch ready = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            int quantity = i % 3 + 1;
+            results.add(callers.submit(() -> {
+                ready.await();
+                return manager.deduct(TIER_ID, quantity);
+            }));
+        }
+        ready.countDown();
+
+        int sold = 0;
+        for (int i = 0; i < results.size(); i++) {
+            sold += results.get(i).get() ? i % 3 + 1 : 0;
+        }
+        assertThat(sold).isLessThanOrEqualTo(30);
+        assertThat(manager.getAvailableStock(TIER_ID)).isEqualTo(30 - sold);
+    }
+
+    @Test
+    void deductionLargerThanAnyShardSpansShards() {
+        start(4);
+        insertTier(4, 4);
+
+        assertThat(manager.deduct(TIER_ID, 3)).isTrue();
+        assertThat(manager.getAvailableStock(TIER_ID)).isEqualTo(1);
+        assertThat(manager.deduct(TIER_ID, 2)).isFalse();
+        assertThat(manager.getAvailableStock(TIER_ID)).isEqualTo(1);
+    }
+
+    @Test
+    void releaseNeverExceedsShardTotals() {
+        start(2);
+        insertTier(4, 4);
+        manager.deduct(TIER_ID, 1);
+
+        assertThat(manager.release(TIER_ID, 1)).isTrue();
+        assertThat(manager.release(TIER_ID, 1)).isFalse();
+        assertThat(manager.getAvailableStock(TIER_ID)).isEqualTo(4);
+        assertThat(manager.release(2L, 1)).isFalse();
+    }
+
+    @Test
+    void releaseLargerThanAnyShardRoomSpansShards() {
+        start(4);
+        insertTier(4, 4);
+        manager.deduct(TIER_ID, 3);
+
+        assertThat(manager.release(TIER_ID, 3)).isTrue();
+        assertThat(manager.getAvailableStock(TIER_ID)).isEqualTo(4);
+        assertThat(manager.release(TIER_ID, 1)).isFalse();
+        assertThat(manager.getAvailableStock(TIER_ID)).isEqualTo(4);
+    }
+
+    @Test
+    void syncToTierWritesShardSumBack() {
+        start(4);
+        insertTier(10, 10);
+        manager.deduct(TIER_ID, 3);
+
+        assertThat(manager.syncToTier()).isEqualTo(1);
+        assertThat(tierAvailable()).isEqualTo(7);
+        assertThat(manager.syncToTier()).isZero();
+    }
+
+    @Test
+    void deductionsWaitWhileShardsAreFoldedIntoTier() throws Exception {
+        start(4);
+        insertTier(10, 10);
+        manager.ensureSplit(TIER_ID);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch fold = new CountDownLatch(1);
+
+        // 管理端改库存：锁定后把分片之和合并回票档表并删除分片
+        CompletableFuture<Void> admin = CompletableFuture.runAsync(() ->
+                database.getTransactionTemplate().executeWithoutResult(status -> {
+                    Integer shardStock = manager.lockAvailableStock(TIER_ID);
+                    locked.countDown();
+                    await(fold);
+                    database.getJdbcTemplate().update(
+                            "UPDATE ticket_tier SET available_stock = ? WHERE id = ?", shardStock, TIER_ID);
+                    manager.reset(TIER_ID);
+                }), callers);
+        assertThat(locked.await(5, TimeUnit.SECONDS)).isTrue();
+
+        List<CompletableFuture<Boolean>> deductions = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            deductions.add(CompletableFuture.supplyAsync(() -> manager.deduct(TIER_ID, 1), callers));
+        }
+        Thread.sleep(200);
+        assertThat(deductions).noneMatch(CompletableFuture::isDone);
+
+        fold.countDown();
+        admin.get(10, TimeUnit.SECONDS);
+        int sold = 0;
+        for (CompletableFuture<Boolean> deduction : deductions) {
+            sold += deduction.get(10, TimeUnit.SECONDS) ? 1 : 0;
+        }
+
+        // 等待中的扣减按票档表的新库存重新拆分，扣减数量与剩余库存之和不变
+        assertThat(sold).isEqualTo(4);
+        assertThat(manager.getAvailableStock(TIER_ID)).isEqualTo(6);
+    }
+
+    private void start(int shardCount) {
+        StockConfig stockConfig = new StockConfig();
+        stockConfig.setEngine("shard");
+        stockConfig.setShardCount(shardCount);
+        manager = new ShardedStockManager();
+        ReflectionTestUtils.setField(manager, "shardMapper", database.mapper(TicketTierStockShardMapper.class));
+        ReflectionTestUtils.setField(manager, "ticketTierMapper", database.mapper(TicketTierMapper.class));
+        ReflectionTestUtils.setField(manager, "stockConfig", stockConfig);
+        ReflectionTestUtils.setField(manager, "transactionTemplate", database.getTransactionTemplate());
+        ReflectionTestUtils.setField(manager, "clusterBroadcaster", mock(ClusterBroadcaster.class));
+        manager.init();
+    }
+
+    private void insertTier(int total, int available) {
+        database.getJdbcTemplate().update("INSERT INTO ticket_tier(id, event_id, session_id, tier_name, " +
+                "total_stock, available_stock, status, create_time, update_time) " +
+                "VALUES(?, 1, 1, '内场', ?, ?, 1, NOW(), NOW())", TIER_ID, total, available);
+    }
+
+    private int tierAvailable() {
+        return database.getJdbcTemplate().queryForObject(
+                "SELECT available_stock FROM ticket_tier WHERE id = ?", Integer.class, TIER_ID);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
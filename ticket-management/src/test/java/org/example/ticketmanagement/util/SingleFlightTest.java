@@ -0,0 +1,174 @@
+package org.example.ticketmanagement.util;
+
+import org.example.ticketmanagement.config.SingleFlightConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 热点读取合并：并发请求共享同一次加载（包括异常）、加载结束后重新加载、关闭后各自加载、提前刷新的概率
+ */
+class SingleFlightTest {
+
+    private static final int CALLERS = 16;
+
+    private SingleFlightConfig config;
+    private SingleFlight singleFlight;
+
+    @BeforeEach
+    void setUp() {
+        config = new SingleFlightConfig();
+        singleFlight = new SingleFlight();
+        ReflectionTestUtils.setField(singleFlight, "singleFlightConfig", config);
+    }
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        try {
+            Future<String> leader = callers.submit(() -> singleFlight.execute("event:1", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return "detail-1";
+            }));
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+            List<Future<String>> followers = new ArrayList<>();
+            for (int i = 1; i < CALLERS; i++) {
+                followers.add(callers.submit(() -> singleFlight.execute("event:1", () -> {
+                    loads.incrementAndGet();
+                    return "detail-other";
+                })));
+            }
+            // 等待跟随者都进入等待后再结束加载
+            Thread.sleep(200);
+            release.countDown();
+
+            assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("detail-1");
+            for (Future<String> follower : followers) {
+                assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("detail-1");
+            }
+            assertThat(loads).hasValue(1);
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void waitersReceiveLoaderException() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> leader = callers.submit(() -> singleFlight.execute("event:1", () -> {
+                loading.countDown();
+                await(release);
+                throw new IllegalStateException("db down");
+            }));
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<Object> follower = callers.submit(() -> singleFlight.execute("event:1", () -> "unused"));
+            Thread.sleep(200);
+            release.countDown();
+
+            assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasRootCauseInstanceOf(IllegalStateException.class);
+            assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .cause().isInstanceOf(IllegalStateException.class).hasMessage("db down");
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void finishedLoadIsNotReused() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(singleFlight.execute("event:1", loads::incrementAndGet)).isEqualTo(1);
+        assertThat(singleFlight.execute("event:1", loads::incrementAndGet)).isEqualTo(2);
+        assertThatThrownBy(() -> singleFlight.execute("event:1", () -> {
+            throw new IllegalStateException("db down");
+        })).isInstanceOf(IllegalStateException.class);
+        // 失败的加载同样会移除，下一次重新加载
+        assertThat(singleFlight.execute("event:1", loads::incrementAndGet)).isEqualTo(3);
+    }
+
+    @Test
+    void disabledLetsEveryCallerLoad() throws Exception {
+        config.setEnabled(false);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch ready = new CountDownLatch(1);
+        CountDownLatch inside = new CountDownLatch(CALLERS);
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(callers.submit(() -> {
+                    ready.await();
+                    return singleFlight.execute("event:1", () -> {
+                        inside.countDown();
+                        await(inside);
+                        return loads.incrementAndGet();
+                    });
+                }));
+            }
+            ready.countDown();
+            for (Future<Integer> result : results) {
+                result.get(5, TimeUnit.SECONDS);
+            }
+            assertThat(loads).hasValue(CALLERS);
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void earlyRefreshBecomesLikelierNearExpiry() {
+        long now = System.currentTimeMillis();
+
+        assertThat(refreshes(10_000, now + 3_600_000)).isZero();
+        // 剩余时间等于加载耗时，约 1/e 的请求提前刷新
+        assertThat(refreshes(10_000, now + 10_000)).isBetween(250, 500);
+        assertThat(refreshes(10_000, now)).isEqualTo(1000);
+
+        config.setEarlyRefreshBeta(0);
+        assertThat(refreshes(10_000, now)).isZero();
+    }
+
+    private int refreshes(long loadMillis, long expiresAt) {
+        int refreshed = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (singleFlight.shouldRefreshEarly(loadMillis, expiresAt)) {
+                refreshed++;
+            }
+        }
+        return refreshed;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.ticketmanagement.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 售罄登记表：位图标记、版本号防止旧数据覆盖补货、场次快照与广播清除
+ */
+class SoldOutRegistryTest {
+
+    private ClusterBroadcaster clusterBroadcaster;
+    private SoldOutRegistry registry;
+    private Consumer<String> broadcastHandler;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        clusterBroadcaster = mock(ClusterBroadcaster.class);
+        registry = new SoldOutRegistry();
+        ReflectionTestUtils.setField(registry, "clusterBroadcaster", clusterBroadcaster);
+        registry.init();
+        ArgumentCaptor<Consumer<String>> handler = ArgumentCaptor.forClass(Consumer.class);
+        verify(clusterBroadcaster).subscribe(eq("sold-out"), handler.capture());
+        broadcastHandler = handler.getValue();
+    }
+
+    @Test
+    void markedTierIsSoldOutUntilInvalidated() {
+        long epoch = registry.currentEpoch();
+        assertThat(registry.markTierSoldOut(5L, epoch)).isTrue();
+        assertThat(registry.isTierSoldOut(5L)).isTrue();
+        // 同一个字中的相邻票档不受影响
+        assertThat(registry.isTierSoldOut(4L)).isFalse();
+        assertThat(registry.isTierSoldOut(6L)).isFalse();
+
+        registry.invalidateTier(5L);
+
+        assertThat(registry.isTierSoldOut(5L)).isFalse();
+        verify(clusterBroadcaster).publish("sold-out", "tier:5");
+    }
+
+    @Test
+    void tierIdsAcrossPagesAreIndependent() {
+        long epoch = registry.currentEpoch();
+        registry.markTierSoldOut(1L << 16, epoch);
+        registry.markTierSoldOut(63L, epoch);
+
+        assertThat(registry.isTierSoldOut(1L << 16)).isTrue();
+        assertThat(registry.isTierSoldOut(63L)).isTrue();
+        assertThat(registry.isTierSoldOut(0L)).isFalse();
+        assertThat(registry.isTierSoldOut((1L << 16) + 63)).isFalse();
+    }
+
+    @Test
+    void staleEpochDoesNotMarkRestockedTier() {
+        long epoch = registry.currentEpoch();
+        // 查询库存期间票档被补货
+        registry.invalidateTier(7L);
+
+        assertThat(registry.markTierSoldOut(7L, epoch)).isFalse();
+        assertThat(registry.isTierSoldOut(7L)).isFalse();
+    }
+
+    @Test
+    void sessionSnapshotIsClearedWhenAnyTierIsInvalidated() {
+        Map<String, Object> tier = new HashMap<>();
+        tier.put("id", 8L);
+        tier.put("availableStock", 0);
+        assertThat(registry.markSessionSoldOut(3L, 30L, List.of(tier), registry.currentEpoch())).isTrue();
+
+        SoldOutRegistry.SoldOutSession session = registry.getSoldOutSession(3L);
+        assertThat(session.getEventId()).isEqualTo(30L);
+        // 快照返回副本，修改不影响缓存
+        session.copyTierStockList().get(0).put("availableStock", 99);
+        assertThat(registry.getSoldOutSession(3L).copyTierStockList().get(0)).containsEntry("availableStock", 0);
+        assertThat(registry.isTierSoldOut(8L)).isTrue();
+
+        registry.invalidateTier(8L);
+        assertThat(registry.getSoldOutSession(3L)).isNull();
+    }
+
+    @Test
+    void broadcastFromOtherNodeClearsLocalMarks() {
+        long epoch = registry.currentEpoch();
+        registry.markTierSoldOut(9L, epoch);
+        Map<String, Object> tier = Map.of("id", 10L);
+        registry.markSessionSoldOut(4L, 40L, List.of(tier), registry.currentEpoch());
+
+        broadcastHandler.accept("tier:9");
+        broadcastHandler.accept("session:4");
+
+        assertThat(registry.isTierSoldOut(9L)).isFalse();
+        assertThat(registry.getSoldOutSession(4L)).isNull();
+        assertThat(registry.currentEpoch()).isGreaterThan(epoch);
+    }
+}
@@ -0,0 +1,148 @@
+package org.example.ticketmanagement.util;
+
+import org.example.ticketmanagement.config.StockConfig;
+import org.example.ticketmanagement.mapper.TicketTierMapper;
+import org.example.ticketmanagement.pojo.TicketTier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 库存扣减合并器：整批扣减、库存不足时按到达顺序拆分、归还与扣减按净额执行
+ */
+class StockDeductionCombinerTest {
+
+    private static final long TIER_ID = 1L;
+
+    private final ExecutorService callers = Executors.newFixedThreadPool(64);
+    private StockDeductionCombiner combiner;
+    private TicketTierMapper mapper;
+    private int totalStock;
+    private int availableStock;
+
+    @AfterEach
+    void tearDown() {
+        combiner.destroy();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void concurrentDeductionsNeverExceedStock() throws Exception {
+        start(20, 20, 5);
+        CountDownLatch ready = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            results.add(callers.submit(() -> {
+                ready.await();
+                return combiner.deduct(TIER_ID, 1);
+            }));
+        }
+        ready.countDown();
+
+        int succeeded = 0;
+        for (Future<Boolean> result : results) {
+            succeeded += result.get() ? 1 : 0;
+        }
+        assertThat(succeeded).isEqualTo(20);
+        assertThat(available()).isZero();
+        // 合并后UPDATE次数远少于请求数
+        verify(mapper, atMost(25)).updateStock(eq(TIER_ID), anyInt());
+    }
+
+    @Test
+    void insufficientBatchIsSplitInArrivalOrder() throws Exception {
+        start(10, 5, 100);
+        CompletableFuture<Boolean> first = CompletableFuture.supplyAsync(() -> combiner.deduct(TIER_ID, 3), callers);
+        Thread.sleep(20);
+        CompletableFuture<Boolean> second = CompletableFuture.supplyAsync(() -> combiner.deduct(TIER_ID, 3), callers);
+        Thread.sleep(20);
+        CompletableFuture<Boolean> third = CompletableFuture.supplyAsync(() -> combiner.deduct(TIER_ID, 2), callers);
+
+        assertThat(first.get()).isTrue();
+        assertThat(second.get()).isFalse();
+        assertThat(third.get()).isTrue();
+        assertThat(available()).isZero();
+    }
+
+    @Test
+    void releaseInSameBatchIsNettedAgainstDeduction() throws Exception {
+        start(1, 0, 100);
+        CompletableFuture<Boolean> release = CompletableFuture.supplyAsync(() -> combiner.release(TIER_ID, 1), callers);
+        Thread.sleep(20);
+        CompletableFuture<Boolean> deduct = CompletableFuture.supplyAsync(() -> combiner.deduct(TIER_ID, 1), callers);
+
+        assertThat(release.get()).isTrue();
+        assertThat(deduct.get()).isTrue();
+        assertThat(available()).isZero();
+        verify(mapper).applyStockDelta(TIER_ID, 0L);
+    }
+
+    @Test
+    void releaseBeyondTotalStockFails() {
+        start(5, 5, 1);
+
+        assertThat(combiner.release(TIER_ID, 1)).isFalse();
+        assertThat(available()).isEqualTo(5);
+    }
+
+    private void start(int total, int available, long window) {
+        totalStock = total;
+        availableStock = available;
+        mapper = mock(TicketTierMapper.class);
+        when(mapper.updateStock(eq(TIER_ID), anyInt())).thenAnswer(invocation ->
+                apply(invocation.getArgument(1, Integer.class)));
+        when(mapper.applyStockDelta(eq(TIER_ID), anyLong())).thenAnswer(invocation ->
+                apply(invocation.getArgument(1, Long.class).intValue()));
+        when(mapper.releaseStock(eq(TIER_ID), anyInt())).thenAnswer(invocation ->
+                apply(-invocation.getArgument(1, Integer.class)));
+        when(mapper.selectById(TIER_ID)).thenAnswer(invocation -> snapshot());
+
+        StockConfig stockConfig = new StockConfig();
+        stockConfig.setCombineWindow(window);
+        combiner = new StockDeductionCombiner();
+        ReflectionTestUtils.setField(combiner, "ticketTierMapper", mapper);
+        ReflectionTestUtils.setField(combiner, "stockConfig", stockConfig);
+        combiner.init();
+    }
+
+    /**
+     * 与库存SQL相同的约束：扣减后不低于0，归还后不超过总库存
+     */
+    private synchronized int apply(int delta) {
+        int remain = availableStock - delta;
+        if (remain < 0 || remain > totalStock) {
+            return 0;
+        }
+        availableStock = remain;
+        return 1;
+    }
+
+    private synchronized TicketTier snapshot() {
+        TicketTier tier = new TicketTier();
+        tier.setId(TIER_ID);
+        tier.setTotalStock(totalStock);
+        tier.setAvailableStock(availableStock);
+        return tier;
+    }
+
+    private synchronized int available() {
+        return availableStock;
+    }
+}
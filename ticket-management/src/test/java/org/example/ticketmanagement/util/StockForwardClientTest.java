@@ -0,0 +1,144 @@
+package org.example.ticketmanagement.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.example.ticketmanagement.config.OwnershipConfig;
+import org.example.ticketmanagement.vo.StockForwardVO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 库存转发：结果不确定时用同一个请求ID重试，仍不确定时预扣排队撤销、释放排队重发，属主答复后出队
+ */
+class StockForwardClientTest {
+
+    private static final String SUCCESS = "{\"code\":1,\"msg\":\"success\",\"data\":{\"success\":true,\"stocks\":{\"1\":95}}}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // 属主收到的请求：路径 + 请求ID
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    // 前几个请求不答复（超过读取超时）
+    private final AtomicInteger stalledRequests = new AtomicInteger();
+
+    private HttpServer server;
+    private String ownerUrl;
+    private OwnershipConfig config;
+    private StockForwardClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/api/internal/stock", this::handle);
+        server.start();
+        ownerUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        config = new OwnershipConfig();
+        config.setInternalToken("test");
+        config.setForwardTimeout(200);
+        config.setForwardRetries(1);
+        client = new StockForwardClient();
+        ReflectionTestUtils.setField(client, "ownershipConfig", config);
+        client.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void timeoutIsRetriedWithSameRequestId() {
+        stalledRequests.set(1);
+
+        StockForwardVO result = client.reserve(ownerUrl, Map.of(1L, 5));
+
+        assertThat(result.getSuccess()).isTrue();
+        assertThat(received).hasSize(2);
+        assertThat(received.get(0)).startsWith("/api/internal/stock/reserve ").isEqualTo(received.get(1));
+        assertThat(client.getPendingCount()).isZero();
+    }
+
+    @Test
+    void unknownReserveIsAbortedLater() {
+        stalledRequests.set(2);
+
+        assertThat(client.reserve(ownerUrl, Map.of(1L, 5))).isNull();
+        assertThat(client.getPendingCount()).isEqualTo(1);
+
+        assertThat(client.retryPending()).isEqualTo(1);
+        String requestId = received.get(0).substring(received.get(0).indexOf(' ') + 1);
+        assertThat(received).last().isEqualTo("/api/internal/stock/abort/" + requestId + " ");
+        assertThat(client.getPendingCount()).isZero();
+    }
+
+    @Test
+    void unknownReleaseIsResentUntilAnswered() {
+        stalledRequests.set(3);
+
+        StockForwardVO result = client.release(ownerUrl, 1L, 2);
+        assertThat(result.getSuccess()).isTrue();
+        assertThat(client.getPendingCount()).isEqualTo(1);
+
+        // 第一次重发仍然超时，保留在队列中
+        assertThat(client.retryPending()).isZero();
+        assertThat(client.getPendingCount()).isEqualTo(1);
+        assertThat(client.retryPending()).isEqualTo(1);
+        assertThat(client.getPendingCount()).isZero();
+        assertThat(received).hasSize(4).containsOnly(received.get(0));
+    }
+
+    @Test
+    void unknownRequestIsDroppedAfterDedupTtl() {
+        stalledRequests.set(Integer.MAX_VALUE);
+        config.setForwardDedupTtl(0);
+
+        client.release(ownerUrl, 1L, 2);
+        assertThat(client.getPendingCount()).isEqualTo(1);
+        client.retryPending();
+        assertThat(client.getPendingCount()).isZero();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        String requestId = "";
+        if (body.length > 0) {
+            JsonNode json = objectMapper.readTree(body);
+            requestId = json.path("requestId").asText();
+        }
+        received.add(exchange.getRequestURI().getPath() + " " + requestId);
+        if (stalledRequests.getAndDecrement() > 0) {
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        byte[] response = SUCCESS.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        try {
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        } catch (IOException e) {
+            // 客户端已超时断开
+        }
+    }
+}
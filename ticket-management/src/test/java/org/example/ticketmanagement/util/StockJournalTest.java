@@ -0,0 +1,165 @@
+package org.example.ticketmanagement.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 库存追加日志：顺序重放、按快照序号跳过、日志段切换与清理、写入一半的记录视为日志末尾
+ */
+class StockJournalTest {
+
+    private static final int RECORD_SIZE = 32;
+
+    @TempDir
+    Path dir;
+
+    private StockJournal journal;
+
+    @AfterEach
+    void tearDown() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    void reopenReplaysRecordsInOrder() throws IOException {
+        journal = open(0, 0, new ArrayList<>());
+        journal.append(StockJournal.TYPE_LOAD, 1L, 10);
+        journal.append(StockJournal.TYPE_RESERVE, 1L, 3);
+        journal.append(StockJournal.TYPE_RELEASE, 1L, 1);
+        journal.close();
+
+        List<String> replayed = new ArrayList<>();
+        journal = open(0, 0, replayed);
+
+        assertThat(replayed).containsExactly("1:1:1:10", "2:2:1:3", "3:3:1:1");
+        assertThat(journal.getLastSeq()).isEqualTo(3);
+        assertThat(journal.append(StockJournal.TYPE_RESERVE, 1L, 1)).isEqualTo(4);
+    }
+
+    @Test
+    void replaySkipsRecordsCoveredBySnapshot() throws IOException {
+        journal = open(0, 0, new ArrayList<>());
+        for (int i = 0; i < 5; i++) {
+            journal.append(StockJournal.TYPE_RESERVE, 1L, i);
+        }
+        journal.close();
+
+        List<String> replayed = new ArrayList<>();
+        journal = open(3, 0, replayed);
+
+        assertThat(replayed).containsExactly("4:2:1:3", "5:2:1:4");
+        assertThat(journal.getLastSeq()).isEqualTo(5);
+    }
+
+    @Test
+    void tornRecordEndsJournalAndIsOverwritten() throws IOException {
+        journal = open(0, 0, new ArrayList<>());
+        journal.append(StockJournal.TYPE_LOAD, 1L, 10);
+        journal.append(StockJournal.TYPE_RESERVE, 1L, 2);
+        journal.append(StockJournal.TYPE_RESERVE, 1L, 3);
+        journal.close();
+        // 模拟写入第3条记录时崩溃：数值已写入一半，校验和与之不符
+        corrupt(onlySegment(), 2 * RECORD_SIZE + 16, 0x7F);
+
+        List<String> replayed = new ArrayList<>();
+        journal = open(0, 0, replayed);
+        assertThat(replayed).containsExactly("1:1:1:10", "2:2:1:2");
+        assertThat(journal.getLastSeq()).isEqualTo(2);
+
+        // 新记录从损坏的位置继续写入，序号不跳号
+        assertThat(journal.append(StockJournal.TYPE_RESERVE, 1L, 4)).isEqualTo(3);
+        journal.close();
+
+        replayed.clear();
+        journal = open(0, 0, replayed);
+        assertThat(replayed).containsExactly("1:1:1:10", "2:2:1:2", "3:2:1:4");
+    }
+
+    @Test
+    void recordWithoutMagicEndsJournal() throws IOException {
+        journal = open(0, 0, new ArrayList<>());
+        journal.append(StockJournal.TYPE_LOAD, 1L, 10);
+        journal.append(StockJournal.TYPE_RESERVE, 1L, 2);
+        journal.close();
+        // 崩溃时最后一条记录的魔数还没有写入
+        corrupt(onlySegment(), RECORD_SIZE + 28, 0);
+
+        List<String> replayed = new ArrayList<>();
+        journal = open(0, 0, replayed);
+
+        assertThat(replayed).containsExactly("1:1:1:10");
+    }
+
+    @Test
+    void fullSegmentRollsAndTruncateKeepsUncoveredSegments() throws IOException {
+        // 每个日志段2条记录：段1(1,2)、段3(3,4)、段5(5)
+        journal = new StockJournal(dir, 2 * RECORD_SIZE, 1000);
+        journal.open(0, 0, (seq, type, tierId, value) -> { });
+        for (int i = 1; i <= 5; i++) {
+            journal.append(StockJournal.TYPE_RESERVE, 1L, i);
+        }
+        assertThat(segmentCount()).isEqualTo(3);
+
+        // 段3的最后一条记录序号为4，未被快照覆盖
+        assertThat(journal.truncateBefore(3)).isEqualTo(1);
+        assertThat(segmentCount()).isEqualTo(2);
+        // 当前写入的日志段不删除
+        assertThat(journal.truncateBefore(5)).isEqualTo(1);
+        assertThat(segmentCount()).isEqualTo(1);
+        journal.close();
+
+        List<String> replayed = new ArrayList<>();
+        journal = new StockJournal(dir, 2 * RECORD_SIZE, 1000);
+        journal.open(4, 0, (seq, type, tierId, value) -> replayed.add(seq + ":" + value));
+        assertThat(replayed).containsExactly("5:5");
+    }
+
+    @Test
+    void minSeqPreventsSequenceGoingBackwards() throws IOException {
+        // 日志文件丢失，但数据库回写位点已到10
+        journal = open(0, 10, new ArrayList<>());
+
+        assertThat(journal.getLastSeq()).isEqualTo(10);
+        assertThat(journal.append(StockJournal.TYPE_LOAD, 1L, 5)).isEqualTo(11);
+    }
+
+    private StockJournal open(long afterSeq, long minSeq, List<String> replayed) throws IOException {
+        StockJournal opened = new StockJournal(dir, 64 * RECORD_SIZE, 1000);
+        opened.open(afterSeq, minSeq,
+                (seq, type, tierId, value) -> replayed.add(seq + ":" + type + ":" + tierId + ":" + value));
+        return opened;
+    }
+
+    private Path onlySegment() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".log")).count();
+        }
+    }
+
+    private void corrupt(Path file, int position, int value) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, value), position);
+        }
+    }
+}